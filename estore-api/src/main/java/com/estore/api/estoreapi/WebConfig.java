@@ -1,9 +1,14 @@
 package com.estore.api.estoreapi;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import com.estore.api.estoreapi.controller.CartShardFilter;
+import com.estore.api.estoreapi.controller.CartShards;
+
 @Configuration
 @EnableWebMvc
 public class WebConfig implements WebMvcConfigurer {
@@ -13,4 +18,12 @@ public class WebConfig implements WebMvcConfigurer {
         registry.addMapping("/**")
                 .allowedMethods("HEAD", "GET", "PUT", "POST", "DELETE", "PATCH");
     }
-}
\ No newline at end of file
+
+    // Sends cart requests to the instance that owns the user's cart
+    @Bean
+    public FilterRegistrationBean<CartShardFilter> cartShardFilter(CartShards shards) {
+        FilterRegistrationBean<CartShardFilter> registration = new FilterRegistrationBean<>(new CartShardFilter(shards));
+        registration.addUrlPatterns("/cart/*");
+        return registration;
+    }
+}
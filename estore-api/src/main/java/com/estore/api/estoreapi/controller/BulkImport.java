@@ -0,0 +1,56 @@
+package com.estore.api.estoreapi.controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * Reads the JSON array of a bulk import request one entry at a time
+ * <br>
+ * Entries are checked as they are read, so a bad entry rejects the request
+ * without the rest of the body being parsed.
+ */
+public class BulkImport {
+    private BulkImport() {
+    }
+
+    /**
+     * Reads every entry of a JSON array
+     *
+     * @param <T> The type of entry imported
+     * @param objectMapper Converts the JSON text to entries
+     * @param body The request body holding the JSON array
+     * @param type The class of the entries
+     * @param valid Tells whether an entry may be imported
+     *
+     * @return The entries in the order they were sent, or null if the body is not
+     * a JSON array or holds an entry that is not valid
+     *
+     * @throws IOException if the body cannot be read or is not well-formed JSON
+     */
+    public static <T> List<T> read(ObjectMapper objectMapper, InputStream body, Class<T> type,
+                                   Predicate<T> valid) throws IOException {
+        ObjectReader reader = objectMapper.readerFor(type);
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY)
+                return null;
+            List<T> entries = new ArrayList<>();
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                T entry = reader.readValue(parser);
+                if (entry == null || !valid.test(entry))
+                    return null;
+                entries.add(entry);
+            }
+            if (parser.currentToken() != JsonToken.END_ARRAY)
+                return null; // an entry that is not an object
+            return entries;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.estore.api.estoreapi.controller;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Sends each cart request to the API instance that owns the user's cart
+ * <br>
+ * The user is the first number in the request path after {@code /cart}. If the
+ * {@link CartShards shard map} says another instance owns that user, the
+ * request is passed on unchanged and the owner's status, content type and body
+ * are returned as they are; otherwise it goes on to the
+ * {@link ShoppingCartController cart controller}. A forwarded response also
+ * names the owner in the {@value CartShards#FORWARDED_HEADER} header, so
+ * clients such as the load generator can tell forwarded requests from local
+ * ones. Forwarded requests are timed in the {@code http.server.requests} metric
+ * under the URI {@value #FORWARDED_URI}, as no handler of this instance matched them.
+ * A forwarded request is always handled where it lands, so two instances
+ * that briefly disagree about the nodes cannot pass a request back and forth.
+ */
+public class CartShardFilter extends OncePerRequestFilter {
+    private static final Logger LOG = Logger.getLogger(CartShardFilter.class.getName());
+
+    static final String FORWARDED_URI = "/cart/**";
+
+    private final CartShards shards;
+
+    /**
+     * Creates the filter
+     *
+     * @param shards The {@link CartShards shard map} that decides where carts live
+     */
+    public CartShardFilter(CartShards shards) {
+        this.shards = shards;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        int userId = userId(path);
+        String owner = userId < 0 || request.getHeader(CartShards.FORWARDED_HEADER) != null
+                ? null : shards.ownerOf(userId);
+        if (owner == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, FORWARDED_URI);
+        if (request.getQueryString() != null)
+            path += "?" + request.getQueryString();
+        try {
+            HttpResponse<byte[]> forwarded = shards.forward(owner, request.getMethod(), path,
+                    request.getContentType(), StreamUtils.copyToByteArray(request.getInputStream()));
+            response.setStatus(forwarded.statusCode());
+            response.setHeader(CartShards.FORWARDED_HEADER, owner);
+            forwarded.headers().firstValue("Content-Type").ifPresent(response::setContentType);
+            response.getOutputStream().write(forwarded.body());
+        } catch (IOException e) {
+            LOG.log(Level.SEVERE, "Could not forward " + request.getMethod() + " " + path + " to " + owner, e);
+            response.setStatus(HttpStatus.BAD_GATEWAY.value());
+        }
+    }
+
+    /**
+     * Finds the user a cart request is for
+     *
+     * @param path The request path, such as {@code /cart/add/7/2/1}
+     *
+     * @return The first number after {@code /cart}, -1 if there is none
+     */
+    static int userId(String path) {
+        String[] segments = path.split("/");
+        for (int i = 2; i < segments.length; i++) {
+            String segment = segments[i];
+            if (segment.isEmpty() || segment.length() > 9 || !segment.chars().allMatch(Character::isDigit))
+                continue;
+            return Integer.parseInt(segment);
+        }
+        return -1;
+    }
+}
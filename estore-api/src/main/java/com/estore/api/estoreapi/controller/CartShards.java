@@ -0,0 +1,306 @@
+package com.estore.api.estoreapi.controller;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.estore.api.estoreapi.model.Kit;
+import com.estore.api.estoreapi.model.ShoppingCart;
+import com.estore.api.estoreapi.persistence.CartDAO;
+import com.estore.api.estoreapi.persistence.KitDAO;
+
+/**
+ * Decides which API instance owns each user's {@linkplain ShoppingCart cart} and
+ * sends cart requests to the owner
+ * <br>
+ * Users are spread over the instances by a {@link HashRing consistent-hash ring},
+ * so any instance can take any request: the {@link CartShardFilter cart filter}
+ * handles the request itself if this instance owns the user's cart and forwards
+ * it to the owner otherwise. With no nodes configured every cart is local, as
+ * it was with a single instance.
+ * <p>
+ * Each instance is told the nodes separately, by {@code carts.shard.nodes} at
+ * startup or through the {@link ShardController shard endpoint}. The endpoint may
+ * only name hosts allowed by {@code carts.shard.allowed-hosts} or already among
+ * the configured nodes, so it cannot be used to send requests anywhere else.
+ * When the nodes change, the carts this instance holds for users it no longer
+ * owns are handed to their new owners one kit at a time, in the background. The new owner reserves the kits from
+ * its own stock, then this instance drops them and puts them back in its
+ * stock. A kit the new owner cannot take stays behind, and goes back in stock
+ * when the sweeper evicts the abandoned cart.
+ */
+@Component
+public class CartShards {
+    private static final Logger LOG = Logger.getLogger(CartShards.class.getName());
+
+    /** Marks a request as already forwarded, so the receiving instance handles it whatever its own ring says */
+    public static final String FORWARDED_HEADER = "X-Cart-Forwarded";
+
+    private final CartDAO cartDao;
+    private final KitDAO kitDao;
+    private final String self;           // this instance's base URL as it appears among the nodes
+    private final Duration timeout;      // longest to wait for another instance
+    private final HttpClient client;
+    private final Set<String> allowedHosts; // the hosts the nodes may be changed to
+    private final ExecutorService rebalancer;
+    private volatile HashRing ring;
+
+    /**
+     * Creates the shard map of this instance
+     *
+     * @param cartDao The DAO holding the carts this instance owns
+     * @param kitDao The DAO that takes back the stock of carts handed to other instances
+     * @param self This instance's base URL, as listed among the nodes
+     * @param nodes The base URLs of every instance, separated by commas; empty to keep every cart local
+     * @param timeoutMillis The longest to wait for another instance to answer
+     */
+    public CartShards(CartDAO cartDao, KitDAO kitDao, String self, String nodes, long timeoutMillis) {
+        this(cartDao, kitDao, self, nodes, timeoutMillis, "");
+    }
+
+    /**
+     * Creates the shard map of this instance
+     *
+     * @param cartDao The DAO holding the carts this instance owns
+     * @param kitDao The DAO that takes back the stock of carts handed to other instances
+     * @param self This instance's base URL, as listed among the nodes
+     * @param nodes The base URLs of every instance, separated by commas; empty to keep every cart local
+     * @param timeoutMillis The longest to wait for another instance to answer
+     * @param allowedHosts The host names, separated by commas, that the nodes may be changed to
+     * besides those of this instance and the configured nodes
+     */
+    @Autowired
+    public CartShards(CartDAO cartDao, KitDAO kitDao,
+                      @Value("${carts.shard.self:}") String self,
+                      @Value("${carts.shard.nodes:}") String nodes,
+                      @Value("${carts.shard.timeout-ms:2000}") long timeoutMillis,
+                      @Value("${carts.shard.allowed-hosts:}") String allowedHosts) {
+        this.cartDao = cartDao;
+        this.kitDao = kitDao;
+        this.self = normalize(self);
+        this.timeout = Duration.ofMillis(timeoutMillis);
+        this.client = HttpClient.newBuilder().connectTimeout(timeout).build();
+        this.ring = new HashRing(normalize(nodes == null ? List.of() : Arrays.asList(nodes.split(","))));
+        this.allowedHosts = new HashSet<>();
+        for (String host : allowedHosts == null ? new String[0] : allowedHosts.split(","))
+            if (!host.isBlank())
+                this.allowedHosts.add(host.trim().toLowerCase(Locale.ROOT));
+        for (String node : ring.getNodes())
+            this.allowedHosts.add(hostOf(node));
+        if (!this.self.isEmpty())
+            this.allowedHosts.add(hostOf(this.self));
+        this.allowedHosts.remove(""); // never allow a node without a host
+        this.rebalancer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cart-rebalancer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Finds the instance that owns a user's cart
+     *
+     * @param userId The user's id number
+     *
+     * @return The base URL of the owning instance, null if this instance owns it
+     */
+    public String ownerOf(int userId) {
+        String owner = ring.ownerOf(userId);
+        return owner == null || owner.equals(self) ? null : owner;
+    }
+
+    /**
+     * Retrieves this instance's base URL
+     *
+     * @return The base URL, empty if none was configured
+     */
+    public String getSelf() {
+        return self;
+    }
+
+    /**
+     * Retrieves the instances carts are spread over
+     *
+     * @return The base URLs of the nodes, sorted
+     */
+    public List<String> getNodes() {
+        return ring.getNodes();
+    }
+
+    /**
+     * Replaces the instances carts are spread over and starts handing the carts
+     * this instance no longer owns to their new owners
+     * <br>
+     * The new nodes take effect at once; the carts are handed over in the
+     * background, so a request changing the nodes does not wait on the other
+     * instances.
+     *
+     * @param nodes The base URLs of every instance
+     *
+     * @return The number of carts handed over in full, once they have been
+     *
+     * @throws IllegalArgumentException if a node is not an http or https URL on an allowed host
+     */
+    public synchronized Future<Integer> setNodes(Collection<String> nodes) {
+        List<String> normalized = normalize(nodes);
+        for (String node : normalized)
+            if (!isAllowed(node))
+                throw new IllegalArgumentException("Node " + node + " is not on an allowed host");
+        ring = new HashRing(normalized);
+        LOG.info("Cart nodes are now " + ring.getNodes());
+        return rebalancer.submit(this::rebalance);
+    }
+
+    /**
+     * Stops handing carts over, called when the application shuts down
+     */
+    @PreDestroy
+    public void close() {
+        rebalancer.shutdownNow();
+    }
+
+    /**
+     * Hands every cart whose user belongs to another instance to that instance
+     *
+     * @return The number of carts handed over in full
+     */
+    synchronized int rebalance() {
+        int moved = 0;
+        for (int userId : cartDao.getUserIds()) {
+            String owner = ownerOf(userId);
+            if (owner != null && handOff(userId, owner))
+                ++moved;
+        }
+        if (moved > 0)
+            LOG.info("Handed " + moved + " carts to their new owners");
+        return moved;
+    }
+
+    /**
+     * Moves a cart's kits to its new owner, reserving them there before releasing them here
+     *
+     * @return true if every kit was moved
+     */
+    private boolean handOff(int userId, String owner) {
+        ShoppingCart cart = cartDao.getCart(userId);
+        if (cart.getKits().isEmpty())
+            return false;
+        boolean moved = true;
+        for (Map.Entry<Kit, Integer> item : new ArrayList<>(cart.getKits().entrySet())) {
+            Kit kit = item.getKey();
+            String path = "/cart/add/" + userId + "/" + kit.getId() + "/" + item.getValue();
+            try {
+                int status = send("POST", owner + path, null, null).statusCode();
+                if (status != 200) {
+                    LOG.warning("Could not hand kit " + kit.getId() + " of user " + userId + " to "
+                            + owner + ", it answered " + status);
+                    moved = false;
+                    continue;
+                }
+                int removed = cartDao.removeKit(userId, kit, item.getValue());
+                if (removed > 0)
+                    kitDao.releaseStock(kit.getId(), removed);
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Could not hand kit " + kit.getId() + " of user " + userId + " to " + owner, e);
+                moved = false;
+            }
+        }
+        return moved;
+    }
+
+    /**
+     * Sends a cart request to the instance that owns it
+     *
+     * @param owner The base URL of the owning instance
+     * @param method The HTTP method
+     * @param pathAndQuery The request path, with its query string if any
+     * @param contentType The request's content type, null if it has no body
+     * @param body The request body, null if it has none
+     *
+     * @return The owner's response
+     *
+     * @throws IOException if the owner cannot be reached or does not answer in time
+     */
+    public HttpResponse<byte[]> forward(String owner, String method, String pathAndQuery,
+                                        String contentType, byte[] body) throws IOException {
+        return send(method, owner + pathAndQuery, contentType, body);
+    }
+
+    private HttpResponse<byte[]> send(String method, String url, String contentType, byte[] body) throws IOException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(timeout)
+                .header(FORWARDED_HEADER, self.isEmpty() ? "unknown" : self)
+                .method(method, body == null || body.length == 0
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofByteArray(body));
+        if (contentType != null)
+            request.header("Content-Type", contentType);
+        try {
+            return client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for " + url, e);
+        }
+    }
+
+    private boolean isAllowed(String node) {
+        try {
+            URI uri = new URI(node);
+            return ("http".equals(uri.getScheme()) || "https".equals(uri.getScheme()))
+                    && uri.getUserInfo() == null && uri.getRawPath().isEmpty()
+                    && uri.getRawQuery() == null && uri.getRawFragment() == null
+                    && allowedHosts.contains(hostOf(node));
+        } catch (URISyntaxException e) {
+            return false;
+        }
+    }
+
+    private static String hostOf(String node) {
+        try {
+            String host = new URI(node).getHost();
+            return host == null ? "" : host.toLowerCase(Locale.ROOT);
+        } catch (URISyntaxException e) {
+            return "";
+        }
+    }
+
+    private static List<String> normalize(Collection<String> nodes) {
+        List<String> normalized = new ArrayList<>();
+        for (String node : nodes)
+            if (!normalize(node).isEmpty())
+                normalized.add(normalize(node));
+        return normalized;
+    }
+
+    private static String normalize(String node) {
+        if (node == null)
+            return "";
+        String trimmed = node.trim();
+        while (trimmed.endsWith("/"))
+            trimmed = trimmed.substring(0, trimmed.length() - 1);
+        return trimmed;
+    }
+}
@@ -0,0 +1,156 @@
+package com.estore.api.estoreapi.controller;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+
+/**
+ * Keeps the serialized JSON of catalog responses until the catalog changes
+ * <br>
+ * Each response is cached under a key naming the view, such as "kits" or
+ * "kit/3", together with the DAO version it was serialized at. A request at the
+ * same version is answered with the cached bytes, and a request whose
+ * If-None-Match header holds the current ETag is answered with 304 Not Modified
+ * and no body, without serializing the view. Since the ETag only names the
+ * version, the view is still looked up unless it is cached at that version, so
+ * a view that does not exist is not found rather than unchanged.
+ * <p>
+ * Every request counts toward the {@code estore.cache.requests} counter in
+ * Micrometer's global registry, tagged with the cache's name and whether the
+ * cached bytes could be used.
+ */
+public class CatalogResponseCache {
+    // Versions restart at 0 with the application, so ETags from an earlier run must not match
+    private final String epoch = Long.toHexString(System.currentTimeMillis());
+
+    private final ObjectMapper objectMapper;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile long newestVersion;
+    private final Counter hits;
+    private final Counter misses;
+
+    /**
+     * Reads the value of a catalog view from its DAO
+     */
+    @FunctionalInterface
+    public interface Loader {
+        /**
+         * @return The value to serialize, or null if there is none
+         * @throws IOException if the DAO cannot read the value
+         */
+        Object load() throws IOException;
+    }
+
+    /**
+     * Creates a response cache
+     *
+     * @param objectMapper Converts the catalog views to JSON text
+     */
+    public CatalogResponseCache(ObjectMapper objectMapper) {
+        this("catalog", objectMapper);
+    }
+
+    /**
+     * Creates a response cache
+     *
+     * @param name The name its hits and misses are counted under
+     * @param objectMapper Converts the catalog views to JSON text
+     */
+    public CatalogResponseCache(String name, ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.hits = counter(name, "hit");
+        this.misses = counter(name, "miss");
+    }
+
+    private static Counter counter(String name, String result) {
+        return Counter.builder("estore.cache.requests")
+                .description("Catalog requests answered from cached or freshly serialized JSON")
+                .tags("cache", name, "result", result)
+                .register(Metrics.globalRegistry);
+    }
+
+    /**
+     * Builds the response for a catalog view
+     *
+     * @param key Names the view
+     * @param version The DAO version, read before the value is loaded so a
+     * concurrent change can only make the cached bytes newer than their version
+     * @param ifNoneMatch The request's If-None-Match header, may be null
+     * @param loader Reads the view if the cache holds no bytes for this version
+     *
+     * @return ResponseEntity with the JSON bytes, an ETag and HTTP status of OK<br>
+     * ResponseEntity with the ETag and HTTP status of NOT_MODIFIED if the client's copy is current<br>
+     * null if the loader found no value, whatever the If-None-Match header holds
+     *
+     * @throws IOException if the view cannot be loaded or serialized
+     */
+    public ResponseEntity<byte[]> respond(String key, long version, String ifNoneMatch, Loader loader)
+            throws IOException {
+        String etag = "\"" + epoch + "-" + version + "\"";
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(etag);
+        Entry entry = entries.get(key);
+        boolean cached = entry != null && entry.version == version;
+        if (matches(ifNoneMatch, etag)) {
+            // a current client needs nothing serialized, but the view must exist to be unchanged
+            if (!cached && loader.load() == null)
+                return null;
+            hits.increment();
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+        }
+
+        if (!cached) {
+            misses.increment();
+            Object value = loader.load();
+            if (value == null)
+                return null;
+            entry = new Entry(version, objectMapper.writeValueAsBytes(value));
+            if (version > newestVersion) {
+                newestVersion = version;
+                entries.values().removeIf(e -> e.version < version); // views of deleted entries go too
+            }
+            entries.put(key, entry);
+        } else {
+            hits.increment();
+        }
+
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return new ResponseEntity<>(entry.body, headers, HttpStatus.OK);
+    }
+
+    /**
+     * Tells whether an If-None-Match header lists an ETag, comparing weakly as the header requires
+     */
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null)
+            return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/"))
+                candidate = candidate.substring(2);
+            if (candidate.equals("*") || candidate.equals(etag))
+                return true;
+        }
+        return false;
+    }
+
+    private static class Entry {
+        final long version;
+        final byte[] body;
+
+        Entry(long version, byte[] body) {
+            this.version = version;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.estore.api.estoreapi.controller;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * A consistent-hash ring that assigns each user to one of a set of nodes
+ * <br>
+ * Every node is placed on the ring at {@value #VIRTUAL_NODES} points, and a user
+ * belongs to the first node point at or after the user's own hash. Adding or
+ * removing a node therefore only moves the users between that node and its
+ * neighbours, about one in every n users for n nodes, rather than reshuffling
+ * everyone. The ring is immutable; a membership change builds a new one.
+ */
+public class HashRing {
+    static final int VIRTUAL_NODES = 160; // points per node, enough to keep the share of each node within a few percent
+
+    private final NavigableMap<Long, String> points = new TreeMap<>(); // hash to the node placed there
+    private final List<String> nodes;
+
+    /**
+     * Creates a ring over the given nodes
+     *
+     * @param nodes The names of the nodes, such as their base URLs
+     */
+    public HashRing(Collection<String> nodes) {
+        this(nodes, VIRTUAL_NODES);
+    }
+
+    /**
+     * Creates a ring over the given nodes
+     *
+     * @param nodes The names of the nodes, such as their base URLs
+     * @param virtualNodes The number of points each node is placed at
+     */
+    public HashRing(Collection<String> nodes, int virtualNodes) {
+        List<String> sorted = new ArrayList<>(nodes);
+        Collections.sort(sorted); // every node builds the same ring whatever order it was told the nodes in
+        this.nodes = Collections.unmodifiableList(sorted);
+        for (String node : sorted)
+            for (int i = 0; i < virtualNodes; i++)
+                points.putIfAbsent(hash(node + "#" + i), node);
+    }
+
+    /**
+     * Finds the node a user belongs to
+     *
+     * @param userId The user's id number
+     *
+     * @return The name of the owning node, null if the ring has no nodes
+     */
+    public String ownerOf(int userId) {
+        if (points.isEmpty())
+            return null;
+        Map.Entry<Long, String> point = points.ceilingEntry(mix(userId));
+        return point != null ? point.getValue() : points.firstEntry().getValue();
+    }
+
+    /**
+     * Retrieves the nodes on the ring
+     *
+     * @return The names of the nodes, sorted
+     */
+    public List<String> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Hashes a node point with 64-bit FNV-1a, then spreads the bits
+     */
+    static long hash(String name) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : name.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * The MurmurHash3 finalizer, so nearby user ids land far apart on the ring
+     */
+    static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
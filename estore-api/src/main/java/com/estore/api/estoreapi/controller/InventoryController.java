@@ -2,8 +2,13 @@ package com.estore.api.estoreapi.controller;
 
 
 import com.estore.api.estoreapi.model.Product;
+import com.estore.api.estoreapi.model.Suggestion;
 import com.estore.api.estoreapi.model.ShoppingCart;
 import com.estore.api.estoreapi.persistence.InventoryDAO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -12,11 +17,15 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -24,17 +33,32 @@ import java.util.logging.Logger;
 @RequestMapping("inventory")
 public class InventoryController{
     private static final Logger LOG = Logger.getLogger(InventoryController.class.getName());
+    private static final int MAX_SUGGESTIONS = 50; // keeps autocomplete responses small
 
     private InventoryDAO inventoryDao;
+    private CatalogResponseCache responseCache; // JSON of the product listing, kept until the inventory changes
+    private ObjectMapper objectMapper; // Converts exported products to JSON text
 
     /**
      * Creates a REST API controller to reponds to requests
      * @param inventoryDao The {@link InventoryDAO Product Data Access Object} to perform CRUD operations
-     * <br>
-     * This dependency is injected by the Spring Framework
      */
     public InventoryController(InventoryDAO inventoryDao){
+        this(inventoryDao, new ObjectMapper());
+    }
+
+    /**
+     * Creates a REST API controller to reponds to requests
+     * @param inventoryDao The {@link InventoryDAO Product Data Access Object} to perform CRUD operations
+     * @param objectMapper Converts the cached responses and exports to JSON text
+     * <br>
+     * These dependencies are injected by the Spring Framework
+     */
+    @Autowired
+    public InventoryController(InventoryDAO inventoryDao, ObjectMapper objectMapper){
         this.inventoryDao = inventoryDao;
+        this.objectMapper = objectMapper;
+        this.responseCache = new CatalogResponseCache("inventory", objectMapper);
     }
 
 
@@ -64,6 +88,51 @@ public class InventoryController{
         }
     }
 
+    /**
+     * Responds to the GET request for autocomplete suggestions of in-stock {@linkplain Product products}
+     * whose names start with the text in prefix
+     *
+     * @param prefix The text the names start with, ignoring case
+     * @param limit The most suggestions to return, at most {@value #MAX_SUGGESTIONS}
+     *
+     * @return ResponseEntity with array of {@link Suggestion Suggestion} objects (may be empty),
+     * the {@linkplain Product products} with the most stock first, and HTTP status of OK<br>
+     * ResponseEntity with HTTP status of BAD_REQUEST if limit is less than 1<br>
+     * ResponseEntity with HTTP status of INTERNAL_SERVER_ERROR otherwise
+     * <p>
+     * Example: Suggest up to 5 products whose names start with "so"
+     * GET http://localhost:8080/inventory/suggest?prefix=so&limit=5
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<Suggestion[]> suggestProducts(@RequestParam String prefix,
+                                                @RequestParam(defaultValue = "10") int limit) {
+        LOG.info("GET /inventory/suggest?prefix=" + prefix + "&limit=" + limit);
+        if (limit < 1)
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        try {
+            Suggestion[] suggestions = inventoryDao.suggestProducts(prefix, Math.min(limit, MAX_SUGGESTIONS));
+            return new ResponseEntity<>(suggestions, HttpStatus.OK);
+        } catch(IOException e) {
+            LOG.log(Level.SEVERE,e.getLocalizedMessage());
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Responds to the GET request for an export of every {@linkplain Product product}, in stock or not
+     *
+     * @return ResponseEntity that streams the products as newline-delimited JSON, one per line,
+     * and HTTP status of OK
+     * <p>
+     * Example: Export the inventory
+     * GET http://localhost:8080/inventory/export
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts() {
+        LOG.info("GET /inventory/export");
+        return NdjsonExport.respond(objectMapper, "inventory.ndjson", inventoryDao::exportProducts);
+    }
+
     /**
      * Creates a {@linkplain Product Product} with the provided Product object
      *
@@ -89,6 +158,42 @@ public class InventoryController{
         }
     }
 
+    /**
+     * Creates every {@linkplain Product Product} in a JSON array as one change
+     * <br>
+     * The array is read as it arrives. Products need a name, and may not have a negative
+     * price or quantity; if any product is invalid, none are created.
+     *
+     * @param body The request body holding the JSON array of {@link Product products}
+     *
+     * @return ResponseEntity with the created {@link Product Product} objects, in the order
+     * sent, and HTTP status of CREATED<br>
+     * ResponseEntity with HTTP status of BAD_REQUEST if the body is not an array of valid products<br>
+     * ResponseEntity with HTTP status of INTERNAL_SERVER_ERROR otherwise
+     * <p>
+     * Example: Create two products
+     * POST http://localhost:8080/inventory/bulk
+     * [{"name": "Lime", "price": 0.5, "quantity": 40}, {"name": "Mint", "price": 1.25, "quantity": 12}]
+     */
+    @PostMapping("/bulk")
+    public ResponseEntity<Product[]> createProducts(InputStream body) {
+        LOG.info("POST /inventory/bulk");
+        try {
+            List<Product> products = BulkImport.read(objectMapper, body, Product.class,
+                    p -> p.getName() != null && !p.getName().isBlank() && p.getPrice() >= 0 && p.getQuantity() >= 0);
+            if (products == null) {
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+            Product[] createdProducts = inventoryDao.createProducts(products.toArray(new Product[0]));
+            return new ResponseEntity<>(createdProducts, HttpStatus.CREATED);
+        } catch(JsonProcessingException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch(IOException e) {
+            LOG.log(Level.SEVERE,e.getLocalizedMessage());
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     /**
      * Updates the {@linkplain Product Product} with the provided {@linkplain Product Product} object, if it exists
      * 
@@ -116,17 +221,22 @@ public class InventoryController{
     /**
      * Responds to the GET request for all {@linkplain Product products}
      * 
-     * @return ResponseEntity with array of {@link Product Product} objects (may be empty) and
-     * HTTP status of OK<br>
+     * @param ifNoneMatch The ETag of the client's copy of the products, may be null
+     * 
+     * @return ResponseEntity with JSON array of {@link Product Product} objects (may be empty),
+     * an ETag and HTTP status of OK<br>
+     * ResponseEntity with HTTP status of NOT_MODIFIED if the client's copy is current<br>
      * ResponseEntity with HTTP status of INTERNAL_SERVER_ERROR otherwise
      * @throws IOException 
      */
     @GetMapping("")
-    public ResponseEntity<Product[]> getProducts() throws IOException {
+    public ResponseEntity<byte[]> getProducts(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch)
+            throws IOException {
         LOG.info("GET /inventory");
         try {
-            Product[] products = inventoryDao.getProducts();
-            return new ResponseEntity<>(products, HttpStatus.OK);
+            return responseCache.respond("products", inventoryDao.getVersion(), ifNoneMatch,
+                    inventoryDao::getProducts);
         } catch(IOException e) {
             LOG.log(Level.SEVERE,e.getLocalizedMessage());
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
@@ -2,11 +2,18 @@ package com.estore.api.estoreapi.controller;
 
 import com.estore.api.estoreapi.model.Kit;
 import com.estore.api.estoreapi.model.Product;
+import com.estore.api.estoreapi.model.Suggestion;
 import com.estore.api.estoreapi.persistence.KitDAO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -16,9 +23,11 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 
 /**
@@ -33,16 +42,76 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("kits")
 public class KitController {
     private static final Logger LOG = Logger.getLogger(KitController.class.getName());
+    private static final int MAX_SUGGESTIONS = 50; // keeps autocomplete responses small
     private KitDAO kitDao;
+    private CatalogResponseCache responseCache; // JSON of the kit listings, kept until the kits change
+    private ObjectMapper objectMapper; // Converts exported kits to JSON text
 
     /**
      * Creates a REST API controller to respond to requests
      * @param KitDao The {@link KitDAO Kit Data Access Object} to perform CRUD operations
-     * <br>
-     * This dependency is injected by the Spring Framework
      */
     public KitController(KitDAO KitDao){
+        this(KitDao, new ObjectMapper());
+    }
+
+    /**
+     * Creates a REST API controller to respond to requests
+     * @param KitDao The {@link KitDAO Kit Data Access Object} to perform CRUD operations
+     * @param objectMapper Converts the cached responses and exports to JSON text
+     * <br>
+     * These dependencies are injected by the Spring Framework
+     */
+    @Autowired
+    public KitController(KitDAO KitDao, ObjectMapper objectMapper){
         this.kitDao = KitDao;
+        this.objectMapper = objectMapper;
+        this.responseCache = new CatalogResponseCache("kits", objectMapper);
+    }
+
+    /**
+     * Responds to the GET request for autocomplete suggestions of in-stock {@linkplain Kit kits}
+     * whose names start with the text in prefix
+     *
+     * @param prefix The text the names start with, ignoring case
+     * @param limit The most suggestions to return, at most {@value #MAX_SUGGESTIONS}
+     *
+     * @return ResponseEntity with array of {@link Suggestion Suggestion} objects (may be empty),
+     * the {@linkplain Kit kits} with the most stock first, and HTTP status of OK<br>
+     * ResponseEntity with HTTP status of BAD_REQUEST if limit is less than 1<br>
+     * ResponseEntity with HTTP status of INTERNAL_SERVER_ERROR otherwise
+     * <p>
+     * Example: Suggest up to 5 kits whose names start with "mo"
+     * GET http://localhost:8080/kits/suggest?prefix=mo&limit=5
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<Suggestion[]> suggestKits(@RequestParam String prefix,
+                                                @RequestParam(defaultValue = "10") int limit) {
+        LOG.info("GET /kits/suggest?prefix=" + prefix + "&limit=" + limit);
+        if (limit < 1)
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        try {
+            Suggestion[] suggestions = kitDao.suggestKits(prefix, Math.min(limit, MAX_SUGGESTIONS));
+            return new ResponseEntity<>(suggestions, HttpStatus.OK);
+        } catch(IOException e) {
+            LOG.log(Level.SEVERE,e.getLocalizedMessage());
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Responds to the GET request for an export of every {@linkplain Kit kit}, in stock or not
+     *
+     * @return ResponseEntity that streams the kits as newline-delimited JSON, one per line,
+     * and HTTP status of OK
+     * <p>
+     * Example: Export the kits
+     * GET http://localhost:8080/kits/export
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportKits() {
+        LOG.info("GET /kits/export");
+        return NdjsonExport.respond(objectMapper, "kits.ndjson", kitDao::exportKits);
     }
 
     /**
@@ -70,6 +139,43 @@ public class KitController {
         }
     }
 
+    /**
+     * Creates every {@linkplain Kit Kit} in a JSON array as one change
+     * <br>
+     * The array is read as it arrives. Kits need a name and a list of products, and may
+     * not have a negative price or quantity; if any kit is invalid, none are created.
+     *
+     * @param body The request body holding the JSON array of {@link Kit kits}
+     *
+     * @return ResponseEntity with the created {@link Kit Kit} objects, in the order sent,
+     * and HTTP status of CREATED<br>
+     * ResponseEntity with HTTP status of BAD_REQUEST if the body is not an array of valid kits<br>
+     * ResponseEntity with HTTP status of INTERNAL_SERVER_ERROR otherwise
+     * <p>
+     * Example: Create a kit
+     * POST http://localhost:8080/kits/bulk
+     * [{"name": "Mojito Kit", "price": 9.99, "quantity": 5, "products_in_kit": [1, 2]}]
+     */
+    @PostMapping("/bulk")
+    public ResponseEntity<Kit[]> createKits(InputStream body) {
+        LOG.info("POST /kits/bulk");
+        try {
+            List<Kit> kits = BulkImport.read(objectMapper, body, Kit.class,
+                    k -> k.getName() != null && !k.getName().isBlank() && k.getPrice() >= 0 && k.getQuantity() >= 0
+                            && k.getProductsInKit() != null);
+            if (kits == null) {
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+            Kit[] createdKits = kitDao.createKits(kits.toArray(new Kit[0]));
+            return new ResponseEntity<>(createdKits, HttpStatus.CREATED);
+        } catch(JsonProcessingException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch(IOException e) {
+            LOG.log(Level.SEVERE,e.getLocalizedMessage());
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     /**
      * Responds to the GET request for all {@linkplain Kit Kit} whose name contains
      * the text in name
@@ -99,17 +205,21 @@ public class KitController {
     /**
      * Responds to the GET request for all {@linkplain Kit Kit}
      *
-     * @return ResponseEntity with array of {@linkplain Kit Kit} objects (may be empty) and
-     * HTTP status of OK<br>
+     * @param ifNoneMatch The ETag of the client's copy of the kits, may be null
+     *
+     * @return ResponseEntity with JSON array of {@linkplain Kit Kit} objects (may be empty),
+     * an ETag and HTTP status of OK<br>
+     * ResponseEntity with HTTP status of NOT_MODIFIED if the client's copy is current<br>
      * ResponseEntity with HTTP status of INTERNAL_SERVER_ERROR otherwise
      * @throws IOException if an error occurs obtaining the kits
      */
     @GetMapping("")
-    public ResponseEntity<Kit[]> getKits() throws IOException {
+    public ResponseEntity<byte[]> getKits(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch)
+            throws IOException {
         LOG.info("GET /kits");
         try {
-            Kit[] kits = kitDao.getKits();
-            return new ResponseEntity<>(kits, HttpStatus.OK);
+            return responseCache.respond("kits", kitDao.getVersion(), ifNoneMatch, kitDao::getKits);
         } catch(IOException e) {
             LOG.log(Level.SEVERE,e.getLocalizedMessage());
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
@@ -120,19 +230,22 @@ public class KitController {
      * Responds to the GET request for a {@linkplain Kit Kit} for the given id
      *
      * @param id The id used to locate the {@linkplain Kit Kit}
+     * @param ifNoneMatch The ETag of the client's copy of the kit, may be null
      *
-     * @return ResponseEntity with created {@linkplain Kit Kit} object and HTTP status of CREATED<br>
+     * @return ResponseEntity with JSON {@linkplain Kit Kit} object, an ETag and HTTP status of OK<br>
+     * ResponseEntity with HTTP status of NOT_MODIFIED if the client's copy is current<br>
      * ResponseEntity with HTTP status of NOT_FOUND if not found<br>
      * ResponseEntity with HTTP status of INTERNAL_SERVER_ERROR otherwise
-     * ResponseEntity with HTTP status of INTERNAL_SERVER_ERROR otherwise
      */
     @GetMapping("/{id}")
-    public ResponseEntity<Kit> getKit(@PathVariable int id) {
+    public ResponseEntity<byte[]> getKit(@PathVariable int id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         LOG.info("GET /kit/" + id);
         try{
-            Kit kit = kitDao.getKit(id);
-            if (kit != null){
-                return new ResponseEntity<>(kit, HttpStatus.OK);
+            ResponseEntity<byte[]> response = responseCache.respond("kit/" + id, kitDao.getVersion(),
+                    ifNoneMatch, () -> kitDao.getKit(id));
+            if (response != null){
+                return response;
             }
             else{
                 return new ResponseEntity<>(HttpStatus.NOT_FOUND);
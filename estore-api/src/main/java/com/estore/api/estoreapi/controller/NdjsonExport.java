@@ -0,0 +1,72 @@
+package com.estore.api.estoreapi.controller;
+
+import java.io.IOException;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.estore.api.estoreapi.persistence.ExportSink;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Streams a DAO export to the client as newline-delimited JSON, one entry per line
+ * <br>
+ * Each entry is serialized straight onto the response as the DAO hands it over,
+ * so the memory an export needs does not grow with the number of entries.
+ */
+public class NdjsonExport {
+    /** The media type of newline-delimited JSON */
+    public static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    /**
+     * Runs a DAO export into a sink
+     *
+     * @param <T> The type of entry exported
+     */
+    @FunctionalInterface
+    public interface Export<T> {
+        /**
+         * @param sink Receives the exported entries
+         * @throws IOException if the entries cannot be read or written
+         */
+        void run(ExportSink<T> sink) throws IOException;
+    }
+
+    private NdjsonExport() {
+    }
+
+    /**
+     * Builds a response that runs the export as the body is written
+     *
+     * @param <T> The type of entry exported
+     * @param objectMapper Converts the entries to JSON text
+     * @param filename The name the client should save the export as
+     * @param export Runs the DAO export
+     *
+     * @return ResponseEntity with the streaming body and HTTP status of OK
+     */
+    public static <T> ResponseEntity<StreamingResponseBody> respond(ObjectMapper objectMapper, String filename,
+                                                                    Export<T> export) {
+        StreamingResponseBody body = out -> {
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET); // the container owns the stream
+            generator.setRootValueSeparator(null); // lines are ended below instead
+            try {
+                export.run(entry -> {
+                    generator.writeObject(entry);
+                    generator.writeRaw('\n');
+                });
+            } finally {
+                generator.close(); // flushes what is left
+            }
+        };
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(APPLICATION_NDJSON);
+        headers.set(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"");
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
+}
@@ -6,6 +6,7 @@ import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -15,9 +16,11 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.estore.api.estoreapi.model.Kit;
 import com.estore.api.estoreapi.model.Order;
+import com.estore.api.estoreapi.model.OrderPage;
 import com.estore.api.estoreapi.controller.UserController;
 import com.estore.api.estoreapi.persistence.OrderDAO;
 import com.fasterxml.jackson.core.type.TypeReference;
@@ -37,16 +40,33 @@ public class OrderController {
     
     private static final Logger LOG = Logger.getLogger(OrderController.class.getName());
 
+    static final int MAX_PAGE_SIZE = 100; // most orders returned in one page
+
     private final OrderDAO orderDao;
+    private final ObjectMapper objectMapper; // converts exported orders to JSON text
 
 
     /**
      * Constructs an OrderController with the specified order DAO
      * 
-     * @param orderDao the DAO responsible for order operations. This is injected by the spring framework
+     * @param orderDao the DAO responsible for order operations
      */
     public OrderController(OrderDAO orderDao) {
+        this(orderDao, new ObjectMapper());
+    }
+
+    /**
+     * Constructs an OrderController with the specified order DAO and object mapper
+     * 
+     * @param orderDao the DAO responsible for order operations
+     * @param objectMapper converts exported orders to JSON text
+     * <br>
+     * These dependencies are injected by the Spring Framework
+     */
+    @Autowired
+    public OrderController(OrderDAO orderDao, ObjectMapper objectMapper) {
         this.orderDao = orderDao;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -129,6 +149,90 @@ public class OrderController {
         }
     }
 
+    /**
+     * Responds to the GET request for one page of the {@linkplain Order Orders} purchased by a user
+     *
+     * @param user Contains the user who bought the returned {@linkplain Order Orders},
+     * every user's orders if absent
+     * @param limit The most orders on the page, at most {@value #MAX_PAGE_SIZE}
+     * @param cursor The next_cursor of the previous page, absent for the first page
+     * @param newest true to list the newest orders first
+     *
+     * @return ResponseEntity with the {@link OrderPage page} of {@linkplain Order Order} objects
+     * and HTTP status of OK<br>
+     * ResponseEntity with HTTP status of BAD_REQUEST if limit is less than 1<br>
+     * ResponseEntity with HTTP status of INTERNAL_SERVER_ERROR otherwise
+     * <p>
+     * Example: Get the 20 orders bought by testUser after order 35
+     * GET http://localhost:8080/orders/page?user=testUser&limit=20&cursor=35
+     */
+    @GetMapping("/page")
+    public ResponseEntity<OrderPage> getOrdersPage(@RequestParam(required = false) String user,
+                                                   @RequestParam(defaultValue = "20") int limit,
+                                                   @RequestParam(required = false) Integer cursor,
+                                                   @RequestParam(defaultValue = "false") boolean newest) {
+        LOG.info("GET /orders/page?user=" + user + "&limit=" + limit + "&cursor=" + cursor + "&newest=" + newest);
+        if (limit < 1)
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        try {
+            OrderPage page = orderDao.getOrdersPage(user, cursor, Math.min(limit, MAX_PAGE_SIZE), newest);
+            return new ResponseEntity<>(page, HttpStatus.OK);
+        } catch(IOException e) {
+            LOG.log(Level.SEVERE,e.getLocalizedMessage());
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Responds to the GET request for one page of the {@linkplain Order Orders} that contain Kits
+     * with the provided text in name and were bought by the provided user
+     *
+     * @param name Contains the text used to find the {@linkplain Order Orders}
+     * @param user Contains the user who bought the returned {@linkplain Order Orders},
+     * every user's orders if absent
+     * @param limit The most orders on the page, at most {@value #MAX_PAGE_SIZE}
+     * @param cursor The next_cursor of the previous page, absent for the first page
+     * @param newest true to list the newest orders first
+     *
+     * @return ResponseEntity with the {@link OrderPage page} of {@linkplain Order Order} objects
+     * and HTTP status of OK<br>
+     * ResponseEntity with HTTP status of BAD_REQUEST if limit is less than 1<br>
+     * ResponseEntity with HTTP status of INTERNAL_SERVER_ERROR otherwise
+     */
+    @GetMapping("/{name}/page")
+    public ResponseEntity<OrderPage> searchOrdersPage(@PathVariable String name,
+                                                      @RequestParam(required = false) String user,
+                                                      @RequestParam(defaultValue = "20") int limit,
+                                                      @RequestParam(required = false) Integer cursor,
+                                                      @RequestParam(defaultValue = "false") boolean newest) {
+        LOG.info("GET /orders/" + name + "/page?user=" + user + "&limit=" + limit + "&cursor=" + cursor
+                + "&newest=" + newest);
+        if (limit < 1)
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        try {
+            OrderPage page = orderDao.findOrdersPage(name, user, cursor, Math.min(limit, MAX_PAGE_SIZE), newest);
+            return new ResponseEntity<>(page, HttpStatus.OK);
+        } catch(IOException e) {
+            LOG.log(Level.SEVERE,e.getLocalizedMessage());
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Responds to the GET request for an export of every {@linkplain Order Order}
+     *
+     * @return ResponseEntity that streams the orders as newline-delimited JSON, one per line
+     * in id order, and HTTP status of OK
+     * <p>
+     * Example: Export the order history
+     * GET http://localhost:8080/orders/export
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportOrders() {
+        LOG.info("GET /orders/export");
+        return NdjsonExport.respond(objectMapper, "orders.ndjson", orderDao::exportOrders);
+    }
+
     /**
      * Responds to the GET request for a {@linkplain Order Order} for the given id
      *
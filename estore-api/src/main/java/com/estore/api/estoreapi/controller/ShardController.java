@@ -0,0 +1,85 @@
+package com.estore.api.estoreapi.controller;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.estore.api.estoreapi.persistence.UserDAO;
+
+/**
+ * Controller for the API instances that shopping carts are spread over.
+ * Changing the nodes only changes them on the instance that receives the
+ * request, so every instance must be sent the new list. Only the admin may
+ * change them.
+ */
+@RestController
+@RequestMapping("/shards")
+public class ShardController {
+
+    private static final Logger LOG = Logger.getLogger(ShardController.class.getName());
+
+    private final CartShards shards;
+    private final UserDAO userDAO;
+
+    /**
+     * Constructs a ShardController with the specified shard map.
+     *
+     * @param shards the {@link CartShards shard map} of this instance
+     * @param userDAO the {@link UserDAO User Data Access Object} that checks the admin's password
+     */
+    public ShardController(CartShards shards, UserDAO userDAO) {
+        this.shards = shards;
+        this.userDAO = userDAO;
+    }
+
+    /**
+     * Retrieves this instance and the nodes carts are spread over
+     *
+     * @return ResponseEntity with this instance's base URL under "self" and the nodes under "nodes"
+     */
+    @GetMapping("")
+    public ResponseEntity<Map<String, Object>> getShards() {
+        LOG.info("GET /shards");
+        Map<String, Object> shardMap = new HashMap<>();
+        shardMap.put("self", shards.getSelf());
+        shardMap.put("nodes", shards.getNodes());
+        return new ResponseEntity<>(shardMap, HttpStatus.OK);
+    }
+
+    /**
+     * Replaces the nodes carts are spread over, then hands the carts this instance
+     * no longer owns to their new owners in the background
+     *
+     * @param username the username of the admin
+     * @param password the password of the admin
+     * @param nodes the base URLs of every instance
+     * @return ResponseEntity with the new nodes and HTTP status of ACCEPTED<br>
+     * ResponseEntity with HTTP status of UNAUTHORIZED if the credentials are not the admin's<br>
+     * ResponseEntity with HTTP status of BAD_REQUEST if a node is not on an allowed host
+     */
+    @PutMapping("")
+    public ResponseEntity<List<String>> setNodes(@RequestParam String username, @RequestParam String password,
+                                                 @RequestBody List<String> nodes) {
+        LOG.info("PUT /shards?username=" + username + " " + nodes);
+        if (!username.equals("admin") || !userDAO.authorize(username, password))
+            return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+        try {
+            shards.setNodes(nodes);
+            return new ResponseEntity<>(shards.getNodes(), HttpStatus.ACCEPTED);
+        }
+        catch (IllegalArgumentException e) {
+            LOG.warning(e.getLocalizedMessage());
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+}
@@ -1,13 +1,15 @@
 package com.estore.api.estoreapi.controller;
 import com.estore.api.estoreapi.model.*;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import com.estore.api.estoreapi.persistence.CartDAO;
+import com.estore.api.estoreapi.persistence.CartStore;
 import com.estore.api.estoreapi.persistence.KitDAO;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -28,53 +30,64 @@ public class ShoppingCartController {
     private static final Logger LOG = Logger.getLogger(ShoppingCartController.class.getName());
 
     private final KitDAO kitDao;
-    private Map<Integer, ShoppingCart> userCarts = new HashMap<>();
+    private final CartDAO cartDao;
 
     
     /**
-     * Constructs a ShoppingCartController with the specified kit DAO and shopping cart.
+     * Constructs a ShoppingCartController with the specified kit DAO and its own in-memory cart store.
      * 
      * @param kitDao the DAO responsible for kit operations
      */
     public ShoppingCartController(KitDAO kitDao) {
+        this(kitDao, new CartStore());
+    }
+
+    /**
+     * Constructs a ShoppingCartController with the specified kit DAO and cart DAO.
+     * 
+     * @param kitDao the DAO responsible for kit operations
+     * @param cartDao the DAO holding every user's shopping cart
+     */
+    @Autowired
+    public ShoppingCartController(KitDAO kitDao, CartDAO cartDao) {
         this.kitDao = kitDao;
+        this.cartDao = cartDao;
     }
 
     private ShoppingCart getShoppingCartForUser(Integer userId) {
-        return userCarts.computeIfAbsent(userId, k -> new ShoppingCart());
+        return cartDao.getCart(userId);
     }
 
     /**
-     * Adds a kit to the shopping cart. Validates that the kit exists and that there is
-     * sufficient stock before adding it to the cart. Updates the kit to reflect the new stock level.
+     * Adds a kit to the shopping cart. Validates that the kit exists and reserves the
+     * quantity from its stock before adding it to the cart.
      * 
      * @param id the ID of the kit to add
-     * @param quantity the quantity of the kit to add
+     * @param quantity the quantity of the kit to add, which must be positive
      * @return ResponseEntity representing the result of the operation (OK, BAD_REQUEST, NOT_FOUND, INTERNAL_SERVER_ERROR)
      */
     @PostMapping("/add/{userId}/{id}/{quantity}")
     public ResponseEntity<Void> addToCart(@PathVariable Integer userId, @PathVariable int id, @PathVariable int quantity) {
         LOG.info(String.format("POST /cart/add/%d/%d/?quantity=%d", userId, id, quantity));
+        if (quantity <= 0) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
         try {
             Kit kit = kitDao.getKit(id);
-            ShoppingCart shoppingCart = getShoppingCartForUser(userId);
-            if (kit != null) {
-                if (kit.getQuantity() > 0) {
-                    int prevQuantity = kit.getQuantity();
-                    if ((prevQuantity - quantity) < 0) {
-                        return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-                    } else {
-                        shoppingCart.addKit(kit, quantity);
-                        kit.setQuantity(prevQuantity - quantity);
-                    }
-                    kitDao.updateKit(kit);
-                    return new ResponseEntity<>(HttpStatus.OK);
-                } else {
-                    return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-                }
-            } else {
+            if (kit == null) {
                 return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-            } 
+            }
+            // Reserving is one compare-and-set on the kit's stock count, so parallel adds cannot sell the same stock twice
+            if (!kitDao.reserveStock(id, quantity)) {
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
+            try {
+                cartDao.addKit(userId, kit, quantity);
+            } catch (IOException e) {
+                kitDao.releaseStock(id, quantity); // the cart did not take the kits, so nobody holds them
+                throw e;
+            }
+            return new ResponseEntity<>(HttpStatus.OK);
         } catch (IOException e) {
             LOG.log(Level.SEVERE, e.getLocalizedMessage());
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
@@ -83,33 +96,30 @@ public class ShoppingCartController {
 
     /**
      * Removes a kit from the shopping cart. Validates that the kit exists in the cart before
-     * removing the specified quantity. Updates the kit to reflect the returned stock level.
+     * removing the specified quantity. Releases the removed quantity back to the kit's stock.
      * 
      * @param id the ID of the kit to remove
-     * @param quantity the quantity of the kit to remove
-     * @return ResponseEntity representing the result of the operation (OK, NOT_FOUND, INTERNAL_SERVER_ERROR)
+     * @param quantity the quantity of the kit to remove, which must be positive
+     * @return ResponseEntity representing the result of the operation (OK, BAD_REQUEST, NOT_FOUND, INTERNAL_SERVER_ERROR)
      */
     @DeleteMapping("/remove/{userId}/{id}/{quantity}")
     public ResponseEntity<Void> removeFromCart(@PathVariable Integer userId, @PathVariable int id, @PathVariable int quantity) {
         LOG.info(String.format("DELETE /cart/remove/%d/%d/?quantity=", userId, id, quantity));
+        if (quantity <= 0) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
         try {
             Kit kit = kitDao.getKit(id);
-            ShoppingCart shoppingCart = getShoppingCartForUser(userId);
             if (kit == null) {
                 return new ResponseEntity<>(HttpStatus.NOT_FOUND);
             }
-            if (shoppingCart.containsKit(kit)) {
-                int newQuantity = kit.getQuantity() + quantity;
-                if (shoppingCart.getKitQuantity(kit) < quantity) {
-                    newQuantity = kit.getQuantity() + shoppingCart.getKitQuantity(kit);
-                }
-                kit.setQuantity(newQuantity);
-                kitDao.updateKit(kit);
-                shoppingCart.removeKit(kit, quantity);
-                return new ResponseEntity<>(HttpStatus.OK);
-            } else {
+            // Taking the kits out of the cart first means two removes cannot return the same kits
+            int removed = cartDao.removeKit(userId, kit, quantity);
+            if (removed == 0) {
                 return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
             }
+            kitDao.releaseStock(id, removed);
+            return new ResponseEntity<>(HttpStatus.OK);
         } catch (IOException e) {
             LOG.log(Level.SEVERE, e.getLocalizedMessage());
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
@@ -132,7 +142,7 @@ public class ShoppingCartController {
         ArrayList<ShoppingCartKit> shoppingCartItems = new ArrayList<>();
         for (Map.Entry<Kit, Integer> entry : cartItems.entrySet()) {
             Kit kit = entry.getKey();
-            shoppingCartItems.add(new ShoppingCartKit(kit.getId(), entry.getValue(), kit.getName(), kit.getPrice()));
+            shoppingCartItems.add(ShoppingCartKit.ofCents(kit.getId(), entry.getValue(), kit.getName(), kit.getPriceCents()));
         }
 
         return new ResponseEntity<>(shoppingCartItems, HttpStatus.OK);
@@ -153,8 +163,9 @@ public class ShoppingCartController {
 
         ArrayList<Kit> shoppingCartItems = new ArrayList<>();
         for (Map.Entry<Kit, Integer> entry : cartItems.entrySet()) {
-            Kit kit = entry.getKey();
-            shoppingCartItems.add(new Kit(kit.getId(), kit.getName(), kit.getPrice(), entry.getValue(), kit.getProductsInKit()));
+            Kit kit = entry.getKey().withId(entry.getKey().getId());
+            kit.setQuantity(entry.getValue());
+            shoppingCartItems.add(kit);
         }
 
         return new ResponseEntity<>(shoppingCartItems, HttpStatus.OK);
@@ -183,9 +194,12 @@ public class ShoppingCartController {
     @DeleteMapping("/clear/{userId}")
     public ResponseEntity<Void> clearCart(@PathVariable Integer userId) {
         LOG.info("DELETE /cart/clear/" + userId);
-        ShoppingCart shoppingCart = getShoppingCartForUser(userId);
-        shoppingCart.clearCart();
-        userCarts.put(userId, shoppingCart);
-        return new ResponseEntity<>(HttpStatus.OK);
+        try {
+            cartDao.clearCart(userId);
+            return new ResponseEntity<>(HttpStatus.OK);
+        } catch (IOException e) {
+            LOG.log(Level.SEVERE, e.getLocalizedMessage());
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
     }
 }
@@ -56,12 +56,8 @@ public class UserController {
         try {
 
             // check if newly inputted username exists within all users
-            User[] users = userDAO.getUsers();
-            for(User u: users){
-                if(u.getUsername().equals(username)){
-                    return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
-
-                }
+            if(userDAO.existsByUsername(username)){
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
             }
 
             User createdU = userDAO.createUser(username, password, name);
@@ -105,13 +101,7 @@ public class UserController {
     public ResponseEntity<User> getUserByName(@PathVariable String username) {
         LOG.info("GET /users/getByUsername/" + username);
 
-        User[] users = userDAO.getUsers();
-        User foundUser = null;
-        for (User user: users) {
-            if (user.getUsername().equals(username)) {
-                foundUser = user;
-            }
-        }
+        User foundUser = userDAO.findByUsername(username);
         if (foundUser != null) {
             return new ResponseEntity<>(foundUser, HttpStatus.OK);
         } else {
@@ -135,14 +125,7 @@ public class UserController {
             if (currU == null){
                 return new ResponseEntity<>(HttpStatus.NOT_FOUND);
             }
-            User preexisting = null;
-            User[] users = userDAO.getUsers();
-            for (User user: users) {
-                if (user.getUsername().equals(username)) {
-                    preexisting = user;
-                }
-            }
-            if (preexisting != null) {
+            if (userDAO.existsByUsername(username)) {
                 return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
             }
             User status = userDAO.updateUsername(currU, username);
@@ -260,13 +243,7 @@ public class UserController {
     public ResponseEntity<LoginResponse> login(@RequestParam String username, @RequestParam String password) {
         LOG.info("POST /users/login?username=" + username);
         
-        User foundUser = null;
-        User[] users = userDAO.getUsers();
-        for (User user: users) {
-            if (user.getUsername().equals(username)) {
-                foundUser = user;
-            }
-        }
+        User foundUser = userDAO.findByUsername(username);
         
         if (foundUser != null && userDAO.authorize(username, password)) {
             String userType = username.equals("admin") ? "admin" : "user";
@@ -0,0 +1,51 @@
+package com.estore.api.estoreapi.model;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * Converts between money amounts in dollars and the whole cents they are kept in
+ * <br>
+ * Prices are held as a {@code long} number of cents so that sums of them are
+ * exact. In JSON they stay decimal dollar amounts, as clients and the data files
+ * have always had them.
+ */
+public final class Cents {
+    private Cents() {}
+
+    /**
+     * Converts an amount in dollars to cents, rounding to the nearest cent
+     * @param dollars the amount in dollars
+     * @return the amount in cents
+     */
+    public static long of(double dollars) {
+        return Math.round(dollars * 100);
+    }
+
+    /**
+     * Converts an amount in cents to dollars
+     * @param cents the amount in cents
+     * @return the amount in dollars, as close as a float can hold it
+     */
+    public static float toDollars(long cents) {
+        return cents / 100f;
+    }
+
+    /**
+     * Writes an amount in cents as a decimal number of dollars, with exactly two places
+     */
+    public static class Serializer extends StdSerializer<Long> {
+        public Serializer() {
+            super(Long.class);
+        }
+
+        @Override
+        public void serialize(Long cents, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeNumber(BigDecimal.valueOf(cents, 2));
+        }
+    }
+}
@@ -1,48 +1,104 @@
 package com.estore.api.estoreapi.model;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
 
+// Only the annotated fields are written, so the price is written once, from its cents
+@JsonAutoDetect(getterVisibility = Visibility.NONE, isGetterVisibility = Visibility.NONE,
+                setterVisibility = Visibility.NONE)
 public class Kit {
     @JsonProperty("id") private int id;
     @JsonProperty("name") private String name;
 
-    @JsonProperty("price") private float price;
+    // Whole cents, so totals are exact; written and read as a decimal price
+    @JsonProperty("price") @JsonSerialize(using = Cents.Serializer.class) private long priceCents;
 
     @JsonProperty("quantity") private int quantity;
 
-    @JsonProperty("products_in_kit") private ArrayList<Integer> productsInKit;
+    // Product ids are kept unboxed and never changed once set, so copies of a kit can share the array
+    @JsonProperty("products_in_kit") private int[] productsInKit;
 
-    public Kit(@JsonProperty("id") int id, @JsonProperty("name") String name, @JsonProperty("price") float price,
+    @JsonCreator
+    public Kit(@JsonProperty("id") int id, @JsonProperty("name") String name, @JsonProperty("price") double price,
                @JsonProperty("quantity") int quantity,
-               @JsonProperty("products_in_kit") ArrayList<Integer> productsInKit) {
+               @JsonProperty("products_in_kit") int[] productsInKit) {
             this.id = id;
             this.name = name;
-            this.price = price;
+            this.priceCents = Cents.of(price);
             this.quantity = quantity;
             this.productsInKit = productsInKit;
     }
 
+    public Kit(int id, String name, double price, int quantity, List<Integer> productsInKit) {
+            this(id, name, price, quantity, productsInKit == null ? null
+                    : productsInKit.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * Creates a kit priced in whole cents, so its price is never rounded through dollars
+     * @param id the id of the kit
+     * @param name the name of the kit
+     * @param priceCents the price of the kit in cents
+     * @param quantity the units of the kit in stock
+     * @param productsInKit the ids of the kit's products, may be null
+     * @return the new kit
+     */
+    public static Kit ofCents(int id, String name, long priceCents, int quantity, int[] productsInKit) {
+        Kit kit = new Kit(id, name, 0, quantity, productsInKit);
+        kit.priceCents = priceCents;
+        return kit;
+    }
+
+    /**
+     * Copies the kit under a new id, keeping its price to the cent
+     * @param id the id of the copy
+     * @return a new kit with this kit's name, price, quantity and products
+     */
+    public Kit withId(int id) {
+        return ofCents(id, name, priceCents, quantity, productsInKit);
+    }
+
     public int getId() {return id;}
 
     public void setName(String name) {this.name = name;}
 
     public String getName() {return this.name;}
 
-    public float getPrice() {return price;}
+    public float getPrice() {return Cents.toDollars(priceCents);}
+
+    public long getPriceCents() {return priceCents;}
 
-    public void setPrice(float price) {this.price = price; }
+    public void setPrice(float price) {this.priceCents = Cents.of(price); }
 
     public void setQuantity(int quantity){this.quantity = quantity;}
 
     public int getQuantity() {return quantity;}
 
-    public ArrayList<Integer> getProductsInKit() {return productsInKit;}
+    public int[] getProductsInKit() {return productsInKit;}
+
+    /**
+     * Kits with the same id are the same kit, so a shopping cart still finds a
+     * kit after the DAO has replaced it with a copy holding its new stock
+     */
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Kit && ((Kit)other).id == id;
+    }
+
+    @Override
+    public int hashCode() {
+        return Integer.hashCode(id);
+    }
 
     @Override
     public String toString() {
-        return Integer.toString(id) + name + String.valueOf(price) + productsInKit.toString();
+        return Integer.toString(id) + name + String.valueOf(getPrice()) + Arrays.toString(productsInKit);
     }
 }
@@ -1,6 +1,8 @@
 package com.estore.api.estoreapi.model;
 import java.util.ArrayList;
+import java.util.Arrays;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 /**
@@ -15,7 +17,7 @@ public class Order {
 
     @JsonProperty("id") private int id; // unique identifier for an order
     @JsonProperty("user") private String user; // contains the username of the user who made the order
-    @JsonProperty("kits_in_order") private ArrayList<Kit> kits; // contains all the kits in the order
+    private OrderLine[] lines; // one line per kit in the order; the kits are rebuilt from these when asked for
 
     /**
      * Construct a new Order made by a user containing certain kits and their quantities
@@ -25,7 +27,20 @@ public class Order {
     public Order(@JsonProperty("id") int id, @JsonProperty("user") String user, @JsonProperty("kits_in_order") ArrayList<Kit> kits) {
         this.id = id;
         this.user = user;
-        this.kits = kits;
+        this.lines = new OrderLine[kits == null ? 0 : kits.size()];
+        for (int i = 0; i < lines.length; i++)
+            lines[i] = OrderLine.of(kits.get(i));
+    }
+
+    /**
+     * Construct a new Order made by a user from the lines it was stored as
+     * @param user The username of the user who made the order
+     * @param lines One line for each kit in the order
+     */
+    public Order(int id, String user, OrderLine[] lines) {
+        this.id = id;
+        this.user = user;
+        this.lines = lines;
     }
 
     /**
@@ -34,12 +49,14 @@ public class Order {
      * @param kit The kit being added to the order
      */
     public void addKit(Kit kit) {
-        for (Kit k : kits) {
-            if (k.getName().equals(kit.getName())) {
+        for (OrderLine line : lines) {
+            if (kit.getName().equals(line.getName())) {
                 return;
             }
-        } // if we reach the end of the loop then the kit is not in the kits array
-        kits.add(kit);
+        } // if we reach the end of the loop then the kit is not in the order
+        OrderLine[] added = Arrays.copyOf(lines, lines.length + 1);
+        added[lines.length] = OrderLine.of(kit);
+        lines = added;
     }
 
     /**
@@ -48,7 +65,15 @@ public class Order {
      * @param kit The kit that is removed from the order
      */
     public void clearKitFromOrder(Kit kit) {
-        kits.remove(kit);
+        for (int i = 0; i < lines.length; i++) {
+            if (lines[i].getKitId() == kit.getId()) {
+                OrderLine[] cleared = new OrderLine[lines.length - 1];
+                System.arraycopy(lines, 0, cleared, 0, i);
+                System.arraycopy(lines, i + 1, cleared, i, cleared.length - i);
+                lines = cleared;
+                return;
+            }
+        }
     }
 
     /**
@@ -71,14 +96,28 @@ public class Order {
     }
 
     /**
-     * This method returns all the kits in this order
+     * This method returns all the kits in this order, rebuilt from the order's lines
      * 
-     * @return A list of all kits in this order
+     * @return A new list of all kits in this order
      */
+    @JsonProperty("kits_in_order")
     public ArrayList<Kit> getKits() {
+        ArrayList<Kit> kits = new ArrayList<>(lines.length);
+        for (OrderLine line : lines)
+            kits.add(line.toKit());
         return kits;
     }
 
+    /**
+     * This method returns the lines the order is stored as
+     * 
+     * @return One line for each kit in this order
+     */
+    @JsonIgnore
+    public OrderLine[] getLines() {
+        return lines;
+    }
+
     /**
      * This method returns the order's ID
      * 
@@ -98,8 +137,10 @@ public class Order {
         // if the name of any kits in the order match the string, this will be true
         boolean hasMatchingKit = false; 
 
-        for (Kit k : kits) {
-            String lowercaseName = k.getName().toLowerCase();
+        for (OrderLine line : lines) {
+            if (line.getName() == null)
+                continue;
+            String lowercaseName = line.getName().toLowerCase();
             if (lowercaseName.contains(text.toLowerCase())) {
                 hasMatchingKit = true; 
             }
@@ -113,7 +154,7 @@ public class Order {
      * @return A string version of the Order
      */
     public String toString() {
-        return Integer.toString(id) + user + kits.toString();
+        return Integer.toString(id) + user + getKits().toString();
     }
 
 }
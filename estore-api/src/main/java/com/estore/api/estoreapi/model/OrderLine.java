@@ -0,0 +1,96 @@
+package com.estore.api.estoreapi.model;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * Represents one kit bought in an order, as the kit's id, the quantity bought and
+ * the price and name it had when the order was made
+ * <br>
+ * Names are interned, so the thousands of lines that bought the same kit share one
+ * copy of its name instead of each holding their own. A line is written as a JSON
+ * array of its fields in a fixed order rather than an object, so the field names are
+ * not repeated in every line of the order history file.
+ */
+@JsonFormat(shape = JsonFormat.Shape.ARRAY)
+@JsonPropertyOrder({"kit_id", "name", "unit_price_cents", "quantity", "products_in_kit"})
+public class OrderLine {
+    private static final Map<String, String> NAMES = new ConcurrentHashMap<>(); // every kit name seen, shared by lines
+
+    @JsonProperty("kit_id") private final int kitId; // the id of the kit bought
+    @JsonProperty("name") private final String name; // the kit's name when bought, may be null
+    @JsonProperty("unit_price_cents") private final long unitPriceCents; // the price of one kit in cents
+    @JsonProperty("quantity") private final int quantity; // the number of kits bought
+    @JsonProperty("products_in_kit") private final int[] productsInKit; // the ids of the kit's products when bought
+
+    /**
+     * Create a new order line
+     * @param kitId the id of the kit bought
+     * @param name the kit's name when bought, may be null
+     * @param unitPriceCents the price of one kit in cents
+     * @param quantity the number of kits bought
+     * @param productsInKit the ids of the kit's products when bought, may be null
+     */
+    public OrderLine(@JsonProperty("kit_id") int kitId, @JsonProperty("name") String name,
+                     @JsonProperty("unit_price_cents") long unitPriceCents, @JsonProperty("quantity") int quantity,
+                     @JsonProperty("products_in_kit") int[] productsInKit) {
+        this.kitId = kitId;
+        this.name = name == null ? null : NAMES.computeIfAbsent(name, n -> n);
+        this.unitPriceCents = unitPriceCents;
+        this.quantity = quantity;
+        this.productsInKit = productsInKit;
+    }
+
+    /**
+     * Create the order line for a kit
+     * @param kit the kit bought, with the quantity bought
+     * @return the kit's order line
+     */
+    public static OrderLine of(Kit kit) {
+        // a kit's product ids are never changed in place, so the line can share them
+        return new OrderLine(kit.getId(), kit.getName(), kit.getPriceCents(),
+                kit.getQuantity(), kit.getProductsInKit());
+    }
+
+    /**
+     * Rebuild the kit this line was made from
+     * @return a new kit with the line's id, name, price, quantity and products
+     */
+    public Kit toKit() {
+        return Kit.ofCents(kitId, name, unitPriceCents, quantity, productsInKit);
+    }
+
+    /**
+     * Get the id of the kit bought
+     * @return the kit's id
+     */
+    public int getKitId() {return kitId;}
+
+    /**
+     * Get the kit's name when it was bought
+     * @return the kit's name, may be null
+     */
+    public String getName() {return name;}
+
+    /**
+     * Get the price of one kit when it was bought
+     * @return the price in cents
+     */
+    public long getUnitPriceCents() {return unitPriceCents;}
+
+    /**
+     * Get the number of kits bought
+     * @return the quantity bought
+     */
+    public int getQuantity() {return quantity;}
+
+    /**
+     * Get the ids of the kit's products when it was bought
+     * @return the product ids, may be null
+     */
+    public int[] getProductsInKit() {return productsInKit;}
+}
@@ -0,0 +1,34 @@
+package com.estore.api.estoreapi.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Represents one page of a user's order history
+ */
+public class OrderPage {
+    @JsonProperty("orders") private Order[] orders; // the orders on this page, in the order requested
+    @JsonProperty("next_cursor") private Integer nextCursor; // pass as the cursor to get the next page,
+                                                             // null on the last page
+
+    /**
+     * Create a new page of orders
+     * @param orders the orders on the page
+     * @param nextCursor the cursor of the next page, null if this is the last page
+     */
+    public OrderPage(@JsonProperty("orders") Order[] orders, @JsonProperty("next_cursor") Integer nextCursor) {
+        this.orders = orders;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Get the orders on the page
+     * @return the page's orders, may be empty
+     */
+    public Order[] getOrders() {return orders;}
+
+    /**
+     * Get the cursor of the next page, which is the id of the last order on this page
+     * @return the next page's cursor, null if there are no more orders
+     */
+    public Integer getNextCursor() {return nextCursor;}
+}
@@ -2,12 +2,17 @@ package com.estore.api.estoreapi.model;
 
 import java.util.logging.Logger;
 
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 /**
  * Represents a Product entity
  * 
  * @author SWEN Faculty
  */
+@JsonAutoDetect(getterVisibility = Visibility.NONE, isGetterVisibility = Visibility.NONE,
+                setterVisibility = Visibility.NONE)
 public class Product {
     private static final Logger LOG = Logger.getLogger(Product.class.getName());
 
@@ -17,7 +22,8 @@ public class Product {
     @JsonProperty("id") private int id;
     @JsonProperty("name") private String name;
 
-    @JsonProperty("price") private float price;
+    // Whole cents, so totals are exact; written and read as a decimal price
+    @JsonProperty("price") @JsonSerialize(using = Cents.Serializer.class) private long priceCents;
 
     @JsonProperty("quantity") private int quantity;
 
@@ -30,13 +36,14 @@ public class Product {
      * {@literal @}JsonProperty is used in serialization and deserialization
      * of the JSON object to the Java object in mapping the fields.  If a field
      * is not provided in the JSON object, the Java field gets the default Java
-     * value, i.e. 0 for int
+     * value, i.e. 0 for int. Only the annotated fields are mapped, so the price
+     * is read and written once, as dollars, and kept in whole cents
      */
     public Product(@JsonProperty("id") int id, @JsonProperty("name") String name,
-                   @JsonProperty("price") float price, @JsonProperty("quantity") int quantity) {
+                   @JsonProperty("price") double price, @JsonProperty("quantity") int quantity) {
         this.id = id;
         this.name = name;
-        this.price = price;
+        this.priceCents = Cents.of(price);
         this.quantity = quantity;
     }
 
@@ -46,6 +53,17 @@ public class Product {
      */
     public int getId() {return id;}
 
+    /**
+     * Copies the Product under a new id, keeping its price to the cent
+     * @param id The id of the copy
+     * @return A new Product with this Product's name, price and quantity
+     */
+    public Product withId(int id) {
+        Product copy = new Product(id, name, 0, quantity);
+        copy.priceCents = priceCents;
+        return copy;
+    }
+
     /**
      * Sets the name of the Product - necessary for JSON object to Java object deserialization
      * @param name The name of the Product
@@ -62,13 +80,19 @@ public class Product {
      * Update the price of the Product
      * @param price the updated Price
      */
-    public void setPrice(float price) {this.price = price;}
+    public void setPrice(float price) {this.priceCents = Cents.of(price);}
 
     /**
      * Retrieve the price of the Product
      * @return The price of the Product
      */
-    public float getPrice() {return price;}
+    public float getPrice() {return Cents.toDollars(priceCents);}
+
+    /**
+     * Retrieve the price of the Product in cents
+     * @return The price of the Product in whole cents
+     */
+    public long getPriceCents() {return priceCents;}
 
     /**
      * Update the quantity of the Product
@@ -87,6 +111,6 @@ public class Product {
      */
     @Override
     public String toString() {
-        return String.format(STRING_FORMAT,id,name, price, quantity);
+        return String.format(STRING_FORMAT,id,name, getPrice(), quantity);
     }
 }
\ No newline at end of file
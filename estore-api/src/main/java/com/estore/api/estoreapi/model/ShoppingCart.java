@@ -1,24 +1,32 @@
 package com.estore.api.estoreapi.model;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Represents a shopping cart for the e-store API. 
  * This class handles operations such as adding kits to the cart, 
  * removing kits from the cart, calculating the total cost, 
  * and checking kit quantities.
+ * <br>
+ * A cart may be changed by several requests at once; each change to a kit's
+ * quantity is applied atomically, so none of them are lost.
+ * <br>
+ * The total cost is kept in whole cents and updated by every change, so reading
+ * it does no work. Changes are serialized on the cart so the total always agrees
+ * with the quantities; reading the kits never waits for them.
  * 
  * @author David Dobbins dpd8504
  */
 public class ShoppingCart {
-    private Map<Kit, Integer> kits;
+    private final Map<Kit, Integer> kits;
+    private volatile long totalCents; // the price of every kit in the cart times its quantity
     
     /**
      * Constructs a new ShoppingCart instance. Initializes the internal
      * storage for kits added to the cart.
      */
     public ShoppingCart() {
-        kits = new HashMap<>();
+        kits = new ConcurrentHashMap<>();
     }
 
     /**
@@ -28,8 +36,9 @@ public class ShoppingCart {
      * @param kit The kit to be added to the cart.
      * @param quantity The quantity of the kit to add.
      */
-    public void addKit(Kit kit, int quantity) {
-        kits.put(kit, kits.getOrDefault(kit, 0) + quantity);
+    public synchronized void addKit(Kit kit, int quantity) {
+        kits.merge(kit, quantity, Integer::sum);
+        totalCents += kit.getPriceCents() * quantity;
     }
 
     /**
@@ -39,37 +48,43 @@ public class ShoppingCart {
      * 
      * @param kit The kit to be removed from the cart.
      * @param quantity The quantity of the kit to remove.
+     * @return The quantity actually removed, at most the quantity that was in the cart.
      */
-    public void removeKit(Kit kit, int quantity) {
-        int currentQuantity = kits.getOrDefault(kit, 0);
-        int newQuantity = currentQuantity - quantity;
-        if (newQuantity > 0) {
-            kits.put(kit, newQuantity);
-        } else {
-            kits.remove(kit);
-        }
+    public synchronized int removeKit(Kit kit, int quantity) {
+        int[] removed = new int[1];
+        kits.computeIfPresent(kit, (k, currentQuantity) -> {
+            removed[0] = Math.max(0, Math.min(quantity, currentQuantity));
+            int newQuantity = currentQuantity - removed[0];
+            return newQuantity > 0 ? newQuantity : null;
+        });
+        totalCents -= kit.getPriceCents() * removed[0];
+        return removed[0];
     }
 
     /**
-     * Calculates and returns the total cost of all kits in the shopping cart.
+     * Returns the total cost of all kits in the shopping cart.
      * 
-     * @return The total cost of all kits in the cart.
+     * @return The total cost of all kits in the cart, in dollars.
      */
     public float getTotalCost() {
-        float totalCost = 0;
-        for (Kit drink: kits.keySet()) {
-            float price = drink.getPrice();
-            int quantity = kits.get(drink);
-            totalCost += (price * quantity);
-        }
-        return Float.parseFloat(String.format("%.2f", totalCost));
+        return Cents.toDollars(totalCents);
+    }
+
+    /**
+     * Returns the total cost of all kits in the shopping cart in whole cents.
+     * 
+     * @return The exact total cost of all kits in the cart, in cents.
+     */
+    public long getTotalCents() {
+        return totalCents;
     }
 
     /**
      * Clears all kits from the shopping cart.
      */
-    public void clearCart() {
-        kits = new HashMap<>();
+    public synchronized void clearCart() {
+        kits.clear();
+        totalCents = 0;
     }
 
     /**
@@ -1,17 +1,22 @@
 package com.estore.api.estoreapi.model;
 
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
 /**
  * Represents a shopping cart kit for the e-store API.
  *
  * @author Akhil Devarapalli
  */
+@JsonAutoDetect(getterVisibility = Visibility.NONE, isGetterVisibility = Visibility.NONE,
+                setterVisibility = Visibility.NONE)
 public class ShoppingCartKit {
     @JsonProperty("id") private int kitID;
     @JsonProperty("quantity") private int quantity;
     @JsonProperty("name") private String name;
-    @JsonProperty("price") private float price;
+    @JsonProperty("price") @JsonSerialize(using = Cents.Serializer.class) private long priceCents; // written as dollars
 
     /**
      * Create a new instance of a shopping cart kit
@@ -20,11 +25,25 @@ public class ShoppingCartKit {
      * @param name the name of the shopping cart kit
      * @param price the price of the shopping cart kit
      */
-    public ShoppingCartKit(@JsonProperty("id") int kitID, @JsonProperty("quantity") int quantity, @JsonProperty("name") String name, @JsonProperty("price") float price) {
+    public ShoppingCartKit(@JsonProperty("id") int kitID, @JsonProperty("quantity") int quantity, @JsonProperty("name") String name, @JsonProperty("price") double price) {
         this.kitID = kitID;
         this.quantity = quantity;
         this.name = name;
-        this.price = price;
+        this.priceCents = Cents.of(price);
+    }
+
+    /**
+     * Create a new instance of a shopping cart kit priced in whole cents, so its price is never rounded through dollars
+     * @param kitID the id of the new shopping cart kit
+     * @param quantity the quantity of the shopping cart kit
+     * @param name the name of the shopping cart kit
+     * @param priceCents the price of the shopping cart kit in cents
+     * @return the new shopping cart kit
+     */
+    public static ShoppingCartKit ofCents(int kitID, int quantity, String name, long priceCents) {
+        ShoppingCartKit kit = new ShoppingCartKit(kitID, quantity, name, 0);
+        kit.priceCents = priceCents;
+        return kit;
     }
 
     /**
@@ -55,14 +74,14 @@ public class ShoppingCartKit {
      * Get the price of the shopping cart kit
      * @return the shopping cart kit's price
      */
-    public float getPrice() {return this.price;}
+    public float getPrice() {return Cents.toDollars(this.priceCents);}
 
     /**
      * Calculate the total price of the shopping cart kit with how many in stock
      * @return the value of the shopping kart kit's quantity * price
      */
     public float totalPrice() {
-        return (float) this.quantity * this.price;
+        return Cents.toDollars(this.quantity * this.priceCents);
     }
 
 }
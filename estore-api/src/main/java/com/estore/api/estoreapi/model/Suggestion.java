@@ -0,0 +1,33 @@
+package com.estore.api.estoreapi.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Represents an autocomplete suggestion for a kit or product name
+ */
+public class Suggestion {
+    @JsonProperty("id") private int id;
+    @JsonProperty("name") private String name;
+
+    /**
+     * Create a new suggestion
+     * @param id the id of the suggested kit or product
+     * @param name the name of the suggested kit or product
+     */
+    public Suggestion(@JsonProperty("id") int id, @JsonProperty("name") String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    /**
+     * Get the id of the suggested kit or product
+     * @return the suggestion's id
+     */
+    public int getId() {return id;}
+
+    /**
+     * Get the name of the suggested kit or product
+     * @return the suggestion's name
+     */
+    public String getName() {return name;}
+}
@@ -0,0 +1,93 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.io.IOException;
+
+import com.estore.api.estoreapi.model.Kit;
+import com.estore.api.estoreapi.model.ShoppingCart;
+
+/**
+ * Defines the interface for {@linkplain ShoppingCart shopping cart} storage
+ * <br>
+ * Carts must be changed through the DAO rather than through the
+ * {@link ShoppingCart cart} itself, so a DAO that saves carts sees every change.
+ */
+public interface CartDAO {
+    /**
+     * Retrieves a user's cart, creating an empty one if they have none
+     * <br>
+     * The cart should only be read; retrieving it counts as using it
+     *
+     * @param userId The user's id number
+     *
+     * @return The user's {@link ShoppingCart cart}
+     */
+    ShoppingCart getCart(int userId);
+
+    /**
+     * Adds a quantity of a kit to a user's cart
+     *
+     * @param userId The user's id number
+     * @param kit The {@link Kit kit} to add, its stock already reserved
+     * @param quantity The quantity to add
+     *
+     * @throws IOException if the change cannot be saved, in which case the cart is unchanged
+     */
+    void addKit(int userId, Kit kit, int quantity) throws IOException;
+
+    /**
+     * Removes up to a quantity of a kit from a user's cart
+     *
+     * @param userId The user's id number
+     * @param kit The {@link Kit kit} to remove
+     * @param quantity The most to remove
+     *
+     * @return The quantity actually removed, 0 if the kit was not in the cart
+     *
+     * @throws IOException if the change cannot be saved, in which case the cart is unchanged
+     */
+    int removeKit(int userId, Kit kit, int quantity) throws IOException;
+
+    /**
+     * Empties a user's cart
+     *
+     * @param userId The user's id number
+     *
+     * @throws IOException if the change cannot be saved, in which case the cart is unchanged
+     */
+    void clearCart(int userId) throws IOException;
+
+    /**
+     * Retrieves the users who currently have a cart
+     *
+     * @return The ids of the users whose carts are held, in no particular order
+     */
+    int[] getUserIds();
+
+    /**
+     * Evicts the carts that have gone unused for the idle TTL and returns their kits to stock
+     *
+     * @return The number of carts evicted
+     */
+    int sweep();
+
+    /**
+     * Retrieves the number of carts currently held
+     *
+     * @return The number of live carts
+     */
+    int getLiveCarts();
+
+    /**
+     * Retrieves the number of carts evicted for going unused
+     *
+     * @return The number of carts evicted since the DAO was created
+     */
+    long getEvictedCarts();
+
+    /**
+     * Retrieves the number of kits put back in stock from evicted carts
+     *
+     * @return The number of kits returned since the DAO was created
+     */
+    long getUnitsReturned();
+}
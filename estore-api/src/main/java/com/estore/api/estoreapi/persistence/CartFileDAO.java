@@ -0,0 +1,235 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.estore.api.estoreapi.model.Kit;
+import com.estore.api.estoreapi.model.ShoppingCart;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Keeps the {@linkplain ShoppingCart shopping carts} in memory like the
+ * {@link CartStore cart store}, and saves them so they survive a restart
+ * <br>
+ * Every change to a cart is appended to a {@link Journal journal} and forced to
+ * disk before it is applied, so a change the caller was told about is never
+ * lost. Once the journal holds the compaction threshold of changes, every cart
+ * is written to a snapshot in the background and the changes it covers are
+ * dropped from the journal. At startup the snapshot is loaded and the changes
+ * journaled after it are replayed; each {@link CartRecord record} carries the
+ * sequence number of its latest change, so a change the snapshot already holds
+ * is never applied twice.
+ * <p>
+ * The stock a restored cart holds is not reserved again, because the kits file
+ * already counts it. That file is written shortly after a reservation rather
+ * than with it, so a crash within {@code kits.stock.max-delay-ms} of a change
+ * can leave a restored cart and the kit's stock a few units apart. Kits deleted
+ * while the application was down are dropped from the carts that held them.
+ */
+@Component
+@ConditionalOnProperty(name = "carts.store", havingValue = "file", matchIfMissing = true)
+public class CartFileDAO extends CartStore {
+    private static final Logger LOG = Logger.getLogger(CartFileDAO.class.getName());
+
+    private final KitDAO kitDao;              // finds the kits named by the saved carts
+    private final ObjectMapper objectMapper;  // converts between cart records and JSON
+    private final String filename;            // the snapshot file
+    private final Journal<CartRecord> journal; // the changes made since the snapshot was written
+    private final int compactThreshold;       // number of journaled changes that triggers a new snapshot
+    private final WriteBehindPersister persister; // writes the snapshot off the request thread
+    private final AtomicLong lastSeq = new AtomicLong(); // sequence number of the latest change
+
+    /**
+     * Creates a cart DAO whose carts never expire
+     *
+     * @param kitDao The DAO that finds the kits in the saved carts
+     * @param objectMapper Converts between cart records and JSON
+     * @param filename The snapshot file
+     * @param journalFilename The file changes are journaled to between snapshots
+     * @param compactThreshold The number of journaled changes after which the snapshot is rewritten
+     *
+     * @throws IOException if the saved carts cannot be read
+     */
+    public CartFileDAO(KitDAO kitDao, ObjectMapper objectMapper, String filename,
+                       String journalFilename, int compactThreshold) throws IOException {
+        this(kitDao, objectMapper, filename, journalFilename, compactThreshold, 0, 0);
+    }
+
+    /**
+     * Creates a cart DAO, restoring the carts saved by the last run
+     *
+     * @param kitDao The DAO that finds the kits in the saved carts and takes back the kits of evicted carts
+     * @param objectMapper Converts between cart records and JSON
+     * @param filename The snapshot file
+     * @param journalFilename The file changes are journaled to between snapshots
+     * @param compactThreshold The number of journaled changes after which the snapshot is rewritten
+     * and the journal emptied
+     * @param idleTtlMillis How long a cart may go unused before it is evicted, 0 to keep carts forever
+     * @param sweepIntervalMillis How often to look for idle carts, 0 to only sweep when {@link #sweep()} is called
+     *
+     * @throws IOException if the saved carts cannot be read
+     */
+    @Autowired
+    public CartFileDAO(KitDAO kitDao, ObjectMapper objectMapper,
+                       @Value("${carts.file:data/carts.json}") String filename,
+                       @Value("${carts.journal.file:data/carts.journal}") String journalFilename,
+                       @Value("${carts.journal.compact.threshold:10000}") int compactThreshold,
+                       @Value("${carts.idle-ttl-ms:1800000}") long idleTtlMillis,
+                       @Value("${carts.sweep-interval-ms:60000}") long sweepIntervalMillis) throws IOException {
+        super(kitDao, idleTtlMillis, sweepIntervalMillis);
+        this.kitDao = kitDao;
+        this.objectMapper = objectMapper;
+        this.filename = filename;
+        this.journal = new Journal<>(journalFilename, objectMapper, CartRecord.class);
+        this.compactThreshold = Math.max(1, compactThreshold);
+        // the journal makes each change durable, so the snapshot is only ever written in the background
+        this.persister = new WriteBehindPersister("carts", WriteBehindPersister.Mode.FAST, 0, 1, this::save);
+        load();
+    }
+
+    /**
+     * Restores the carts from the snapshot and the changes journaled after it
+     *
+     * @throws IOException if the snapshot or journal cannot be read
+     */
+    private void load() throws IOException {
+        Map<Integer, Long> seqs = new HashMap<>();                     // user id to latest change restored
+        Map<Integer, Map<Integer, Integer>> contents = new HashMap<>(); // user id to kit id to quantity
+
+        File file = new File(filename);
+        // A file whose checksum footer does not match fails here rather than loading partial carts
+        SnapshotFiles.verify(file);
+        if (file.exists()) {
+            for (CartRecord record : objectMapper.readValue(file, CartRecord[].class)) {
+                seqs.put(record.getUserId(), record.getSeq());
+                Map<Integer, Integer> cart = contents.computeIfAbsent(record.getUserId(), u -> new HashMap<>());
+                int[] items = record.getItems();
+                for (int i = 0; i + 1 < items.length; i += 2)
+                    cart.merge(items[i], items[i + 1], Integer::sum);
+            }
+        }
+
+        long maxSeq = 0;
+        for (long seq : seqs.values())
+            maxSeq = Math.max(maxSeq, seq);
+        int replayed = 0;
+        for (CartRecord change : journal.replay()) {
+            maxSeq = Math.max(maxSeq, change.getSeq());
+            if (change.getSeq() <= seqs.getOrDefault(change.getUserId(), 0L))
+                continue; // already in the snapshot
+            seqs.put(change.getUserId(), change.getSeq());
+            Map<Integer, Integer> cart = contents.computeIfAbsent(change.getUserId(), u -> new HashMap<>());
+            int[] items = change.getItems();
+            // A cart left out of the snapshot for being empty replays from nothing rather
+            // than from what it held before; no quantity can go below zero, so the
+            // replayed quantities are back in step by the time the cart was last empty
+            for (int i = 0; i + 1 < items.length; i += 2)
+                cart.put(items[i], Math.max(0, cart.getOrDefault(items[i], 0) + items[i + 1]));
+            ++replayed;
+        }
+        lastSeq.set(maxSeq);
+
+        Map<Integer, Kit> kits = new HashMap<>(); // kits looked up so far, null if deleted
+        int restored = 0;
+        int dropped = 0;
+        for (Map.Entry<Integer, Map<Integer, Integer>> cart : contents.entrySet()) {
+            Entry entry = null;
+            for (Map.Entry<Integer, Integer> item : cart.getValue().entrySet()) {
+                if (item.getValue() <= 0)
+                    continue;
+                if (!kits.containsKey(item.getKey()))
+                    kits.put(item.getKey(), kitDao.getKit(item.getKey()));
+                Kit kit = kits.get(item.getKey());
+                if (kit == null) {
+                    ++dropped;
+                    continue;
+                }
+                if (entry == null) {
+                    entry = new Entry();
+                    entry.seq = seqs.get(cart.getKey());
+                    carts.put(cart.getKey(), entry);
+                }
+                entry.cart.addKit(kit, item.getValue());
+            }
+            if (entry != null)
+                ++restored;
+        }
+        if (replayed > 0 || dropped > 0) {
+            LOG.info("Restored " + restored + " carts, replaying " + replayed + " changes and dropping "
+                    + dropped + " deleted kits");
+            persister.markDirty(); // fold the replayed changes into a new snapshot
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br>
+     * Appends the change to the journal and forces it to disk
+     */
+    @Override
+    void record(int userId, Entry entry, int[] changes) throws IOException {
+        long seq = lastSeq.incrementAndGet();
+        journal.append(new CartRecord(userId, seq, changes));
+        entry.seq = seq;
+        if (journal.size() >= compactThreshold)
+            persister.markDirty();
+    }
+
+    /**
+     * Saves every cart that holds kits into the snapshot file, then drops the
+     * journaled changes the file now covers
+     * <br>
+     * Called by the {@link WriteBehindPersister persister}; each cart is only
+     * locked while it is copied, so carts keep changing while the snapshot is taken
+     *
+     * @throws IOException if the snapshot cannot be written
+     */
+    private void save() throws IOException {
+        // every change journaled before the mark is applied before its cart is copied below
+        long journaled = journal.mark();
+        List<CartRecord> records = new ArrayList<>(carts.size());
+        for (Map.Entry<Integer, Entry> cart : carts.entrySet()) {
+            Entry entry = cart.getValue();
+            synchronized (entry.cart) {
+                Map<Kit, Integer> kits = entry.cart.getKits();
+                if (entry.evicted || kits.isEmpty())
+                    continue;
+                int[] items = new int[kits.size() * 2];
+                int i = 0;
+                for (Map.Entry<Kit, Integer> item : kits.entrySet()) {
+                    items[i++] = item.getKey().getId();
+                    items[i++] = item.getValue();
+                }
+                records.add(new CartRecord(cart.getKey(), entry.seq, items));
+            }
+        }
+        SnapshotFiles.write(objectMapper, new File(filename), records.toArray(new CartRecord[0]));
+        journal.discard(journaled);
+    }
+
+    /**
+     * Stops the sweeper, writes a snapshot holding every journaled change and
+     * closes the journal, called when the application shuts down
+     *
+     * @throws IOException if the snapshot cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        super.close();
+        if (journal.size() > 0)
+            persister.markDirty();
+        persister.flush();
+        journal.close();
+    }
+}
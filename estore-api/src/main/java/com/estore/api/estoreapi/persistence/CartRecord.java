@@ -0,0 +1,59 @@
+package com.estore.api.estoreapi.persistence;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * The form a {@linkplain com.estore.api.estoreapi.model.ShoppingCart shopping cart}
+ * is saved in, in the cart snapshot and journal
+ * <br>
+ * In the snapshot a record holds a cart's contents, and its items are kit id and
+ * quantity pairs. In the journal a record holds one change to a cart, and its
+ * items are kit id and change in quantity pairs. Either way the sequence number
+ * is that of the latest change the record covers, so replay can tell which
+ * journaled changes the snapshot already holds. Records are written as JSON
+ * arrays, {@code [user, seq, [kit, quantity, ...]]}, to keep a million of them small.
+ */
+@JsonFormat(shape = JsonFormat.Shape.ARRAY)
+@JsonPropertyOrder({"user", "seq", "items"})
+public class CartRecord {
+    @JsonProperty("user") private final int userId; // the id of the user owning the cart
+    @JsonProperty("seq") private final long seq;    // the sequence number of the latest change covered
+    @JsonProperty("items") private final int[] items; // kit ids each followed by a quantity or change in quantity
+
+    /**
+     * Creates a cart record
+     *
+     * @param userId The id of the user owning the cart
+     * @param seq The sequence number of the latest change the record covers
+     * @param items Kit ids each followed by a quantity or a change in quantity
+     */
+    public CartRecord(@JsonProperty("user") int userId, @JsonProperty("seq") long seq,
+                      @JsonProperty("items") int[] items) {
+        this.userId = userId;
+        this.seq = seq;
+        this.items = items == null ? new int[0] : items;
+    }
+
+    /**
+     * Retrieves the user owning the cart
+     *
+     * @return The user's id
+     */
+    public int getUserId() {return userId;}
+
+    /**
+     * Retrieves the sequence number of the latest change the record covers
+     *
+     * @return The sequence number
+     */
+    public long getSeq() {return seq;}
+
+    /**
+     * Retrieves the items of the record
+     *
+     * @return Kit ids each followed by a quantity or a change in quantity
+     */
+    public int[] getItems() {return items;}
+}
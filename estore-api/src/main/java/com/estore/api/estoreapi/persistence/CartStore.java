@@ -0,0 +1,305 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.estore.api.estoreapi.model.Kit;
+import com.estore.api.estoreapi.model.ShoppingCart;
+
+/**
+ * Holds the {@linkplain ShoppingCart shopping carts} of the users currently shopping
+ * <br>
+ * Carts are kept in memory only, and are lost when the application stops; the
+ * {@link CartFileDAO file DAO} extends this store to keep them across restarts.
+ * Looking a cart up never blocks on another user's cart, and each change to a
+ * cart is applied under that cart's lock, so requests for different carts run
+ * in parallel.
+ * <p>
+ * Kits are taken out of stock when they are added to a cart, so a cart that is
+ * abandoned would hold its kits forever. A sweeper evicts carts that have not
+ * been used for the idle TTL and puts their kits back in stock, in batches of
+ * at most {@value #SWEEP_BATCH} carts with one stock release per kit per batch.
+ */
+@Component
+@ConditionalOnProperty(name = "carts.store", havingValue = "memory")
+public class CartStore implements CartDAO {
+    private static final Logger LOG = Logger.getLogger(CartStore.class.getName());
+
+    static final int SWEEP_BATCH = 1000; // most carts whose stock is returned in one update
+
+    final Map<Integer, Entry> carts = new ConcurrentHashMap<>();
+
+    private final KitDAO kitDao;           // takes back the stock of evicted carts, null if carts never expire
+    private final long idleTtlMillis;      // how long a cart may go unused, 0 if carts never expire
+    private final ScheduledExecutorService sweeper;
+
+    private final AtomicLong evictedCarts = new AtomicLong();
+    private final AtomicLong unitsReturned = new AtomicLong();
+
+    /**
+     * Creates a cart store whose carts never expire
+     */
+    public CartStore() {
+        this(null, 0, 0);
+    }
+
+    /**
+     * Creates a cart store
+     *
+     * @param kitDao the DAO that takes back the kits of evicted carts
+     * @param idleTtlMillis how long a cart may go unused before it is evicted, 0 to keep carts forever
+     * @param sweepIntervalMillis how often to look for idle carts, 0 to only sweep when {@link #sweep()} is called
+     */
+    @Autowired
+    public CartStore(KitDAO kitDao,
+                     @Value("${carts.idle-ttl-ms:1800000}") long idleTtlMillis,
+                     @Value("${carts.sweep-interval-ms:60000}") long sweepIntervalMillis) {
+        this.kitDao = kitDao;
+        this.idleTtlMillis = idleTtlMillis;
+        if (kitDao != null && idleTtlMillis > 0 && sweepIntervalMillis > 0) {
+            sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "cart-sweeper");
+                thread.setDaemon(true);
+                return thread;
+            });
+            sweeper.scheduleWithFixedDelay(this::sweepInBackground, sweepIntervalMillis,
+                    sweepIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            sweeper = null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br>
+     * Retrieving a cart counts as using it, restarting its idle TTL
+     */
+    @Override
+    public ShoppingCart getCart(int userId) {
+        return use(userId).cart;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addKit(int userId, Kit kit, int quantity) throws IOException {
+        while (true) {
+            Entry entry = use(userId);
+            synchronized (entry.cart) {
+                if (entry.evicted)
+                    continue; // swept since it was looked up, a new cart takes its place
+                record(userId, entry, new int[] {kit.getId(), quantity});
+                entry.cart.addKit(kit, quantity);
+                return;
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int removeKit(int userId, Kit kit, int quantity) throws IOException {
+        Entry entry = carts.get(userId);
+        if (entry == null)
+            return 0;
+        entry.lastUsed = System.currentTimeMillis();
+        synchronized (entry.cart) {
+            int removed = Math.max(0, Math.min(quantity, entry.cart.getKitQuantity(kit)));
+            if (entry.evicted || removed == 0)
+                return 0;
+            record(userId, entry, new int[] {kit.getId(), -removed});
+            return entry.cart.removeKit(kit, removed);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clearCart(int userId) throws IOException {
+        Entry entry = carts.get(userId);
+        if (entry == null)
+            return;
+        synchronized (entry.cart) {
+            if (entry.evicted || entry.cart.getKits().isEmpty())
+                return;
+            record(userId, entry, removals(entry.cart));
+            entry.cart.clearCart();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int[] getUserIds() {
+        return carts.keySet().stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int sweep() {
+        if (kitDao == null || idleTtlMillis <= 0)
+            return 0;
+
+        long idleSince = System.currentTimeMillis() - idleTtlMillis;
+        Map<Integer, Integer> units = new HashMap<>(); // kit id to units held by the batch
+        int batched = 0;
+        int evicted = 0;
+        for (Map.Entry<Integer, Entry> cart : carts.entrySet()) {
+            Entry entry = cart.getValue();
+            if (entry.lastUsed >= idleSince)
+                continue;
+            synchronized (entry.cart) {
+                if (entry.lastUsed >= idleSince || entry.evicted)
+                    continue; // used again since the sweep began
+                if (!entry.cart.getKits().isEmpty()) {
+                    try {
+                        record(cart.getKey(), entry, removals(entry.cart));
+                    } catch (IOException e) {
+                        LOG.log(Level.WARNING, "Could not evict the cart of user " + cart.getKey(), e);
+                        continue; // kept, and tried again by the next sweep
+                    }
+                }
+                entry.evicted = true;
+                carts.remove(cart.getKey(), entry);
+                for (Map.Entry<Kit, Integer> item : entry.cart.getKits().entrySet())
+                    units.merge(item.getKey().getId(), item.getValue(), Integer::sum);
+                entry.cart.clearCart();
+            }
+            evicted++;
+            if (++batched == SWEEP_BATCH) {
+                returnStock(units);
+                units.clear();
+                batched = 0;
+            }
+        }
+        returnStock(units);
+
+        evictedCarts.addAndGet(evicted);
+        if (evicted > 0)
+            LOG.info("Evicted " + evicted + " idle carts, " + carts.size() + " still live");
+        return evicted;
+    }
+
+    /**
+     * Puts the kits of evicted carts back in stock, releasing each kit once for the whole batch
+     */
+    private void returnStock(Map<Integer, Integer> units) {
+        for (Map.Entry<Integer, Integer> unit : units.entrySet()) {
+            if (kitDao.releaseStock(unit.getKey(), unit.getValue())) // false if deleted since it was added
+                unitsReturned.addAndGet(unit.getValue());
+        }
+    }
+
+    private void sweepInBackground() {
+        try {
+            sweep();
+        } catch (RuntimeException e) {
+            LOG.log(Level.SEVERE, "Could not return the stock of idle carts", e);
+        }
+    }
+
+    /**
+     * Saves a change to a cart before it is applied, called under the cart's lock
+     * <br>
+     * Carts held only in memory have nothing to save
+     *
+     * @param userId the id of the user owning the cart
+     * @param entry the cart's entry
+     * @param changes kit ids each followed by the change in that kit's quantity
+     *
+     * @throws IOException if the change cannot be saved, in which case it is not applied
+     */
+    void record(int userId, Entry entry, int[] changes) throws IOException {
+    }
+
+    /**
+     * Lists the changes that would empty a cart, called under the cart's lock
+     */
+    static int[] removals(ShoppingCart cart) {
+        Map<Kit, Integer> kits = cart.getKits();
+        int[] changes = new int[kits.size() * 2];
+        int i = 0;
+        for (Map.Entry<Kit, Integer> item : kits.entrySet()) {
+            changes[i++] = item.getKey().getId();
+            changes[i++] = -item.getValue();
+        }
+        return changes;
+    }
+
+    /**
+     * Looks a user's cart up, creating it if they have none, and restarts its idle TTL
+     */
+    private Entry use(int userId) {
+        Entry entry = carts.get(userId);
+        if (entry == null)
+            entry = carts.computeIfAbsent(userId, id -> new Entry());
+        entry.lastUsed = System.currentTimeMillis();
+        return entry;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getLiveCarts() {
+        return carts.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getEvictedCarts() {
+        return evictedCarts.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getUnitsReturned() {
+        return unitsReturned.get();
+    }
+
+    /**
+     * Stops the sweeper, called when the application shuts down
+     *
+     * @throws IOException if carts that have not been saved yet cannot be written
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        if (sweeper != null)
+            sweeper.shutdownNow();
+    }
+
+    /**
+     * A user's cart and what the store keeps about it
+     */
+    static class Entry {
+        final ShoppingCart cart = new ShoppingCart();
+        volatile long lastUsed = System.currentTimeMillis();
+        boolean evicted; // true once swept out of the store, guarded by the cart
+        long seq;        // sequence number of the latest saved change, guarded by the cart
+    }
+}
@@ -0,0 +1,105 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * An immutable view of a catalog DAO's contents, rebuilt whenever the catalog
+ * changes and shared by every reader until the next change
+ * <br>
+ * The arrays are handed to callers as they are, so listing the catalog does
+ * not allocate. Callers must not modify them.
+ *
+ * @param <T> The type of catalog entry, a {@link com.estore.api.estoreapi.model.Kit Kit}
+ * or {@link com.estore.api.estoreapi.model.Product Product}
+ */
+public final class CatalogSnapshot<T> {
+    private final long version;     // counts the changes made to the catalog since it was loaded
+    private final T[] all;          // every entry, in id order
+    private final T[] inStock;      // the entries that can currently be bought, in id order
+    private final Map<Integer, T> byId;
+
+    private CatalogSnapshot(long version, T[] all, T[] inStock, Map<Integer, T> byId) {
+        this.version = version;
+        this.all = all;
+        this.inStock = inStock;
+        this.byId = byId;
+    }
+
+    /**
+     * Builds a snapshot of a catalog
+     *
+     * @param version The number of changes made to the catalog since it was loaded
+     * @param entries The catalog entries, in id order
+     * @param id Reads an entry's id
+     * @param inStock Tells whether an entry can currently be bought, asked once per entry
+     * @param newArray Creates an array of entries of the given length
+     * @param <T> The type of catalog entry
+     *
+     * @return A snapshot of the entries as they are now
+     */
+    public static <T> CatalogSnapshot<T> of(long version, Collection<T> entries, ToIntFunction<T> id,
+                                            Predicate<T> inStock, IntFunction<T[]> newArray) {
+        T[] all = entries.toArray(newArray.apply(entries.size()));
+        Map<Integer, T> byId = new HashMap<>(all.length * 2);
+        boolean[] stockedAt = new boolean[all.length]; // asked once, stock may change while this runs
+        int stocked = 0;
+        for (int i = 0; i < all.length; i++) {
+            byId.put(id.applyAsInt(all[i]), all[i]);
+            stockedAt[i] = inStock.test(all[i]);
+            if (stockedAt[i])
+                ++stocked;
+        }
+
+        T[] available = newArray.apply(stocked);
+        int next = 0;
+        for (int i = 0; i < all.length; i++)
+            if (stockedAt[i])
+                available[next++] = all[i];
+
+        return new CatalogSnapshot<>(version, all, available, Collections.unmodifiableMap(byId));
+    }
+
+    /**
+     * Retrieves the version of the catalog this snapshot was taken of
+     *
+     * @return The number of changes made to the catalog before this snapshot, 0 for the loaded catalog
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Retrieves every entry in the catalog
+     *
+     * @return The entries in id order, shared and must not be modified
+     */
+    public T[] getAll() {
+        return all;
+    }
+
+    /**
+     * Retrieves the entries that can currently be bought
+     *
+     * @return The in-stock entries in id order, shared and must not be modified
+     */
+    public T[] getInStock() {
+        return inStock;
+    }
+
+    /**
+     * Retrieves an entry by its id
+     *
+     * @param id The id of the entry
+     *
+     * @return The entry, or null if there is none with that id
+     */
+    public T get(int id) {
+        return byId.get(id);
+    }
+}
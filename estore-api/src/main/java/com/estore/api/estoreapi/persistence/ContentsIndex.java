@@ -0,0 +1,86 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A reverse index from product ids to the ids of the kits that contain them,
+ * used to find the kits affected by a change to a product
+ * <br>
+ * A lookup costs the number of kits holding the product rather than the size of
+ * the catalog. Like the {@link TrigramIndex name index}, the DAO updates it under
+ * its writer lock while lookups run concurrently; a lookup that overlaps a change
+ * may or may not see it.
+ */
+public class ContentsIndex {
+    private final Map<Integer, int[]> contents = new ConcurrentHashMap<>();        // kit id to product ids
+    private final Map<Integer, Set<Integer>> kits = new ConcurrentHashMap<>();     // product id to kit ids
+
+    /**
+     * Indexes a kit's products, replacing the products indexed for it before
+     *
+     * @param kitId The id of the kit
+     * @param productIds The ids of the products in the kit, may be null
+     */
+    public void put(int kitId, int[] productIds) {
+        int[] products = productIds == null ? new int[0] : productIds;
+        int[] previous = contents.put(kitId, products);
+        if (previous == products)
+            return;
+        if (previous != null)
+            unlink(kitId, previous);
+        for (int product : products)
+            kits.computeIfAbsent(product, p -> ConcurrentHashMap.newKeySet()).add(kitId);
+    }
+
+    /**
+     * Removes a kit from the index
+     *
+     * @param kitId The id of the kit
+     */
+    public void remove(int kitId) {
+        int[] previous = contents.remove(kitId);
+        if (previous != null)
+            unlink(kitId, previous);
+    }
+
+    /**
+     * Retrieves the products indexed for a kit
+     *
+     * @param kitId The id of the kit
+     *
+     * @return The ids of the products in the kit, null if the kit is not indexed
+     */
+    public int[] productsOf(int kitId) {
+        return contents.get(kitId);
+    }
+
+    /**
+     * Finds the kits that contain a product
+     *
+     * @param productId The id of the product
+     *
+     * @return The ids of the kits holding the product in ascending order, may be empty
+     */
+    public int[] kitsContaining(int productId) {
+        Set<Integer> ids = kits.get(productId);
+        if (ids == null)
+            return new int[0];
+        int[] found = ids.stream().mapToInt(Integer::intValue).toArray();
+        Arrays.sort(found);
+        return found;
+    }
+
+    private void unlink(int kitId, int[] products) {
+        for (int product : products) {
+            Set<Integer> ids = kits.get(product);
+            if (ids == null)
+                continue;
+            ids.remove(kitId);
+            if (ids.isEmpty())
+                kits.remove(product, ids);
+        }
+    }
+}
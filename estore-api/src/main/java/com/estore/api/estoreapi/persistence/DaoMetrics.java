@@ -0,0 +1,165 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Times every call made to the DAOs
+ * <br>
+ * Each DAO bean is wrapped in a proxy that records the {@code estore.dao}
+ * timer, tagged with the DAO interface and the method called. The part of a
+ * call spent writing to storage or waiting for a write, as counted by
+ * {@link SaveTime}, is recorded with the tag {@code phase=save} and the rest
+ * with {@code phase=memory}, so a slow disk can be told apart from slow
+ * in-memory work. The timers are looked up once per method when the proxy is
+ * made, not on every call.
+ */
+@Component
+public class DaoMetrics implements BeanPostProcessor {
+    private static final List<Class<?>> DAOS = List.of(
+            KitDAO.class, InventoryDAO.class, UserDAO.class, OrderDAO.class, CartDAO.class);
+
+    private final MeterRegistry registry;
+
+    /**
+     * Creates the post processor, recording to Micrometer's global registry
+     * <br>
+     * Post processors are created before the registry bean, which backs the
+     * global registry once it exists.
+     */
+    public DaoMetrics() {
+        this(Metrics.globalRegistry);
+    }
+
+    /**
+     * Creates the post processor
+     *
+     * @param registry Where the timers are recorded
+     */
+    DaoMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Wraps a DAO bean in a timing proxy, leaving any other bean as it is
+     */
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        for (Class<?> dao : DAOS) {
+            if (dao.isInstance(bean))
+                return wrap(bean, dao.getSimpleName());
+        }
+        return bean;
+    }
+
+    /**
+     * Wraps a DAO in a proxy that times its calls
+     *
+     * @param dao The DAO
+     * @param name The tag naming the DAO
+     *
+     * @return A proxy implementing all of the DAO's interfaces
+     */
+    Object wrap(Object dao, String name) {
+        Class<?>[] interfaces = ClassUtils.getAllInterfaces(dao);
+        return Proxy.newProxyInstance(dao.getClass().getClassLoader(), interfaces, new Timing(dao, name));
+    }
+
+    /**
+     * Finds the DAO behind a timing proxy, for callers whose own calls should not
+     * be timed, such as the {@link StoreMetrics store gauges} read on every scrape
+     *
+     * @param dao A DAO, wrapped or not
+     * @param <T> The DAO's type
+     *
+     * @return The DAO the proxy wraps, or the DAO itself if it is not wrapped
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T untimed(T dao) {
+        if (dao != null && Proxy.isProxyClass(dao.getClass())
+                && Proxy.getInvocationHandler(dao) instanceof Timing)
+            return (T)((Timing)Proxy.getInvocationHandler(dao)).dao;
+        return dao;
+    }
+
+    private class Timing implements InvocationHandler {
+        private static final int MEMORY = 0;
+        private static final int SAVE = 1;
+
+        private final Object dao;
+        private final String name;
+        private final Map<Method, Timer[]> timers = new HashMap<>(); // never changed once built
+
+        Timing(Object dao, String name) {
+            this.dao = dao;
+            this.name = name;
+            for (Class<?> type : ClassUtils.getAllInterfaces(dao))
+                for (Method method : type.getMethods())
+                    timers.computeIfAbsent(method, m -> new Timer[] {timer(m, "memory"), null});
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Timer[] timed = timers.get(method);
+            if (timed == null) // an Object method, such as toString
+                return invokeUntimed(method, args);
+
+            long saved = SaveTime.total();
+            long start = System.nanoTime();
+            try {
+                return method.invoke(dao, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                long saving = Math.min(elapsed, SaveTime.total() - saved);
+                timed[MEMORY].record(elapsed - saving, TimeUnit.NANOSECONDS);
+                if (saving > 0)
+                    saveTimer(method, timed).record(saving, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private Object invokeUntimed(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(dao, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        /**
+         * Registers a method's save timer the first time it saves, so methods
+         * that never touch storage do not publish an empty one; racing threads
+         * are handed the same timer by the registry
+         */
+        private Timer saveTimer(Method method, Timer[] timed) {
+            Timer save = timed[SAVE];
+            if (save == null) {
+                save = timer(method, "save");
+                timed[SAVE] = save;
+            }
+            return save;
+        }
+
+        private Timer timer(Method method, String phase) {
+            return Timer.builder("estore.dao")
+                    .description("Time taken by DAO calls, split into in-memory work and saving")
+                    .tags("dao", name, "method", method.getName(), "phase", phase)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.io.IOException;
+
+/**
+ * Receives the entries of a DAO one at a time during an export, so the
+ * entries never need to be collected into an array first
+ *
+ * @param <T> The type of entry exported
+ */
+@FunctionalInterface
+public interface ExportSink<T> {
+    /**
+     * Writes one exported entry
+     *
+     * @param entry The entry
+     *
+     * @throws IOException if the entry cannot be written
+     */
+    void write(T entry) throws IOException;
+}
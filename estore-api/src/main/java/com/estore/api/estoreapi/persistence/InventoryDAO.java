@@ -1,6 +1,7 @@
 package com.estore.api.estoreapi.persistence;
 
 import com.estore.api.estoreapi.model.Product;
+import com.estore.api.estoreapi.model.Suggestion;
 
 import java.io.IOException;
 
@@ -28,17 +29,57 @@ public interface InventoryDAO {
     Product createProduct(Product Product) throws IOException;
 
     /**
-     * Retrieves all {@linkplain Product Products}
+     * Creates and saves several {@linkplain Product Products} as one change
+     * <br>
+     * The ids of the Product objects are ignored and new unique ids are assigned in order
+     *
+     * @param products The {@linkplain Product Products} to create
+     *
+     * @return The new {@link Product Products}, in the same order
+     *
+     * @throws IOException if an issue with underlying storage
+     */
+    Product[] createProducts(Product[] products) throws IOException;
+
+    /**
+     * Retrieves all {@linkplain Product Products} that are in stock
      * 
-     * @return An array of {@link Product Product} objects, may be empty
+     * @return An array of {@link Product Product} objects, may be empty. The array may be
+     * shared between callers and must not be modified
      * 
      * @throws IOException if an issue with underlying storage
      */
     Product[] getProducts() throws IOException;
 
+    /**
+     * Retrieves the version of the inventory, which changes whenever a
+     * {@linkplain Product Product} is created, updated or deleted
+     * 
+     * @return The current version, equal versions mean the inventory has not changed
+     */
+    long getVersion();
+
+    /**
+     * Retrieves the number of {@linkplain Product Products}, in stock or not
+     *
+     * @return The number of products
+     */
+    int getProductCount();
 
     /**
-     * Finds all {@linkplain Product Products} whose name contains the given text
+     * Writes every {@linkplain Product Product}, in stock or not, to the sink in id order
+     * <br>
+     * The products come from one snapshot, so changes made during the export are not part of it
+     *
+     * @param sink Receives the products one at a time
+     *
+     * @throws IOException if the sink cannot write a product
+     */
+    void exportProducts(ExportSink<Product> sink) throws IOException;
+
+
+    /**
+     * Finds all {@linkplain Product Products} whose name contains the given text, ignoring case
      * 
      * @param containsText The text to match against
      * 
@@ -48,6 +89,18 @@ public interface InventoryDAO {
      */
     Product[] findProducts(String containsText) throws IOException;
 
+    /**
+     * Suggests in-stock {@linkplain Product Products} whose names start with the given text, ignoring case
+     * 
+     * @param prefix The start of the name
+     * @param limit The most suggestions to return
+     * 
+     * @return Up to limit suggestions, the {@link Product Products} with the most stock first, may be empty
+     * 
+     * @throws IOException if an issue with underlying storage
+     */
+    Suggestion[] suggestProducts(String prefix, int limit) throws IOException;
+
     /**
      * Updates and saves a {@linkplain Product Product}
      * 
@@ -1,17 +1,23 @@
 package com.estore.api.estoreapi.persistence;
 
 import com.estore.api.estoreapi.model.Product;
+import com.estore.api.estoreapi.model.Suggestion;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Logger;
 
+import javax.annotation.PreDestroy;
+
 /**
  * Implements the functionality for JSON file-based persistence for Inventory
  *
@@ -33,10 +39,55 @@ public class InventoryFileDAO  implements InventoryDAO{
 
     private String filename;    // Filename to read from and write to
 
+    // Writers hold the lock only while changing the map, never during disk I/O
+    private final Lock lock = new ReentrantLock();
+
+    // Rebuilt by every change and read without locking
+    private volatile CatalogSnapshot<Product> snapshot;
+
+    // Finds products by name, updated along with the map
+    private final TrigramIndex nameIndex = new TrigramIndex();
+
+    // Suggests in-stock products by name prefix, rebuilt with the snapshot
+    private volatile PrefixIndex suggestions;
+
+    // Caps the kits made from each product, told of every quantity change along with the map
+    private final KitComposition composition;
+
+    private WriteBehindPersister persister; // Writes the products to the file off the request thread
+
+    /**
+     * Creates an Inventory File DAO that saves every change before acknowledging it
+     * @param filename the name of the file containing product data
+     * @param objectMapper the object mapper between Product objects and JSON text
+     * @throws IOException if an error occurs reading the file
+     */
+    public InventoryFileDAO(String filename, ObjectMapper objectMapper) throws IOException{
+        this(filename, objectMapper, new KitComposition(), "durable", 0, 1);
+    }
 
-    public InventoryFileDAO(@Value("${inventory.file}") String filename, ObjectMapper objectMapper) throws IOException{
+    /**
+     * Creates an Inventory File DAO
+     * @param filename the name of the file containing product data
+     * @param objectMapper the object mapper between Product objects and JSON text
+     * @param composition the kit composition told about every product quantity change
+     * @param persistMode durable to acknowledge changes once they are on disk, fast to
+     * acknowledge them once they are applied in memory
+     * @param maxDelayMillis the longest a change waits before it is written
+     * @param maxPending the number of changes that are written without waiting for the delay
+     * @throws IOException if an error occurs reading the file
+     */
+    @Autowired
+    public InventoryFileDAO(@Value("${inventory.file}") String filename, ObjectMapper objectMapper,
+                            KitComposition composition,
+                            @Value("${inventory.persist.mode:durable}") String persistMode,
+                            @Value("${inventory.persist.max-delay-ms:0}") long maxDelayMillis,
+                            @Value("${inventory.persist.max-pending:1}") int maxPending) throws IOException{
         this.filename = filename; 
         this.objectMapper = objectMapper;
+        this.composition = composition;
+        this.persister = new WriteBehindPersister("inventory", WriteBehindPersister.Mode.parse(persistMode),
+                maxDelayMillis, maxPending, this::save);
         load();
 
     }
@@ -45,6 +96,9 @@ public class InventoryFileDAO  implements InventoryDAO{
         inventory = new TreeMap<>();
         nextId = 0;
 
+        // A file whose checksum footer does not match fails here rather than loading partial data
+        SnapshotFiles.verify(new File(filename));
+
         // Deserializes the JSON objects from the file into an array of products
         // readValue will throw an IOException if there's an issue with the file
         // or reading from the file
@@ -53,11 +107,14 @@ public class InventoryFileDAO  implements InventoryDAO{
         // Add each Product to the tree map and keep track of the greatest id
         for (Product product : ProductArray) {
             inventory.put(product.getId(),product);
+            nameIndex.put(product.getId(), product.getName());
+            composition.setProduct(product.getId(), product.getQuantity());
             if (product.getId() > nextId)
                 nextId = product.getId();
         }
         // Make the next id one greater than the maximum from the file
         ++nextId;
+        publish();
         return true;
     }
 
@@ -74,85 +131,85 @@ public class InventoryFileDAO  implements InventoryDAO{
     }
 
     /**
-     * Generates an array of {@linkplain Product products} from the tree map
-     *
-     * @return  The array of {@link Product products}, may be empty
-     */
-    private Product[] getInventory(){return getInventory(null);}
-
-    /**
-     * Generates an array of {@linkplain Product products} from the tree map for any
-     * {@linkplain Product products} that contains the text specified by containsText
+     * Replaces the snapshot with one of the current contents of the tree map, called
+     * with the lock held after every change, each of which bumps the version
      * <br>
-     * If containsText is null, the array contains all of the {@linkplain Product products}
-     * in the tree map
-     *
-     * @return  The array of {@link Product products}, may be empty
+     * Only products with a quantity of at least one are listed as in stock
      */
-    private Product[] getInventory(String containsText) {
-        ArrayList<Product> inventoryArrayList = new ArrayList<>();
-
-        for (Product p : inventory.values()){
-            if ((containsText == null || p.getName().contains(containsText)) && p.getQuantity() >= 1){
-                inventoryArrayList.add(p);
-            }
-        }
-
-        Product[] inventoryList  = new Product[inventoryArrayList.size()];
-        inventoryArrayList.toArray(inventoryList);
-        return inventoryList;
-
+    private void publish() {
+        long version = snapshot == null ? 0 : snapshot.getVersion() + 1;
+        snapshot = CatalogSnapshot.of(version, inventory.values(),
+                Product::getId, p -> p.getQuantity() >= 1, Product[]::new);
+        suggestions = PrefixIndex.of(snapshot.getInStock(), Product::getId, Product::getName, Product::getQuantity);
     }
 
-
-
     /**
-        * Generates an array of {@linkplain Product products} from the tree map for any
+        * Generates an array of {@linkplain Product products} from the snapshot for any
         * {@linkplain Product products} that contains the text specified by containsText
         * <br>
+        * Names are matched ignoring case, through the {@link TrigramIndex name index}.
         * If containsText is null, the array contains all of the {@linkplain Product products}
-        * in the tree map
+        * in the snapshot
         * 
         * @return  The array of {@link Product products}, may be empty
      */
     private Product[] getProductsArray(String containsText) { // if containsText == null, no filter
-        ArrayList<Product> ProductArrayList = new ArrayList<>();
-
-        for (Product product : inventory.values()) {
-            if (containsText == null || product.getName().contains(containsText)) {
-                ProductArrayList.add(product);
-            }
+        CatalogSnapshot<Product> current = snapshot;
+        if (containsText == null)
+            return current.getAll().clone();
+
+        int[] ids = nameIndex.search(containsText);
+        Product[] matches = new Product[ids.length];
+        int found = 0;
+        for (int id : ids) {
+            Product product = current.get(id);
+            if (product != null) // removed since the index was searched
+                matches[found++] = product;
         }
-
-        Product[] ProductArray = new Product[ProductArrayList.size()];
-        ProductArrayList.toArray(ProductArray);
-        return ProductArray;
+        return found == matches.length ? matches : Arrays.copyOf(matches, found);
     }
 
 
     @Override
     public Product[] findProducts(String containsText) {
-        synchronized(inventory) {
-            return getProductsArray(containsText);
-        }
+        return getProductsArray(containsText);
     }
 
 
+    /**
+    ** {@inheritDoc}
+     */
+    @Override
+    public Suggestion[] suggestProducts(String prefix, int limit) {
+        return suggestions.suggest(prefix, limit);
+    }
+
     /**
      * Saves the {@linkplain Product products} from the map into the file as an array of JSON objects
-     *
-     * @return true if the {@link Product products} were written successfully
+     * <br>
+     * Called by the {@link WriteBehindPersister persister}, which writes the latest snapshot
+     * without locking the map. Sold out products are saved too, so after a restart they
+     * still hold back the kits they are in.
      *
      * @throws IOException when file cannot be accessed or written to
      */
-    private boolean save() throws IOException {
-        Product[] inventory = getInventory();
+    private void save() throws IOException {
+        Product[] products = snapshot.getAll();
 
         // Serializes the Java Objects to JSON objects into the file
-        // writeValue will thrown an IOException if there is an issue
-        // with the file or reading from the file
-        objectMapper.writeValue(new File(filename),inventory);
-        return true;
+        // write will throw an IOException if there is an issue
+        // with the file or writing to the file
+        SnapshotFiles.write(objectMapper, new File(filename), products);
+    }
+
+    /**
+     * Writes any changes that have not been saved yet, called when the application shuts down
+     *
+     * @throws IOException when file cannot be accessed or written to
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        persister.flush();
     }
 
     /**
@@ -160,12 +217,7 @@ public class InventoryFileDAO  implements InventoryDAO{
      */
     @Override
     public Product getProduct(int id) {
-        synchronized(inventory) {
-            if (inventory.containsKey(id))
-                return inventory.get(id);
-            else
-                return null;
-        }
+        return snapshot.get(id);
     }
 
     /**
@@ -173,9 +225,23 @@ public class InventoryFileDAO  implements InventoryDAO{
      */
     @Override
     public Product[] getProducts() {
-        synchronized(inventory) {
-            return getInventory();
-        }
+        return snapshot.getInStock();
+    }
+
+    /**
+    ** {@inheritDoc}
+     */
+    @Override
+    public long getVersion() {
+        return snapshot.getVersion();
+    }
+
+    /**
+    ** {@inheritDoc}
+     */
+    @Override
+    public int getProductCount() {
+        return snapshot.getAll().length;
     }
 
     /**
@@ -183,26 +249,68 @@ public class InventoryFileDAO  implements InventoryDAO{
      */
     @Override
     public boolean deleteProduct(int id) throws IOException {
-        synchronized(inventory) {
-            if (inventory.containsKey(id)) {
-                inventory.remove(id);
-                return save();
-            }
-            else
+        long change;
+        lock.lock();
+        try {
+            if (inventory.remove(id) == null)
                 return false;
+            nameIndex.remove(id);
+            composition.removeProduct(id);
+            publish();
+            change = persister.markDirty();
+        } finally {
+            lock.unlock();
         }
+        persister.awaitFlush(change);
+        return true;
     }
 
     @Override
     public Product createProduct(Product Product) throws IOException {
-        synchronized(inventory) {
+        Product newP;
+        long change;
+        lock.lock();
+        try {
             // create new product object, assign the next unique id to it
-            Product newP = new Product(nextId(), Product.getName(), Product.getPrice(),
-                    Product.getQuantity());
+            newP = Product.withId(nextId());
             inventory.put(newP.getId(), newP);
-            save();
-            return newP;
+            nameIndex.put(newP.getId(), newP.getName());
+            composition.setProduct(newP.getId(), newP.getQuantity());
+            publish();
+            change = persister.markDirty();
+        } finally {
+            lock.unlock();
+        }
+        persister.awaitFlush(change); // may throw an IOException
+        return newP;
+    }
+
+    /**
+    ** {@inheritDoc}
+     */
+    @Override
+    public Product[] createProducts(Product[] products) throws IOException {
+        Product[] created = new Product[products.length];
+        if (products.length == 0)
+            return created;
+        long change;
+        lock.lock();
+        try {
+            for (int i = 0; i < products.length; i++) {
+                Product product = products[i];
+                created[i] = product.withId(nextId());
+                inventory.put(created[i].getId(), created[i]);
+                nameIndex.put(created[i].getId(), created[i].getName());
+                composition.setProduct(created[i].getId(), created[i].getQuantity());
+            }
+            // one snapshot and one write for the whole batch
+            publish();
+            change = persister.markDirty();
+        } finally {
+            lock.unlock();
         }
+        persister.awaitFlush(change); // may throw an IOException
+        return created;
     }
 
     /**
@@ -216,13 +324,30 @@ public class InventoryFileDAO  implements InventoryDAO{
      * @throws IOException if underlying storage cannot be accessed
      */
     public Product updateProduct(Product product) throws IOException {
-        synchronized(inventory) {
+        long change;
+        lock.lock();
+        try {
             if (inventory.containsKey(product.getId()) == false)
                 return null;  // Product does not exist so we can't update it
 
             inventory.put(product.getId(),product);
-            save(); // may throw an IOException
-            return product;
+            nameIndex.put(product.getId(), product.getName());
+            composition.setProduct(product.getId(), product.getQuantity());
+            publish();
+            change = persister.markDirty();
+        } finally {
+            lock.unlock();
         }
+        persister.awaitFlush(change); // may throw an IOException
+        return product;
+    }
+
+    /**
+    ** {@inheritDoc}
+     */
+    @Override
+    public void exportProducts(ExportSink<Product> sink) throws IOException {
+        for (Product product : snapshot.getAll()) // the snapshot is never changed, so no copy is needed
+            sink.write(product);
     }
 }
@@ -0,0 +1,212 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Append-only journal of the changes made since a DAO's snapshot was last written
+ * <br>
+ * Each record is a single JSON value followed by a newline, so appending a
+ * record costs the same no matter how large the snapshot has grown. A record
+ * left incomplete by a crash mid-append is dropped on replay.
+ *
+ * @param <T> The type of record
+ */
+public class Journal<T> {
+    private static final Logger LOG = Logger.getLogger(Journal.class.getName());
+
+    private static final byte NEWLINE = '\n';
+
+    private final Path path;                 // the journal file
+    private final ObjectMapper objectMapper; // converts between records and JSON
+    private final Class<T> type;             // the type records are read as
+    private FileChannel channel;             // opened lazily on the first append
+    private int size;                        // number of records currently in the journal
+    private long length;                     // number of bytes currently in the journal
+
+    /**
+     * Creates a journal backed by the given file
+     * <br>
+     * The file is not created until the first record is appended
+     *
+     * @param filename The file the journal records are appended to
+     * @param objectMapper Converts between records and JSON
+     * @param type The type records are read as
+     */
+    public Journal(String filename, ObjectMapper objectMapper, Class<T> type) {
+        this.path = Paths.get(filename);
+        this.objectMapper = objectMapper;
+        this.type = type;
+    }
+
+    /**
+     * Reads every complete record in the journal
+     * <br>
+     * A trailing record without its newline was torn by a crash and is cut off
+     * the file so later appends start on a clean line
+     *
+     * @return The journaled records in the order they were appended
+     *
+     * @throws IOException if the journal cannot be read or a complete record is corrupt
+     */
+    public List<T> replay() throws IOException {
+        List<T> records = new ArrayList<>();
+        size = 0;
+        length = 0;
+        if (!Files.exists(path))
+            return records;
+
+        byte[] data = Files.readAllBytes(path);
+        int start = 0;
+        for (int i = 0; i < data.length; i++) {
+            if (data[i] != NEWLINE)
+                continue;
+            if (i > start) {
+                records.add(objectMapper.readValue(data, start, i - start, type));
+                ++size;
+            }
+            start = i + 1;
+        }
+
+        if (start < data.length) {
+            LOG.warning("Dropping " + (data.length - start) + " bytes of a torn record from " + path);
+            try (FileChannel tail = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                tail.truncate(start);
+                tail.force(true);
+            }
+        }
+        length = start;
+        return records;
+    }
+
+    /**
+     * Appends a record to the journal and forces it to disk
+     *
+     * @param record The record to append
+     *
+     * @throws IOException if the record cannot be written
+     */
+    public synchronized void append(T record) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(record);
+        ByteBuffer line = ByteBuffer.allocate(json.length + 1);
+        line.put(json).put(NEWLINE).flip();
+
+        long start = System.nanoTime();
+        FileChannel out = open();
+        while (line.hasRemaining())
+            out.write(line);
+        out.force(false);
+        SaveTime.add(System.nanoTime() - start);
+        ++size;
+        length += json.length + 1;
+    }
+
+    /**
+     * Discards every record, called once the records are covered by a new snapshot
+     *
+     * @throws IOException if the journal cannot be truncated
+     */
+    public synchronized void truncate() throws IOException {
+        if (channel == null && !Files.exists(path)) {
+            size = 0;
+            return;
+        }
+        FileChannel out = open();
+        out.truncate(0);
+        out.force(true);
+        size = 0;
+        length = 0;
+    }
+
+    /**
+     * Marks the current end of the journal, to be passed to {@link #discard(long)}
+     * once a snapshot holding every record so far has been written
+     *
+     * @return The position just past the last record
+     */
+    public synchronized long mark() {
+        return length;
+    }
+
+    /**
+     * Discards the records before a {@linkplain #mark() mark}, keeping any
+     * appended since the mark was taken
+     *
+     * @param mark A position returned by {@link #mark()}
+     *
+     * @throws IOException if the journal cannot be rewritten
+     */
+    public synchronized void discard(long mark) throws IOException {
+        if (mark <= 0)
+            return;
+        if (mark >= length) {
+            truncate();
+            return;
+        }
+
+        ByteBuffer tail = ByteBuffer.allocate((int)(length - mark));
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (tail.hasRemaining())
+                if (in.read(tail, mark + tail.position()) < 0)
+                    throw new IOException("Journal " + path + " is shorter than expected");
+        }
+
+        // the remaining records go to a new file that then replaces the journal in one step
+        Path rewritten = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel copy = FileChannel.open(rewritten, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            tail.flip();
+            while (tail.hasRemaining())
+                copy.write(tail);
+            copy.force(true);
+        }
+        close();
+        Files.move(rewritten, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        int records = 0;
+        for (int i = 0; i < tail.limit(); i++)
+            if (tail.get(i) == NEWLINE)
+                ++records;
+        size = records;
+        length = tail.limit();
+    }
+
+    /**
+     * Retrieves the number of records currently in the journal
+     *
+     * @return The number of journaled records
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Closes the journal file, if it was opened
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private FileChannel open() throws IOException {
+        if (channel == null)
+            channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        return channel;
+    }
+}
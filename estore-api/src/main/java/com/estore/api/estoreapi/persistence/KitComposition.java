@@ -0,0 +1,125 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Tracks how many of each kit its component products can make, so a kit cannot
+ * be sold while one of its products is out of stock
+ * <br>
+ * A kit's limit is the smallest quantity among its products. The
+ * {@link InventoryFileDAO inventory DAO} reports product quantities and the
+ * {@link KitFileDAO kit DAO} reports each kit's products. When a product changes,
+ * only the kits that contain it are recomputed, found through a
+ * {@link ContentsIndex reverse index}. The cost of a change therefore depends on
+ * how many kits use that product, not on the size of the catalog.
+ * <br>
+ * Changes are serialized by the engine's own lock. Lookups are lock-free and
+ * may miss a change made while they run. A product the inventory has never
+ * listed does not limit a kit. A deleted product counts as out of stock. The
+ * {@linkplain #setListener(Runnable) listener} hears of every change to a
+ * kit's limit, so the kit DAO can relist the kits in stock.
+ */
+@Component
+public class KitComposition {
+    private final ContentsIndex contents = new ContentsIndex();                  // products in each kit
+    private final Map<Integer, Integer> products = new ConcurrentHashMap<>();    // product id to quantity
+    private final Map<Integer, Integer> limits = new ConcurrentHashMap<>();      // kit id to units its products allow
+    private volatile Runnable listener = () -> {};                               // told when any limit changes
+
+    /**
+     * Sets what is told when a kit's limit changes
+     * <br>
+     * It is called while the engine is locked, so it must not wait for anything
+     * that could be changing the composition.
+     *
+     * @param listener Called after each change to a limit
+     */
+    public void setListener(Runnable listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Sets the products in a kit, replacing the ones set before
+     *
+     * @param kitId The id of the kit
+     * @param productIds The ids of the products in the kit, may be null
+     */
+    public synchronized void setKit(int kitId, int[] productIds) {
+        contents.put(kitId, productIds);
+        recompute(kitId, productIds);
+    }
+
+    /**
+     * Forgets a kit
+     *
+     * @param kitId The id of the kit
+     */
+    public synchronized void removeKit(int kitId) {
+        contents.remove(kitId);
+        if (limits.remove(kitId) != null)
+            listener.run();
+    }
+
+    /**
+     * Sets the quantity of a product, recomputing the kits that contain it
+     *
+     * @param productId The id of the product
+     * @param quantity The units of the product in stock
+     */
+    public synchronized void setProduct(int productId, int quantity) {
+        Integer previous = products.put(productId, quantity);
+        if (previous != null && previous == quantity)
+            return;
+        for (int kitId : contents.kitsContaining(productId))
+            recompute(kitId, contents.productsOf(kitId));
+    }
+
+    /**
+     * Marks a product as deleted, which leaves every kit containing it unavailable
+     *
+     * @param productId The id of the product
+     */
+    public void removeProduct(int productId) {
+        setProduct(productId, 0);
+    }
+
+    /**
+     * Retrieves how many of a kit its products can make
+     *
+     * @param kitId The id of the kit
+     *
+     * @return The smallest quantity among the kit's products,
+     * {@link Integer#MAX_VALUE} if none of them limit it
+     */
+    public int getLimit(int kitId) {
+        return limits.getOrDefault(kitId, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Finds the kits that contain a product
+     *
+     * @param productId The id of the product
+     *
+     * @return The ids of the kits holding the product in ascending order, may be empty
+     */
+    public int[] kitsContaining(int productId) {
+        return contents.kitsContaining(productId);
+    }
+
+    private void recompute(int kitId, int[] productIds) {
+        int limit = Integer.MAX_VALUE;
+        if (productIds != null) {
+            for (int productId : productIds) {
+                Integer quantity = products.get(productId);
+                if (quantity != null && quantity < limit)
+                    limit = quantity;
+            }
+        }
+        Integer previous = limit == Integer.MAX_VALUE ? limits.remove(kitId) : limits.put(kitId, limit);
+        if ((previous == null ? Integer.MAX_VALUE : previous) != limit)
+            listener.run();
+    }
+}
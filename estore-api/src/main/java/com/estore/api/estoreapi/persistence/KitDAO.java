@@ -4,6 +4,7 @@ import java.io.IOException;
 import org.springframework.stereotype.Component;
 
 import com.estore.api.estoreapi.model.Kit;
+import com.estore.api.estoreapi.model.Suggestion;
 
 /**
  * Defines an interface for a KitDAO
@@ -13,15 +14,119 @@ import com.estore.api.estoreapi.model.Kit;
 public interface KitDAO {
     Kit createKit(Kit kit) throws IOException;
 
+    /**
+     * Creates and saves several kits as one change
+     * <br>
+     * The ids of the kits are ignored and new unique ids are assigned in order
+     *
+     * @param kits The kits to create
+     *
+     * @return The new kits, in the same order
+     *
+     * @throws IOException if underlying storage cannot be accessed
+     */
+    Kit[] createKits(Kit[] kits) throws IOException;
+
     Kit[] getKits() throws IOException;
 
     Kit[] findKits(String containsText) throws IOException;
 
+    /**
+     * Suggests in-stock kits whose names start with the given text, ignoring case
+     *
+     * @param prefix The start of the name
+     * @param limit The most suggestions to return
+     *
+     * @return Up to limit suggestions, the kits with the most stock first, may be empty
+     *
+     * @throws IOException if an issue with underlying storage
+     */
+    Suggestion[] suggestKits(String prefix, int limit) throws IOException;
+
     Kit updateKit(Kit kit) throws IOException;
 
+    /**
+     * Updates and saves several kits as one change, skipping any that do not exist
+     *
+     * @param kits The kits to update
+     *
+     * @return The number of kits updated
+     *
+     * @throws IOException if underlying storage cannot be accessed
+     */
+    int updateKits(Kit[] kits) throws IOException;
+
     Kit getKit(int id) throws IOException;
 
+    /**
+     * Finds the kits, in stock or not, that contain a product
+     *
+     * @param productId The id of the product
+     *
+     * @return An array of the {@link Kit kits} holding the product in id order, may be empty
+     */
+    Kit[] getKitsContaining(int productId);
+
+    /**
+     * Takes units of a kit out of stock for a shopping cart
+     * <br>
+     * Reservations are applied in memory at once and written to the kits
+     * shortly after, so {@link #getKit(int)} may briefly show the old quantity
+     *
+     * @param id The id of the kit
+     * @param quantity The units to take
+     *
+     * @return true if the units were reserved, false if the kit does not exist
+     * or does not have that many units in stock
+     * or its products cannot make that many
+     */
+    boolean reserveStock(int id, int quantity);
+
+    /**
+     * Retrieves how many units of a kit can be reserved, which is the kit's own stock
+     * capped by the quantity of its scarcest product
+     *
+     * @param id The id of the kit
+     *
+     * @return The units available, 0 if the kit does not exist
+     */
+    int getAvailableStock(int id);
+
+    /**
+     * Puts units of a kit taken by {@link #reserveStock(int, int)} back in stock
+     *
+     * @param id The id of the kit
+     * @param quantity The units to put back
+     *
+     * @return true if the units were put back, false if the kit does not exist
+     */
+    boolean releaseStock(int id, int quantity);
+
     boolean deleteKit(int id) throws IOException;
 
+    /**
+     * Retrieves the version of the kits, which changes whenever a kit is created, updated or deleted
+     *
+     * @return The current version, equal versions mean the kits have not changed
+     */
+    long getVersion();
+
+    /**
+     * Retrieves the number of kits, in stock or not
+     *
+     * @return The number of kits
+     */
+    int getKitCount();
+
+    /**
+     * Writes every kit, in stock or not, to the sink in id order
+     * <br>
+     * The kits come from one snapshot, so changes made during the export are not part of it
+     *
+     * @param sink Receives the kits one at a time
+     *
+     * @throws IOException if the sink cannot write a kit
+     */
+    void exportKits(ExportSink<Kit> sink) throws IOException;
 
 }
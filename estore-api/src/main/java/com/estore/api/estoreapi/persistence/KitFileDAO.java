@@ -2,18 +2,26 @@ package com.estore.api.estoreapi.persistence;
 
 import org.springframework.stereotype.Component;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 
 import com.estore.api.estoreapi.model.Kit;
 import com.estore.api.estoreapi.model.Product;
+import com.estore.api.estoreapi.model.Suggestion;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Logger;
 
+import javax.annotation.PreDestroy;
+
 @Component
 public class KitFileDAO implements KitDAO{
      private static final Logger LOG = Logger.getLogger(KitFileDAO.class.getName());
@@ -28,17 +36,88 @@ public class KitFileDAO implements KitDAO{
     private static int nextId;  // The next Id to assign to a new kit
 
     private String filename;    // Filename to read from and write to
-    
-    public KitFileDAO(@Value("${kits.file}") String filename, ObjectMapper objectMapper) throws IOException{
+
+    // Writers hold the lock only while changing the map, never during disk I/O
+    private final Lock lock = new ReentrantLock();
+
+    // Rebuilt by every change and read without locking
+    private volatile CatalogSnapshot<Kit> snapshot;
+
+    // Finds kits by name, updated along with the map
+    private final TrigramIndex nameIndex = new TrigramIndex();
+
+    // Limits each kit to what its products can make, and finds the kits holding a product;
+    // shared with the inventory DAO, which reports the product quantities
+    private final KitComposition composition;
+
+    // Suggests in-stock kits by name prefix, rebuilt with the snapshot
+    private volatile PrefixIndex suggestions;
+
+    private WriteBehindPersister persister; // Writes the kits to the file off the request thread
+
+    // Units available to buy, changed without the lock and copied into the kits by stockPersister
+    private final StockLedger stock = new StockLedger();
+
+    private WriteBehindPersister stockPersister; // Writes reserved and released stock back to the kits
+
+    // Set when a product's stock changed a kit's limit, so the kits in stock are listed again
+    private final AtomicBoolean limitsChanged = new AtomicBoolean();
+
+    /**
+     * Creates a Kit File DAO that saves every change before acknowledging it
+     * @param filename the name of the file containing kit data
+     * @param objectMapper the object mapper between kit objects and JSON text
+     * @throws IOException if an error occurs reading the file
+     */
+    public KitFileDAO(String filename, ObjectMapper objectMapper) throws IOException{
+        this(filename, objectMapper, new KitComposition(), "durable", 0, 1, 0, 1);
+    }
+
+    /**
+     * Creates a Kit File DAO
+     * @param filename the name of the file containing kit data
+     * @param objectMapper the object mapper between kit objects and JSON text
+     * @param composition the kit composition shared with the inventory DAO
+     * @param persistMode durable to acknowledge changes once they are on disk, fast to
+     * acknowledge them once they are applied in memory
+     * @param maxDelayMillis the longest a change waits before it is written
+     * @param maxPending the number of changes that are written without waiting for the delay
+     * @param stockMaxDelayMillis the longest a stock reservation waits before it is written to the kits
+     * @param stockMaxPending the number of reservations that are written without waiting for the delay
+     * @throws IOException if an error occurs reading the file
+     */
+    @Autowired
+    public KitFileDAO(@Value("${kits.file}") String filename, ObjectMapper objectMapper,
+                      KitComposition composition,
+                      @Value("${kits.persist.mode:durable}") String persistMode,
+                      @Value("${kits.persist.max-delay-ms:0}") long maxDelayMillis,
+                      @Value("${kits.persist.max-pending:1}") int maxPending,
+                      @Value("${kits.stock.max-delay-ms:0}") long stockMaxDelayMillis,
+                      @Value("${kits.stock.max-pending:1}") int stockMaxPending) throws IOException{
         this.filename = filename;
         this.objectMapper = objectMapper;
+        this.composition = composition;
+        this.persister = new WriteBehindPersister("kits", WriteBehindPersister.Mode.parse(persistMode),
+                maxDelayMillis, maxPending, this::save);
+        // Reservations never wait for the disk; they reach it through the kits persister
+        this.stockPersister = new WriteBehindPersister("kit stock", WriteBehindPersister.Mode.FAST,
+                stockMaxDelayMillis, stockMaxPending, this::writeStock);
         load();
+        // a changed limit is picked up by the stock persister, which never waits for the composition;
+        // changes made while one is waiting are listed with it
+        composition.setListener(() -> {
+            if (!limitsChanged.getAndSet(true))
+                stockPersister.markDirty();
+        });
     }
 
     private boolean load() throws IOException {
         inventory = new TreeMap<>();
         nextId = 0;
 
+        // A file whose checksum footer does not match fails here rather than loading partial data
+        SnapshotFiles.verify(new File(filename));
+
         // Deserializes the JSON objects from the file into an array of kits
         // readValue will throw an IOException if there's an issue with the file
         // or reading from the file
@@ -47,11 +126,15 @@ public class KitFileDAO implements KitDAO{
         // Add each kit to the tree map and keep track of the greatest id
         for (Kit kit : kitArrary) {
             inventory.put(kit.getId(),kit);
+            nameIndex.put(kit.getId(), kit.getName());
+            composition.setKit(kit.getId(), kit.getProductsInKit());
+            stock.set(kit.getId(), kit.getQuantity());
             if (kit.getId() > nextId)
                 nextId = kit.getId();
         }
         // Make the next id one greater than the maximum from the file
         ++nextId;
+        publish();
         return true;
     }
 
@@ -67,84 +150,142 @@ public class KitFileDAO implements KitDAO{
     }
 
     /**
-     * Generates an array of {@linkplain Kit kits} from the tree map
-     *
-     * @return  The array of {@link Kit kits}, may be empty
-     */
-    private Kit[] getInventory(){return getInventory(null);}
-
-    /**
-     * Generates an array of {@linkplain Kit kits} from the tree map for any
-     * {@linkplain Kit kits} that contains the text specified by containsText
+     * Replaces the snapshot with one of the current contents of the tree map, called
+     * with the lock held after every change, each of which bumps the version
      * <br>
-     * If containsText is null, the array contains all of the {@linkplain Kit kits}
-     * in the tree map
-     *
-     * @return  The array of {@link Kit kits}, may be empty
+     * Only kits with {@linkplain #getAvailableStock(int) units available} are listed
+     * as in stock, so a kit whose products have sold out is not listed or suggested.
+     * Stock is reserved and released without the lock, so each kit's units are read
+     * once and the listing and suggestions are both built from that reading
      */
-    private Kit[] getInventory(String containsText) {
-        ArrayList<Kit> inventoryArrayList = new ArrayList<>();
-
-        for (Kit k : inventory.values()){
-            if ((containsText == null || k.getName().contains(containsText)) && k.getQuantity() != 0){
-                inventoryArrayList.add(k);
-            }
-        }
-
-        Kit[] inventoryList  = new Kit[inventoryArrayList.size()];
-        inventoryArrayList.toArray(inventoryList);
-        return inventoryList;
+    private void publish() {
+        long version = snapshot == null ? 0 : snapshot.getVersion() + 1;
+        Map<Integer, Integer> available = new HashMap<>(inventory.size() * 2);
+        for (int id : inventory.keySet())
+            available.put(id, getAvailableStock(id));
+        snapshot = CatalogSnapshot.of(version, inventory.values(),
+                Kit::getId, k -> available.get(k.getId()) > 0, Kit[]::new);
+        suggestions = PrefixIndex.of(snapshot.getInStock(), Kit::getId, Kit::getName,
+                k -> available.get(k.getId()));
     }
 
     /**
-        * Generates an array of {@linkplain Kit kits} from the tree map for any
+        * Generates an array of {@linkplain Kit kits} from the snapshot for any
         * {@linkplain Kit kits} that contains the text specified by containsText
         * <br>
+        * Names are matched ignoring case, through the {@link TrigramIndex name index}.
         * If containsText is null, the array contains all of the {@linkplain Kit kits}
-        * in the tree map
+        * in the snapshot
         * 
         * @return  The array of {@link Kit kits}, may be empty
      */
     private Kit[] getKitsArray(String containsText) { // if containsText == null, no filter
-        ArrayList<Kit> KitArrayList = new ArrayList<>();
-
-        for (Kit kit : inventory.values()) {
-            String kitName = kit.getName().toLowerCase(); // most users are not going to enter the correct casing when searching for kits
-            if (containsText == null || kitName.contains(containsText.toLowerCase())) {
-                KitArrayList.add(kit);
-            }
+        CatalogSnapshot<Kit> current = snapshot;
+        if (containsText == null)
+            return current.getAll().clone();
+
+        int[] ids = nameIndex.search(containsText);
+        Kit[] matches = new Kit[ids.length];
+        int found = 0;
+        for (int id : ids) {
+            Kit kit = current.get(id);
+            if (kit != null) // removed since the index was searched
+                matches[found++] = kit;
         }
-
-        Kit[] kitArray = new Kit[KitArrayList.size()];
-        KitArrayList.toArray(kitArray);
-        return kitArray;
+        return found == matches.length ? matches : Arrays.copyOf(matches, found);
     }
 
 
 
     @Override
     public Kit[] findKits(String containsText) {
-        synchronized(inventory) {
-            return getKitsArray(containsText);
-        }
+        return getKitsArray(containsText);
     }
 
 
+    /**
+    ** {@inheritDoc}
+     */
+    @Override
+    public Suggestion[] suggestKits(String prefix, int limit) {
+        return suggestions.suggest(prefix, limit);
+    }
+
     /**
      * Saves the {@linkplain Kit kits} from the map into the file as an array of JSON objects
-     *
-     * @return true if the {@link Kit kits} were written successfully
+     * <br>
+     * Called by the {@link WriteBehindPersister persister}, which writes the latest snapshot
+     * without locking the map. Sold out kits are saved too, so a cart holding the last units
+     * of a kit still finds it after a restart
      *
      * @throws IOException when file cannot be accessed or written to
      */
-    private boolean save() throws IOException {
-        Kit[] inventory = getInventory();
+    private void save() throws IOException {
+        Kit[] kits = snapshot.getAll();
 
         // Serializes the Java Objects to JSON objects into the file
-        // writeValue will thrown an IOException if there is an issue
-        // with the file or reading from the file
-        objectMapper.writeValue(new File(filename),inventory);
-        return true;
+        // write will throw an IOException if there is an issue
+        // with the file or writing to the file
+        SnapshotFiles.write(objectMapper, new File(filename), kits);
+    }
+
+    /**
+     * Writes any changes that have not been saved yet, called when the application shuts down
+     *
+     * @throws IOException when file cannot be accessed or written to
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        flushStock();
+        persister.flush();
+    }
+
+    /**
+     * Copies the stock counts that changed since the last call into their kits
+     * <br>
+     * Called by the stock persister. Each changed kit is replaced by a copy, as
+     * the published snapshot is read without the lock, and the copies are saved
+     * as a single change. The kits are written on this thread: waiting for the
+     * kits persister would hold a flusher thread while its flush queues behind it.
+     * If only the products' limits changed, the kits are listed again but not saved.
+     *
+     * @throws IOException when file cannot be accessed or written to
+     */
+    private void writeStock() throws IOException {
+        lock.lock();
+        try {
+            boolean relist = limitsChanged.getAndSet(false);
+            boolean changed = false;
+            for (int id : stock.drainChanged()) {
+                Kit kit = inventory.get(id);
+                int quantity = stock.get(id);
+                if (kit != null && kit.getQuantity() != quantity) {
+                    Kit copy = kit.withId(id);
+                    copy.setQuantity(quantity);
+                    inventory.put(id, copy);
+                    changed = true;
+                }
+            }
+            if (!changed) {
+                if (relist)
+                    publish();
+                return;
+            }
+            publish();
+            persister.markDirty();
+        } finally {
+            lock.unlock();
+        }
+        persister.flush();
+    }
+
+    /**
+     * Writes the stock reservations that are still waiting to the kits
+     *
+     * @throws IOException when file cannot be accessed or written to
+     */
+    void flushStock() throws IOException {
+        stockPersister.flush();
     }
 
     /**
@@ -152,12 +293,24 @@ public class KitFileDAO implements KitDAO{
      */
     @Override
     public Kit getKit(int id) {
-        synchronized(inventory) {
-            if (inventory.containsKey(id))
-                return inventory.get(id);
-            else
-                return null;
+        return snapshot.get(id);
+    }
+
+    /**
+    ** {@inheritDoc}
+     */
+    @Override
+    public Kit[] getKitsContaining(int productId) {
+        CatalogSnapshot<Kit> current = snapshot;
+        int[] ids = composition.kitsContaining(productId);
+        Kit[] kits = new Kit[ids.length];
+        int found = 0;
+        for (int id : ids) {
+            Kit kit = current.get(id);
+            if (kit != null) // removed since the index was searched
+                kits[found++] = kit;
         }
+        return found == kits.length ? kits : Arrays.copyOf(kits, found);
     }
 
     /**
@@ -165,9 +318,23 @@ public class KitFileDAO implements KitDAO{
      */
     @Override
     public Kit[] getKits() {
-        synchronized(inventory) {
-            return getInventory();
-        }
+        return snapshot.getInStock();
+    }
+
+    /**
+    ** {@inheritDoc}
+     */
+    @Override
+    public long getVersion() {
+        return snapshot.getVersion();
+    }
+
+    /**
+    ** {@inheritDoc}
+     */
+    @Override
+    public int getKitCount() {
+        return snapshot.getAll().length;
     }
 
     /**
@@ -175,26 +342,71 @@ public class KitFileDAO implements KitDAO{
      */
     @Override
     public boolean deleteKit(int id) throws IOException {
-        synchronized(inventory) {
-            if (inventory.containsKey(id)) {
-                inventory.remove(id);
-                return save();
-            }
-            else
+        long change;
+        lock.lock();
+        try {
+            if (inventory.remove(id) == null)
                 return false;
+            nameIndex.remove(id);
+            composition.removeKit(id);
+            stock.remove(id);
+            publish();
+            change = persister.markDirty();
+        } finally {
+            lock.unlock();
         }
+        persister.awaitFlush(change);
+        return true;
     }
 
     @Override
     public Kit createKit(Kit kit) throws IOException {
-        synchronized(inventory) {
+        Kit newP;
+        long change;
+        lock.lock();
+        try {
             // create new kit object, assign the next unique id to it
-            Kit newP = new Kit(nextId(), kit.getName(), kit.getPrice(),
-                                kit.getQuantity(), kit.getProductsInKit());
+            newP = kit.withId(nextId());
             inventory.put(newP.getId(), newP);
-            save();
-            return newP;
+            nameIndex.put(newP.getId(), newP.getName());
+            composition.setKit(newP.getId(), newP.getProductsInKit());
+            stock.set(newP.getId(), newP.getQuantity());
+            publish();
+            change = persister.markDirty();
+        } finally {
+            lock.unlock();
         }
+        persister.awaitFlush(change); // may throw an IOException
+        return newP;
+    }
+
+    /**
+    ** {@inheritDoc}
+     */
+    @Override
+    public Kit[] createKits(Kit[] kits) throws IOException {
+        Kit[] created = new Kit[kits.length];
+        if (kits.length == 0)
+            return created;
+        long change;
+        lock.lock();
+        try {
+            for (int i = 0; i < kits.length; i++) {
+                Kit kit = kits[i];
+                created[i] = kit.withId(nextId());
+                inventory.put(created[i].getId(), created[i]);
+                nameIndex.put(created[i].getId(), created[i].getName());
+                composition.setKit(created[i].getId(), created[i].getProductsInKit());
+                stock.set(created[i].getId(), created[i].getQuantity());
+            }
+            // one snapshot and one write for the whole batch
+            publish();
+            change = persister.markDirty();
+        } finally {
+            lock.unlock();
+        }
+        persister.awaitFlush(change); // may throw an IOException
+        return created;
     }
 
     /**
@@ -208,15 +420,91 @@ public class KitFileDAO implements KitDAO{
      * @throws IOException if underlying storage cannot be accessed
      */
     public Kit updateKit(Kit kit) throws IOException {
-        synchronized(inventory) {
+        long change;
+        lock.lock();
+        try {
             if (inventory.containsKey(kit.getId()) == false)
                 return null;  // kit does not exist so we can't update it
 
             inventory.put(kit.getId(),kit);
-            save(); // may throw an IOException
-            return kit;
+            nameIndex.put(kit.getId(), kit.getName());
+            composition.setKit(kit.getId(), kit.getProductsInKit());
+            stock.set(kit.getId(), kit.getQuantity());
+            publish();
+            change = persister.markDirty();
+        } finally {
+            lock.unlock();
         }
+        persister.awaitFlush(change); // may throw an IOException
+        return kit;
     }
 
+    /**
+    ** {@inheritDoc}
+     */
+    @Override
+    public int updateKits(Kit[] kits) throws IOException {
+        int updated = 0;
+        long change;
+        lock.lock();
+        try {
+            for (Kit kit : kits) {
+                if (inventory.containsKey(kit.getId())) {
+                    inventory.put(kit.getId(), kit);
+                    nameIndex.put(kit.getId(), kit.getName());
+                    composition.setKit(kit.getId(), kit.getProductsInKit());
+                    stock.set(kit.getId(), kit.getQuantity());
+                    updated++;
+                }
+            }
+            if (updated == 0)
+                return 0;
+            publish();
+            change = persister.markDirty();
+        } finally {
+            lock.unlock();
+        }
+        persister.awaitFlush(change); // may throw an IOException
+        return updated;
+    }
+
+    /**
+    ** {@inheritDoc}
+     */
+    @Override
+    public boolean reserveStock(int id, int quantity) {
+        // the products only cap the kit's own stock, they are not taken out with it
+        if (quantity > composition.getLimit(id) || !stock.reserve(id, quantity))
+            return false;
+        stockPersister.markDirty();
+        return true;
+    }
+
+    /**
+    ** {@inheritDoc}
+     */
+    @Override
+    public int getAvailableStock(int id) {
+        return Math.min(stock.get(id), composition.getLimit(id));
+    }
 
+    /**
+    ** {@inheritDoc}
+     */
+    @Override
+    public boolean releaseStock(int id, int quantity) {
+        if (!stock.release(id, quantity))
+            return false;
+        stockPersister.markDirty();
+        return true;
+    }
+
+    /**
+    ** {@inheritDoc}
+     */
+    @Override
+    public void exportKits(ExportSink<Kit> sink) throws IOException {
+        for (Kit kit : snapshot.getAll()) // the snapshot is never changed, so no copy is needed
+            sink.write(kit);
+    }
 }
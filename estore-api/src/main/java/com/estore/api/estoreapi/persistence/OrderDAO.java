@@ -6,6 +6,7 @@ import java.util.List;
 
 import com.estore.api.estoreapi.model.Kit;
 import com.estore.api.estoreapi.model.Order;
+import com.estore.api.estoreapi.model.OrderPage;
 
 /**
  * Defines the interface for Order object persistence
@@ -53,6 +54,40 @@ public interface OrderDAO {
      */
     Order[] getOrders(String username) throws IOException;
 
+    /**
+     * Retrieves one page of the {@linkplain Order Orders} purchased by the specified user
+     * <br>
+     * Pages are keyed by order id, so orders created while paging never shift
+     * the pages that follow
+     * 
+     * @param username The username orders must be associated with, null for every user's orders
+     * @param cursor The next cursor of the previous page, null for the first page
+     * @param limit The most orders on the page
+     * @param newestFirst true to page from the newest order back, false to page from the oldest
+     * 
+     * @return The page of {@link Order Orders}, may be empty
+     * 
+     * @throws IOException if an issue with underlying storage
+     */
+    OrderPage getOrdersPage(String username, Integer cursor, int limit, boolean newestFirst) throws IOException;
+
+    /**
+     * Retrieves one page of the {@linkplain Order Orders} that contain kits with names that
+     * contain the given text and were purchased by the specified user
+     * 
+     * @param containsText The text to match against
+     * @param username The username orders must be associated with, null for every user's orders
+     * @param cursor The next cursor of the previous page, null for the first page
+     * @param limit The most orders on the page
+     * @param newestFirst true to page from the newest order back, false to page from the oldest
+     * 
+     * @return The page of matching {@link Order Orders}, may be empty
+     * 
+     * @throws IOException if an issue with underlying storage
+     */
+    OrderPage findOrdersPage(String containsText, String username, Integer cursor, int limit,
+                             boolean newestFirst) throws IOException;
+
     /**
      * Retrieves a {@linkplain Order Order} matching the specified id
      * 
@@ -62,4 +97,22 @@ public interface OrderDAO {
      */
     Order getOrder(int id);
 
+    /**
+     * Retrieves the number of {@linkplain Order Orders} in the order history
+     *
+     * @return The number of orders
+     */
+    int getOrderCount();
+
+    /**
+     * Writes every {@linkplain Order Order} to the sink in id order
+     * <br>
+     * Orders created after the export starts are not part of it
+     *
+     * @param sink Receives the orders one at a time
+     *
+     * @throws IOException if the sink cannot write an order
+     */
+    void exportOrders(ExportSink<Order> sink) throws IOException;
+
 }
@@ -2,33 +2,54 @@ package com.estore.api.estoreapi.persistence;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.TreeMap;
+import java.util.logging.Logger;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PreDestroy;
+
 import com.estore.api.estoreapi.model.Kit;
 import com.estore.api.estoreapi.model.Order;
+import com.estore.api.estoreapi.model.OrderPage;
 import com.fasterxml.jackson.databind.ObjectMapper;
 /**
  * Implements functionality for JSON filed-based persistence for order histories
+ * <br>
+ * Orders are kept and saved as {@link com.estore.api.estoreapi.model.OrderLine order lines}
+ * rather than whole kits; the kits are rebuilt when an order is returned
  * 
  * @author Duncan French
  */
 @Component
 public class OrderFileDAO implements OrderDAO {
+    private static final Logger LOG = Logger.getLogger(OrderFileDAO.class.getName());
 
-    private Map<Integer, Order> orderHistory; // local cache of all Orders in the store's order history
+    private NavigableMap<Integer, Order> orderHistory; // local cache of all Orders in the store's order history
                                               // the key is an Order's id, the value is the Order with that id
+    private Map<String, List<Order>> ordersByUser; // each username's orders in ascending id order,
+                                                   // guarded by the orderHistory lock like the map itself
     
     private ObjectMapper objectMapper; // Provides conversion between Order objects and JSON text 
                                        // format written to the file
     private static int nextId; // the next ID to assign to a new Order
     private String filename; // filename to read and write from
+    private OrderJournal journal; // appends new orders between snapshots, null when journaling is off
+    private int compactThreshold; // number of journaled orders that triggers a new snapshot
+    private WriteBehindPersister persister; // writes the snapshot off the request thread
+    private boolean migrate; // true if the file was read in the old whole-kit form and must be rewritten
+    static final int EXPORT_BATCH = 256; // orders copied out of the map at a time during an export
     /**
-     * This constructor creates a new OrderFileDAO 
+     * This constructor creates a new OrderFileDAO that rewrites the whole file on every new order
      * 
      * @param filename This is the file that the DAO will read from and write to
      * @param objectMapper This is the object mapper that will be used to convert 
@@ -36,14 +57,55 @@ public class OrderFileDAO implements OrderDAO {
      * 
      * @throws IOException Thrown if something is wrong with the underlying storage
      */
-    public OrderFileDAO(@Value("${orders.file}") String filename, ObjectMapper objectMapper) throws IOException{
+    public OrderFileDAO(String filename, ObjectMapper objectMapper) throws IOException{
+        this(filename, objectMapper, "", 0, "durable", 0, 1);
+    }
+
+    /**
+     * This constructor creates a new OrderFileDAO that can append new orders to a journal
+     * instead of rewriting the whole file every time
+     * 
+     * @param filename This is the snapshot file that the DAO will read from and write to
+     * @param objectMapper This is the object mapper that will be used to convert 
+     * between Order objects and JSON text
+     * @param journalFilename The journal file new orders are appended to, journaling is off if empty
+     * @param compactThreshold The number of journaled orders after which the snapshot is rewritten
+     * and the journal emptied
+     * @param persistMode durable to acknowledge an unjournaled order once the snapshot holding it is
+     * on disk, fast to acknowledge it once it is in memory; journaled orders are always on disk first
+     * @param maxDelayMillis The longest a change waits before the snapshot is written
+     * @param maxPending The number of changes that are written without waiting for the delay
+     * 
+     * @throws IOException Thrown if something is wrong with the underlying storage
+     */
+    @Autowired
+    public OrderFileDAO(@Value("${orders.file}") String filename, ObjectMapper objectMapper,
+                        @Value("${orders.journal.file:}") String journalFilename,
+                        @Value("${orders.journal.compact.threshold:1000}") int compactThreshold,
+                        @Value("${orders.persist.mode:durable}") String persistMode,
+                        @Value("${orders.persist.max-delay-ms:0}") long maxDelayMillis,
+                        @Value("${orders.persist.max-pending:1}") int maxPending) throws IOException{
         this.filename = filename; 
         this.objectMapper = objectMapper;
+        this.compactThreshold = Math.max(1, compactThreshold);
+        if (journalFilename != null && !journalFilename.isEmpty())
+            this.journal = new OrderJournal(journalFilename, objectMapper);
+        this.persister = new WriteBehindPersister("orders", WriteBehindPersister.Mode.parse(persistMode),
+                maxDelayMillis, maxPending, this::save);
         load();
+        if (migrate) {
+            // rewrite the whole-kit orders as order lines once, so the next start reads the compact form
+            LOG.info("Rewriting " + filename + " with order lines");
+            persister.awaitFlush(persister.markDirty());
+        }
     }
     
     /**
-     * This method initializes the orderHistory map by reading from the file path initialized in the constructor
+     * This method initializes the orderHistory map by reading from the file path initialized in the constructor,
+     * then replaying any orders journaled since that snapshot was written
+     * <br>
+     * The file may hold {@link OrderRecord records} in the old whole-kit form, in which case
+     * the DAO is marked to rewrite it
      * 
      * @return Returns true if no exceptions are thrown, indicating data was loaded from the file successfully
      * 
@@ -52,18 +114,38 @@ public class OrderFileDAO implements OrderDAO {
     private boolean load() throws IOException {
         orderHistory = new TreeMap<>();
         nextId = 0;
+        migrate = false;
+        // A file whose checksum footer does not match fails here rather than loading partial data
+        SnapshotFiles.verify(new File(filename));
+
         // Deserializes the JSON objects from the file into an array of products
         // readValue will throw an IOException if there's an issue with the file
         // or reading from the file
-        Order[] OrderArray = objectMapper.readValue(new File(filename),Order[].class);
+        OrderRecord[] records = objectMapper.readValue(new File(filename),OrderRecord[].class);
         // Add each Order to the tree map and keep track of the greatest id
-        for (Order order : OrderArray) {
+        for (OrderRecord record : records) {
+            Order order = record.getOrder();
+            if (record.isLegacy())
+                migrate = true;
             orderHistory.put(order.getId(), order);
             if (order.getId() > nextId)
                 nextId = order.getId();
         }
+        // Orders journaled after the snapshot; an order may appear in both if a
+        // crash hit between writing the snapshot and emptying the journal
+        if (journal != null) {
+            for (Order order : journal.replay()) {
+                orderHistory.put(order.getId(), order);
+                if (order.getId() > nextId)
+                    nextId = order.getId();
+            }
+        }
         // Make the next id one greater than the maximum from the file
         ++nextId;
+        // Index once the journal has been replayed, so an order saved in both is only listed once
+        ordersByUser = new HashMap<>();
+        for (Order order : orderHistory.values())
+            ordersByUser.computeIfAbsent(order.getUser(), u -> new ArrayList<>()).add(order);
         return true;
     }
     /**
@@ -97,19 +179,24 @@ public class OrderFileDAO implements OrderDAO {
         return orderList;
     }
     /**
-     * Gets an array of {@linkplain Order orders} from the getOrdersArray method that 
-     * doesn't specify a username, then filters by the provided username
+     * Generates an array of the {@linkplain Order orders} purchased by the provided username
+     * that contain the text specified by containsText
      * <br>
-     * If containsText is null, the array contains all of the {@linkplain Order orders} 
+     * Only the user's own orders are looked at, through the per-user index.
+     * If containsText is null, the array contains all of the {@linkplain Order orders}
      * matching the specified username
      * 
      * @return The array of {@link Order orders}, may be empty
      */
     private Order[] getOrdersArray(String containsText, String username) {
-        Order[] unfilteredOrders = getOrdersArray(containsText);
+        List<Order> orders = ordersByUser.get(username);
+        if (orders == null)
+            return new Order[0];
+        if (containsText == null)
+            return orders.toArray(new Order[0]);
         ArrayList<Order> orderHistoryArrayList = new ArrayList<>();
-        for (Order order : unfilteredOrders) {
-            if (order.purchasedBy(username)) {
+        for (Order order : orders) {
+            if (order.containsMatchingKit(containsText)) {
                 orderHistoryArrayList.add(order);
             }
         }
@@ -118,32 +205,146 @@ public class OrderFileDAO implements OrderDAO {
         return filteredOrders;
     }
     /**
-     * Saves the {@linkplain Order orders} from the map into the file as an array of JSON objects
+     * Generates one page of the {@linkplain Order orders} purchased by the provided username
+     * that contain the text specified by containsText
+     * <br>
+     * Walks the orders in id order from just past the cursor and stops one order
+     * after the page is full, so only the page is ever copied
      *
-     * @return true if the {@link Order orders} were written successfully
+     * @return The page of {@link Order orders}, may be empty
+     */
+    private OrderPage getOrdersPage(String containsText, String username, Integer cursor, int limit,
+                                    boolean newestFirst) {
+        Iterator<Order> orders = username == null ? allOrdersFrom(cursor, newestFirst)
+                                                  : userOrdersFrom(username, cursor, newestFirst);
+        ArrayList<Order> page = new ArrayList<>(Math.min(limit, 64));
+        while (orders.hasNext()) {
+            Order order = orders.next();
+            if (containsText != null && !order.containsMatchingKit(containsText))
+                continue;
+            if (page.size() == limit) // a further order exists, so there is a next page
+                return new OrderPage(page.toArray(new Order[0]), page.get(limit - 1).getId());
+            page.add(order);
+        }
+        return new OrderPage(page.toArray(new Order[0]), null);
+    }
+
+    /**
+     * Iterates over every {@linkplain Order order} past the cursor, through the tree map
+     */
+    private Iterator<Order> allOrdersFrom(Integer cursor, boolean newestFirst) {
+        NavigableMap<Integer, Order> orders = orderHistory;
+        if (cursor != null)
+            orders = newestFirst ? orders.headMap(cursor, false) : orders.tailMap(cursor, false);
+        return (newestFirst ? orders.descendingMap() : orders).values().iterator();
+    }
+
+    /**
+     * Iterates over a user's {@linkplain Order orders} past the cursor, finding the
+     * cursor by binary search in the per-user index
+     */
+    private Iterator<Order> userOrdersFrom(String username, Integer cursor, boolean newestFirst) {
+        List<Order> orders = ordersByUser.getOrDefault(username, Collections.emptyList());
+        if (!newestFirst)
+            return orders.listIterator(cursor == null ? 0 : countBelow(orders, cursor + 1));
+
+        ListIterator<Order> older = orders.listIterator(cursor == null ? orders.size() : countBelow(orders, cursor));
+        return new Iterator<Order>() {
+            @Override
+            public boolean hasNext() {
+                return older.hasPrevious();
+            }
+
+            @Override
+            public Order next() {
+                return older.previous();
+            }
+        };
+    }
+
+    /**
+     * Counts the orders in a list sorted by id whose ids are less than the given id
+     */
+    private static int countBelow(List<Order> orders, int id) {
+        int low = 0;
+        int high = orders.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (orders.get(mid).getId() < id)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * Saves the {@linkplain Order orders} from the map into the file as an array of JSON objects,
+     * then drops the journaled orders the file now contains
+     * <br>
+     * Called by the {@link WriteBehindPersister persister}; the map is only locked while it is copied
      *
      * @throws IOException when file cannot be accessed or written to
      */
-    private boolean save() throws IOException {
-        Order[] orders = getOrdersArray(null);
+    private void save() throws IOException {
+        Order[] orders;
+        long journaled = 0;
+        synchronized(orderHistory) {
+            orders = getOrdersArray(null);
+            if (journal != null)
+                journaled = journal.mark();
+        }
+        OrderRecord[] records = new OrderRecord[orders.length];
+        for (int i = 0; i < orders.length; i++)
+            records[i] = new OrderRecord(orders[i]);
         // Serializes the Java Objects to JSON objects into the file
-        // writeValue will thrown an IOException if there is an issue
-        // with the file or reading from the file
-        objectMapper.writeValue(new File(filename), orders);
-        return true;
+        // write will throw an IOException if there is an issue
+        // with the file or writing to the file
+        SnapshotFiles.write(objectMapper, new File(filename), records);
+        if (journal != null)
+            journal.discard(journaled);
+    }
+
+    /**
+     * Writes any changes that have not been saved yet and closes the journal, called when
+     * the application shuts down
+     *
+     * @throws IOException when file cannot be accessed or written to
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        persister.flush();
+        if (journal != null)
+            journal.close();
     }
     /**
      * {@inheritDoc}
      */
     @Override
     public Order createOrder(String username, ArrayList<Kit> kits) throws IOException {
+        Order newOrder;
+        long change = 0;
         synchronized(orderHistory) {
             // create new order object, assign the next unique id to it
-            Order newOrder = new Order(nextId(), username, kits);
+            newOrder = new Order(nextId(), username, kits);
             orderHistory.put(newOrder.getId(), newOrder);
-            save();
+            // ids only grow, so appending keeps the user's orders in id order
+            ordersByUser.computeIfAbsent(username, u -> new ArrayList<>()).add(newOrder);
+            if (journal == null)
+                change = persister.markDirty();
+        }
+        if (journal != null) {
+            // the journal record makes the order durable, the snapshot is compacted in the background.
+            // It is forced to disk outside the lock so reads never wait on it. The journal orders its
+            // own appends, and replay is keyed by id, so a record kept after the snapshot that already
+            // holds its order just puts the same order back
+            journal.append(newOrder);
+            if (journal.size() >= compactThreshold)
+                persister.markDirty();
             return newOrder;
         }
+        persister.awaitFlush(change);
+        return newOrder;
     }
     /**
      * {@inheritDoc}
@@ -163,6 +364,16 @@ public class OrderFileDAO implements OrderDAO {
             return orderHistory.get(id);
         }
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getOrderCount() {
+        synchronized(orderHistory) {
+            return orderHistory.size();
+        }
+    }
     /**
      * {@inheritDoc}
      */
@@ -172,4 +383,59 @@ public class OrderFileDAO implements OrderDAO {
             return getOrdersArray(null, username);
         }
     }
-}
\ No newline at end of file
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public OrderPage getOrdersPage(String username, Integer cursor, int limit, boolean newestFirst)
+            throws IOException {
+        synchronized(orderHistory) {
+            return getOrdersPage(null, username, cursor, limit, newestFirst);
+        }
+    }
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public OrderPage findOrdersPage(String containsText, String username, Integer cursor, int limit,
+                                    boolean newestFirst) throws IOException {
+        synchronized(orderHistory) {
+            return getOrdersPage(containsText, username, cursor, limit, newestFirst);
+        }
+    }
+    /**
+     * {@inheritDoc}
+     * <br>
+     * Orders are never changed once created, so copying them out of the map a batch at a
+     * time up to the newest order at the start gives the same orders as one copy would,
+     * while the map is only locked while a batch is copied and never while the sink writes
+     */
+    @Override
+    public void exportOrders(ExportSink<Order> sink) throws IOException {
+        int last;
+        synchronized(orderHistory) {
+            if (orderHistory.isEmpty())
+                return;
+            last = orderHistory.lastKey();
+        }
+        Integer cursor = null;
+        while (true) {
+            Order[] batch = new Order[EXPORT_BATCH];
+            int count = 0;
+            synchronized(orderHistory) {
+                NavigableMap<Integer, Order> rest = cursor == null ? orderHistory.headMap(last, true)
+                                                                   : orderHistory.subMap(cursor, false, last, true);
+                for (Order order : rest.values()) {
+                    batch[count++] = order;
+                    if (count == EXPORT_BATCH)
+                        break;
+                }
+            }
+            for (int i = 0; i < count; i++)
+                sink.write(batch[i]);
+            if (count < EXPORT_BATCH)
+                return;
+            cursor = batch[count - 1].getId();
+        }
+    }
+}
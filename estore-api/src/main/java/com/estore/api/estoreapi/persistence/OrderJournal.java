@@ -0,0 +1,97 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.estore.api.estoreapi.model.Order;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Append-only {@linkplain Journal journal} of the {@linkplain Order orders} created
+ * since the order history snapshot was last written
+ * <br>
+ * Records are {@link OrderRecord order records}, so either record form can be replayed.
+ */
+public class OrderJournal {
+    private final Journal<OrderRecord> journal; // the records of the journaled orders
+
+    /**
+     * Creates a journal backed by the given file
+     * <br>
+     * The file is not created until the first {@linkplain Order order} is appended
+     *
+     * @param filename The file the journal records are appended to
+     * @param objectMapper Converts between {@link Order Order} objects and JSON records
+     */
+    public OrderJournal(String filename, ObjectMapper objectMapper) {
+        this.journal = new Journal<>(filename, objectMapper, OrderRecord.class);
+    }
+
+    /**
+     * Reads every complete record in the journal
+     * <br>
+     * A trailing record torn by a crash is dropped
+     *
+     * @return The journaled {@link Order orders} in the order they were appended
+     *
+     * @throws IOException if the journal cannot be read or a complete record is corrupt
+     */
+    public List<Order> replay() throws IOException {
+        List<Order> orders = new ArrayList<>();
+        for (OrderRecord record : journal.replay())
+            orders.add(record.getOrder());
+        return orders;
+    }
+
+    /**
+     * Appends an {@linkplain Order order} to the journal and forces it to disk
+     *
+     * @param order The {@link Order order} to record
+     *
+     * @throws IOException if the record cannot be written
+     */
+    public void append(Order order) throws IOException {
+        journal.append(new OrderRecord(order));
+    }
+
+    /**
+     * Marks the current end of the journal, to be passed to {@link #discard(long)}
+     * once a snapshot holding every order so far has been written
+     *
+     * @return The position just past the last record
+     */
+    public long mark() {
+        return journal.mark();
+    }
+
+    /**
+     * Discards the records before a {@linkplain #mark() mark}, keeping any
+     * appended since the mark was taken
+     *
+     * @param mark A position returned by {@link #mark()}
+     *
+     * @throws IOException if the journal cannot be rewritten
+     */
+    public void discard(long mark) throws IOException {
+        journal.discard(mark);
+    }
+
+    /**
+     * Retrieves the number of records currently in the journal
+     *
+     * @return The number of journaled {@link Order orders}
+     */
+    public int size() {
+        return journal.size();
+    }
+
+    /**
+     * Closes the journal file, if it was opened
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    public void close() throws IOException {
+        journal.close();
+    }
+}
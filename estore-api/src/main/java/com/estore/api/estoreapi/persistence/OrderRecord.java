@@ -0,0 +1,89 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.util.ArrayList;
+
+import com.estore.api.estoreapi.model.Kit;
+import com.estore.api.estoreapi.model.Order;
+import com.estore.api.estoreapi.model.OrderLine;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * The form an {@linkplain Order order} is saved in, in the order history file and journal
+ * <br>
+ * Each kit in the order is saved as an {@link OrderLine order line} rather than the
+ * whole kit. Records saved before order lines existed list the whole kits under
+ * {@code kits_in_order}; they are still read, and are marked as legacy so the
+ * DAO knows to rewrite the file in the new form.
+ */
+public class OrderRecord {
+    private final Order order;    // the order saved by this record
+    private final boolean legacy; // true if the record was read in the old whole-kit form
+
+    /**
+     * Creates the record of an order
+     *
+     * @param order The {@link Order order} to save
+     */
+    public OrderRecord(Order order) {
+        this.order = order;
+        this.legacy = false;
+    }
+
+    /**
+     * Reads a record in either form
+     *
+     * @param id The order's id
+     * @param user The username of the user who made the order
+     * @param lines The order's lines, null in the old form
+     * @param kits The order's kits, only present in the old form
+     */
+    @JsonCreator
+    public OrderRecord(@JsonProperty("id") int id, @JsonProperty("user") String user,
+                       @JsonProperty("lines") OrderLine[] lines,
+                       @JsonProperty("kits_in_order") ArrayList<Kit> kits) {
+        this.legacy = lines == null && kits != null;
+        this.order = legacy ? new Order(id, user, kits) : new Order(id, user, lines == null ? new OrderLine[0] : lines);
+    }
+
+    /**
+     * Retrieves the id of the saved order
+     *
+     * @return The order's id
+     */
+    @JsonProperty("id")
+    public int getId() {return order.getId();}
+
+    /**
+     * Retrieves the user who made the saved order
+     *
+     * @return The username of the user who made the order
+     */
+    @JsonProperty("user")
+    public String getUser() {return order.getUser();}
+
+    /**
+     * Retrieves the lines of the saved order
+     *
+     * @return One line for each kit in the order
+     */
+    @JsonProperty("lines")
+    public OrderLine[] getLines() {return order.getLines();}
+
+    /**
+     * Retrieves the saved order
+     *
+     * @return The {@link Order order}
+     */
+    @JsonIgnore
+    public Order getOrder() {return order;}
+
+    /**
+     * Retrieves whether the record was read in the old whole-kit form
+     *
+     * @return true if the record should be rewritten as order lines
+     */
+    @JsonIgnore
+    public boolean isLegacy() {return legacy;}
+}
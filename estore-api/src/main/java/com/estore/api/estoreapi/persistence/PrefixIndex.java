@@ -0,0 +1,109 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+import com.estore.api.estoreapi.model.Suggestion;
+
+/**
+ * An immutable, name sorted array of catalog entries answering autocomplete
+ * queries by binary search
+ * <br>
+ * Like the {@link CatalogSnapshot snapshot} it is rebuilt on every change and
+ * read without locking. The entries whose names start with a prefix sit next to
+ * each other, so a query finds the first with a binary search and ranks the run
+ * that follows it.
+ */
+public final class PrefixIndex {
+    private static final PrefixIndex EMPTY = new PrefixIndex(new String[0], new Suggestion[0], new int[0]);
+
+    private final String[] keys;            // folded names in ascending order
+    private final Suggestion[] suggestions; // the suggestion for each key
+    private final int[] ranks;              // higher ranks are suggested first
+
+    private PrefixIndex(String[] keys, Suggestion[] suggestions, int[] ranks) {
+        this.keys = keys;
+        this.suggestions = suggestions;
+        this.ranks = ranks;
+    }
+
+    /**
+     * Builds an index of catalog entries
+     *
+     * @param entries The entries to suggest
+     * @param id Reads an entry's id
+     * @param name Reads an entry's name
+     * @param rank Ranks an entry, such as by the quantity in stock
+     * @param <T> The type of catalog entry
+     *
+     * @return An index of the entries as they are now
+     */
+    public static <T> PrefixIndex of(T[] entries, ToIntFunction<T> id, Function<T, String> name,
+                                     ToIntFunction<T> rank) {
+        if (entries.length == 0)
+            return EMPTY;
+
+        Integer[] order = new Integer[entries.length];
+        String[] folded = new String[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            order[i] = i;
+            folded[i] = fold(name.apply(entries[i]));
+        }
+        Arrays.sort(order, Comparator.comparing(i -> folded[i]));
+
+        String[] keys = new String[entries.length];
+        Suggestion[] suggestions = new Suggestion[entries.length];
+        int[] ranks = new int[entries.length];
+        for (int i = 0; i < order.length; i++) {
+            T entry = entries[order[i]];
+            keys[i] = folded[order[i]];
+            suggestions[i] = new Suggestion(id.applyAsInt(entry), name.apply(entry));
+            ranks[i] = rank.applyAsInt(entry);
+        }
+        return new PrefixIndex(keys, suggestions, ranks);
+    }
+
+    /**
+     * Finds the highest ranked entries whose names start with a prefix, ignoring case
+     *
+     * @param prefix The start of the name
+     * @param limit The most suggestions to return
+     *
+     * @return Up to limit suggestions, highest rank first and then by name, may be empty
+     */
+    public Suggestion[] suggest(String prefix, int limit) {
+        if (limit <= 0)
+            return new Suggestion[0];
+        String key = fold(prefix);
+        int start = Arrays.binarySearch(keys, key);
+        if (start < 0)
+            start = -start - 1; // the first key after the prefix, which is where its run begins
+
+        // Keeps the best matches so far ordered by rank; a run is checked in name order,
+        // so a later entry only displaces an earlier one with a strictly higher rank
+        int[] best = new int[Math.min(limit, keys.length)];
+        int found = 0;
+        for (int i = start; i < keys.length && keys[i].startsWith(key); i++) {
+            if (found == best.length && ranks[i] <= ranks[best[found - 1]])
+                continue;
+            int at = found == best.length ? found - 1 : found++;
+            while (at > 0 && ranks[best[at - 1]] < ranks[i]) {
+                best[at] = best[at - 1];
+                at--;
+            }
+            best[at] = i;
+        }
+
+        Suggestion[] result = new Suggestion[found];
+        for (int i = 0; i < found; i++)
+            result[i] = suggestions[best[i]];
+        return result;
+    }
+
+    private static String fold(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,35 @@
+package com.estore.api.estoreapi.persistence;
+
+/**
+ * Counts the time each thread spends writing data to storage or waiting for it
+ * to be written
+ * <br>
+ * The {@link WriteBehindPersister persisters} and {@link Journal journals} add
+ * to the count of the thread that waited on them, so the {@link DaoMetrics DAO
+ * timers} can tell how much of a call went to saving and how much to the work
+ * done in memory.
+ */
+final class SaveTime {
+    private static final ThreadLocal<long[]> NANOS = ThreadLocal.withInitial(() -> new long[1]);
+
+    private SaveTime() {}
+
+    /**
+     * Adds to the calling thread's save time
+     *
+     * @param nanos The time spent saving, in nanoseconds
+     */
+    static void add(long nanos) {
+        NANOS.get()[0] += nanos;
+    }
+
+    /**
+     * Retrieves the calling thread's save time so far; only differences between
+     * two readings mean anything
+     *
+     * @return The time, in nanoseconds
+     */
+    static long total() {
+        return NANOS.get()[0];
+    }
+}
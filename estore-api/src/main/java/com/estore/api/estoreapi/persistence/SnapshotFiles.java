@@ -0,0 +1,130 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Writes and verifies the JSON snapshot files backing the file DAOs
+ * <br>
+ * A snapshot is written to a sibling temporary file, forced to disk and then
+ * moved over the original in one step, so the file on disk always holds either
+ * the old or the new snapshot, never a mix of both. The JSON value is followed
+ * by a footer line holding its CRC32C checksum:
+ * <pre>
+ * [{"id":2,"name":"MingleMixology", ...}]
+ * {"crc32c":"0c4e2b1f"}
+ * </pre>
+ * Jackson stops reading after the first value, so the footer does not affect
+ * loading. Files without a footer, such as hand edited ones, load unverified.
+ */
+public final class SnapshotFiles {
+    private static final Logger LOG = Logger.getLogger(SnapshotFiles.class.getName());
+
+    private static final String FOOTER_PREFIX = "\n{\"crc32c\":\"";
+    private static final String FOOTER_SUFFIX = "\"}\n";
+    private static final int FOOTER_LENGTH = FOOTER_PREFIX.length() + 8 + FOOTER_SUFFIX.length();
+
+    private SnapshotFiles() {}
+
+    /**
+     * Atomically replaces a file with the JSON serialization of a value
+     *
+     * @param objectMapper Converts the value to JSON text
+     * @param file The file to replace
+     * @param value The value to serialize, usually an array of model objects
+     *
+     * @throws IOException if the snapshot cannot be written, in which case the original file is untouched
+     */
+    public static void write(ObjectMapper objectMapper, File file, Object value) throws IOException {
+        Path target = file.toPath();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+
+        try (FileOutputStream out = new FileOutputStream(temp.toFile())) {
+            CRC32C checksum = new CRC32C();
+            OutputStream json = new UnclosedStream(new CheckedOutputStream(out, checksum));
+            // writeValue closes its target, which would release the descriptor before it is synced
+            objectMapper.writeValue(json, value);
+            json.flush();
+            out.write(footer(checksum.getValue()));
+            out.getFD().sync();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        syncDirectory(target);
+    }
+
+    /**
+     * Checks a snapshot against its checksum footer
+     * <br>
+     * Missing files and files without a footer pass, so the caller's own
+     * loading decides what happens to them
+     *
+     * @param file The snapshot to check
+     *
+     * @throws IOException if the file cannot be read or its contents do not match the footer
+     */
+    public static void verify(File file) throws IOException {
+        Path path = file.toPath();
+        if (!Files.exists(path))
+            return;
+
+        byte[] data = Files.readAllBytes(path);
+        int jsonLength = data.length - FOOTER_LENGTH;
+        if (jsonLength < 0)
+            return;
+        String footer = new String(data, jsonLength, FOOTER_LENGTH, StandardCharsets.US_ASCII);
+        if (!footer.startsWith(FOOTER_PREFIX) || !footer.endsWith(FOOTER_SUFFIX))
+            return;
+
+        CRC32C checksum = new CRC32C();
+        checksum.update(data, 0, jsonLength);
+        if (!footer.equals(new String(footer(checksum.getValue()), StandardCharsets.US_ASCII)))
+            throw new IOException(file + " is corrupt, its contents do not match the checksum footer");
+    }
+
+    private static byte[] footer(long checksum) {
+        return (FOOTER_PREFIX + String.format("%08x", checksum) + FOOTER_SUFFIX)
+                .getBytes(StandardCharsets.US_ASCII);
+    }
+
+    // Makes the rename itself durable; not every platform can open a directory
+    private static void syncDirectory(Path file) {
+        Path directory = file.toAbsolutePath().getParent();
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            LOG.fine("Cannot sync directory " + directory + ": " + e.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * A buffered stream whose close only flushes, leaving the underlying stream open
+     */
+    private static class UnclosedStream extends BufferedOutputStream {
+        UnclosedStream(OutputStream out) {
+            super(out, 64 * 1024);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
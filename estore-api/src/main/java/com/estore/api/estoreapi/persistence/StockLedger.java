@@ -0,0 +1,112 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the units of each kit that are available to buy, reserving and
+ * releasing them with compare-and-set rather than a lock
+ * <br>
+ * A reservation only succeeds while the count covers it, so parallel buyers of
+ * the same kit can never take more than there is. The ledger also remembers
+ * which kits changed since the DAO last wrote their counts back to the kits,
+ * letting it save a burst of reservations as one change.
+ */
+public class StockLedger {
+    private final Map<Integer, AtomicInteger> counts = new ConcurrentHashMap<>(); // kit id to units available
+    private final Set<Integer> changed = ConcurrentHashMap.newKeySet();           // ids not written back yet
+
+    /**
+     * Sets the units available of a kit, adding the kit if the ledger has no count for it
+     *
+     * @param id The id of the kit
+     * @param quantity The units available
+     */
+    public void set(int id, int quantity) {
+        counts.computeIfAbsent(id, k -> new AtomicInteger()).set(quantity);
+    }
+
+    /**
+     * Removes a kit from the ledger, after which it cannot be reserved
+     *
+     * @param id The id of the kit
+     */
+    public void remove(int id) {
+        counts.remove(id);
+        changed.remove(id);
+    }
+
+    /**
+     * Takes units of a kit out of stock
+     *
+     * @param id The id of the kit
+     * @param quantity The units to take
+     *
+     * @return true if the units were reserved<br>
+     * false if the quantity is not positive, or the kit is unknown, out of stock
+     * or has fewer units than asked for
+     */
+    public boolean reserve(int id, int quantity) {
+        AtomicInteger count = counts.get(id);
+        if (count == null || quantity <= 0) // a negative reservation would add stock
+            return false;
+        while (true) {
+            int available = count.get();
+            if (available <= 0 || available - quantity < 0)
+                return false;
+            if (count.compareAndSet(available, available - quantity)) {
+                changed.add(id);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Puts units of a kit back in stock
+     *
+     * @param id The id of the kit
+     * @param quantity The units to put back
+     *
+     * @return true if the units were put back, false if the quantity is not
+     * positive or the kit is unknown
+     */
+    public boolean release(int id, int quantity) {
+        AtomicInteger count = counts.get(id);
+        if (count == null || quantity <= 0) // a negative release would take stock
+            return false;
+        count.addAndGet(quantity);
+        changed.add(id);
+        return true;
+    }
+
+    /**
+     * Retrieves the units available of a kit
+     *
+     * @param id The id of the kit
+     *
+     * @return The units available, 0 if the kit is unknown
+     */
+    public int get(int id) {
+        AtomicInteger count = counts.get(id);
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * Retrieves and forgets the kits whose counts changed since the last call
+     *
+     * @return The ids of the changed kits, may be empty
+     */
+    public int[] drainChanged() {
+        int[] ids = new int[changed.size()];
+        int found = 0;
+        for (Iterator<Integer> it = changed.iterator(); it.hasNext() && found < ids.length; ) {
+            ids[found++] = it.next();
+            it.remove();
+        }
+        return found == ids.length ? ids : Arrays.copyOf(ids, found);
+    }
+}
@@ -0,0 +1,94 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.io.File;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Reports how much data the DAOs hold
+ * <br>
+ * The {@code estore.store.size} gauge counts the records in each store, and the
+ * {@code estore.store.file.size} gauge measures each configured data file in
+ * bytes, so the growth of the files between compactions can be watched. The
+ * carts' evictions and the kits they put back in stock are counted as well.
+ */
+@Component
+public class StoreMetrics implements MeterBinder {
+    // the properties naming the data files, measured when they are set
+    static final List<String> FILE_PROPERTIES = List.of(
+            "products.file", "inventory.file", "kits.file", "users.file", "orders.file",
+            "orders.journal.file", "carts.file", "carts.journal.file");
+
+    private final KitDAO kitDao;
+    private final InventoryDAO inventoryDao;
+    private final UserDAO userDao;
+    private final OrderDAO orderDao;
+    private final CartDAO cartDao;
+    private final Environment environment;
+
+    /**
+     * Creates the metrics of the DAOs
+     *
+     * @param kitDao The kits
+     * @param inventoryDao The products
+     * @param userDao The users
+     * @param orderDao The orders
+     * @param cartDao The shopping carts
+     * @param environment Names the data files
+     */
+    public StoreMetrics(KitDAO kitDao, InventoryDAO inventoryDao, UserDAO userDao, OrderDAO orderDao,
+                        CartDAO cartDao, Environment environment) {
+        // read past the timing proxies, so a scrape does not show up as DAO calls
+        this.kitDao = DaoMetrics.untimed(kitDao);
+        this.inventoryDao = DaoMetrics.untimed(inventoryDao);
+        this.userDao = DaoMetrics.untimed(userDao);
+        this.orderDao = DaoMetrics.untimed(orderDao);
+        this.cartDao = DaoMetrics.untimed(cartDao);
+        this.environment = environment;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        size(registry, "kits", kitDao, KitDAO::getKitCount);
+        size(registry, "products", inventoryDao, InventoryDAO::getProductCount);
+        size(registry, "users", userDao, UserDAO::getUserCount);
+        size(registry, "orders", orderDao, OrderDAO::getOrderCount);
+        size(registry, "carts", cartDao, CartDAO::getLiveCarts);
+
+        FunctionCounter.builder("estore.carts.evicted", cartDao, CartDAO::getEvictedCarts)
+                .description("Carts emptied for going unused")
+                .register(registry);
+        FunctionCounter.builder("estore.carts.units.returned", cartDao, CartDAO::getUnitsReturned)
+                .description("Kits put back in stock from evicted carts")
+                .register(registry);
+
+        for (String property : FILE_PROPERTIES) {
+            String filename = environment.getProperty(property);
+            if (filename == null || filename.isBlank())
+                continue;
+            File file = new File(filename);
+            Gauge.builder("estore.store.file.size", file, File::length) // 0 while the file does not exist
+                    .description("Size of a data file")
+                    .tag("file", property.substring(0, property.length() - ".file".length()))
+                    .baseUnit("bytes")
+                    .strongReference(true) // nothing else holds the File
+                    .register(registry);
+        }
+    }
+
+    private static <T> void size(MeterRegistry registry, String store, T dao,
+                                 ToDoubleFunction<T> count) {
+        Gauge.builder("estore.store.size", dao, count)
+                .description("Records held by a store")
+                .tag("store", store)
+                .register(registry);
+    }
+}
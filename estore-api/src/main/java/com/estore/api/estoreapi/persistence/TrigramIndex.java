@@ -0,0 +1,109 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An inverted index from the three character sequences in catalog names to the
+ * ids of the entries whose names contain them, used for case-insensitive
+ * substring search
+ * <br>
+ * A search looks up the query's rarest trigram and only checks the names listed
+ * under it, so its cost follows the number of candidates rather than the size of
+ * the catalog. Queries shorter than three characters have no trigram and fall
+ * back to checking every name.
+ * <br>
+ * The DAOs update the index under their writer lock while searches run
+ * concurrently; a search that overlaps a change may or may not see it.
+ */
+public class TrigramIndex {
+    private final Map<Integer, String> names = new ConcurrentHashMap<>();       // id to folded name
+    private final Map<Long, Set<Integer>> postings = new ConcurrentHashMap<>(); // trigram to ids
+
+    /**
+     * Indexes an entry's name, replacing the name indexed for it before
+     *
+     * @param id The id of the entry
+     * @param name The entry's name
+     */
+    public void put(int id, String name) {
+        String folded = fold(name);
+        String previous = names.put(id, folded);
+        if (folded.equals(previous))
+            return;
+        if (previous != null)
+            unlink(id, previous);
+        for (int i = 0; i + 3 <= folded.length(); i++)
+            postings.computeIfAbsent(trigram(folded, i), t -> ConcurrentHashMap.newKeySet()).add(id);
+    }
+
+    /**
+     * Removes an entry from the index
+     *
+     * @param id The id of the entry
+     */
+    public void remove(int id) {
+        String previous = names.remove(id);
+        if (previous != null)
+            unlink(id, previous);
+    }
+
+    /**
+     * Finds the entries whose names contain the given text, ignoring case
+     *
+     * @param containsText The text to match against
+     *
+     * @return The ids of the matching entries in ascending order, may be empty
+     */
+    public int[] search(String containsText) {
+        String query = fold(containsText);
+
+        Iterable<Integer> candidates = names.keySet();
+        if (query.length() >= 3) {
+            Set<Integer> rarest = null;
+            for (int i = 0; i + 3 <= query.length(); i++) {
+                Set<Integer> ids = postings.get(trigram(query, i));
+                if (ids == null)
+                    return new int[0]; // no name contains this part of the query
+                if (rarest == null || ids.size() < rarest.size())
+                    rarest = ids;
+            }
+            candidates = rarest;
+        }
+
+        int[] matches = new int[16];
+        int count = 0;
+        for (Integer id : candidates) {
+            String name = names.get(id);
+            if (name != null && name.contains(query)) {
+                if (count == matches.length)
+                    matches = Arrays.copyOf(matches, count * 2);
+                matches[count++] = id;
+            }
+        }
+        matches = Arrays.copyOf(matches, count);
+        Arrays.sort(matches);
+        return matches;
+    }
+
+    private void unlink(int id, String folded) {
+        for (int i = 0; i + 3 <= folded.length(); i++) {
+            long key = trigram(folded, i);
+            postings.computeIfPresent(key, (t, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    private static String fold(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    private static long trigram(String text, int start) {
+        return ((long) text.charAt(start) << 32) | ((long) text.charAt(start + 1) << 16) | text.charAt(start + 2);
+    }
+}
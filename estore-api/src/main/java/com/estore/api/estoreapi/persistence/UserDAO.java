@@ -19,7 +19,7 @@ public interface UserDAO {
      * @param name the name of the new user
      * The id of the User object is assigned uniquely when a new User is created
      *
-     * @return new {@linkplain User User} if successful, False otherwise
+     * @return new {@linkplain User User} if successful, null if the username is taken
      * @throws IOException if there is an issue with underlying storage
      */
     User createUser(String username, String password, String name) throws IOException;
@@ -44,6 +44,13 @@ public interface UserDAO {
      */
     User[] getUsers();
 
+    /**
+     * Retrieves the number of users
+     *
+     * @return The number of users
+     */
+    int getUserCount();
+
     /**
      * Retrieve a specific {@linkplain User User}
      *
@@ -56,6 +63,24 @@ public interface UserDAO {
      */
     User getUser(int id) throws IOException;
 
+    /**
+     * Retrieve the {@linkplain User User} with a username
+     *
+     * @param username the username to look up
+     *
+     * @return the {@linkplain User User} with that username, null if there is none
+     */
+    User findByUsername(String username);
+
+    /**
+     * Check whether a username belongs to a {@linkplain User User}
+     *
+     * @param username the username to look up
+     *
+     * @return true if a {@linkplain User User} has that username, else false
+     */
+    boolean existsByUsername(String username);
+
     /**
      * Updates and saves a new username for a {@linkplain User User}
      *
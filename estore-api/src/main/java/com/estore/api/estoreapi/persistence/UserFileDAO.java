@@ -3,14 +3,18 @@ package com.estore.api.estoreapi.persistence;
 import com.estore.api.estoreapi.model.Product;
 import com.estore.api.estoreapi.model.User;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
+import javax.annotation.PreDestroy;
+
 /**
  * Implements the functionality for JSON file-based persistence for Users
  *
@@ -23,6 +27,7 @@ public class UserFileDAO implements UserDAO{
 
     Map<Integer, User> users; // local cache of all current Users
     Map<String, String> loginCreds;
+    Map<String, User> usernames; // the users by username, read without locking
 
     private ObjectMapper objectMapper; // Connection between User objects
                                         // and JSON text format written
@@ -32,15 +37,37 @@ public class UserFileDAO implements UserDAO{
 
     private String filename; // Filename to read from and write to
 
+    private WriteBehindPersister persister; // Writes the users to the file off the request thread
+
+    /**
+     * Instantiate the User File DAO, saving every change before acknowledging it
+     * @param filename the name of the file containing User data
+     * @param objectMapper the object mapper between User objects and JSON text
+     * @throws IOException if an error occurs when instantiating the file
+     */
+    public UserFileDAO(String filename, ObjectMapper objectMapper) throws IOException{
+        this(filename, objectMapper, "durable", 0, 1);
+    }
+
     /**
      * Instantiate the User File DAO
      * @param filename the name of the file containing User data
      * @param objectMapper the object mapper between User objects and JSON text
+     * @param persistMode durable to acknowledge changes once they are on disk, fast to
+     * acknowledge them once they are applied in memory
+     * @param maxDelayMillis the longest a change waits before it is written
+     * @param maxPending the number of changes that are written without waiting for the delay
      * @throws IOException if an error occurs when instantiating the file
      */
-    public UserFileDAO(@Value("${users.file}") String filename, ObjectMapper objectMapper) throws IOException{
+    @Autowired
+    public UserFileDAO(@Value("${users.file}") String filename, ObjectMapper objectMapper,
+                       @Value("${users.persist.mode:durable}") String persistMode,
+                       @Value("${users.persist.max-delay-ms:0}") long maxDelayMillis,
+                       @Value("${users.persist.max-pending:1}") int maxPending) throws IOException{
         this.filename = filename;
         this.objectMapper = objectMapper;
+        this.persister = new WriteBehindPersister("users", WriteBehindPersister.Mode.parse(persistMode),
+                maxDelayMillis, maxPending, this::save);
         load();
     }
 
@@ -62,9 +89,12 @@ public class UserFileDAO implements UserDAO{
      */
     private boolean load() throws IOException {
         users = new TreeMap<>();
-        loginCreds = new HashMap<>();
+        loginCreds = new ConcurrentHashMap<>();
+        usernames = new ConcurrentHashMap<>();
         nextId = 0;
 
+        // A file whose checksum footer does not match fails here rather than loading partial data
+        SnapshotFiles.verify(new File(filename));
         User[] UserArray = objectMapper.readValue(new File(filename), User[].class);
 
         for (User user: UserArray) {
@@ -75,7 +105,7 @@ public class UserFileDAO implements UserDAO{
             String username = user.getUsername();
             String password = user.getPassword();
             loginCreds.put(username, password);
-
+            usernames.put(username, user);
         }
         nextId++;
         return true;
@@ -95,6 +125,38 @@ public class UserFileDAO implements UserDAO{
         return userList;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getUserCount() {
+        return usernames.size();
+    }
+
+    /**
+     * Retrieve the {@linkplain User User} with a username
+     *
+     * @param username the username to look up
+     *
+     * @return the {@linkplain User User} with that username, null if there is none
+     */
+    @Override
+    public User findByUsername(String username) {
+        return usernames.get(username);
+    }
+
+    /**
+     * Check whether a username belongs to a {@linkplain User User}
+     *
+     * @param username the username to look up
+     *
+     * @return true if a {@linkplain User User} has that username, else false
+     */
+    @Override
+    public boolean existsByUsername(String username) {
+        return usernames.containsKey(username);
+    }
+
     /**
      * Get the login credentials for all users
      * @return the Map of all usernames and passwords
@@ -104,22 +166,29 @@ public class UserFileDAO implements UserDAO{
     }
 
     /**
-     * Saves the {@linkplain Product products} from the map into the file as an array of JSON objects
-     *
-     * @return true if the {@link Product products} were written successfully
+     * Saves the {@linkplain User users} from the map into the file as an array of JSON objects
+     * <br>
+     * Called by the {@link WriteBehindPersister persister}; the map is only locked while it is copied
      *
      * @throws IOException when file cannot be accessed or written to
      */
-    private boolean save() throws IOException {
-        User[] users = getUsers();
-
-        objectMapper.writeValue(new File(filename), users);
-        for (User user: users) {
-            String username = user.getUsername();
-            String password = user.getPassword();
-            loginCreds.put(username, password);
+    private void save() throws IOException {
+        User[] userArray;
+        synchronized (users) {
+            userArray = getUsers();
         }
-        return true;
+
+        SnapshotFiles.write(objectMapper, new File(filename), userArray);
+    }
+
+    /**
+     * Writes any changes that have not been saved yet, called when the application shuts down
+     *
+     * @throws IOException when file cannot be accessed or written to
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        persister.flush();
     }
 
 
@@ -130,19 +199,25 @@ public class UserFileDAO implements UserDAO{
      * @param name the name of the new user
      * The id of the User object is assigned uniquely when a new User is created
      *
-     * @return new {@linkplain User User} if successful, False otherwise
+     * @return new {@linkplain User User} if successful, null if the username is taken
      * @throws IOException if there is an issue with underlying storage
      */
     @Override
     public User createUser(String username, String password, String name) throws IOException {
+        User newU;
+        long change;
         synchronized(users) {
-            User newU = new User(nextId(), username, password,
+            if (usernames.containsKey(username))
+                return null; // another request registered it first
+            newU = new User(nextId(), username, password,
                     name, User.UserRole.CUSTOMER);
             users.put(newU.getId(), newU);
             loginCreds.put(username, password);
-            save();
-            return newU;
+            usernames.put(username, newU);
+            change = persister.markDirty();
         }
+        persister.awaitFlush(change);
+        return newU;
     }
 
     /**
@@ -157,18 +232,22 @@ public class UserFileDAO implements UserDAO{
      */
     @Override
     public boolean deleteUser(int id) throws IOException {
+        long change;
         synchronized (users){
             if(users.containsKey(id)){
                 User u = getUser(id);
                 users.remove(id);
 
                 loginCreds.remove(u.getUsername());
-                return save();
+                usernames.remove(u.getUsername());
+                change = persister.markDirty();
             }
             else{
                 return false;
             }
         }
+        persister.awaitFlush(change);
+        return true;
     }
 
     /**
@@ -193,22 +272,31 @@ public class UserFileDAO implements UserDAO{
      * @param newUsername the new username to update to
      *
      * @return updated {@linkplain User User} if successful, null if
-     * {@linkplain User User} could not be found
+     * {@linkplain User User} could not be found or the username is taken
      *
      * @throws IOException if underlying storage cannot be accessed
      */
     @Override
     public User updateUsername(User user, String newUsername) throws IOException {
+        long change;
         synchronized (users){
             if(!users.containsKey(user.getId())){
                 return null; // User doesn't exist
             }
+            User holder = usernames.get(newUsername);
+            if(holder != null && holder.getId() != user.getId()){
+                return null; // another user took the username
+            }
             loginCreds.remove(user.getUsername());
+            usernames.remove(user.getUsername());
             user.setUsername(newUsername);
             users.put(user.getId(), user);
-            save();
-            return user;
+            loginCreds.put(newUsername, user.getPassword());
+            usernames.put(newUsername, user);
+            change = persister.markDirty();
         }
+        persister.awaitFlush(change);
+        return user;
     }
 
     /**
@@ -224,6 +312,7 @@ public class UserFileDAO implements UserDAO{
      */
     @Override
     public User updatePassword(User user, String newPassword) throws IOException {
+        long change;
         synchronized (users){
             if(!users.containsKey(user.getId())){
                 return null; // User doesn't exist
@@ -232,9 +321,10 @@ public class UserFileDAO implements UserDAO{
             user.setPassword(newPassword);
             users.put(user.getId(), user);
             loginCreds.replace(user.getUsername(), newPassword);
-            save();
-            return user;
+            change = persister.markDirty();
         }
+        persister.awaitFlush(change);
+        return user;
     }
 
     /**
@@ -250,6 +340,7 @@ public class UserFileDAO implements UserDAO{
      */
     @Override
     public User updateName(User user, String newName) throws IOException {
+        long change;
         synchronized (users){
             if(!users.containsKey(user.getId())){
                 return null; // User doesn't exist
@@ -257,9 +348,10 @@ public class UserFileDAO implements UserDAO{
 
             user.setName(newName);
             users.put(user.getId(), user);
-            save();
-            return user;
+            change = persister.markDirty();
         }
+        persister.awaitFlush(change);
+        return user;
     }
 
     /**
@@ -0,0 +1,257 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Writes a file DAO's in-memory data to storage on a background thread,
+ * coalescing bursts of mutations into a single write
+ * <br>
+ * A DAO calls {@link #markDirty()} while it still holds its own lock after
+ * applying a mutation, then {@link #awaitFlush(long)} once it has released
+ * that lock. The flush callback takes the DAO's lock only long enough to copy
+ * its data, so request threads never wait on disk I/O while holding it.
+ * <p>
+ * In {@linkplain Mode#DURABLE durable} mode {@link #awaitFlush(long)} returns
+ * once a flush covering the mutation has reached the disk. In
+ * {@linkplain Mode#FAST fast} mode it returns immediately and the mutation is
+ * written within the configured delay.
+ * <p>
+ * Each flush is timed by the {@code estore.persist.save} timer, tagged with the
+ * persister's name, in Micrometer's global registry. Time a request thread
+ * spends flushing or waiting for a flush counts as its {@link SaveTime save time}.
+ */
+public class WriteBehindPersister {
+    private static final Logger LOG = Logger.getLogger(WriteBehindPersister.class.getName());
+
+    private static final long RETRY_DELAY_MILLIS = 1000; // minimum wait before retrying a failed flush
+
+    // Shared by every persister; flushes are I/O bound so a couple of threads is plenty
+    private static final ScheduledExecutorService FLUSHER = Executors.newScheduledThreadPool(2, new ThreadFactory());
+
+    /**
+     * When a DAO may acknowledge a mutation to its caller
+     */
+    public enum Mode {
+        /** After the mutation has been written and forced to disk */
+        DURABLE,
+        /** As soon as the mutation has been applied in memory */
+        FAST;
+
+        /**
+         * Parses a mode from its name, ignoring case
+         * @param name The mode name, e.g. from application.properties
+         * @return The matching mode
+         */
+        public static Mode parse(String name) {
+            return valueOf(name.trim().toUpperCase());
+        }
+    }
+
+    /**
+     * Writes the owning DAO's data to storage
+     */
+    @FunctionalInterface
+    public interface Flush {
+        void run() throws IOException;
+    }
+
+    private final String name;            // used in log messages and thread names
+    private final Flush flush;            // writes the DAO's data
+    private final Mode mode;
+    private final long maxDelayMillis;    // longest a mutation waits before a flush starts
+    private final int maxPending;         // number of mutations that starts a flush right away
+
+    private final Object flushLock = new Object(); // only one flush of this DAO runs at a time
+    private final Timer saveTimer;        // times every flush
+
+    // guarded by this
+    private long dirtyVersion;            // version of the latest mutation
+    private long flushedVersion;          // latest version known to be on disk
+    private int pending;                  // mutations since the last flush started
+    private ScheduledFuture<?> scheduled; // the next flush, if one is queued
+    private IOException failure;          // why the last flush failed, null if it succeeded
+    private long failedVersion;           // the version the last failed flush tried to write
+
+    /**
+     * Creates a persister for a DAO
+     *
+     * @param name The name used in log messages
+     * @param mode When mutations are acknowledged
+     * @param maxDelayMillis The longest a mutation waits before a flush starts
+     * @param maxPending The number of mutations that starts a flush without waiting for the delay
+     * @param flush Writes the DAO's data to storage
+     */
+    public WriteBehindPersister(String name, Mode mode, long maxDelayMillis, int maxPending, Flush flush) {
+        this.name = name;
+        this.mode = mode;
+        this.maxDelayMillis = Math.max(0, maxDelayMillis);
+        this.maxPending = Math.max(1, maxPending);
+        this.flush = flush;
+        this.saveTimer = Timer.builder("estore.persist.save")
+                .description("Time taken to write a store's data to storage")
+                .tag("store", name)
+                .register(Metrics.globalRegistry);
+    }
+
+    /**
+     * Creates a durable persister that starts a flush as soon as anything changes
+     *
+     * @param name The name used in log messages
+     * @param flush Writes the DAO's data to storage
+     */
+    public WriteBehindPersister(String name, Flush flush) {
+        this(name, Mode.DURABLE, 0, 1, flush);
+    }
+
+    /**
+     * Records that the DAO's data has changed and queues a flush
+     *
+     * @return The version of the data including this mutation, to pass to {@link #awaitFlush(long)}
+     */
+    public synchronized long markDirty() {
+        long version = ++dirtyVersion;
+        ++pending;
+        if (pending >= maxPending)
+            schedule(0);
+        else
+            schedule(maxDelayMillis);
+        return version;
+    }
+
+    /**
+     * Waits, in durable mode, until a flush covering the given version has completed
+     * <br>
+     * Must not be called while holding the lock the flush callback takes
+     *
+     * @param version A version returned by {@link #markDirty()}
+     *
+     * @throws IOException if the flush covering the version failed
+     */
+    public synchronized void awaitFlush(long version) throws IOException {
+        if (mode == Mode.FAST)
+            return;
+        long start = System.nanoTime();
+        try {
+            while (flushedVersion < version) {
+                if (failure != null && failedVersion >= version)
+                    throw new IOException(name + " could not be saved", failure);
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted waiting for " + name + " to be saved");
+                }
+            }
+        } finally {
+            SaveTime.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Writes any pending mutations on the calling thread
+     *
+     * @throws IOException if the data cannot be written
+     */
+    public void flush() throws IOException {
+        synchronized (flushLock) {
+            long version;
+            synchronized (this) {
+                if (scheduled != null) {
+                    scheduled.cancel(false);
+                    scheduled = null;
+                }
+                pending = 0;
+                version = dirtyVersion;
+                if (version <= flushedVersion)
+                    return;
+            }
+
+            long start = System.nanoTime();
+            try {
+                flush.run();
+            } catch (IOException | RuntimeException e) {
+                synchronized (this) {
+                    failure = e instanceof IOException ? (IOException)e : new IOException(e);
+                    failedVersion = version;
+                    notifyAll();
+                }
+                throw e;
+            } finally {
+                long nanos = System.nanoTime() - start;
+                saveTimer.record(nanos, TimeUnit.NANOSECONDS);
+                SaveTime.add(nanos);
+            }
+
+            synchronized (this) {
+                if (version > flushedVersion)
+                    flushedVersion = version;
+                failure = null;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Retrieves the version of the latest mutation
+     *
+     * @return The number of mutations recorded so far
+     */
+    public synchronized long getVersion() {
+        return dirtyVersion;
+    }
+
+    /**
+     * Retrieves the mode this persister acknowledges mutations in
+     *
+     * @return The acknowledgement mode
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    private boolean isScheduled() {
+        return scheduled != null && !scheduled.isDone();
+    }
+
+    // Queues a flush unless one that starts soon enough is already queued
+    private void schedule(long delayMillis) {
+        if (isScheduled()) {
+            if (scheduled.getDelay(TimeUnit.MILLISECONDS) <= delayMillis || !scheduled.cancel(false))
+                return;
+        }
+        scheduled = FLUSHER.schedule(this::flushInBackground, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void flushInBackground() {
+        try {
+            flush();
+        } catch (IOException | RuntimeException e) {
+            LOG.log(Level.SEVERE, "Could not save " + name + ", retrying", e);
+            synchronized (this) {
+                schedule(Math.max(maxDelayMillis, RETRY_DELAY_MILLIS));
+            }
+        }
+    }
+
+    private static class ThreadFactory implements java.util.concurrent.ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "write-behind-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
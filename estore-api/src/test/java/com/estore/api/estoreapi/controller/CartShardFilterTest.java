@@ -0,0 +1,119 @@
+package com.estore.api.estoreapi.controller;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * Tests the CartShardFilter class
+ */
+@Tag("Controller-tier")
+public class CartShardFilterTest {
+    private CartShards mockShards;
+    private CartShardFilter filter;
+    private FilterChain chain;
+
+    @BeforeEach
+    public void setup() {
+        mockShards = mock(CartShards.class);
+        filter = new CartShardFilter(mockShards);
+        chain = mock(FilterChain.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static HttpResponse<byte[]> response(int status, String contentType, byte[] body) {
+        HttpResponse<byte[]> response = mock(HttpResponse.class);
+        when(response.statusCode()).thenReturn(status);
+        when(response.headers()).thenReturn(HttpHeaders.of(Map.of("Content-Type", List.of(contentType)), (k, v) -> true));
+        when(response.body()).thenReturn(body);
+        return response;
+    }
+
+    @Test
+    public void testUserId() {
+        assertEquals(7, CartShardFilter.userId("/cart/7"));
+        assertEquals(7, CartShardFilter.userId("/cart/add/7/2/1"));
+        assertEquals(7, CartShardFilter.userId("/cart/fullkits/7"));
+        assertEquals(-1, CartShardFilter.userId("/cart/total/"));
+        assertEquals(-1, CartShardFilter.userId("/cart/clear/99999999999")); // not a user id
+    }
+
+    @Test
+    public void testHandlesOwnCartsLocally() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/cart/7");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        when(mockShards.ownerOf(7)).thenReturn(null);
+
+        filter.doFilter(request, response, chain);
+
+        verify(chain).doFilter(request, response);
+        assertNull(response.getHeader(CartShards.FORWARDED_HEADER));
+        verify(mockShards, never()).forward(anyString(), anyString(), anyString(), any(), any());
+    }
+
+    @Test
+    public void testForwardsOtherCarts() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/cart/total/7");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        byte[] body = "12.5".getBytes(StandardCharsets.UTF_8);
+        when(mockShards.ownerOf(7)).thenReturn("http://owner");
+        HttpResponse<byte[]> owned = response(200, "application/json", body);
+        when(mockShards.forward("http://owner", "GET", "/cart/total/7", null, new byte[0])).thenReturn(owned);
+
+        filter.doFilter(request, response, chain);
+
+        verify(chain, never()).doFilter(any(), any());
+        assertEquals(200, response.getStatus());
+        assertEquals("application/json", response.getContentType());
+        assertEquals("http://owner", response.getHeader(CartShards.FORWARDED_HEADER));
+        assertArrayEquals(body, response.getContentAsByteArray());
+    }
+
+    @Test
+    public void testHandlesForwardedRequestsLocally() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/cart/add/7/1/1");
+        request.addHeader(CartShards.FORWARDED_HEADER, "http://other");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        when(mockShards.ownerOf(anyInt())).thenReturn("http://owner");
+
+        filter.doFilter(request, response, chain);
+
+        verify(chain).doFilter(request, response);
+    }
+
+    @Test
+    public void testOwnerUnreachable() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("DELETE", "/cart/clear/7");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        when(mockShards.ownerOf(7)).thenReturn("http://owner");
+        when(mockShards.forward(anyString(), anyString(), anyString(), any(), any())).thenThrow(new IOException());
+
+        filter.doFilter(request, response, chain);
+
+        assertEquals(502, response.getStatus());
+        verify(chain, never()).doFilter(any(), any());
+    }
+}
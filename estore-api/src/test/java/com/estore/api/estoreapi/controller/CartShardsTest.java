@@ -0,0 +1,192 @@
+package com.estore.api.estoreapi.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.estore.api.estoreapi.model.Kit;
+import com.estore.api.estoreapi.persistence.CartStore;
+import com.estore.api.estoreapi.persistence.KitDAO;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests the CartShards class against another instance stubbed on localhost
+ */
+@Tag("Controller-tier")
+public class CartShardsTest {
+    private static final String SELF = "http://self.invalid";
+
+    private HttpServer node;        // the other instance
+    private String nodeUrl;
+    private List<String> received;  // the requests the other instance was sent
+    private volatile int status;    // what the other instance answers
+    private CartStore cartStore;
+    private KitDAO mockKitDAO;
+    private final List<CartShards> opened = new ArrayList<>();
+
+    @BeforeEach
+    public void setup() throws IOException {
+        received = new CopyOnWriteArrayList<>();
+        status = 200;
+        node = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        node.createContext("/", exchange -> {
+            received.add(exchange.getRequestMethod() + " " + exchange.getRequestURI()
+                    + " " + exchange.getRequestHeaders().getFirst(CartShards.FORWARDED_HEADER));
+            // a fresh connection for every request, so the client never reuses one the stub is closing
+            exchange.getResponseHeaders().add("Connection", "close");
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+        });
+        node.start();
+        nodeUrl = "http://127.0.0.1:" + node.getAddress().getPort();
+        cartStore = new CartStore();
+        mockKitDAO = mock(KitDAO.class);
+        when(mockKitDAO.releaseStock(anyInt(), anyInt())).thenReturn(true);
+    }
+
+    @AfterEach
+    public void stopNode() {
+        for (CartShards shards : opened)
+            shards.close();
+        node.stop(0);
+    }
+
+    private int userOwnedBy(CartShards shards, String owner) {
+        for (int user = 0; ; user++)
+            if (owner.equals(shards.ownerOf(user) == null ? SELF : shards.ownerOf(user)))
+                return user;
+    }
+
+    @Test
+    public void testEveryCartLocalWithoutNodes() {
+        CartShards shards = new CartShards(cartStore, mockKitDAO, "", "", 1000);
+
+        assertNull(shards.ownerOf(1));
+        assertTrue(shards.getNodes().isEmpty());
+    }
+
+    @Test
+    public void testOwnerOfSplitsUsers() {
+        CartShards shards = new CartShards(cartStore, mockKitDAO, SELF + "/", SELF + ", " + nodeUrl + "/", 1000);
+
+        assertEquals(2, shards.getNodes().size());
+        assertNull(shards.ownerOf(userOwnedBy(shards, SELF)));
+        assertEquals(nodeUrl, shards.ownerOf(userOwnedBy(shards, nodeUrl)));
+    }
+
+    @Test
+    public void testForward() throws IOException {
+        CartShards shards = new CartShards(cartStore, mockKitDAO, SELF, SELF + "," + nodeUrl, 1000);
+        status = 404;
+
+        assertEquals(404, shards.forward(nodeUrl, "DELETE", "/cart/clear/7", null, null).statusCode());
+        assertEquals(List.of("DELETE /cart/clear/7 " + SELF), received);
+    }
+
+    private CartShards open() {
+        CartShards shards = new CartShards(cartStore, mockKitDAO, SELF, SELF, 1000, "127.0.0.1");
+        opened.add(shards);
+        return shards;
+    }
+
+    @Test
+    public void testSetNodesHandsOffCarts() throws Exception {
+        CartShards shards = open();
+        Kit soda = new Kit(1, "Soda", 2.99f, 20, new ArrayList<>());
+        for (int user = 0; user < 20; user++)
+            cartStore.addKit(user, soda, 2);
+
+        int moved = shards.setNodes(List.of(SELF, nodeUrl)).get(10, TimeUnit.SECONDS);
+
+        int handed = 0;
+        for (int user = 0; user < 20; user++) {
+            if (shards.ownerOf(user) == null) {
+                assertEquals(2, cartStore.getCart(user).getKitQuantity(soda)); // still owned here
+                continue;
+            }
+            assertTrue(received.contains("POST /cart/add/" + user + "/1/2 " + SELF));
+            assertTrue(cartStore.getCart(user).getKits().isEmpty());
+            handed++;
+        }
+        assertTrue(handed > 0);
+        assertEquals(handed, moved);
+        verify(mockKitDAO, times(handed)).releaseStock(1, 2);
+    }
+
+    @Test
+    public void testHandOffKeepsKitsTheOwnerRefuses() throws Exception {
+        CartShards shards = open();
+        shards.setNodes(List.of(SELF, nodeUrl)).get(10, TimeUnit.SECONDS);
+        int user = userOwnedBy(shards, nodeUrl);
+        shards.setNodes(List.of(SELF)).get(10, TimeUnit.SECONDS);
+        Kit soda = new Kit(1, "Soda", 2.99f, 20, new ArrayList<>());
+        cartStore.addKit(user, soda, 2);
+        status = 404; // out of stock over there
+
+        assertEquals(0, shards.setNodes(List.of(SELF, nodeUrl)).get(10, TimeUnit.SECONDS));
+        assertEquals(2, cartStore.getCart(user).getKitQuantity(soda));
+        assertNotNull(shards.ownerOf(user));
+        verify(mockKitDAO, never()).releaseStock(anyInt(), anyInt());
+    }
+
+    @Test
+    public void testSetNodesRejectsOtherHosts() {
+        CartShards shards = open();
+
+        assertThrows(IllegalArgumentException.class, () -> shards.setNodes(List.of(SELF, "http://169.254.169.254")));
+        assertThrows(IllegalArgumentException.class, () -> shards.setNodes(List.of(SELF, "file:///etc/passwd")));
+        assertThrows(IllegalArgumentException.class, () -> shards.setNodes(List.of(SELF, nodeUrl + "/admin?x=1")));
+        assertEquals(List.of(SELF), shards.getNodes()); // left as they were
+    }
+
+    @Test
+    public void testSetNodesReturnsBeforeHandingOff() throws Exception {
+        CountDownLatch answer = new CountDownLatch(1);
+        node.removeContext("/");
+        node.createContext("/", exchange -> {
+            try {
+                answer.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.getResponseHeaders().add("Connection", "close");
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        CartShards shards = new CartShards(cartStore, mockKitDAO, SELF, SELF, 10_000, "127.0.0.1");
+        opened.add(shards);
+        Kit soda = new Kit(1, "Soda", 2.99f, 20, new ArrayList<>());
+        for (int user = 0; user < 20; user++)
+            cartStore.addKit(user, soda, 2);
+
+        Future<Integer> moved = shards.setNodes(List.of(SELF, nodeUrl));
+
+        assertEquals(2, shards.getNodes().size()); // the new nodes apply at once
+        assertFalse(moved.isDone());                // while the carts are still being handed over
+        answer.countDown();
+        assertTrue(moved.get(10, TimeUnit.SECONDS) > 0);
+    }
+}
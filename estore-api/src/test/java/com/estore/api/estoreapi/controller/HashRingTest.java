@@ -0,0 +1,62 @@
+package com.estore.api.estoreapi.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the HashRing class
+ */
+@Tag("Controller-tier")
+public class HashRingTest {
+    private static final int USERS = 30000;
+
+    @Test
+    public void testEmptyRingHasNoOwner() {
+        assertNull(new HashRing(List.of()).ownerOf(1));
+    }
+
+    @Test
+    public void testOwnerIgnoresNodeOrder() {
+        HashRing ring = new HashRing(List.of("http://a", "http://b", "http://c"));
+        HashRing shuffled = new HashRing(List.of("http://c", "http://a", "http://b"));
+
+        for (int user = 0; user < 1000; user++)
+            assertEquals(ring.ownerOf(user), shuffled.ownerOf(user));
+        assertEquals(List.of("http://a", "http://b", "http://c"), shuffled.getNodes());
+    }
+
+    @Test
+    public void testUsersSpreadEvenly() {
+        HashRing ring = new HashRing(List.of("http://a", "http://b", "http://c"));
+        Map<String, Integer> owned = new HashMap<>();
+        for (int user = 0; user < USERS; user++)
+            owned.merge(ring.ownerOf(user), 1, Integer::sum);
+
+        assertEquals(3, owned.size());
+        for (int count : owned.values())
+            assertTrue(count > USERS / 3 * 0.8 && count < USERS / 3 * 1.2, "unbalanced: " + owned);
+    }
+
+    @Test
+    public void testAddingNodeOnlyMovesUsersToIt() {
+        HashRing before = new HashRing(List.of("http://a", "http://b", "http://c"));
+        HashRing after = new HashRing(List.of("http://a", "http://b", "http://c", "http://d"));
+
+        int moved = 0;
+        for (int user = 0; user < USERS; user++) {
+            if (before.ownerOf(user).equals(after.ownerOf(user)))
+                continue;
+            assertEquals("http://d", after.ownerOf(user)); // nobody moves between the old nodes
+            moved++;
+        }
+        assertTrue(moved > USERS / 4 * 0.8 && moved < USERS / 4 * 1.2, "moved " + moved);
+    }
+}
@@ -2,19 +2,32 @@ package com.estore.api.estoreapi.controller;
 
 
 import com.estore.api.estoreapi.model.Product;
+import com.estore.api.estoreapi.model.Suggestion;
+import com.estore.api.estoreapi.persistence.ExportSink;
 import com.estore.api.estoreapi.persistence.InventoryDAO;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.autoconfigure.couchbase.CouchbaseProperties.Io;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -38,6 +51,34 @@ public class InventoryControllerTest {
         inventoryController = new InventoryController((mockInventoryDAO));
     }
 
+    @Test
+    public void testSuggestProducts() throws IOException {
+        // Setup
+        Suggestion[] suggestions = new Suggestion[1];
+        suggestions[0] = new Suggestion(99, "Soda");
+        when(mockInventoryDAO.suggestProducts("so", 10)).thenReturn(suggestions);
+
+        // Invoke
+        ResponseEntity<Suggestion[]> response = inventoryController.suggestProducts("so", 10);
+
+        // Analyze
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(suggestions, response.getBody());
+    }
+
+    @Test
+    public void testSuggestProductsHandleException() throws IOException {
+        // Setup
+        doThrow(new IOException()).when(mockInventoryDAO).suggestProducts("so", 10);
+
+        // Invoke
+        ResponseEntity<Suggestion[]> response = inventoryController.suggestProducts("so", 10);
+
+        // Analyze
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, inventoryController.suggestProducts("so", -1).getStatusCode());
+    }
+
     @Test
     public void testCreateProduct() throws IOException{
         // Setup
@@ -126,11 +167,26 @@ public class InventoryControllerTest {
         when(mockInventoryDAO.getProducts()).thenReturn(products);
 
         // invoke
-        ResponseEntity<Product[]> response = inventoryController.getProducts();
+        ResponseEntity<byte[]> response = inventoryController.getProducts(null);
 
         // analyze
         assertEquals(HttpStatus.OK,response.getStatusCode());
-        assertEquals(products,response.getBody());
+        assertArrayEquals(new ObjectMapper().writeValueAsBytes(products),response.getBody());
+    }
+
+    @Test
+    public void testGetProductsNotModified() throws IOException {
+        // Setup
+        when(mockInventoryDAO.getVersion()).thenReturn(7L);
+        when(mockInventoryDAO.getProducts()).thenReturn(new Product[0]);
+        String etag = inventoryController.getProducts(null).getHeaders().getETag();
+
+        // Invoke
+        ResponseEntity<byte[]> response = inventoryController.getProducts("W/" + etag);
+
+        // Analyze
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertEquals(etag, response.getHeaders().getETag());
     }
 
 
@@ -141,7 +197,7 @@ public class InventoryControllerTest {
         doThrow(new IOException()).when(mockInventoryDAO).getProducts();
 
         // Invoke
-        ResponseEntity<Product[]> response = inventoryController.getProducts();
+        ResponseEntity<byte[]> response = inventoryController.getProducts(null);
 
         // Analyze
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR,response.getStatusCode());
@@ -297,4 +353,65 @@ public class InventoryControllerTest {
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR,status.getStatusCode());
 
     }
+
+    @Test
+    public void testExportProducts() throws IOException {
+        // Setup
+        Product product = new Product(1, "Lime", 0.5f, 0);
+        doAnswer(invocation -> {
+            ExportSink<Product> sink = invocation.getArgument(0);
+            sink.write(product);
+            return null;
+        }).when(mockInventoryDAO).exportProducts(any());
+        // Invoke
+        ResponseEntity<StreamingResponseBody> response = inventoryController.exportProducts();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        // Analyze
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(new ObjectMapper().writeValueAsString(product) + "\n", out.toString("UTF-8"));
+    }
+
+    private static InputStream json(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testCreateProducts() throws IOException {
+        // Setup
+        Product[] created = new Product[] { new Product(1, "Lime", 0.5f, 40), new Product(2, "Mint", 1.25f, 12) };
+        when(mockInventoryDAO.createProducts(any())).thenReturn(created);
+        // Invoke
+        ResponseEntity<Product[]> response = inventoryController.createProducts(json(
+                "[{\"name\": \"Lime\", \"price\": 0.5, \"quantity\": 40},"
+                + " {\"name\": \"Mint\", \"price\": 1.25, \"quantity\": 12}]"));
+        // Analyze
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertArrayEquals(created, response.getBody());
+    }
+
+    @Test
+    public void testCreateProductsInvalid() throws IOException {
+        // a product without a name, a negative quantity, an object instead of an array and bad JSON
+        String[] bodies = {
+            "[{\"name\": \"Lime\", \"price\": 0.5, \"quantity\": 40}, {\"price\": 1.25, \"quantity\": 12}]",
+            "[{\"name\": \"Lime\", \"price\": 0.5, \"quantity\": -1}]",
+            "{\"name\": \"Lime\", \"price\": 0.5, \"quantity\": 40}",
+            "[{\"name\": \"Lime\", \"price\": 0.5,"
+        };
+        for (String body : bodies) {
+            ResponseEntity<Product[]> response = inventoryController.createProducts(json(body));
+            assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode(), body);
+        }
+        verify(mockInventoryDAO, never()).createProducts(any());
+    }
+
+    @Test
+    public void testCreateProductsHandleException() throws IOException {
+        doThrow(new IOException()).when(mockInventoryDAO).createProducts(any());
+
+        ResponseEntity<Product[]> response = inventoryController.createProducts(json("[]"));
+
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+    }
 }
@@ -1,19 +1,37 @@
 package com.estore.api.estoreapi.controller;
 
 import com.estore.api.estoreapi.model.Kit;
+import com.estore.api.estoreapi.model.Suggestion;
+import com.estore.api.estoreapi.persistence.ExportSink;
 import com.estore.api.estoreapi.persistence.KitDAO;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
+import java.io.ByteArrayOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -81,6 +99,34 @@ public class KitControllerTest {
     
     }
 
+    @Test
+    public void testSuggestKits() throws IOException {
+        Suggestion[] suggestions = new Suggestion[1];
+        suggestions[0] = new Suggestion(99, "Lala paloza kit");
+        when(mockKitDAO.suggestKits("la", 50)).thenReturn(suggestions);
+
+        ResponseEntity<Suggestion[]> response = KitController.suggestKits("la", 500);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(suggestions, response.getBody());
+    }
+
+    @Test
+    public void testSuggestKitsBadLimit() {
+        ResponseEntity<Suggestion[]> response = KitController.suggestKits("la", 0);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    public void testSuggestKitsHandleException() throws IOException {
+        doThrow(new IOException()).when(mockKitDAO).suggestKits("la", 10);
+
+        ResponseEntity<Suggestion[]> response = KitController.suggestKits("la", 10);
+
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+    }
+
     @Test
     public void testKitSearchFail() throws IOException {
         // Setup
@@ -142,17 +188,106 @@ public class KitControllerTest {
 
         when(mockKitDAO.getKits()).thenReturn(kits);
 
-        ResponseEntity<Kit[]> response = KitController.getKits();
+        ResponseEntity<byte[]> response = KitController.getKits(null);
 
         assertEquals(HttpStatus.OK,response.getStatusCode());
-        assertEquals(kits,response.getBody());
+        assertArrayEquals(new ObjectMapper().writeValueAsBytes(kits),response.getBody());
+    }
+
+    @Test
+    public void testGetKitsCachedUntilVersionChanges() throws IOException {
+        Kit[] kits = new Kit[1];
+        kits[0] = new Kit(99, "Soda kit", 29.99f, 20, new ArrayList<>());
+        when(mockKitDAO.getVersion()).thenReturn(4L);
+        when(mockKitDAO.getKits()).thenReturn(kits);
+
+        ResponseEntity<byte[]> first = KitController.getKits(null);
+        ResponseEntity<byte[]> second = KitController.getKits(null);
+        verify(mockKitDAO, times(1)).getKits();
+        assertEquals(first.getBody(), second.getBody());
+
+        when(mockKitDAO.getVersion()).thenReturn(5L);
+        ResponseEntity<byte[]> third = KitController.getKits(null);
+        verify(mockKitDAO, times(2)).getKits();
+        assertNotEquals(first.getHeaders().getETag(), third.getHeaders().getETag());
+    }
+
+    @Test
+    public void testGetKitsCountsCacheHits() throws IOException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        Metrics.addRegistry(registry);
+        try {
+            KitController = new KitController(mockKitDAO);
+            when(mockKitDAO.getKits()).thenReturn(new Kit[0]);
+
+            KitController.getKits(null);
+            KitController.getKits(null);
+            KitController.getKits(null);
+
+            assertEquals(1, registry.get("estore.cache.requests").tags("cache", "kits", "result", "miss")
+                    .counter().count());
+            assertEquals(2, registry.get("estore.cache.requests").tags("cache", "kits", "result", "hit")
+                    .counter().count());
+        } finally {
+            Metrics.removeRegistry(registry);
+        }
+    }
+
+    @Test
+    public void testGetKitsNotModified() throws IOException {
+        when(mockKitDAO.getKits()).thenReturn(new Kit[0]);
+        String etag = KitController.getKits(null).getHeaders().getETag();
+
+        ResponseEntity<byte[]> response = KitController.getKits(etag);
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertEquals(etag, response.getHeaders().getETag());
+        assertNull(response.getBody());
+    }
+
+    @Test
+    public void testNotModifiedSkipsSerializing() throws IOException {
+        when(mockKitDAO.getVersion()).thenReturn(4L);
+        when(mockKitDAO.getKits()).thenReturn(new Kit[0]);
+        when(mockKitDAO.getKit(7)).thenReturn(new Kit(7, "Test Kit", 1f, 1, new ArrayList<>()));
+        String etag = KitController.getKits(null).getHeaders().getETag();
+
+        // nothing is cached for this kit yet, so it is looked up, but the client's copy is current
+        ResponseEntity<byte[]> response = KitController.getKit(7, etag);
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertNull(response.getBody());
+        verify(mockKitDAO).getKit(7);
+    }
+
+    @Test
+    public void testNotModifiedFromCacheSkipsLoading() throws IOException {
+        when(mockKitDAO.getVersion()).thenReturn(4L);
+        when(mockKitDAO.getKit(7)).thenReturn(new Kit(7, "Test Kit", 1f, 1, new ArrayList<>()));
+        String etag = KitController.getKit(7, null).getHeaders().getETag();
+
+        ResponseEntity<byte[]> response = KitController.getKit(7, etag);
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        verify(mockKitDAO, times(1)).getKit(7); // the cached view shows the kit exists
+    }
+
+    @Test
+    public void testMissingKitWithMatchingETag() throws IOException {
+        when(mockKitDAO.getVersion()).thenReturn(4L);
+        when(mockKitDAO.getKits()).thenReturn(new Kit[0]);
+        when(mockKitDAO.getKit(7)).thenReturn(null);
+        String etag = KitController.getKits(null).getHeaders().getETag();
+
+        assertEquals(HttpStatus.NOT_FOUND, KitController.getKit(7, etag).getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, KitController.getKit(7, "*").getStatusCode());
     }
 
     @Test
     public void testGetKitsHandleException() throws IOException {
         doThrow(new IOException()).when(mockKitDAO).getKits();
 
-        ResponseEntity<Kit[]> response = KitController.getKits();
+        ResponseEntity<byte[]> response = KitController.getKits(null);
 
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
     }
@@ -169,10 +304,10 @@ public class KitControllerTest {
 
         when(mockKitDAO.getKit(k.getId())).thenReturn(k);
 
-        ResponseEntity<Kit> response = KitController.getKit(k.getId());
+        ResponseEntity<byte[]> response = KitController.getKit(k.getId(), null);
 
         assertEquals(HttpStatus.OK,response.getStatusCode());
-        assertEquals(k,response.getBody());
+        assertArrayEquals(new ObjectMapper().writeValueAsBytes(k),response.getBody());
 
     
     }
@@ -183,7 +318,7 @@ public class KitControllerTest {
 
         when(mockKitDAO.getKit(kitID)).thenReturn(null);
 
-        ResponseEntity<Kit> response = KitController.getKit(kitID);
+        ResponseEntity<byte[]> response = KitController.getKit(kitID, null);
 
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
     }
@@ -194,7 +329,7 @@ public class KitControllerTest {
 
         doThrow(new IOException()).when(mockKitDAO).getKit(kitID);
 
-        ResponseEntity<Kit> response = KitController.getKit(kitID);
+        ResponseEntity<byte[]> response = KitController.getKit(kitID, null);
 
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
 
@@ -266,4 +401,63 @@ public class KitControllerTest {
         // analyze
         assertEquals(response.getStatusCode(), HttpStatus.INTERNAL_SERVER_ERROR);
     }
+
+    @Test
+    public void testExportKits() throws IOException {
+        // Setup
+        Kit kit = new Kit(1, "Mojito Kit", 9.99f, 0, new ArrayList<>());
+        doAnswer(invocation -> {
+            ExportSink<Kit> sink = invocation.getArgument(0);
+            sink.write(kit);
+            return null;
+        }).when(mockKitDAO).exportKits(any());
+        // Invoke
+        ResponseEntity<StreamingResponseBody> response = KitController.exportKits();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        // Analyze
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(new ObjectMapper().writeValueAsString(kit) + "\n", out.toString("UTF-8"));
+    }
+
+    private static InputStream json(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testCreateKits() throws IOException {
+        // Setup
+        Kit[] created = new Kit[] { new Kit(4, "Mojito Kit", 9.99f, 5, new ArrayList<>()) };
+        when(mockKitDAO.createKits(any())).thenReturn(created);
+        // Invoke
+        ResponseEntity<Kit[]> response = KitController.createKits(json(
+                "[{\"name\": \"Mojito Kit\", \"price\": 9.99, \"quantity\": 5, \"products_in_kit\": [1, 2]}]"));
+        // Analyze
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertArrayEquals(created, response.getBody());
+    }
+
+    @Test
+    public void testCreateKitsInvalid() throws IOException {
+        // a kit without products, a blank name and bad JSON
+        String[] bodies = {
+            "[{\"name\": \"Mojito Kit\", \"price\": 9.99, \"quantity\": 5}]",
+            "[{\"name\": \" \", \"price\": 9.99, \"quantity\": 5, \"products_in_kit\": []}]",
+            "[{"
+        };
+        for (String body : bodies) {
+            ResponseEntity<Kit[]> response = KitController.createKits(json(body));
+            assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode(), body);
+        }
+        verify(mockKitDAO, never()).createKits(any());
+    }
+
+    @Test
+    public void testCreateKitsHandleException() throws IOException {
+        doThrow(new IOException()).when(mockKitDAO).createKits(any());
+
+        ResponseEntity<Kit[]> response = KitController.createKits(json("[]"));
+
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+    }
 }
@@ -0,0 +1,65 @@
+package com.estore.api.estoreapi.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.estore.api.estoreapi.model.Kit;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Test the NdjsonExport class
+ */
+@Tag("Controller-tier")
+public class NdjsonExportTest {
+
+    @Test
+    public void testOneEntryPerLine() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        Kit first = new Kit(1, "Mojito Kit", 9.99f, 3, new ArrayList<>());
+        Kit second = new Kit(2, "Punch Kit", 4.5f, 0, new ArrayList<>());
+
+        ResponseEntity<StreamingResponseBody> response = NdjsonExport.respond(mapper, "kits.ndjson", sink -> {
+            sink.write(first);
+            sink.write(second);
+        });
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(NdjsonExport.APPLICATION_NDJSON, response.getHeaders().getContentType());
+        assertEquals("attachment; filename=\"kits.ndjson\"",
+                response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION));
+        assertEquals(mapper.writeValueAsString(first) + "\n" + mapper.writeValueAsString(second) + "\n",
+                new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testEmptyExport() throws IOException {
+        ResponseEntity<StreamingResponseBody> response = NdjsonExport.respond(new ObjectMapper(), "kits.ndjson",
+                sink -> {});
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        assertEquals(0, out.size());
+    }
+
+    @Test
+    public void testExportFails() {
+        ResponseEntity<StreamingResponseBody> response = NdjsonExport.respond(new ObjectMapper(), "kits.ndjson",
+                sink -> { throw new IOException(); });
+
+        assertThrows(IOException.class, () -> response.getBody().writeTo(new ByteArrayOutputStream()));
+    }
+}
@@ -2,9 +2,11 @@ package com.estore.api.estoreapi.controller;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -14,9 +16,12 @@ import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.estore.api.estoreapi.model.Kit;
 import com.estore.api.estoreapi.model.Order;
+import com.estore.api.estoreapi.model.OrderPage;
+import com.estore.api.estoreapi.persistence.ExportSink;
 import com.estore.api.estoreapi.persistence.OrderDAO;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -142,4 +147,63 @@ public class OrderControllerTest {
         // analyze
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, exceptionResponse.getStatusCode());
     }
+
+    @Test
+    public void testGetOrdersPage() throws IOException {
+        // a full page, capped at the largest page size
+        // setup
+        OrderPage page = new OrderPage(new Order[]{new Order(7, "valid", new ArrayList<Kit>())}, 7);
+        when(orderDao.getOrdersPage("valid", 3, OrderController.MAX_PAGE_SIZE, true)).thenReturn(page);
+        // invoke
+        ResponseEntity<OrderPage> validResponse = orderController.getOrdersPage("valid", 1000, 3, true);
+        // analyze
+        assertEquals(HttpStatus.OK, validResponse.getStatusCode());
+        assertEquals(page, validResponse.getBody());
+
+        // a limit below one
+        ResponseEntity<OrderPage> badResponse = orderController.getOrdersPage("valid", 0, null, false);
+        assertEquals(HttpStatus.BAD_REQUEST, badResponse.getStatusCode());
+
+        // IOException occurs
+        when(orderDao.getOrdersPage("error", null, 20, false)).thenThrow(new IOException());
+        ResponseEntity<OrderPage> exceptionResponse = orderController.getOrdersPage("error", 20, null, false);
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, exceptionResponse.getStatusCode());
+    }
+
+    @Test
+    public void testSearchOrdersPage() throws IOException {
+        // no error occurs
+        OrderPage page = new OrderPage(new Order[0], null);
+        when(orderDao.findOrdersPage("yes", "valid", null, 5, false)).thenReturn(page);
+        ResponseEntity<OrderPage> validResponse = orderController.searchOrdersPage("yes", "valid", 5, null, false);
+        assertEquals(HttpStatus.OK, validResponse.getStatusCode());
+        assertEquals(page, validResponse.getBody());
+
+        // a limit below one
+        ResponseEntity<OrderPage> badResponse = orderController.searchOrdersPage("yes", "valid", -1, null, false);
+        assertEquals(HttpStatus.BAD_REQUEST, badResponse.getStatusCode());
+
+        // IOException occurs
+        when(orderDao.findOrdersPage("yes", "error", null, 5, false)).thenThrow(new IOException());
+        ResponseEntity<OrderPage> exceptionResponse = orderController.searchOrdersPage("yes", "error", 5, null, false);
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, exceptionResponse.getStatusCode());
+    }
+
+    @Test
+    public void testExportOrders() throws IOException {
+        // setup
+        Order order = new Order(1, "testUser", new ArrayList<Kit>());
+        doAnswer(invocation -> {
+            ExportSink<Order> sink = invocation.getArgument(0);
+            sink.write(order);
+            return null;
+        }).when(orderDao).exportOrders(any());
+        // invoke
+        ResponseEntity<StreamingResponseBody> response = orderController.exportOrders();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        // analyze
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(new ObjectMapper().writeValueAsString(order) + "\n", out.toString("UTF-8"));
+    }
 }
@@ -0,0 +1,81 @@
+package com.estore.api.estoreapi.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import com.estore.api.estoreapi.persistence.UserDAO;
+
+/**
+ * Tests the ShardController class
+ */
+@Tag("Controller-tier")
+public class ShardControllerTest {
+    private CartShards mockShards;
+    private UserDAO mockUserDAO;
+    private ShardController shardController;
+
+    @BeforeEach
+    public void setup() {
+        mockShards = mock(CartShards.class);
+        mockUserDAO = mock(UserDAO.class);
+        when(mockUserDAO.authorize("admin", "secret")).thenReturn(true);
+        when(mockUserDAO.authorize("shopper", "secret")).thenReturn(true);
+        shardController = new ShardController(mockShards, mockUserDAO);
+    }
+
+    @Test
+    public void testGetShards() {
+        when(mockShards.getSelf()).thenReturn("http://a");
+        when(mockShards.getNodes()).thenReturn(List.of("http://a", "http://b"));
+
+        ResponseEntity<Map<String, Object>> response = shardController.getShards();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("http://a", response.getBody().get("self"));
+        assertEquals(List.of("http://a", "http://b"), response.getBody().get("nodes"));
+    }
+
+    @Test
+    public void testSetNodes() {
+        List<String> nodes = List.of("http://a", "http://b");
+        when(mockShards.getNodes()).thenReturn(nodes);
+
+        ResponseEntity<List<String>> response = shardController.setNodes("admin", "secret", nodes);
+
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertEquals(nodes, response.getBody());
+        verify(mockShards).setNodes(nodes);
+    }
+
+    @Test
+    public void testSetNodesNotAdmin() {
+        List<String> nodes = List.of("http://a", "http://b");
+
+        assertEquals(HttpStatus.UNAUTHORIZED, shardController.setNodes("admin", "wrong", nodes).getStatusCode());
+        assertEquals(HttpStatus.UNAUTHORIZED, shardController.setNodes("shopper", "secret", nodes).getStatusCode());
+        verify(mockShards, never()).setNodes(any());
+    }
+
+    @Test
+    public void testSetNodesDisallowedHost() {
+        List<String> nodes = List.of("http://a", "http://169.254.169.254");
+        when(mockShards.setNodes(nodes)).thenThrow(new IllegalArgumentException("not allowed"));
+
+        ResponseEntity<List<String>> response = shardController.setNodes("admin", "secret", nodes);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+}
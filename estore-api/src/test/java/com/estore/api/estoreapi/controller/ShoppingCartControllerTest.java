@@ -2,13 +2,17 @@ package com.estore.api.estoreapi.controller;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import com.estore.api.estoreapi.model.Kit;
+import com.estore.api.estoreapi.model.ShoppingCart;
 import com.estore.api.estoreapi.model.ShoppingCartKit;
+import com.estore.api.estoreapi.persistence.CartStore;
 import com.estore.api.estoreapi.persistence.KitDAO;
+import com.estore.api.estoreapi.persistence.StockLedger;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
@@ -17,18 +21,38 @@ import org.springframework.http.ResponseEntity;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @Tag("Controller-tier")
 public class ShoppingCartControllerTest {
 
     private ShoppingCartController shoppingCartController;
     private KitDAO mockKitDAO;
+    private CartStore cartStore;
+    private StockLedger stock;
 
 
     @BeforeEach
     public void setup() {
         mockKitDAO = mock(KitDAO.class);
-        shoppingCartController = new ShoppingCartController(mockKitDAO);
+        cartStore = new CartStore();
+        shoppingCartController = new ShoppingCartController(mockKitDAO, cartStore);
+
+        // The mock DAO reserves stock the way the file DAO does
+        stock = new StockLedger();
+        when(mockKitDAO.reserveStock(anyInt(), anyInt()))
+                .thenAnswer(invocation -> stock.reserve(invocation.getArgument(0), invocation.getArgument(1)));
+        when(mockKitDAO.releaseStock(anyInt(), anyInt()))
+                .thenAnswer(invocation -> stock.release(invocation.getArgument(0), invocation.getArgument(1)));
+    }
+
+    private void stubKit(Kit kit) throws IOException {
+        when(mockKitDAO.getKit(kit.getId())).thenReturn(kit);
+        stock.set(kit.getId(), kit.getQuantity());
     }
 
     @Test
@@ -42,7 +66,7 @@ public class ShoppingCartControllerTest {
         products.add(3);
         
         Kit kit1 = new Kit(kitId, "Soda", 2.99f, 20, products);
-        when(mockKitDAO.getKit(kitId)).thenReturn(kit1);
+        stubKit(kit1);
 
         ResponseEntity<Void> response = shoppingCartController.addToCart(userId, kitId, quantity);
 
@@ -71,7 +95,7 @@ public class ShoppingCartControllerTest {
         products.add(2);
         products.add(3);
         Kit kit = new Kit(kitId, "Soda", 2.99f, 20, products);
-        when(mockKitDAO.getKit(kitId)).thenReturn(kit);
+        stubKit(kit);
 
         ResponseEntity<Void> response = shoppingCartController.addToCart(userId, kitId, quantity);
 
@@ -88,13 +112,50 @@ public class ShoppingCartControllerTest {
         products.add(2);
         products.add(3);
         Kit kit = new Kit(kitId, "Soda", 2.99f, 0, products);
-        when(mockKitDAO.getKit(kitId)).thenReturn(kit);
+        stubKit(kit);
 
         ResponseEntity<Void> response = shoppingCartController.addToCart(userId, kitId, quantity);
 
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
     }
 
+    @Test
+    public void testAddToCartNonPositiveQuantity() throws IOException {
+        Kit kit = new Kit(1, "Soda", 2.99f, 20, new ArrayList<>());
+        stubKit(kit);
+
+        assertEquals(HttpStatus.BAD_REQUEST, shoppingCartController.addToCart(123, 1, -5).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, shoppingCartController.addToCart(123, 1, 0).getStatusCode());
+
+        assertEquals(20, stock.get(1));
+        assertEquals(0, cartStore.getCart(123).getKitQuantity(kit));
+    }
+
+    @Test
+    public void testRemoveFromCartNonPositiveQuantity() throws IOException {
+        Kit kit = new Kit(1, "Soda", 2.99f, 20, new ArrayList<>());
+        stubKit(kit);
+        shoppingCartController.addToCart(123, 1, 5);
+
+        ResponseEntity<Void> response = shoppingCartController.removeFromCart(123, 1, -5);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals(15, stock.get(1));
+        assertEquals(5, cartStore.getCart(123).getKitQuantity(kit));
+    }
+
+    @Test
+    public void testAddToCartReservesStock() throws IOException {
+        Kit kit = new Kit(1, "Soda", 2.99f, 20, new ArrayList<>());
+        stubKit(kit);
+
+        shoppingCartController.addToCart(123, 1, 5);
+        shoppingCartController.removeFromCart(123, 1, 2);
+
+        assertEquals(17, stock.get(1));
+        assertEquals(3, cartStore.getCart(123).getKitQuantity(kit));
+    }
+
     @Test
     public void testAddToCartHandleException() throws IOException {
         int userId = 123;
@@ -118,7 +179,7 @@ public class ShoppingCartControllerTest {
         products.add(3);
         
         Kit kit = new Kit(kitId, "Soda", 2.99f, 20, products);
-        when(mockKitDAO.getKit(kitId)).thenReturn(kit);
+        stubKit(kit);
         // Assuming addtoCart is successful and the kit is added
         shoppingCartController.addToCart(userId, kitId, quantity);
 
@@ -150,7 +211,7 @@ public class ShoppingCartControllerTest {
         products.add(2);
         products.add(3);
         Kit kit = new Kit(kitId, "Soda", 2.99f, 20, products);
-        when(mockKitDAO.getKit(kitId)).thenReturn(kit);
+        stubKit(kit);
         shoppingCartController.addToCart(userId, kitId, quantity); // Add kit to cart before attempting to remove
 
         ResponseEntity<Void> response = shoppingCartController.removeFromCart(userId, kitId, quantity);
@@ -183,8 +244,8 @@ public class ShoppingCartControllerTest {
         products2.add(5);
         Kit kit1 = new Kit(kitId1, "Milk", 2.99f, 50, products);
         Kit kit2 = new Kit(kitId2, "Cola", 1.99f, 50, products2);
-        when(mockKitDAO.getKit(kitId1)).thenReturn(kit1);
-        when(mockKitDAO.getKit(kitId2)).thenReturn(kit2);
+        stubKit(kit1);
+        stubKit(kit2);
         shoppingCartController.addToCart(userId, kitId1, 3); // Add kits to the cart
         shoppingCartController.addToCart(userId, kitId2, 4);
 
@@ -216,8 +277,8 @@ public class ShoppingCartControllerTest {
         products2.add(5);
         Kit kit1 = new Kit(kitId1, "Milk", 2.99f, 50, products);
         Kit kit2 = new Kit(kitId2, "Cola", 1.99f, 50, products2);
-        when(mockKitDAO.getKit(kitId1)).thenReturn(kit1);
-        when(mockKitDAO.getKit(kitId2)).thenReturn(kit2);
+        stubKit(kit1);
+        stubKit(kit2);
         shoppingCartController.addToCart(userId, kitId1, 2); // Add kits to the cart
         shoppingCartController.addToCart(userId, kitId2, 3);
 
@@ -259,8 +320,8 @@ public class ShoppingCartControllerTest {
         products2.add(5);
         Kit kit1 = new Kit(kitId1, "Milk", 2.99f, 50, products);
         Kit kit2 = new Kit(kitId2, "Cola", 1.99f, 50, products2);
-        when(mockKitDAO.getKit(kitId1)).thenReturn(kit1);
-        when(mockKitDAO.getKit(kitId2)).thenReturn(kit2);
+        stubKit(kit1);
+        stubKit(kit2);
         shoppingCartController.addToCart(userId, kitId1, 2); // Add kits to the cart
         shoppingCartController.addToCart(userId, kitId2, 3);
 
@@ -283,13 +344,54 @@ public class ShoppingCartControllerTest {
         products2.add(5);
         Kit kit1 = new Kit(kitId1, "Milk", 2.99f, 50, products);
         Kit kit2 = new Kit(kitId2, "Cola", 1.99f, 50, products2);
-        when(mockKitDAO.getKit(kitId1)).thenReturn(kit1);
-        when(mockKitDAO.getKit(kitId2)).thenReturn(kit2);
+        stubKit(kit1);
+        stubKit(kit2);
         shoppingCartController.addToCart(userId, kitId1, 2); // Add kits to the cart
         shoppingCartController.addToCart(userId, kitId2, 3);
 
         ResponseEntity<Void> response = shoppingCartController.clearCart(userId);
         assertEquals(HttpStatus.OK, response.getStatusCode());
     }
-}
 
+    @Test
+    public void testConcurrentAddAndRemoveLoseNothing() throws Exception {
+        int kitId = 1;
+        int stock = 1_000;
+        int threads = 16;
+        int rounds = 500;
+        Kit kit = new Kit(kitId, "Soda", 2.99f, stock, new ArrayList<>());
+        stubKit(kit);
+
+        // Pairs of threads share a cart; every thread adds two and removes one each round
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int userId = t / 2;
+            Callable<Integer> shopper = () -> {
+                int kept = 0;
+                for (int i = 0; i < rounds; i++) {
+                    if (shoppingCartController.addToCart(userId, kitId, 2).getStatusCode() == HttpStatus.OK)
+                        kept += 2;
+                    if (shoppingCartController.removeFromCart(userId, kitId, 1).getStatusCode() == HttpStatus.OK)
+                        kept -= 1;
+                }
+                return kept;
+            };
+            results.add(executor.submit(shopper));
+        }
+
+        int kept = 0;
+        for (Future<Integer> result : results)
+            kept += result.get();
+        executor.shutdown();
+
+        int inCarts = 0;
+        for (int userId = 0; userId < threads / 2; userId++) {
+            ShoppingCart cart = cartStore.getCart(userId);
+            inCarts += cart.getKitQuantity(kit);
+        }
+        assertEquals(kept, inCarts);
+        assertEquals(stock, this.stock.get(kitId) + inCarts);
+        assertTrue(this.stock.get(kitId) >= 0);
+    }
+}
@@ -44,6 +44,16 @@ public class UserControllerTest {
         testUsers[1] = testCustomer;
     }
 
+    // Stubs the username lookups to find the given users and no others
+    private void stubUsers(User... users) {
+        when(mockUserDao.findByUsername(anyString())).thenReturn(null);
+        when(mockUserDao.existsByUsername(anyString())).thenReturn(false);
+        for (User user : users) {
+            when(mockUserDao.findByUsername(user.getUsername())).thenReturn(user);
+            when(mockUserDao.existsByUsername(user.getUsername())).thenReturn(true);
+        }
+    }
+
     @Test
     public void testCreateUserSuccess() throws IOException{
         // Expected values
@@ -56,7 +66,7 @@ public class UserControllerTest {
         User u = new User(id, username, password, name, role);
 
         when(mockUserDao.createUser(username, password, name)).thenReturn(u);
-        when(mockUserDao.getUsers()).thenReturn(testUsers);
+        stubUsers(testUsers);
 
 
         ResponseEntity<User> r = UserController.registerUser(username, password, name);
@@ -75,7 +85,7 @@ public class UserControllerTest {
 
 
         when(mockUserDao.createUser(username, password, name)).thenReturn(null);
-        when(mockUserDao.getUsers()).thenReturn(testUsers);
+        stubUsers(testUsers);
 
         ResponseEntity<User> r = UserController.registerUser(username, password, name);
         // analyze
@@ -94,7 +104,7 @@ public class UserControllerTest {
         User u = new User(id, username, password, name, role);
 
         when(mockUserDao.createUser(username, password, name)).thenReturn(u);
-        when(mockUserDao.getUsers()).thenReturn(testUsers);
+        stubUsers(testUsers);
 
         ResponseEntity<User> r = UserController.registerUser(username, password, name);
         // analyze
@@ -111,7 +121,7 @@ public class UserControllerTest {
 
         User u = new User(id, username, password, name, role);
         doThrow(new IOException()).when(mockUserDao).createUser(username, password, name);
-        when(mockUserDao.getUsers()).thenReturn(testUsers);
+        stubUsers(testUsers);
 
         ResponseEntity<User> r = UserController.registerUser(username, password, name);
 
@@ -171,7 +181,7 @@ public class UserControllerTest {
         User.UserRole role = User.UserRole.CUSTOMER;
         User foundUser = new User(id, username, password, name, role);
 
-        when(mockUserDao.getUsers()).thenReturn(new User[]{foundUser});
+        stubUsers(new User[]{foundUser});
 
         ResponseEntity<User> response = UserController.getUserByName(username);
 
@@ -185,7 +195,7 @@ public class UserControllerTest {
         // Expected values
         String username = "nonExistingUser";
 
-        when(mockUserDao.getUsers()).thenReturn(new User[]{});
+        stubUsers(new User[]{});
 
         ResponseEntity<User> response = UserController.getUserByName(username);
 
@@ -206,7 +216,7 @@ public class UserControllerTest {
         User originalUser = new User(id, originalUsername, password, name, role);
 
         when(mockUserDao.createUser(originalUsername, password, name)).thenReturn(originalUser);
-        when(mockUserDao.getUsers()).thenReturn(testUsers);
+        stubUsers(testUsers);
 
         ResponseEntity<User> r = UserController.registerUser(originalUsername, password, name);
         // analyze
@@ -216,7 +226,7 @@ public class UserControllerTest {
 
         // This represents the user after the username has been successfully updated.
         User updatedUser = new User(id, newUsername, password, name, role);
-        when(mockUserDao.getUsers()).thenReturn(testUsers);
+        stubUsers(testUsers);
 
         // Simulate successful username update operation.
         when(mockUserDao.getUser(id)).thenReturn(originalUser);
@@ -245,7 +255,7 @@ public class UserControllerTest {
         User u = new User(id, username, password, name, role);
 
         when(mockUserDao.createUser(username, password, name)).thenReturn(u);
-        when(mockUserDao.getUsers()).thenReturn(testUsers);
+        stubUsers(testUsers);
 
 
         ResponseEntity<User> r = UserController.registerUser(username, password, name);
@@ -274,7 +284,7 @@ public class UserControllerTest {
         User existingUser = new User(id, username, password, name, role);
 
         when(mockUserDao.createUser(username, password, name)).thenReturn(existingUser);
-        when(mockUserDao.getUsers()).thenReturn(testUsers);
+        stubUsers(testUsers);
 
 
         ResponseEntity<User> r = UserController.registerUser(username, password, name);
@@ -289,7 +299,7 @@ public class UserControllerTest {
         // Simulate that another user with the newUsername already exists
         User conflictingUser = new User(103, newUsername, "anotherPass", "Another User", User.UserRole.CUSTOMER);
         User[] users = new User[] { existingUser, conflictingUser };
-        when(mockUserDao.getUsers()).thenReturn(users);
+        stubUsers(users);
     
         // Execute update username
         ResponseEntity<User> updateResponse = UserController.updateUsername(id, newUsername);
@@ -313,8 +323,8 @@ public class UserControllerTest {
         // Simulate the user is found for the provided ID.
         when(mockUserDao.getUser(id)).thenReturn(existingUser);
 
-        // No other user has the new username, so getUsers() can return just the existing user for simplicity.
-        when(mockUserDao.getUsers()).thenReturn(new User[] { existingUser });
+        // No other user has the new username, so only the existing user can be looked up.
+        stubUsers(new User[] { existingUser });
 
         String newUsername = "newUser";
 
@@ -340,7 +350,7 @@ public class UserControllerTest {
 
         User u = new User(id, username, password, name, role);
         when(mockUserDao.createUser(username, password, name)).thenReturn(u);
-        when(mockUserDao.getUsers()).thenReturn(testUsers);
+        stubUsers(testUsers);
 
         ResponseEntity<User> r = UserController.registerUser(username, password, name);
 
@@ -369,7 +379,7 @@ public class UserControllerTest {
         User u = new User(id, username, password, name, role);
 
         when(mockUserDao.createUser(username, password, name)).thenReturn(u);
-        when(mockUserDao.getUsers()).thenReturn(testUsers);
+        stubUsers(testUsers);
 
 
         ResponseEntity<User> r = UserController.registerUser(username, password, name);
@@ -404,7 +414,7 @@ public class UserControllerTest {
         User u = new User(id, username, password, name, role);
 
         when(mockUserDao.createUser(username, password, name)).thenReturn(u);
-        when(mockUserDao.getUsers()).thenReturn(testUsers);
+        stubUsers(testUsers);
 
 
         ResponseEntity<User> r = UserController.registerUser(username, password, name);
@@ -434,7 +444,7 @@ public class UserControllerTest {
         User u = new User(id, username, password, name, role);
 
         when(mockUserDao.createUser(username, password, name)).thenReturn(u);
-        when(mockUserDao.getUsers()).thenReturn(testUsers);
+        stubUsers(testUsers);
 
 
         ResponseEntity<User> r = UserController.registerUser(username, password, name);
@@ -465,7 +475,7 @@ public class UserControllerTest {
         User u = new User(id, username, password, name, role);
 
         when(mockUserDao.createUser(username, password, name)).thenReturn(u);
-        when(mockUserDao.getUsers()).thenReturn(testUsers);
+        stubUsers(testUsers);
 
 
         ResponseEntity<User> r = UserController.registerUser(username, password, name);
@@ -494,7 +504,7 @@ public class UserControllerTest {
         User u = new User(id, username, password, name, role);
 
         when(mockUserDao.createUser(username, password, name)).thenReturn(u);
-        when(mockUserDao.getUsers()).thenReturn(testUsers);
+        stubUsers(testUsers);
 
 
         ResponseEntity<User> r = UserController.registerUser(username, password, name);
@@ -529,7 +539,7 @@ public class UserControllerTest {
         User u = new User(id, username, password, name, role);
 
         when(mockUserDao.createUser(username, password, name)).thenReturn(u);
-        when(mockUserDao.getUsers()).thenReturn(testUsers);
+        stubUsers(testUsers);
 
 
         ResponseEntity<User> r = UserController.registerUser(username, password, name);
@@ -559,7 +569,7 @@ public class UserControllerTest {
         User u = new User(id, username, password, name, role);
 
         when(mockUserDao.createUser(username, password, name)).thenReturn(u);
-        when(mockUserDao.getUsers()).thenReturn(testUsers);
+        stubUsers(testUsers);
 
 
         ResponseEntity<User> r = UserController.registerUser(username, password, name);
@@ -590,7 +600,7 @@ public class UserControllerTest {
         User u = new User(id, username, password, name, role);
 
         when(mockUserDao.createUser(username, password, name)).thenReturn(u);
-        when(mockUserDao.getUsers()).thenReturn(testUsers);
+        stubUsers(testUsers);
 
 
         ResponseEntity<User> r = UserController.registerUser(username, password, name);
@@ -649,7 +659,7 @@ public class UserControllerTest {
         User.UserRole role = User.UserRole.CUSTOMER;
         User expectedUser = new User(id, username, password, "User Name", role);
 
-        when(mockUserDao.getUsers()).thenReturn(new User[]{ expectedUser });
+        stubUsers(new User[]{ expectedUser });
         when(mockUserDao.authorize(username, password)).thenReturn(true);
 
         // Execute the login method. 
@@ -668,7 +678,7 @@ public class UserControllerTest {
         String username = "admin";
         String password = "000000";
         // Simulate authorization failure
-        when(mockUserDao.getUsers()).thenReturn(new User[]{});
+        stubUsers(new User[]{});
         when(mockUserDao.authorize(username, password)).thenReturn(false);
 
         ResponseEntity<LoginResponse> response = UserController.login(username, password);
@@ -690,7 +700,7 @@ public void testLoginUser() {
     User.UserRole role = User.UserRole.CUSTOMER;
     User expectedUser = new User(id, username, password, "User Name", role);
 
-    when(mockUserDao.getUsers()).thenReturn(new User[]{ expectedUser });
+    stubUsers(new User[]{ expectedUser });
     when(mockUserDao.authorize(username, password)).thenReturn(true);
 
     // Execute the login method
@@ -711,7 +721,7 @@ public void testLoginFail() {
     String username = "user";
     String password = "wrongPassword";
 
-    when(mockUserDao.getUsers()).thenReturn(new User[]{});
+    stubUsers(new User[]{});
     when(mockUserDao.authorize(username, password)).thenReturn(false);
 
     // Execute the login method
@@ -0,0 +1,27 @@
+package com.estore.api.estoreapi.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the Cents class
+ */
+@Tag("Model-tier")
+public class CentsTest {
+
+    @Test
+    public void testOf() {
+        assertEquals(3199, Cents.of(31.99f)); // the float is just under 31.99
+        assertEquals(1029, Cents.of(10.29));
+        assertEquals(0, Cents.of(0));
+        assertEquals(-150, Cents.of(-1.5));
+    }
+
+    @Test
+    public void testToDollars() {
+        assertEquals(31.99f, Cents.toDollars(3199));
+        assertEquals(50f, Cents.toDollars(5000));
+    }
+}
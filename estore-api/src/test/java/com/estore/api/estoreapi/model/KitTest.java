@@ -1,12 +1,18 @@
 package com.estore.api.estoreapi.model;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.IOException;
 import java.util.ArrayList;
 
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 
 
 @Tag("Model-tier")
@@ -31,7 +37,7 @@ public class KitTest {
         assertEquals(expected_name, k.getName());
         assertEquals(expected_price, k.getPrice());
         assertEquals(expected_quant,k.getQuantity());
-        assertEquals(expected_products, k.getProductsInKit());
+        assertArrayEquals(new int[] {1, 2, 3}, k.getProductsInKit());
         
     }
 
@@ -124,4 +130,29 @@ public class KitTest {
     }
 
 
+
+    @Test
+    public void testProductsInKitJson() throws IOException {
+        // Setup
+        ObjectMapper mapper = new ObjectMapper();
+        Kit k = new Kit(99, "Test Kit", 30.99f, 35, new int[] {1, 2, 3});
+        // Invoke
+        String json = mapper.writeValueAsString(k);
+        Kit read = mapper.readValue(json, Kit.class);
+        // Analyze - the ids are written as a plain array under the same field
+        assertTrue(json.contains("\"products_in_kit\":[1,2,3]"));
+        assertArrayEquals(new int[] {1, 2, 3}, read.getProductsInKit());
+    }
+
+    @Test
+    public void testEqualsById() {
+        // Setup
+        Kit k = new Kit(99, "Test Kit", 30.99f, 35, new int[] {1, 2, 3});
+        Kit restocked = k.withId(99);
+        restocked.setQuantity(40);
+        // Analyze - a copy with new stock is still the same kit, another id is not
+        assertEquals(k, restocked);
+        assertEquals(k.hashCode(), restocked.hashCode());
+        assertNotEquals(k, k.withId(100));
+    }
 }
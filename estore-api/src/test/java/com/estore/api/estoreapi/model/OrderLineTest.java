@@ -0,0 +1,65 @@
+package com.estore.api.estoreapi.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the OrderLine class
+ */
+@Tag("Model-tier")
+public class OrderLineTest {
+
+    @Test
+    public void testOf() {
+        Kit kit = new Kit(2, "Kit 2", 31.99f, 3, new ArrayList<>(List.of(4, 5, 6)));
+
+        OrderLine line = OrderLine.of(kit);
+
+        assertEquals(2, line.getKitId());
+        assertEquals("Kit 2", line.getName());
+        assertEquals(3199, line.getUnitPriceCents());
+        assertEquals(3, line.getQuantity());
+        assertArrayEquals(new int[] {4, 5, 6}, line.getProductsInKit());
+    }
+
+    @Test
+    public void testToKit() {
+        OrderLine line = new OrderLine(2, "Kit 2", 3199, 3, new int[] {4, 5, 6});
+
+        Kit kit = line.toKit();
+
+        assertEquals(2, kit.getId());
+        assertEquals("Kit 2", kit.getName());
+        assertEquals(31.99f, kit.getPrice());
+        assertEquals(3, kit.getQuantity());
+        assertArrayEquals(new int[] {4, 5, 6}, kit.getProductsInKit());
+    }
+
+    @Test
+    public void testPriceKeptToTheCent() {
+        // more cents than a float can hold exactly
+        OrderLine line = new OrderLine(2, "Kit 2", 1_000_000_001L, 1, null);
+
+        Kit kit = line.toKit();
+
+        assertEquals(1_000_000_001L, kit.getPriceCents());
+        assertEquals(1_000_000_001L, OrderLine.of(kit).getUnitPriceCents());
+    }
+
+    @Test
+    public void testNamesAreShared() {
+        OrderLine first = new OrderLine(1, new String("Shared Kit"), 100, 1, null);
+        OrderLine second = new OrderLine(1, new String("Shared Kit"), 100, 2, null);
+
+        assertSame(first.getName(), second.getName());
+        assertNull(first.toKit().getProductsInKit());
+    }
+}
@@ -0,0 +1,39 @@
+package com.estore.api.estoreapi.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Test the OrderPage class
+ */
+@Tag("Model-tier")
+public class OrderPageTest {
+
+    @Test
+    public void testNewOrderPage() {
+        Order[] orders = new Order[] { new Order(4, "test", new ArrayList<Kit>()) };
+        OrderPage page = new OrderPage(orders, 4);
+
+        assertArrayEquals(orders, page.getOrders());
+        assertEquals(4, page.getNextCursor());
+    }
+
+    @Test
+    public void testLastPageJson() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        OrderPage page = new OrderPage(new Order[0], null);
+
+        OrderPage read = mapper.readValue(mapper.writeValueAsString(page), OrderPage.class);
+
+        assertEquals(0, read.getOrders().length);
+        assertNull(read.getNextCursor());
+    }
+}
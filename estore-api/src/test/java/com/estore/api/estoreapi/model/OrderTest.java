@@ -5,12 +5,15 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.IOException;
 import java.util.ArrayList;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 /**
  * Unit tests for the Order class
  * 
@@ -54,8 +57,15 @@ public class OrderTest {
      */
     @Test
     public void testGetKits() {
-        // these should be equivalent since the order class doesn't create a new list, it just uses the one provided
-        assertEquals(testOrder.getKits(), testList); 
+        // the kits are rebuilt from the order's lines, so they match the ones provided field for field
+        ArrayList<Kit> kits = testOrder.getKits();
+        assertEquals(testList.size(), kits.size());
+        for (int i = 0; i < kits.size(); i++) {
+            assertEquals(testList.get(i).getId(), kits.get(i).getId());
+            assertEquals(testList.get(i).getName(), kits.get(i).getName());
+            assertEquals(testList.get(i).getPrice(), kits.get(i).getPrice());
+            assertEquals(testList.get(i).getQuantity(), kits.get(i).getQuantity());
+        }
     }
 
     /**
@@ -75,7 +85,7 @@ public class OrderTest {
         Kit testKit = new Kit(100, "test", 50.0f, 10, new ArrayList<>());
         testOrder.addKit(testKit);
         ArrayList<Kit> resultingList = testOrder.getKits();
-        assertTrue(resultingList.contains(testKit));
+        assertEquals(testKit.getId(), resultingList.get(resultingList.size() - 1).getId());
         // adding a kit that already exists
         int initialLength = testOrder.getKits().size();
         testOrder.addKit(firstTestKit); // this kit already exists in the order
@@ -119,6 +129,22 @@ public class OrderTest {
         assertTrue(testOrder.containsMatchingKit(""));
     }
 
+    /**
+     * This method tests that an order is written with its kits and read back from its lines
+     */
+    @Test
+    public void testKitsInOrderJson() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        String json = mapper.writeValueAsString(testOrder);
+        Order read = mapper.readValue(json, Order.class);
+
+        assertTrue(json.contains("\"kits_in_order\""));
+        assertFalse(json.contains("\"lines\""));
+        assertEquals(3, read.getLines().length);
+        assertEquals(500, read.getLines()[0].getUnitPriceCents());
+        assertEquals("def", read.getKits().get(1).getName());
+    }
+
     /**
      * This method tests the getUser method in the Order class
      */
@@ -1,5 +1,8 @@
 package com.estore.api.estoreapi.model;
 
+import java.io.IOException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 
@@ -102,4 +105,17 @@ public class ProductTest {
         assertEquals(expected_string,actual_string);
     }
 
+    @Test
+    public void testPriceJsonKeptInCents() throws IOException {
+        // Setup
+        ObjectMapper mapper = new ObjectMapper();
+        // Invoke - a price too precise for a float to hold to the cent
+        Product p = mapper.readValue("{\"id\":1,\"name\":\"Gold Flakes\",\"price\":987654.32,\"quantity\":1}",
+                Product.class);
+        String json = mapper.writeValueAsString(p);
+        // Analyze
+        assertEquals(98765432L, p.getPriceCents());
+        assertEquals("{\"id\":1,\"name\":\"Gold Flakes\",\"price\":987654.32,\"quantity\":1}", json);
+        assertEquals(98765432L, p.withId(2).getPriceCents());
+    }
 }
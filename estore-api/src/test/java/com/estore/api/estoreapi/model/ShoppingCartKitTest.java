@@ -39,6 +39,21 @@ public class ShoppingCartKitTest {
         assertEquals(newKit.getName(), name);
     }
 
+    @Test
+    public void testWholeDollarPrice() {
+        ShoppingCartKit newKit = new ShoppingCartKit(kitID, quantity, name, 12); // an int is dollars, not cents
+        assertEquals(12.00f, newKit.getPrice());
+    }
+
+    @Test
+    public void testOfCents() {
+        ShoppingCartKit newKit = ShoppingCartKit.ofCents(kitID, quantity, name, 1299);
+        assertEquals(kitID, newKit.getID());
+        assertEquals(quantity, newKit.getQuantity());
+        assertEquals(name, newKit.getName());
+        assertEquals(12.99f, newKit.getPrice());
+    }
+
     @Test
     public void testGetID() {
         assertEquals(kit1.getID(), kitID);
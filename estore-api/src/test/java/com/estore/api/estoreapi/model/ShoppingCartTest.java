@@ -77,4 +77,21 @@ public class ShoppingCartTest {
         cart.clearCart();
         assertTrue(cart.getKits().isEmpty(), "Cart should be completely cleared");
     }
+    /**
+     * Tests that the total follows every add, remove and clear, and stays exact in cents.
+     */
+    @Test
+    public void testTotalKeptInCents() {
+        Kit dime = new Kit(3, "Dime", 0.10f, 50, new int[0]);
+        cart.addKit(dime, 1);
+        cart.addKit(dime, 2);
+        assertEquals(30, cart.getTotalCents(), "Three dimes should be exactly 30 cents");
+        cart.addKit(kit1, 2);
+        cart.removeKit(kit1, 5); // only 2 are in the cart
+        cart.removeKit(dime, 1);
+        assertEquals(20, cart.getTotalCents(), "Removed kits should come off the total");
+        assertEquals(0.20f, cart.getTotalCost());
+        cart.clearCart();
+        assertEquals(0, cart.getTotalCents(), "An empty cart should cost nothing");
+    }
 }
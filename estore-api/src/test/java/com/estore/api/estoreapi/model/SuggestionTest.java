@@ -0,0 +1,21 @@
+package com.estore.api.estoreapi.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test the Suggestion class
+ */
+@Tag("Model-tier")
+public class SuggestionTest {
+
+    @Test
+    public void testNewSuggestion() {
+        Suggestion suggestion = new Suggestion(7, "Mojito Kit");
+
+        assertEquals(7, suggestion.getId());
+        assertEquals("Mojito Kit", suggestion.getName());
+    }
+}
@@ -0,0 +1,213 @@
+package com.estore.api.estoreapi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.estore.api.estoreapi.model.Kit;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Tests the CartFileDAO class
+ */
+@Tag("Persistence-tier")
+public class CartFileDAOTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path snapshotFile;
+    private Path journalFile;
+    private ObjectMapper objectMapper;
+    private KitDAO mockKitDAO;
+    private Kit soda;
+    private Kit juice;
+    private CartFileDAO live; // the DAO opened last; earlier ones were closed or left as if crashed
+
+    @BeforeEach
+    public void setupTests() throws IOException {
+        snapshotFile = tempDir.resolve("carts.json");
+        journalFile = tempDir.resolve("carts.journal");
+        objectMapper = new ObjectMapper();
+        mockKitDAO = mock(KitDAO.class);
+        soda = new Kit(1, "Soda", 2.99f, 10, new ArrayList<>());
+        juice = new Kit(2, "Juice", 3.99f, 5, new ArrayList<>());
+        when(mockKitDAO.getKit(1)).thenReturn(soda);
+        when(mockKitDAO.getKit(2)).thenReturn(juice);
+    }
+
+    @AfterEach
+    public void closeDAO() throws IOException {
+        // closed so no snapshot is written in the background once the directory is deleted
+        if (live != null)
+            live.close();
+    }
+
+    private CartFileDAO open(int compactThreshold) throws IOException {
+        return open(compactThreshold, 0);
+    }
+
+    private CartFileDAO open(int compactThreshold, long idleTtlMillis) throws IOException {
+        CartFileDAO dao = new CartFileDAO(mockKitDAO, objectMapper, snapshotFile.toString(),
+                journalFile.toString(), compactThreshold, idleTtlMillis, 0);
+        live = dao;
+        return dao;
+    }
+
+    private void journal(String... records) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (String record : records)
+            lines.append(record).append('\n');
+        Files.write(journalFile, lines.toString().getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    @Test
+    public void testStartsEmpty() throws IOException {
+        CartFileDAO dao = open(1000);
+
+        assertEquals(0, dao.getLiveCarts());
+        assertFalse(Files.exists(snapshotFile));
+    }
+
+    @Test
+    public void testRestoresCartsAfterRestart() throws IOException {
+        CartFileDAO dao = open(1000);
+        dao.addKit(1, soda, 3);
+        dao.addKit(1, juice, 2);
+        dao.removeKit(1, soda, 1);
+        dao.addKit(2, soda, 4);
+        dao.addKit(3, juice, 1);
+        dao.clearCart(3);
+        dao.close();
+
+        assertTrue(Files.exists(snapshotFile));
+        assertEquals(0, Files.size(journalFile)); // folded into the snapshot on shutdown
+
+        CartFileDAO restarted = open(1000);
+        assertEquals(2, restarted.getCart(1).getKitQuantity(soda));
+        assertEquals(2, restarted.getCart(1).getKitQuantity(juice));
+        assertEquals(4, restarted.getCart(2).getKitQuantity(soda));
+        assertTrue(restarted.getCart(3).getKits().isEmpty());
+        assertEquals(2 * 299 + 2 * 399, restarted.getCart(1).getTotalCents());
+    }
+
+    @Test
+    public void testReplaysJournalAfterCrash() throws IOException {
+        CartFileDAO dao = open(1000);
+        dao.addKit(1, soda, 3);
+        dao.removeKit(1, soda, 1);
+        dao.addKit(2, juice, 2);
+        // no close, as if the process died; every change was already forced to the journal
+
+        CartFileDAO restarted = open(1000);
+        assertEquals(2, restarted.getCart(1).getKitQuantity(soda));
+        assertEquals(2, restarted.getCart(2).getKitQuantity(juice));
+        assertSame(soda, restarted.getCart(1).getKits().keySet().iterator().next());
+    }
+
+    @Test
+    public void testSkipsChangesAlreadyInSnapshot() throws IOException {
+        CartFileDAO dao = open(1000);
+        dao.addKit(1, soda, 3);
+        dao.close();
+        // a crash between writing the snapshot and emptying the journal leaves the change in both
+        journal("[1,1,[1,3]]", "[1,2,[1,1]]");
+
+        CartFileDAO restarted = open(1000);
+        assertEquals(4, restarted.getCart(1).getKitQuantity(soda));
+    }
+
+    @Test
+    public void testCompactsJournal() throws IOException, InterruptedException {
+        CartFileDAO dao = open(2);
+        dao.addKit(1, soda, 1);
+        dao.addKit(1, soda, 1); // reaches the threshold, the snapshot is written in the background
+
+        for (int i = 0; i < 100 && Files.exists(journalFile) && Files.size(journalFile) > 0; i++)
+            Thread.sleep(20);
+        assertEquals(0, Files.size(journalFile));
+        assertTrue(Files.exists(snapshotFile));
+
+        dao.addKit(1, juice, 1);
+        CartFileDAO restarted = open(2); // snapshot plus the one change journaled after it
+        assertEquals(2, restarted.getCart(1).getKitQuantity(soda));
+        assertEquals(1, restarted.getCart(1).getKitQuantity(juice));
+    }
+
+    @Test
+    public void testEmptiedCartReplaysFromNothing() throws IOException {
+        // the cart was emptied before the snapshot, which left it out, then refilled
+        journal("[1,5,[1,-2]]", "[1,6,[1,1]]", "[2,7,[2,1,2,-3]]");
+
+        CartFileDAO dao = open(1000);
+        assertEquals(1, dao.getCart(1).getKitQuantity(soda));
+        assertTrue(dao.getCart(2).getKits().isEmpty());
+    }
+
+    @Test
+    public void testDropsDeletedKits() throws IOException {
+        CartFileDAO dao = open(1000);
+        dao.addKit(1, soda, 3);
+        dao.addKit(1, juice, 1);
+        dao.close();
+        when(mockKitDAO.getKit(1)).thenReturn(null);
+
+        CartFileDAO restarted = open(1000);
+        assertEquals(1, restarted.getCart(1).getKits().size());
+        assertEquals(1, restarted.getCart(1).getKitQuantity(juice));
+    }
+
+    @Test
+    public void testKeepsLastUnitOfKitAfterRestart() throws IOException {
+        // Setup - a real kit store holding one unit of kit 3
+        Path kits = tempDir.resolve("kits.json");
+        objectMapper.writeValue(kits.toFile(), new Kit[] {new Kit(3, "Tonic", 1.99f, 1, new int[0])});
+        KitFileDAO kitDAO = new KitFileDAO(kits.toString(), objectMapper);
+        CartFileDAO dao = new CartFileDAO(kitDAO, objectMapper, snapshotFile.toString(),
+                journalFile.toString(), 1000);
+        assertTrue(kitDAO.reserveStock(3, 1));
+        dao.addKit(1, kitDAO.getKit(3), 1);
+        dao.close();
+        kitDAO.close();
+
+        // Invoke - restart both DAOs on the saved files
+        KitFileDAO restartedKits = new KitFileDAO(kits.toString(), objectMapper);
+        live = new CartFileDAO(restartedKits, objectMapper, snapshotFile.toString(),
+                journalFile.toString(), 1000);
+
+        // Analyze - the sold out kit was saved, so the cart still holds its last unit
+        assertEquals(0, restartedKits.getKit(3).getQuantity());
+        assertEquals(1, live.getCart(1).getKitQuantity(restartedKits.getKit(3)));
+    }
+
+    @Test
+    public void testEvictionIsSaved() throws IOException, InterruptedException {
+        when(mockKitDAO.releaseStock(anyInt(), anyInt())).thenReturn(true);
+        CartFileDAO dao = open(1000, 1);
+        dao.addKit(1, soda, 3);
+
+        Thread.sleep(20);
+        assertEquals(1, dao.sweep());
+
+        CartFileDAO restarted = open(1000);
+        assertEquals(0, restarted.getLiveCarts());
+    }
+}
@@ -0,0 +1,122 @@
+package com.estore.api.estoreapi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.estore.api.estoreapi.model.Kit;
+
+/**
+ * Tests the CartStore class
+ */
+@Tag("Persistence-tier")
+public class CartStoreTest {
+
+    @Test
+    public void testGetCartKeepsOneCartPerUser() {
+        CartStore store = new CartStore();
+
+        assertSame(store.getCart(1), store.getCart(1));
+        assertNotSame(store.getCart(1), store.getCart(2));
+    }
+
+    @Test
+    public void testClearCart() throws IOException {
+        CartStore store = new CartStore();
+        Kit kit = new Kit(1, "Soda", 2.99f, 20, new ArrayList<>());
+        store.getCart(1).addKit(kit, 3);
+        store.getCart(2).addKit(kit, 4);
+
+        store.clearCart(1);
+        store.clearCart(99); // no cart yet
+
+        assertTrue(store.getCart(1).getKits().isEmpty());
+        assertEquals(4, store.getCart(2).getKitQuantity(kit));
+    }
+
+    @Test
+    public void testAddAndRemoveKit() throws IOException {
+        CartStore store = new CartStore();
+        Kit kit = new Kit(1, "Soda", 2.99f, 20, new ArrayList<>());
+
+        store.addKit(1, kit, 3);
+        store.addKit(1, kit, 2);
+
+        assertEquals(5, store.getCart(1).getKitQuantity(kit));
+        assertEquals(2, store.removeKit(1, kit, 2));
+        assertEquals(3, store.removeKit(1, kit, 10)); // only what the cart holds
+        assertEquals(0, store.removeKit(1, kit, 1));
+        assertEquals(0, store.removeKit(2, kit, 1)); // no cart yet
+        assertEquals(1, store.getLiveCarts());
+    }
+
+    @Test
+    public void testSweepReturnsStockOfIdleCarts() throws InterruptedException {
+        KitDAO kitDao = mock(KitDAO.class);
+        Kit soda = new Kit(1, "Soda", 2.99f, 10, new ArrayList<>());
+        Kit juice = new Kit(2, "Juice", 3.99f, 5, new ArrayList<>());
+        when(kitDao.releaseStock(anyInt(), anyInt())).thenReturn(true);
+        CartStore store = new CartStore(kitDao, 50, 0);
+        store.getCart(1).addKit(soda, 3);
+        store.getCart(2).addKit(soda, 4);
+        store.getCart(2).addKit(juice, 1);
+
+        Thread.sleep(100);
+        store.getCart(3); // used just now, so it stays
+
+        assertEquals(2, store.sweep());
+        verify(kitDao, times(1)).releaseStock(1, 7); // one release per kit for the whole batch
+        verify(kitDao, times(1)).releaseStock(2, 1);
+        assertEquals(1, store.getLiveCarts());
+        assertEquals(2, store.getEvictedCarts());
+        assertEquals(8, store.getUnitsReturned());
+        assertTrue(store.getCart(1).getKits().isEmpty()); // a new, empty cart
+    }
+
+    @Test
+    public void testSweepKeepsCartsInUse() {
+        KitDAO kitDao = mock(KitDAO.class);
+        CartStore store = new CartStore(kitDao, 60000, 0);
+        store.getCart(1).addKit(new Kit(1, "Soda", 2.99f, 10, new ArrayList<>()), 3);
+
+        assertEquals(0, store.sweep());
+        assertEquals(1, store.getLiveCarts());
+        verify(kitDao, never()).releaseStock(anyInt(), anyInt());
+    }
+
+    @Test
+    public void testSweepNeverExpiring() {
+        CartStore store = new CartStore();
+        store.getCart(1);
+
+        assertEquals(0, store.sweep());
+        assertEquals(1, store.getLiveCarts());
+    }
+
+    @Test
+    public void testSweepSkipsDeletedKits() throws InterruptedException {
+        KitDAO kitDao = mock(KitDAO.class);
+        when(kitDao.releaseStock(1, 3)).thenReturn(false);
+        CartStore store = new CartStore(kitDao, 1, 0);
+        store.getCart(1).addKit(new Kit(1, "Soda", 2.99f, 10, new ArrayList<>()), 3);
+
+        Thread.sleep(20);
+
+        assertEquals(1, store.sweep());
+        assertEquals(0, store.getUnitsReturned());
+        assertEquals(0, store.getLiveCarts());
+    }
+}
@@ -0,0 +1,63 @@
+package com.estore.api.estoreapi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.estore.api.estoreapi.model.Product;
+
+/**
+ * Tests the CatalogSnapshot class
+ */
+@Tag("Persistence-tier")
+public class CatalogSnapshotTest {
+
+    private final Product soda = new Product(1, "Soda", 1.99F, 20);
+    private final Product water = new Product(2, "Water", 0.99F, 0);
+    private final Product ramune = new Product(3, "Ramune", 3.99F, 10);
+
+    @Test
+    public void testSplitsInStockEntries() {
+        CatalogSnapshot<Product> snapshot = CatalogSnapshot.of(0, List.of(soda, water, ramune),
+                Product::getId, p -> p.getQuantity() >= 1, Product[]::new);
+
+        assertArrayEquals(new Product[] {soda, water, ramune}, snapshot.getAll());
+        assertArrayEquals(new Product[] {soda, ramune}, snapshot.getInStock());
+        assertSame(snapshot.getInStock(), snapshot.getInStock());
+    }
+
+    @Test
+    public void testGetById() {
+        CatalogSnapshot<Product> snapshot = CatalogSnapshot.of(0, List.of(soda, water),
+                Product::getId, p -> p.getQuantity() >= 1, Product[]::new);
+
+        assertEquals(water, snapshot.get(2));
+        assertEquals(0, snapshot.getVersion());
+        assertNull(snapshot.get(3));
+    }
+
+    @Test
+    public void testAsksStockOncePerEntry() {
+        int[] asked = new int[1];
+        CatalogSnapshot<Product> snapshot = CatalogSnapshot.of(0, List.of(soda, water, ramune),
+                Product::getId, p -> ++asked[0] % 2 == 1, Product[]::new); // changes every time it is asked
+
+        assertEquals(3, asked[0]);
+        assertArrayEquals(new Product[] {soda, ramune}, snapshot.getInStock());
+    }
+
+    @Test
+    public void testEmptyCatalog() {
+        CatalogSnapshot<Product> snapshot = CatalogSnapshot.of(0, List.of(),
+                Product::getId, p -> p.getQuantity() >= 1, Product[]::new);
+
+        assertEquals(0, snapshot.getAll().length);
+        assertEquals(0, snapshot.getInStock().length);
+    }
+}
@@ -0,0 +1,48 @@
+package com.estore.api.estoreapi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the ContentsIndex class
+ */
+@Tag("Persistence-tier")
+public class ContentsIndexTest {
+    private ContentsIndex index;
+
+    @BeforeEach
+    public void setupIndex() {
+        index = new ContentsIndex();
+        index.put(3, new int[] {7, 8});
+        index.put(1, new int[] {8, 9});
+        index.put(2, null);
+    }
+
+    @Test
+    public void testKitsContaining() {
+        assertArrayEquals(new int[] {1, 3}, index.kitsContaining(8));
+        assertArrayEquals(new int[] {3}, index.kitsContaining(7));
+        assertArrayEquals(new int[0], index.kitsContaining(42));
+    }
+
+    @Test
+    public void testPutReplacesProducts() {
+        index.put(3, new int[] {9});
+
+        assertArrayEquals(new int[0], index.kitsContaining(7));
+        assertArrayEquals(new int[] {1}, index.kitsContaining(8));
+        assertArrayEquals(new int[] {1, 3}, index.kitsContaining(9));
+    }
+
+    @Test
+    public void testRemove() {
+        index.remove(1);
+        index.remove(5); // never indexed
+
+        assertArrayEquals(new int[] {3}, index.kitsContaining(8));
+        assertArrayEquals(new int[0], index.kitsContaining(9));
+    }
+}
@@ -0,0 +1,107 @@
+package com.estore.api.estoreapi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.estore.api.estoreapi.model.User;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Tests the DaoMetrics class
+ */
+@Tag("Persistence-tier")
+public class DaoMetricsTest {
+    private SimpleMeterRegistry registry;
+    private DaoMetrics metrics;
+    private UserDAO mockUserDAO;
+
+    @BeforeEach
+    public void setupDaoMetrics() {
+        registry = new SimpleMeterRegistry();
+        metrics = new DaoMetrics(registry);
+        mockUserDAO = mock(UserDAO.class);
+    }
+
+    private Timer timer(String method, String phase) {
+        return registry.find("estore.dao").tags("dao", "UserDAO", "method", method, "phase", phase).timer();
+    }
+
+    @Test
+    public void testTimesInMemoryCalls() {
+        User user = new User(1, "test", "0000", "John Doe", User.UserRole.CUSTOMER);
+        when(mockUserDAO.findByUsername("test")).thenReturn(user);
+        when(mockUserDAO.getUserCount()).thenReturn(1);
+        UserDAO dao = (UserDAO)metrics.postProcessAfterInitialization(mockUserDAO, "userDAO");
+
+        assertSame(user, dao.findByUsername("test"));
+        assertEquals(1, dao.getUserCount());
+
+        assertEquals(1, timer("findByUsername", "memory").count());
+        assertEquals(1, timer("getUserCount", "memory").count());
+        assertNull(timer("findByUsername", "save"));
+    }
+
+    @Test
+    public void testSplitsOutSaveTime() throws IOException {
+        User user = new User(1, "test", "0000", "John Doe", User.UserRole.CUSTOMER);
+        doAnswer(invocation -> {
+            SaveTime.add(TimeUnit.MILLISECONDS.toNanos(5)); // as a persister would
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+            return user;
+        }).when(mockUserDAO).createUser("test", "0000", "John Doe");
+        UserDAO dao = (UserDAO)metrics.postProcessAfterInitialization(mockUserDAO, "userDAO");
+
+        assertSame(user, dao.createUser("test", "0000", "John Doe"));
+
+        assertEquals(1, timer("createUser", "memory").count());
+        assertEquals(1, timer("createUser", "save").count());
+        assertEquals(5, timer("createUser", "save").totalTime(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testPassesOnExceptions() throws IOException {
+        when(mockUserDAO.deleteUser(1)).thenThrow(new IOException("disk full"));
+        UserDAO dao = (UserDAO)metrics.postProcessAfterInitialization(mockUserDAO, "userDAO");
+
+        IOException e = assertThrows(IOException.class, () -> dao.deleteUser(1));
+
+        assertEquals("disk full", e.getMessage());
+        assertEquals(1, timer("deleteUser", "memory").count());
+    }
+
+    @Test
+    public void testRegistersTimersWhenWrapped() {
+        UserDAO dao = (UserDAO)metrics.postProcessAfterInitialization(mockUserDAO, "userDAO");
+        int meters = registry.getMeters().size();
+
+        assertEquals(0, timer("getUserCount", "memory").count()); // ready before the first call
+        dao.getUserCount();
+        dao.getUserCount();
+        dao.toString(); // not a DAO call
+
+        assertEquals(2, timer("getUserCount", "memory").count());
+        assertEquals(meters, registry.getMeters().size());
+    }
+
+    @Test
+    public void testLeavesOtherBeans() {
+        Object bean = new Object();
+
+        assertSame(bean, metrics.postProcessAfterInitialization(bean, "other"));
+    }
+}
@@ -1,16 +1,33 @@
 package com.estore.api.estoreapi.persistence;
 
+import com.estore.api.estoreapi.model.Kit;
 import com.estore.api.estoreapi.model.Product;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -24,17 +41,22 @@ public class InventoryFileDAOTest {
     Product[] testInventory;
     ObjectMapper mockObjectMapper;
 
+    @TempDir
+    Path tempDir;
+    String dataFile;
+
     @BeforeEach
     public void setupInventoryFileDAO() throws IOException{
         mockObjectMapper = mock(ObjectMapper.class);
+        dataFile = tempDir.resolve("inventory.json").toString();
         testInventory = new Product[3];
         testInventory[0] = new Product(99, "Soda", 1.99F, 20);
         testInventory[1] = new Product(100, "Water", 0.99F, 200);
         testInventory[2] = new Product(101, "Ramune", 3.99F, 10);
         when(mockObjectMapper
-                .readValue(new File("doesnt_matter.txt"),Product[].class))
+                .readValue(new File(dataFile),Product[].class))
                 .thenReturn(testInventory);
-        inventoryFileDAO = new InventoryFileDAO("doesnt_matter.txt",mockObjectMapper);
+        inventoryFileDAO = new InventoryFileDAO(dataFile,mockObjectMapper);
     }
 
     @Test
@@ -47,6 +69,24 @@ public class InventoryFileDAOTest {
         }
     }
 
+    @Test
+    public void testGetProductCount() {
+        assertEquals(testInventory.length, inventoryFileDAO.getProductCount());
+    }
+
+    @Test
+    public void testGetProductsSharedUntilChange() throws IOException {
+        Product[] first = inventoryFileDAO.getProducts();
+        assertSame(first, inventoryFileDAO.getProducts());
+
+        inventoryFileDAO.updateProduct(new Product(100, "Water", 0.99F, 0));
+
+        Product[] second = inventoryFileDAO.getProducts();
+        assertNotSame(first, second);
+        assertEquals(2, second.length);
+        assertEquals(0, inventoryFileDAO.getProduct(100).getQuantity());
+    }
+
     @Test
     public void testFindProducts(){
         Product[] inv = inventoryFileDAO.findProducts("da");
@@ -60,6 +100,19 @@ public class InventoryFileDAOTest {
         assertEquals(inv[0], testInventory[2]);
     }
 
+    @Test
+    public void testFindProductsIgnoresCase() throws IOException {
+        Product[] inv = inventoryFileDAO.findProducts("RAM");
+
+        assertEquals(1, inv.length);
+        assertEquals(testInventory[2], inv[0]);
+
+        inventoryFileDAO.updateProduct(new Product(101, "Lemonade", 3.99F, 10));
+
+        assertEquals(0, inventoryFileDAO.findProducts("ramune").length);
+        assertEquals(101, inventoryFileDAO.findProducts("lemon")[0].getId());
+    }
+
     @Test
     public void testGetProduct(){
         Product p = inventoryFileDAO.getProduct(99);
@@ -121,4 +174,114 @@ public class InventoryFileDAOTest {
         assertEquals(updatedProduct.getPrice(), result.getPrice());
 
     }
+
+    @Test
+    public void testReadsDoNotWaitForSave() throws Exception {
+        // Setup - hold the write to disk open until the reads are done
+        CountDownLatch saving = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            saving.countDown();
+            release.await();
+            return null;
+        }).when(mockObjectMapper).writeValue(any(OutputStream.class), any());
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        Future<Product> update = writer.submit(() -> inventoryFileDAO.updateProduct(testInventory[0]));
+        assertTrue(saving.await(5, TimeUnit.SECONDS));
+
+        // Invoke - browse the catalog for a while with the save still in flight
+        int reads = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            int count = 0;
+            long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200);
+            while (System.nanoTime() < end) {
+                inventoryFileDAO.getProducts();
+                inventoryFileDAO.findProducts("da");
+                inventoryFileDAO.getProduct(100);
+                count += 3;
+            }
+            return count;
+        });
+        release.countDown();
+
+        // Analyze
+        assertTrue(reads > 0);
+        assertEquals(testInventory[0], update.get(5, TimeUnit.SECONDS));
+        writer.shutdown();
+    }
+
+    @Test
+    public void testExportProducts() throws IOException {
+        // Setup
+        List<Product> exported = new ArrayList<>();
+        // Invoke
+        inventoryFileDAO.exportProducts(exported::add);
+        // Analyze
+        assertEquals(testInventory.length, exported.size());
+        assertEquals(testInventory[0], exported.get(0));
+    }
+
+    @Test
+    public void testCreateProducts() throws IOException {
+        // Setup
+        Product[] products = new Product[] {
+            new Product(7, "Lime", 0.5F, 40),
+            new Product(7, "Mint", 1.25F, 12)
+        };
+        // Invoke
+        Product[] created = inventoryFileDAO.createProducts(products);
+        // Analyze - new ids in order, one write for the whole batch
+        assertEquals(102, created[0].getId());
+        assertEquals(103, created[1].getId());
+        assertEquals("Mint", inventoryFileDAO.getProduct(103).getName());
+        assertEquals(1, inventoryFileDAO.findProducts("lime").length);
+        verify(mockObjectMapper, times(1)).writeValue(any(OutputStream.class), any());
+    }
+
+    @Test
+    public void testQuantityChangesReachKits() throws IOException {
+        // Setup - a kit made of water and ramune
+        KitComposition composition = new KitComposition();
+        InventoryFileDAO composedDAO = new InventoryFileDAO(dataFile, mockObjectMapper, composition, "durable", 0, 1);
+        composition.setKit(1, new int[] {100, 101});
+        assertEquals(10, composition.getLimit(1));
+        // Invoke
+        composedDAO.updateProduct(new Product(101, "Ramune", 3.99F, 0));
+        // Analyze
+        assertEquals(0, composition.getLimit(1));
+        composedDAO.deleteProduct(101);
+        composedDAO.updateProduct(new Product(100, "Water", 0.99F, 5));
+        assertEquals(0, composition.getLimit(1)); // a deleted product still holds the kit back
+    }
+
+    @Test
+    public void testCreateProductsEmpty() throws IOException {
+        assertEquals(0, inventoryFileDAO.createProducts(new Product[0]).length);
+        verify(mockObjectMapper, never()).writeValue(any(OutputStream.class), any());
+    }
+
+    @Test
+    public void testSoldOutProductCapsKitsAfterRestart() throws IOException {
+        // Setup - kit 1 is made of products 1 and 2
+        ObjectMapper mapper = new ObjectMapper();
+        File products = tempDir.resolve("products.json").toFile();
+        File kits = tempDir.resolve("kits.json").toFile();
+        mapper.writeValue(products, new Product[] {new Product(1, "Lime", 0.5f, 5), new Product(2, "Mint", 0.25f, 3)});
+        mapper.writeValue(kits, new Kit[] {new Kit(1, "Mojito Kit", 12f, 10, new int[] {1, 2})});
+        InventoryFileDAO before = new InventoryFileDAO(products.toString(), mapper, new KitComposition(),
+                "durable", 0, 1);
+        before.updateProduct(new Product(2, "Mint", 0.25f, 0)); // sells out
+        before.close();
+
+        // Invoke - restart both DAOs on the saved files
+        KitComposition composition = new KitComposition();
+        KitFileDAO kitDAO = new KitFileDAO(kits.toString(), mapper, composition, "durable", 0, 1, 0, 1);
+        InventoryFileDAO after = new InventoryFileDAO(products.toString(), mapper, composition, "durable", 0, 1);
+        kitDAO.flushStock(); // lists the kits again now the products are known
+
+        // Analyze - the sold out product was saved and still holds the kit back
+        assertEquals(0, after.getProduct(2).getQuantity());
+        assertEquals(0, kitDAO.getAvailableStock(1));
+        assertFalse(kitDAO.reserveStock(1, 1));
+        assertEquals(0, kitDAO.getKits().length);
+    }
 }
@@ -0,0 +1,75 @@
+package com.estore.api.estoreapi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the KitComposition class
+ */
+@Tag("Persistence-tier")
+public class KitCompositionTest {
+    private KitComposition composition;
+
+    @BeforeEach
+    public void setupComposition() {
+        composition = new KitComposition();
+        composition.setProduct(4, 20);
+        composition.setProduct(5, 35);
+        composition.setKit(2, new int[] {4, 5});
+        composition.setKit(3, new int[] {5});
+    }
+
+    @Test
+    public void testLimitIsScarcestProduct() {
+        assertEquals(20, composition.getLimit(2));
+        assertEquals(35, composition.getLimit(3));
+        assertEquals(Integer.MAX_VALUE, composition.getLimit(99)); // unknown kit
+    }
+
+    @Test
+    public void testProductChangeRecomputesItsKits() {
+        composition.setProduct(5, 0);
+
+        assertEquals(0, composition.getLimit(2));
+        assertEquals(0, composition.getLimit(3));
+
+        composition.setProduct(5, 50);
+
+        assertEquals(20, composition.getLimit(2));
+        assertEquals(50, composition.getLimit(3));
+    }
+
+    @Test
+    public void testProductsSetAfterKits() {
+        // the inventory may load after the kits
+        composition.setKit(7, new int[] {8, 9});
+        assertEquals(Integer.MAX_VALUE, composition.getLimit(7)); // products never listed do not limit it
+
+        composition.setProduct(9, 3);
+
+        assertEquals(3, composition.getLimit(7));
+    }
+
+    @Test
+    public void testKitChanges() {
+        composition.setKit(3, new int[] {4});
+        composition.removeKit(2);
+
+        assertEquals(20, composition.getLimit(3));
+        assertEquals(Integer.MAX_VALUE, composition.getLimit(2));
+        assertArrayEquals(new int[] {3}, composition.kitsContaining(4));
+        assertArrayEquals(new int[0], composition.kitsContaining(5));
+    }
+
+    @Test
+    public void testRemoveProduct() {
+        composition.removeProduct(4);
+
+        assertEquals(0, composition.getLimit(2));
+        assertEquals(35, composition.getLimit(3));
+    }
+}
@@ -1,19 +1,42 @@
 package com.estore.api.estoreapi.persistence;
 
 import com.estore.api.estoreapi.model.Kit;
+import com.estore.api.estoreapi.model.Suggestion;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.jupiter.api.BeforeEach;
 
@@ -28,9 +51,14 @@ public class KitFileDAOTest {
     Kit[] testKits;
     ObjectMapper mockObjectMapper;
 
+    @TempDir
+    Path tempDir;
+    String dataFile;
+
     @BeforeEach
     public void setupTests()  throws IOException {
         mockObjectMapper = mock(ObjectMapper.class);
+        dataFile = tempDir.resolve("kits.json").toString();
         testKits = new Kit[3];
 
         ArrayList<Integer> firstKitList = new ArrayList<>();
@@ -48,8 +76,8 @@ public class KitFileDAOTest {
         thirdKitList.add(1);
         testKits[2] = new Kit(3, "Test Kit Charlie", 7f, 0, secondKitList);
 
-        when(mockObjectMapper.readValue(new File("this_doesn't_matter.txt"),Kit[].class)).thenReturn(testKits);
-        kitFileDAO = new KitFileDAO("this_doesn't_matter.txt", mockObjectMapper);
+        when(mockObjectMapper.readValue(new File(dataFile),Kit[].class)).thenReturn(testKits);
+        kitFileDAO = new KitFileDAO(dataFile, mockObjectMapper);
     }
 
     @Test
@@ -83,6 +111,40 @@ public class KitFileDAOTest {
         }
     }
 
+    @Test
+    public void testGetKitCount() {
+        assertEquals(testKits.length, kitFileDAO.getKitCount());
+    }
+
+    @Test
+    public void testGetKitsSharedUntilChange() throws IOException {
+        Kit[] first = kitFileDAO.getKits();
+        assertSame(first, kitFileDAO.getKits());
+
+        Kit restocked = new Kit(3, "Test Kit Charlie", 7f, 4, testKits[2].getProductsInKit());
+        kitFileDAO.updateKit(restocked);
+
+        Kit[] second = kitFileDAO.getKits();
+        assertNotSame(first, second);
+        assertEquals(1, kitFileDAO.getVersion());
+        assertEquals(3, second.length);
+        assertEquals(restocked, kitFileDAO.getKit(3));
+    }
+
+    @Test
+    public void testSuggestKits() throws IOException {
+        Suggestion[] suggestions = kitFileDAO.suggestKits("test kit", 10);
+
+        // Charlie is out of stock, Alpha has the most stock
+        assertEquals(2, suggestions.length);
+        assertEquals(1, suggestions[0].getId());
+        assertEquals(2, suggestions[1].getId());
+
+        kitFileDAO.deleteKit(1);
+
+        assertEquals(1, kitFileDAO.suggestKits("TEST", 10).length);
+    }
+
     @Test
     public void testFindKitsEmpty() {
         // Setup
@@ -163,7 +225,7 @@ public class KitFileDAOTest {
         assertEquals(createdKit.getName(), resultingKits[2].getName());
         assertEquals(createdKit.getPrice(), resultingKits[2].getPrice());
         assertEquals(createdKit.getQuantity(), resultingKits[2].getQuantity());
-        assertEquals(createdKit.getProductsInKit(), resultingKits[2].getProductsInKit());
+        assertArrayEquals(createdKit.getProductsInKit(), resultingKits[2].getProductsInKit());
     }
 
     @Test
@@ -185,7 +247,7 @@ public class KitFileDAOTest {
         assertEquals(updatedKit.getName(), resultingKits[2].getName());
         assertEquals(updatedKit.getPrice(), resultingKits[2].getPrice());
         assertEquals(updatedKit.getQuantity(), resultingKits[2].getQuantity());
-        assertEquals(updatedKit.getProductsInKit(), resultingKits[2].getProductsInKit());
+        assertArrayEquals(updatedKit.getProductsInKit(), resultingKits[2].getProductsInKit());
     }
 
     @Test
@@ -203,4 +265,249 @@ public class KitFileDAOTest {
         assertEquals(response, null);
     }
 
+    @Test
+    public void testUpdateKits() throws IOException {
+        // Setup
+        Kit first = new Kit(1, "Test Kit One", 1.1f, 40, new ArrayList<>());
+        Kit missing = new Kit(5, "Test Kit Echo", 1.1f, 40, new ArrayList<>());
+        Kit third = new Kit(3, "Test Kit Three", 1.1f, 60, new ArrayList<>());
+        long version = kitFileDAO.getVersion();
+        // invoke
+        int updated = kitFileDAO.updateKits(new Kit[] { first, missing, third });
+        // analyze - one change for the whole batch
+        assertEquals(2, updated);
+        assertEquals(version + 1, kitFileDAO.getVersion());
+        assertEquals(40, kitFileDAO.getKit(1).getQuantity());
+        assertEquals(60, kitFileDAO.getKit(3).getQuantity());
+        assertEquals(null, kitFileDAO.getKit(5));
+    }
+
+    @Test
+    public void testReserveStock() throws IOException {
+        // invoke
+        boolean reserved = kitFileDAO.reserveStock(1, 4);
+        boolean oversold = kitFileDAO.reserveStock(1, 2);
+        boolean outOfStock = kitFileDAO.reserveStock(3, 1);
+        boolean released = kitFileDAO.releaseStock(2, 1);
+        boolean missing = kitFileDAO.reserveStock(5, 1);
+        kitFileDAO.flushStock();
+        // analyze - the counts are written back to the kits and saved
+        assertTrue(reserved);
+        assertFalse(oversold);
+        assertFalse(outOfStock);
+        assertTrue(released);
+        assertFalse(missing);
+        assertEquals(1, kitFileDAO.getKit(1).getQuantity());
+        assertEquals(4, kitFileDAO.getKit(2).getQuantity());
+        verify(mockObjectMapper, atLeastOnce()).writeValue(any(OutputStream.class), any(Kit[].class));
+    }
+
+    @Test
+    public void testReserveStockAfterUpdate() throws IOException {
+        // Setup - an admin restocks the kit
+        kitFileDAO.reserveStock(1, 5);
+        kitFileDAO.updateKit(new Kit(1, "Test Kit Alpha", 3.14f, 8, new ArrayList<>()));
+        // invoke
+        boolean reserved = kitFileDAO.reserveStock(1, 8);
+        kitFileDAO.flushStock();
+        // analyze
+        assertTrue(reserved);
+        assertEquals(0, kitFileDAO.getKit(1).getQuantity());
+        assertFalse(kitFileDAO.reserveStock(1, 1));
+    }
+
+    @Test
+    public void testReserveStockPublishesCopies() throws IOException {
+        // Setup - a reader holding the published kit
+        Kit published = kitFileDAO.getKit(1);
+        // Invoke
+        assertTrue(kitFileDAO.reserveStock(1, 2));
+        kitFileDAO.flushStock();
+        // Analyze - the new count is in a copy, the published kit is left alone
+        assertEquals(5, published.getQuantity());
+        assertEquals(3, kitFileDAO.getKit(1).getQuantity());
+        assertNotSame(published, kitFileDAO.getKit(1));
+    }
+
+    @Test
+    public void testConcurrentStockWritesFinish() throws Exception {
+        // Setup - every reservation starts a stock write on the shared flusher threads
+        kitFileDAO.updateKit(new Kit(1, "Test Kit Alpha", 3.14f, 1_000_000, new ArrayList<>()));
+        ExecutorService shoppers = Executors.newFixedThreadPool(4);
+        // Invoke / Analyze - stock writes never wait on flushes queued behind them
+        try {
+            assertTimeoutPreemptively(Duration.ofSeconds(20), () -> {
+                List<Future<?>> done = new ArrayList<>();
+                for (int t = 0; t < 4; t++) {
+                    done.add(shoppers.submit(() -> {
+                        for (int i = 0; i < 20_000; i++) {
+                            assertTrue(kitFileDAO.reserveStock(1, 1));
+                            assertTrue(kitFileDAO.releaseStock(1, 1));
+                        }
+                    }));
+                }
+                for (Future<?> shopper : done)
+                    shopper.get();
+                kitFileDAO.flushStock();
+            });
+        } finally {
+            shoppers.shutdownNow();
+        }
+        assertEquals(1_000_000, kitFileDAO.getKit(1).getQuantity());
+    }
+
+    @Test
+    public void testUpdatesWhileStockChanges() throws Exception {
+        // Setup - single units of many kits go in and out of stock while kit 2 is updated
+        Kit[] lastUnits = new Kit[500];
+        for (int i = 0; i < lastUnits.length; i++)
+            lastUnits[i] = new Kit(0, "Test Kit Unit " + i, 1f, 1, new ArrayList<>());
+        Kit[] created = kitFileDAO.createKits(lastUnits);
+        AtomicBoolean updating = new AtomicBoolean(true);
+        ExecutorService shoppers = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> done = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                done.add(shoppers.submit(() -> {
+                    while (updating.get()) {
+                        int id = created[ThreadLocalRandom.current().nextInt(created.length)].getId();
+                        if (kitFileDAO.reserveStock(id, 1))
+                            kitFileDAO.releaseStock(id, 1);
+                    }
+                }));
+            }
+            // Invoke / Analyze - every listing holds only kits, whatever the stock was while it was built
+            for (int i = 0; i < 300; i++) {
+                kitFileDAO.updateKit(new Kit(2, "Test Kit Bravo", 2.71f, 3 + i % 2, new ArrayList<>()));
+                for (Kit kit : kitFileDAO.getKits())
+                    assertNotNull(kit);
+                kitFileDAO.suggestKits("test", 10);
+            }
+            updating.set(false);
+            for (Future<?> shopper : done)
+                shopper.get();
+            kitFileDAO.close(); // no stock write left running once the directory is deleted
+        } finally {
+            updating.set(false);
+            shoppers.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testReadsDoNotWaitForSave() throws Exception {
+        // Setup - hold the write to disk open until the reads are done
+        CountDownLatch saving = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            saving.countDown();
+            release.await();
+            return null;
+        }).when(mockObjectMapper).writeValue(any(OutputStream.class), any());
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        Future<Kit> update = writer.submit(() -> kitFileDAO.updateKit(testKits[0]));
+        assertTrue(saving.await(5, TimeUnit.SECONDS));
+
+        // Invoke - browse the catalog for a while with the save still in flight
+        int reads = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            int count = 0;
+            long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200);
+            while (System.nanoTime() < end) {
+                kitFileDAO.getKits();
+                kitFileDAO.findKits("alpha");
+                kitFileDAO.getKit(2);
+                count += 3;
+            }
+            return count;
+        });
+        release.countDown();
+
+        // Analyze
+        assertTrue(reads > 0);
+        assertEquals(testKits[0], update.get(5, TimeUnit.SECONDS));
+        writer.shutdown();
+    }
+
+    @Test
+    public void testExportKits() throws IOException {
+        // Setup
+        List<Kit> exported = new ArrayList<>();
+        // Invoke
+        kitFileDAO.exportKits(exported::add);
+        // Analyze - out of stock kits are exported too
+        assertEquals(3, exported.size());
+        assertEquals(testKits[2], exported.get(2));
+    }
+
+    @Test
+    public void testGetKitsContaining() throws IOException {
+        // Analyze - every kit holding the product, in stock or not
+        Kit[] holdingTwo = kitFileDAO.getKitsContaining(2);
+        assertEquals(3, holdingTwo.length);
+        assertEquals(testKits[2], holdingTwo[2]);
+        assertEquals(0, kitFileDAO.getKitsContaining(99).length);
+
+        // Invoke - changing a kit's products moves it in the index
+        kitFileDAO.updateKit(new Kit(1, "Test Kit Alpha", 3.14f, 5, new int[] {99}));
+        kitFileDAO.deleteKit(2);
+
+        // Analyze
+        assertEquals(1, kitFileDAO.getKitsContaining(2).length);
+        assertEquals(1, kitFileDAO.getKitsContaining(99)[0].getId());
+    }
+
+    @Test
+    public void testReserveStockLimitedByProducts() throws IOException {
+        // Setup - kit 1 holds products 1 and 2, of which only 2 units of product 2 are left
+        KitComposition composition = new KitComposition();
+        composition.setProduct(1, 10);
+        composition.setProduct(2, 2);
+        KitFileDAO composedDAO = new KitFileDAO(dataFile, mockObjectMapper, composition, "durable", 0, 1, 0, 1);
+        // Invoke / Analyze
+        assertEquals(2, composedDAO.getAvailableStock(1));
+        assertFalse(composedDAO.reserveStock(1, 3));
+        assertTrue(composedDAO.reserveStock(1, 2));
+        assertEquals(2, composedDAO.getAvailableStock(2)); // 3 of its own, capped by product 2
+        composition.setProduct(2, 0);
+        assertFalse(composedDAO.reserveStock(1, 1));
+        composedDAO.flushStock();
+    }
+
+    @Test
+    public void testKitsListedByAvailableStock() throws IOException {
+        // Setup - kit 1 holds products 1 and 2, kit 2 products 2 and 3
+        KitComposition composition = new KitComposition();
+        KitFileDAO composedDAO = new KitFileDAO(dataFile, mockObjectMapper, composition, "durable", 0, 1, 0, 1);
+        assertEquals(2, composedDAO.getKits().length);
+        // Invoke - product 2 sells out
+        composition.setProduct(1, 10);
+        composition.setProduct(2, 0);
+        composedDAO.flushStock();
+        // Analyze - neither kit is listed or suggested any more, though both have stock of their own
+        assertEquals(0, composedDAO.getKits().length);
+        assertEquals(0, composedDAO.suggestKits("test", 10).length);
+        assertEquals(3, composedDAO.getKitCount());
+        // Invoke - product 2 is restocked
+        composition.setProduct(2, 1);
+        composedDAO.flushStock();
+        // Analyze
+        assertEquals(2, composedDAO.getKits().length);
+    }
+
+    @Test
+    public void testCreateKits() throws IOException {
+        // Setup
+        Kit[] kits = new Kit[] {
+            new Kit(9, "Test Kit Delta", 1.5f, 4, new ArrayList<>()),
+            new Kit(9, "Test Kit Echo", 2.5f, 6, new ArrayList<>())
+        };
+        // Invoke
+        Kit[] created = kitFileDAO.createKits(kits);
+        // Analyze - new ids in order, one write for the whole batch, stock ready to reserve
+        assertEquals(4, created[0].getId());
+        assertEquals(5, created[1].getId());
+        assertEquals("Test Kit Echo", kitFileDAO.getKit(5).getName());
+        verify(mockObjectMapper, times(1)).writeValue(any(OutputStream.class), any());
+        assertTrue(kitFileDAO.reserveStock(5, 6)); // reserving writes the stock back, so it comes last
+        kitFileDAO.flushStock();
+    }
 }
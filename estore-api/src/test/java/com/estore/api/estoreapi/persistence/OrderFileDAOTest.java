@@ -1,6 +1,8 @@
 package com.estore.api.estoreapi.persistence;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
@@ -8,13 +10,18 @@ import static org.mockito.Mockito.when;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import com.estore.api.estoreapi.model.Kit;
 import com.estore.api.estoreapi.model.Order;
+import com.estore.api.estoreapi.model.OrderPage;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
@@ -28,9 +35,14 @@ public class OrderFileDAOTest {
     private Order[] testOrders;
     private ObjectMapper objectMapper;
 
+    @TempDir
+    Path tempDir;
+    private String dataFile;
+
     @BeforeEach
     public void setupTests() throws IOException {
         objectMapper = mock(ObjectMapper.class);
+        dataFile = tempDir.resolve("orders.json").toString();
         testOrders = new Order[3];
 
         ArrayList<Kit> firstTestList = new ArrayList<>();
@@ -47,9 +59,27 @@ public class OrderFileDAOTest {
         testOrders[2] = new Order(3, "zorg", thirdTestList);
 
         when(objectMapper
-                .readValue(new File("doesnt_matter.txt"),Order[].class))
-                .thenReturn(testOrders);
-        orderDAO = new OrderFileDAO("doesnt_matter.txt", objectMapper);
+                .readValue(new File(dataFile),OrderRecord[].class))
+                .thenReturn(records(testOrders));
+        orderDAO = new OrderFileDAO(dataFile, objectMapper);
+    }
+
+    private static OrderRecord[] records(Order[] orders) {
+        OrderRecord[] records = new OrderRecord[orders.length];
+        for (int i = 0; i < orders.length; i++)
+            records[i] = new OrderRecord(orders[i]);
+        return records;
+    }
+
+    private static void assertSameKits(List<Kit> expected, List<Kit> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getId(), actual.get(i).getId());
+            assertEquals(expected.get(i).getName(), actual.get(i).getName());
+            assertEquals(expected.get(i).getPrice(), actual.get(i).getPrice());
+            assertEquals(expected.get(i).getQuantity(), actual.get(i).getQuantity());
+            assertArrayEquals(expected.get(i).getProductsInKit(), actual.get(i).getProductsInKit());
+        }
     }
 
     @Test
@@ -61,6 +91,11 @@ public class OrderFileDAOTest {
         assertEquals(orderDAO.getOrder(999), null);
     }
 
+    @Test
+    public void testGetOrderCount() {
+        assertEquals(testOrders.length, orderDAO.getOrderCount());
+    }
+
     @Test
     public void testGetOrders() throws IOException {
         // testing with a username that doesn't have any orders associated with it
@@ -72,15 +107,15 @@ public class OrderFileDAOTest {
         assertEquals(twoOrderResponse[0].getUser(), twoOrderResponse[1].getUser(), "test");
         assertEquals(twoOrderResponse[0].getId(), 1);
         assertEquals(twoOrderResponse[1].getId(), 2);
-        assertEquals(twoOrderResponse[0].getKits(), testOrders[0].getKits());
-        assertEquals(twoOrderResponse[1].getKits(), testOrders[1].getKits());
+        assertSameKits(testOrders[0].getKits(), twoOrderResponse[0].getKits());
+        assertSameKits(testOrders[1].getKits(), twoOrderResponse[1].getKits());
 
         // testing with a username with 1 order associated with it
         Order[] oneOrderResponse = orderDAO.getOrders("zorg");
         assertEquals(oneOrderResponse.length, 1);
         assertEquals(oneOrderResponse[0].getUser(), "zorg");
         assertEquals(oneOrderResponse[0].getId(), 3);
-        assertEquals(oneOrderResponse[0].getKits(), testOrders[2].getKits());
+        assertSameKits(testOrders[2].getKits(), oneOrderResponse[0].getKits());
     }
 
     @Test
@@ -101,7 +136,7 @@ public class OrderFileDAOTest {
         assertNotNull(retrievedOrder, "Retrieved order should not be null");
         assertEquals(createdOrder.getId(), retrievedOrder.getId(), "Retrieved order ID should match");
         assertEquals(createdOrder.getUser(), retrievedOrder.getUser(), "Retrieved username should match");
-        assertEquals(createdOrder.getKits(), retrievedOrder.getKits(), "Retrieved kits list should be equal");
+        assertSameKits(createdOrder.getKits(), retrievedOrder.getKits());
     }
 
     @Test
@@ -121,4 +156,163 @@ public class OrderFileDAOTest {
         assertEquals(twoMatchingOrders[0], testOrders[0]);
         assertEquals(twoMatchingOrders[1], testOrders[1]);
     }
+
+    @Test
+    public void testGetOrdersIncludesNewOrders() throws IOException {
+        // Setup
+        ArrayList<Kit> kits = new ArrayList<>();
+        kits.add(new Kit(5, "crunchy", 4.0f, 2, new ArrayList<Integer>()));
+
+        // Invoke
+        Order createdOrder = orderDAO.createOrder("test", kits);
+        Order firstOrder = orderDAO.createOrder("newcomer", new ArrayList<>());
+
+        // Analyze - each user's orders stay in id order and other users are untouched
+        Order[] testUserOrders = orderDAO.getOrders("test");
+        assertEquals(3, testUserOrders.length);
+        assertEquals(createdOrder, testUserOrders[2]);
+        assertEquals(1, orderDAO.findOrders("crunch", "test").length);
+        assertEquals(firstOrder, orderDAO.getOrders("newcomer")[0]);
+        assertEquals(1, orderDAO.getOrders("zorg").length);
+    }
+
+    @Test
+    public void testGetOrdersPage() throws IOException {
+        // Setup - the user has orders 1, 2, 4, 5 and 6
+        for (int i = 0; i < 3; i++)
+            orderDAO.createOrder("test", new ArrayList<>());
+
+        // Invoke - walk the pages oldest first
+        OrderPage first = orderDAO.getOrdersPage("test", null, 2, false);
+        OrderPage second = orderDAO.getOrdersPage("test", first.getNextCursor(), 2, false);
+        OrderPage last = orderDAO.getOrdersPage("test", second.getNextCursor(), 2, false);
+
+        // Analyze
+        assertEquals(2, first.getOrders()[1].getId());
+        assertEquals(2, first.getNextCursor());
+        assertEquals(4, second.getOrders()[0].getId());
+        assertEquals(5, second.getNextCursor());
+        assertEquals(1, last.getOrders().length);
+        assertEquals(6, last.getOrders()[0].getId());
+        assertEquals(null, last.getNextCursor());
+    }
+
+    @Test
+    public void testGetOrdersPageNewestFirst() throws IOException {
+        // Invoke
+        OrderPage first = orderDAO.getOrdersPage("test", null, 1, true);
+        OrderPage last = orderDAO.getOrdersPage("test", first.getNextCursor(), 1, true);
+        OrderPage everyone = orderDAO.getOrdersPage(null, 3, 5, true);
+        OrderPage nobody = orderDAO.getOrdersPage("no orders?", null, 5, true);
+
+        // Analyze
+        assertEquals(testOrders[1], first.getOrders()[0]);
+        assertEquals(testOrders[0], last.getOrders()[0]);
+        assertEquals(null, last.getNextCursor());
+        assertEquals(2, everyone.getOrders().length);
+        assertEquals(testOrders[1], everyone.getOrders()[0]);
+        assertEquals(0, nobody.getOrders().length);
+    }
+
+    @Test
+    public void testFindOrdersPage() throws IOException {
+        // Invoke
+        OrderPage first = orderDAO.findOrdersPage("y", "test", null, 1, false);
+        OrderPage last = orderDAO.findOrdersPage("y", "test", first.getNextCursor(), 1, false);
+        OrderPage everyone = orderDAO.findOrdersPage("ummy", null, null, 5, false);
+
+        // Analyze
+        assertEquals(testOrders[0], first.getOrders()[0]);
+        assertEquals(1, first.getNextCursor());
+        assertEquals(testOrders[1], last.getOrders()[0]);
+        assertEquals(null, last.getNextCursor());
+        assertEquals(2, everyone.getOrders().length); // yummy and gummy
+    }
+
+    @Test
+    public void testJournaledOrdersSurviveRestart() throws IOException {
+        // Setup
+        Path ordersFile = tempDir.resolve("orders.json");
+        Path journalFile = tempDir.resolve("orders.journal");
+        ObjectMapper mapper = new ObjectMapper();
+        Files.write(ordersFile, mapper.writeValueAsBytes(testOrders));
+        OrderFileDAO journaledDAO = new OrderFileDAO(ordersFile.toString(), mapper, journalFile.toString(), 10, "durable", 0, 1);
+
+        // Invoke
+        Order createdOrder = journaledDAO.createOrder("journaled", new ArrayList<>());
+        OrderFileDAO restartedDAO = new OrderFileDAO(ordersFile.toString(), mapper, journalFile.toString(), 10, "durable", 0, 1);
+
+        // Analyze
+        assertEquals(4, createdOrder.getId());
+        assertEquals(3, mapper.readValue(ordersFile.toFile(), OrderRecord[].class).length); // snapshot untouched
+        assertEquals("journaled", restartedDAO.getOrder(4).getUser());
+        assertEquals(2, restartedDAO.getOrders("test").length);
+        assertEquals(1, restartedDAO.getOrders("journaled").length);
+        assertEquals(5, restartedDAO.createOrder("next", new ArrayList<>()).getId());
+    }
+
+    @Test
+    public void testJournalCompactsIntoSnapshot() throws IOException {
+        // Setup
+        Path ordersFile = tempDir.resolve("orders.json");
+        Path journalFile = tempDir.resolve("orders.journal");
+        ObjectMapper mapper = new ObjectMapper();
+        Files.write(ordersFile, mapper.writeValueAsBytes(testOrders));
+        OrderFileDAO journaledDAO = new OrderFileDAO(ordersFile.toString(), mapper, journalFile.toString(), 2, "durable", 0, 1);
+
+        // Invoke
+        journaledDAO.createOrder("first", new ArrayList<>());
+        journaledDAO.createOrder("second", new ArrayList<>());
+        journaledDAO.close(); // compaction runs in the background, close waits for it
+
+        // Analyze
+        assertEquals(5, mapper.readValue(ordersFile.toFile(), OrderRecord[].class).length);
+        assertEquals(0, Files.size(journalFile));
+        OrderFileDAO restartedDAO = new OrderFileDAO(ordersFile.toString(), mapper, journalFile.toString(), 2, "durable", 0, 1);
+        assertEquals("second", restartedDAO.getOrder(5).getUser());
+    }
+
+    @Test
+    public void testMigratesWholeKitOrders() throws IOException {
+        // Setup - a file saved before orders were stored as lines
+        Path ordersFile = tempDir.resolve("orders.json");
+        ObjectMapper mapper = new ObjectMapper();
+        ArrayList<Kit> kits = new ArrayList<>();
+        kits.add(new Kit(2, "Kit 2", 31.99f, 3, new ArrayList<>(List.of(4, 5, 6))));
+        Files.write(ordersFile, ("[{\"id\":1,\"user\":\"old\",\"kits_in_order\":"
+                + mapper.writeValueAsString(kits) + "}]").getBytes());
+
+        // Invoke
+        OrderFileDAO migratedDAO = new OrderFileDAO(ordersFile.toString(), mapper);
+        String rewritten = new String(Files.readAllBytes(ordersFile));
+        OrderFileDAO restartedDAO = new OrderFileDAO(ordersFile.toString(), mapper);
+
+        // Analyze - the file now holds lines, and the order reads back the same either way
+        assertTrue(rewritten.contains("\"lines\":[[2,\"Kit 2\",3199,3,[4,5,6]]]"));
+        assertFalse(rewritten.contains("kits_in_order"));
+        assertSameKits(kits, migratedDAO.getOrder(1).getKits());
+        assertSameKits(kits, restartedDAO.getOrder(1).getKits());
+        assertEquals(1, restartedDAO.findOrders("kit 2", "old").length);
+    }
+
+    @Test
+    public void testExportOrders() throws IOException {
+        // Setup - enough orders to take more than one batch
+        for (int i = 0; i < OrderFileDAO.EXPORT_BATCH; i++)
+            orderDAO.createOrder("bulk", new ArrayList<>());
+        List<Order> exported = new ArrayList<>();
+
+        // Invoke - an order created mid-export is left out
+        orderDAO.exportOrders(order -> {
+            exported.add(order);
+            if (exported.size() == 1)
+                orderDAO.createOrder("late", new ArrayList<>());
+        });
+
+        // Analyze
+        assertEquals(OrderFileDAO.EXPORT_BATCH + 3, exported.size());
+        for (int i = 0; i < exported.size(); i++)
+            assertEquals(i + 1, exported.get(i).getId());
+        assertEquals(testOrders[2], exported.get(2));
+    }
 }
@@ -0,0 +1,110 @@
+package com.estore.api.estoreapi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.estore.api.estoreapi.model.Kit;
+import com.estore.api.estoreapi.model.Order;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Tests the OrderJournal class
+ */
+@Tag("Persistence-tier")
+public class OrderJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path journalFile;
+    private ObjectMapper objectMapper;
+    private OrderJournal journal;
+
+    @BeforeEach
+    public void setupTests() {
+        journalFile = tempDir.resolve("orders.journal");
+        objectMapper = new ObjectMapper();
+        journal = new OrderJournal(journalFile.toString(), objectMapper);
+    }
+
+    private Order testOrder(int id) {
+        ArrayList<Kit> kits = new ArrayList<>();
+        kits.add(new Kit(id, "kit" + id, 4.5f, 1, new ArrayList<Integer>()));
+        return new Order(id, "user" + id, kits);
+    }
+
+    @Test
+    public void testReplayMissingFile() throws IOException {
+        assertEquals(0, journal.replay().size());
+        assertFalse(Files.exists(journalFile)); // nothing is created until an order is appended
+    }
+
+    @Test
+    public void testAppendAndReplay() throws IOException {
+        journal.append(testOrder(1));
+        journal.append(testOrder(2));
+        journal.close();
+        assertEquals(2, journal.size());
+
+        OrderJournal reopened = new OrderJournal(journalFile.toString(), objectMapper);
+        List<Order> orders = reopened.replay();
+
+        assertEquals(2, orders.size());
+        assertEquals(2, reopened.size());
+        assertEquals(1, orders.get(0).getId());
+        assertEquals("user2", orders.get(1).getUser());
+        assertEquals("kit2", orders.get(1).getKits().get(0).getName());
+    }
+
+    @Test
+    public void testReplayDropsTornRecord() throws IOException {
+        journal.append(testOrder(1));
+        journal.close();
+        Files.write(journalFile, "{\"id\":2,\"user\":\"to".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+
+        OrderJournal reopened = new OrderJournal(journalFile.toString(), objectMapper);
+        List<Order> orders = reopened.replay();
+
+        assertEquals(1, orders.size());
+        assertEquals(1, orders.get(0).getId());
+
+        // the torn bytes are cut off so the next record starts on its own line
+        reopened.append(testOrder(3));
+        reopened.close();
+        List<Order> replayed = new OrderJournal(journalFile.toString(), objectMapper).replay();
+        assertEquals(2, replayed.size());
+        assertEquals(3, replayed.get(1).getId());
+    }
+
+    @Test
+    public void testDiscardKeepsRecordsAfterMark() throws IOException {
+        journal.append(testOrder(1));
+        journal.append(testOrder(2));
+        long mark = journal.mark();
+        journal.append(testOrder(3));
+
+        journal.discard(mark);
+        journal.append(testOrder(4));
+        journal.close();
+
+        assertEquals(2, journal.size());
+        List<Order> orders = new OrderJournal(journalFile.toString(), objectMapper).replay();
+        assertEquals(2, orders.size());
+        assertEquals(3, orders.get(0).getId());
+        assertEquals(4, orders.get(1).getId());
+    }
+}
@@ -0,0 +1,66 @@
+package com.estore.api.estoreapi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.estore.api.estoreapi.model.Product;
+import com.estore.api.estoreapi.model.Suggestion;
+
+/**
+ * Tests the PrefixIndex class
+ */
+@Tag("Persistence-tier")
+public class PrefixIndexTest {
+    private PrefixIndex index;
+
+    @BeforeEach
+    public void setupIndex() {
+        Product[] products = new Product[5];
+        products[0] = new Product(1, "Lime Juice", 1.99F, 5);
+        products[1] = new Product(2, "lemonade", 2.49F, 40);
+        products[2] = new Product(3, "Lemon", 0.49F, 12);
+        products[3] = new Product(4, "Mint", 0.99F, 40);
+        products[4] = new Product(5, "Lemongrass", 0.99F, 12);
+        index = PrefixIndex.of(products, Product::getId, Product::getName, Product::getQuantity);
+    }
+
+    @Test
+    public void testSuggestRanksByStock() {
+        Suggestion[] suggestions = index.suggest("LEM", 10);
+
+        assertEquals(3, suggestions.length);
+        assertEquals("lemonade", suggestions[0].getName());
+        assertEquals(3, suggestions[1].getId()); // ties keep name order
+        assertEquals(5, suggestions[2].getId());
+    }
+
+    @Test
+    public void testSuggestLimit() {
+        Suggestion[] suggestions = index.suggest("l", 2);
+
+        assertEquals(2, suggestions.length);
+        assertEquals(2, suggestions[0].getId());
+        assertEquals(3, suggestions[1].getId());
+        assertEquals(0, index.suggest("l", 0).length);
+    }
+
+    @Test
+    public void testSuggestNoMatch() {
+        assertEquals(0, index.suggest("z", 10).length);
+        assertEquals(0, index.suggest("lemons", 10).length);
+        assertEquals(0, PrefixIndex.of(new Product[0], Product::getId, Product::getName,
+                Product::getQuantity).suggest("a", 10).length);
+    }
+
+    @Test
+    public void testEmptyPrefixSuggestsEverything() {
+        Suggestion[] suggestions = index.suggest("", 10);
+
+        assertEquals(5, suggestions.length);
+        assertEquals(2, suggestions[0].getId());
+        assertEquals(4, suggestions[1].getId());
+    }
+}
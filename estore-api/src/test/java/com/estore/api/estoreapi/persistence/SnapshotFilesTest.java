@@ -0,0 +1,92 @@
+package com.estore.api.estoreapi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.estore.api.estoreapi.model.Product;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Tests the SnapshotFiles class
+ */
+@Tag("Persistence-tier")
+public class SnapshotFilesTest {
+
+    @TempDir
+    Path tempDir;
+
+    private File snapshot;
+    private ObjectMapper objectMapper;
+    private Product[] testProducts;
+
+    @BeforeEach
+    public void setupTests() {
+        snapshot = tempDir.resolve("inventory.json").toFile();
+        objectMapper = new ObjectMapper();
+        testProducts = new Product[2];
+        testProducts[0] = new Product(1, "Soda", 1.99F, 20);
+        testProducts[1] = new Product(2, "Water", 0.99F, 200);
+    }
+
+    @Test
+    public void testWriteThenLoad() throws IOException {
+        SnapshotFiles.write(objectMapper, snapshot, testProducts);
+
+        SnapshotFiles.verify(snapshot);
+        Product[] loaded = objectMapper.readValue(snapshot, Product[].class);
+
+        assertEquals(2, loaded.length);
+        assertEquals("Water", loaded[1].getName());
+        assertFalse(Files.exists(tempDir.resolve("inventory.json.tmp")));
+    }
+
+    @Test
+    public void testVerifyDetectsCorruption() throws IOException {
+        SnapshotFiles.write(objectMapper, snapshot, testProducts);
+        byte[] data = Files.readAllBytes(snapshot.toPath());
+        data[10] = (byte) (data[10] == 'x' ? 'y' : 'x');
+        Files.write(snapshot.toPath(), data);
+
+        assertThrows(IOException.class, () -> SnapshotFiles.verify(snapshot));
+    }
+
+    @Test
+    public void testVerifyAcceptsFileWithoutFooter() throws IOException {
+        Files.write(snapshot.toPath(), "[{\"id\":1,\"name\":\"Soda\",\"price\":1.99,\"quantity\":20}]"
+                .getBytes(StandardCharsets.UTF_8));
+
+        assertDoesNotThrow(() -> SnapshotFiles.verify(snapshot));
+        assertDoesNotThrow(() -> SnapshotFiles.verify(tempDir.resolve("missing.json").toFile()));
+    }
+
+    @Test
+    public void testFailedWriteKeepsOriginal() throws IOException {
+        SnapshotFiles.write(objectMapper, snapshot, testProducts);
+        byte[] original = Files.readAllBytes(snapshot.toPath());
+        ObjectMapper failingMapper = mock(ObjectMapper.class);
+        doThrow(new IOException("disk full")).when(failingMapper).writeValue(any(OutputStream.class), any());
+
+        assertThrows(IOException.class, () -> SnapshotFiles.write(failingMapper, snapshot, new Product[0]));
+
+        assertArrayEquals(original, Files.readAllBytes(snapshot.toPath()));
+        assertFalse(Files.exists(tempDir.resolve("inventory.json.tmp")));
+    }
+}
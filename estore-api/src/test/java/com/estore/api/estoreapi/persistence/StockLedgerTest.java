@@ -0,0 +1,108 @@
+package com.estore.api.estoreapi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the StockLedger class
+ */
+@Tag("Persistence-tier")
+public class StockLedgerTest {
+
+    @Test
+    public void testReserveAndRelease() {
+        StockLedger stock = new StockLedger();
+        stock.set(1, 10);
+
+        assertTrue(stock.reserve(1, 4));
+        assertFalse(stock.reserve(1, 7)); // only 6 left
+        assertTrue(stock.release(1, 2));
+
+        assertEquals(8, stock.get(1));
+    }
+
+    @Test
+    public void testUnknownKit() {
+        StockLedger stock = new StockLedger();
+        stock.set(1, 10);
+        stock.remove(1);
+
+        assertFalse(stock.reserve(1, 1));
+        assertFalse(stock.release(2, 1));
+        assertEquals(0, stock.get(2));
+    }
+
+    @Test
+    public void testOutOfStock() {
+        StockLedger stock = new StockLedger();
+        stock.set(1, 0);
+
+        assertFalse(stock.reserve(1, 0));
+    }
+
+    @Test
+    public void testRejectsNonPositiveQuantities() {
+        StockLedger stock = new StockLedger();
+        stock.set(1, 10);
+
+        assertFalse(stock.reserve(1, -5)); // would have put 5 units in stock
+        assertFalse(stock.release(1, -5));
+        assertFalse(stock.release(1, 0));
+        assertEquals(10, stock.get(1));
+        assertEquals(0, stock.drainChanged().length);
+    }
+
+    @Test
+    public void testDrainChanged() {
+        StockLedger stock = new StockLedger();
+        stock.set(1, 10);
+        stock.set(2, 10);
+        stock.set(3, 10);
+
+        stock.reserve(1, 1);
+        stock.release(3, 1);
+        stock.reserve(2, 11); // fails, so nothing changed
+
+        int[] changed = stock.drainChanged();
+        Arrays.sort(changed);
+        assertArrayEquals(new int[] { 1, 3 }, changed);
+        assertEquals(0, stock.drainChanged().length);
+    }
+
+    @Test
+    public void testConcurrentReservesNeverOversell() throws Exception {
+        StockLedger stock = new StockLedger();
+        stock.set(1, 1_000);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            results.add(executor.submit(() -> {
+                int reserved = 0;
+                for (int i = 0; i < 500; i++)
+                    if (stock.reserve(1, 1))
+                        reserved++;
+                return reserved;
+            }));
+        }
+        int reserved = 0;
+        for (Future<Integer> result : results)
+            reserved += result.get();
+        executor.shutdown();
+
+        assertEquals(1_000, reserved);
+        assertEquals(0, stock.get(1));
+    }
+}
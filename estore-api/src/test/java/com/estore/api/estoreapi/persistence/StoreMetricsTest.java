@@ -0,0 +1,108 @@
+package com.estore.api.estoreapi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.env.MockEnvironment;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Tests the StoreMetrics class
+ */
+@Tag("Persistence-tier")
+public class StoreMetricsTest {
+    private SimpleMeterRegistry registry;
+    private CartDAO mockCartDAO;
+    private MockEnvironment environment;
+    private StoreMetrics stores;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    public void setupStoreMetrics() {
+        KitDAO mockKitDAO = mock(KitDAO.class);
+        InventoryDAO mockInventoryDAO = mock(InventoryDAO.class);
+        UserDAO mockUserDAO = mock(UserDAO.class);
+        OrderDAO mockOrderDAO = mock(OrderDAO.class);
+        mockCartDAO = mock(CartDAO.class);
+        when(mockKitDAO.getKitCount()).thenReturn(3);
+        when(mockInventoryDAO.getProductCount()).thenReturn(5);
+        when(mockUserDAO.getUserCount()).thenReturn(2);
+        when(mockOrderDAO.getOrderCount()).thenReturn(7);
+        when(mockCartDAO.getLiveCarts()).thenReturn(4);
+        when(mockCartDAO.getEvictedCarts()).thenReturn(6L);
+        when(mockCartDAO.getUnitsReturned()).thenReturn(9L);
+
+        registry = new SimpleMeterRegistry();
+        environment = new MockEnvironment();
+        stores = new StoreMetrics(mockKitDAO, mockInventoryDAO, mockUserDAO, mockOrderDAO, mockCartDAO,
+                environment);
+    }
+
+    private double size(String store) {
+        return registry.get("estore.store.size").tag("store", store).gauge().value();
+    }
+
+    @Test
+    public void testStoreSizes() {
+        stores.bindTo(registry);
+
+        assertEquals(3, size("kits"));
+        assertEquals(5, size("products"));
+        assertEquals(2, size("users"));
+        assertEquals(7, size("orders"));
+        assertEquals(4, size("carts"));
+
+        when(mockCartDAO.getLiveCarts()).thenReturn(1);
+        assertEquals(1, size("carts"));
+    }
+
+    @Test
+    public void testScrapesAreNotTimed() {
+        CartDAO timedCartDAO = (CartDAO)new DaoMetrics(registry).postProcessAfterInitialization(mockCartDAO, "cartDAO");
+        new StoreMetrics(mock(KitDAO.class), mock(InventoryDAO.class), mock(UserDAO.class), mock(OrderDAO.class),
+                timedCartDAO, environment).bindTo(registry);
+
+        assertEquals(4, size("carts"));
+        assertEquals(6, registry.get("estore.carts.evicted").functionCounter().count());
+
+        assertEquals(0, registry.get("estore.dao").tag("method", "getLiveCarts").timer().count());
+        assertEquals(0, registry.get("estore.dao").tag("method", "getEvictedCarts").timer().count());
+    }
+
+    @Test
+    public void testCartCounters() {
+        stores.bindTo(registry);
+
+        assertEquals(6, registry.get("estore.carts.evicted").functionCounter().count());
+        assertEquals(9, registry.get("estore.carts.units.returned").functionCounter().count());
+    }
+
+    @Test
+    public void testFileSizes() throws IOException {
+        Path journal = tempDir.resolve("orders.journal");
+        Files.write(journal, new byte[42]);
+        environment.setProperty("orders.journal.file", journal.toString());
+        environment.setProperty("users.file", tempDir.resolve("missing.json").toString());
+        stores.bindTo(registry);
+
+        assertEquals(42, registry.get("estore.store.file.size").tag("file", "orders.journal").gauge().value());
+        assertEquals(0, registry.get("estore.store.file.size").tag("file", "users").gauge().value());
+        assertNull(registry.find("estore.store.file.size").tag("file", "kits").gauge()); // not configured
+
+        Files.write(journal, new byte[100]);
+        assertEquals(100, registry.get("estore.store.file.size").tag("file", "orders.journal").gauge().value());
+    }
+}
@@ -0,0 +1,60 @@
+package com.estore.api.estoreapi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the TrigramIndex class
+ */
+@Tag("Persistence-tier")
+public class TrigramIndexTest {
+    private TrigramIndex index;
+
+    @BeforeEach
+    public void setupIndex() {
+        index = new TrigramIndex();
+        index.put(3, "Mojito Kit");
+        index.put(1, "Margarita Kit");
+        index.put(2, "Mimosa Brunch");
+    }
+
+    @Test
+    public void testSearchIgnoresCase() {
+        assertArrayEquals(new int[] {1, 3}, index.search("KIT"));
+        assertArrayEquals(new int[] {1}, index.search("garita"));
+    }
+
+    @Test
+    public void testSearchNeedsWholeSubstring() {
+        // every trigram of the query is indexed, but never side by side
+        index.put(4, "abcd xbcy");
+        assertArrayEquals(new int[0], index.search("abcy"));
+        assertArrayEquals(new int[0], index.search("zzz"));
+    }
+
+    @Test
+    public void testShortQueriesScan() {
+        assertArrayEquals(new int[] {1, 2, 3}, index.search("m"));
+        assertArrayEquals(new int[] {2}, index.search("br"));
+        assertArrayEquals(new int[] {1, 2, 3}, index.search(""));
+    }
+
+    @Test
+    public void testPutReplacesName() {
+        index.put(2, "Paloma");
+
+        assertArrayEquals(new int[0], index.search("mimosa"));
+        assertArrayEquals(new int[] {2}, index.search("palo"));
+    }
+
+    @Test
+    public void testRemove() {
+        index.remove(3);
+        index.remove(42);
+
+        assertArrayEquals(new int[] {1}, index.search("kit"));
+    }
+}
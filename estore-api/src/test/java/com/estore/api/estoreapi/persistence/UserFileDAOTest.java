@@ -5,9 +5,11 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -27,9 +29,14 @@ public class UserFileDAOTest {
     Map<String, String> testLoginCreds;
     ObjectMapper mockObjectMapper;
 
+    @TempDir
+    Path tempDir;
+    String dataFile;
+
     @BeforeEach
     public void setupUserFileDAO() throws IOException{
         mockObjectMapper = mock(ObjectMapper.class);
+        dataFile = tempDir.resolve("users.json").toString();
         testUsers = new User[2];
         User admin = new User(100, "admin", "1234",
                 "admin", User.UserRole.ADMIN);
@@ -45,9 +52,9 @@ public class UserFileDAOTest {
         testLoginCreds.put(testUsers[1].getUsername(), testUsers[1].getPassword());
 
         when(mockObjectMapper
-                .readValue(new File("doesnt_matter.txt"), User[].class))
+                .readValue(new File(dataFile), User[].class))
                 .thenReturn(testUsers);
-        userFileDAO = new UserFileDAO("doesnt_matter.txt",mockObjectMapper);
+        userFileDAO = new UserFileDAO(dataFile,mockObjectMapper);
     }
 
 
@@ -62,6 +69,11 @@ public class UserFileDAOTest {
         }
     }
 
+    @Test
+    public void testGetUserCount() {
+        assertEquals(testUsers.length, userFileDAO.getUserCount());
+    }
+
     @Test
     public void testCreateUser() throws IOException {
         String username = "user";
@@ -104,6 +116,31 @@ public class UserFileDAOTest {
         assertEquals(u, testUsers[1]);
     }
 
+    @Test
+    public void testFindByUsername() throws IOException {
+        assertEquals(testUsers[1], userFileDAO.findByUsername("test"));
+        assertTrue(userFileDAO.existsByUsername("admin"));
+        assertNull(userFileDAO.findByUsername("nobody"));
+
+        User created = userFileDAO.createUser("user", "pass", "User");
+        assertEquals(created, userFileDAO.findByUsername("user"));
+
+        userFileDAO.updateUsername(created, "renamed");
+        assertFalse(userFileDAO.existsByUsername("user"));
+        assertEquals(created, userFileDAO.findByUsername("renamed"));
+
+        userFileDAO.deleteUser(created.getId());
+        assertFalse(userFileDAO.existsByUsername("renamed"));
+    }
+
+    @Test
+    public void testUsernamesStayUnique() throws IOException {
+        assertNull(userFileDAO.createUser("test", "pass", "Copy"));
+        assertNull(userFileDAO.updateUsername(testUsers[0], "test"));
+        assertEquals("admin", testUsers[0].getUsername());
+        assertEquals(testUsers.length, userFileDAO.getUsers().length);
+    }
+
     @Test
     public void testUpdateUsername() throws IOException{
         String username = "user";
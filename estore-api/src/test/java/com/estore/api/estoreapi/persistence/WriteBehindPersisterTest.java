@@ -0,0 +1,113 @@
+package com.estore.api.estoreapi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Tests the WriteBehindPersister class
+ */
+@Tag("Persistence-tier")
+public class WriteBehindPersisterTest {
+
+    @Test
+    public void testDurableWaitsForFlush() throws IOException {
+        AtomicInteger flushes = new AtomicInteger();
+        WriteBehindPersister persister = new WriteBehindPersister("test", flushes::incrementAndGet);
+
+        long version = persister.markDirty();
+        persister.awaitFlush(version);
+
+        assertEquals(1, version);
+        assertEquals(1, flushes.get());
+    }
+
+    @Test
+    public void testFastCoalescesMutations() throws Exception {
+        AtomicInteger flushes = new AtomicInteger();
+        CountDownLatch flushed = new CountDownLatch(1);
+        WriteBehindPersister persister = new WriteBehindPersister("test", WriteBehindPersister.Mode.FAST,
+                200, 1000, () -> {
+                    flushes.incrementAndGet();
+                    flushed.countDown();
+                });
+
+        for (int i = 0; i < 100; i++)
+            persister.awaitFlush(persister.markDirty()); // returns without waiting in fast mode
+
+        assertTrue(flushed.await(5, TimeUnit.SECONDS));
+        assertEquals(100, persister.getVersion());
+        assertEquals(1, flushes.get());
+    }
+
+    @Test
+    public void testMaxPendingStartsFlush() throws Exception {
+        CountDownLatch flushed = new CountDownLatch(1);
+        WriteBehindPersister persister = new WriteBehindPersister("test", WriteBehindPersister.Mode.FAST,
+                60_000, 3, flushed::countDown);
+
+        persister.markDirty();
+        persister.markDirty();
+        persister.markDirty();
+
+        assertTrue(flushed.await(5, TimeUnit.SECONDS)); // long before the delay runs out
+    }
+
+    @Test
+    public void testFlushWritesPendingMutations() throws IOException {
+        AtomicInteger flushes = new AtomicInteger();
+        WriteBehindPersister persister = new WriteBehindPersister("test", WriteBehindPersister.Mode.FAST,
+                60_000, 1000, flushes::incrementAndGet);
+
+        persister.markDirty();
+        persister.flush();
+        persister.flush(); // nothing new to write
+
+        assertEquals(1, flushes.get());
+    }
+
+    @Test
+    public void testDurableReportsFailure() {
+        WriteBehindPersister persister = new WriteBehindPersister("test", () -> {
+            throw new IOException("disk full");
+        });
+
+        long version = persister.markDirty();
+
+        IOException e = assertThrows(IOException.class, () -> persister.awaitFlush(version));
+        assertEquals("disk full", e.getCause().getMessage());
+    }
+
+    @Test
+    public void testFlushTimedAsSaveTime() throws IOException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        Metrics.addRegistry(registry);
+        try {
+            WriteBehindPersister persister = new WriteBehindPersister("timed", WriteBehindPersister.Mode.FAST,
+                    60_000, 1000, () -> LockSupport.parkNanos(1_000_000));
+            long saved = SaveTime.total();
+
+            persister.markDirty();
+            persister.flush();
+
+            Timer timer = registry.get("estore.persist.save").tag("store", "timed").timer();
+            assertEquals(1, timer.count());
+            assertTrue(SaveTime.total() > saved); // the flush ran on this thread
+        } finally {
+            Metrics.removeRegistry(registry);
+        }
+    }
+}
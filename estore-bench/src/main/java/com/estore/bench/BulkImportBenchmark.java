@@ -0,0 +1,78 @@
+package com.estore.bench;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.estore.api.estoreapi.model.Product;
+import com.estore.api.estoreapi.persistence.InventoryFileDAO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Measures importing products into an empty inventory in one bulk request,
+ * saved once, against creating them one at a time, saved after each
+ * <br>
+ * Each import is timed once from a fresh inventory. Creating products one at a
+ * time rewrites the whole file every time, so it grows with the square of the
+ * number of products; run it at 100000 with {@code -p size=100000} only when
+ * there is time to spare.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class BulkImportBenchmark {
+    @Param({"1000", "10000"})
+    int size;
+
+    private Path dir;
+    private Product[] products;
+    private InventoryFileDAO inventoryDao;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        products = new DataGenerator(new ObjectMapper()).products(size);
+    }
+
+    @Setup(Level.Invocation)
+    public void emptyInventory() throws IOException {
+        dir = DataGenerator.tempDir();
+        Path file = dir.resolve("inventory.json");
+        new DataGenerator(new ObjectMapper()).write(file, new Product[0]);
+        inventoryDao = new InventoryFileDAO(file.toString(), new ObjectMapper());
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() throws IOException {
+        DataGenerator.delete(dir);
+    }
+
+    @Benchmark
+    public Product[] createProducts() throws IOException {
+        return inventoryDao.createProducts(products);
+    }
+
+    @Benchmark
+    public Product createProductEach() throws IOException {
+        Product last = null;
+        for (Product product : products)
+            last = inventoryDao.createProduct(product);
+        return last;
+    }
+}
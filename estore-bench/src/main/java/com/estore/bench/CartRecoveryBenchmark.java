@@ -0,0 +1,100 @@
+package com.estore.bench;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.estore.api.estoreapi.persistence.CartFileDAO;
+import com.estore.api.estoreapi.persistence.CartRecord;
+import com.estore.api.estoreapi.persistence.KitFileDAO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Measures how long the cart DAO takes to restore every cart at startup, from
+ * a snapshot of the given number of carts and a journal of changes made after it
+ * <br>
+ * The journal holds one change for every tenth cart, as if the application
+ * stopped partway to its next compaction. Each restore starts from the same
+ * copy of the files.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CartRecoveryBenchmark {
+    private static final int KITS = 1000;
+
+    @Param({"100000", "1000000"})
+    int size;
+
+    private Path dir;
+    private Path snapshot;   // the files as written, copied before every restore
+    private Path journal;
+    private KitFileDAO kitDao;
+    private CartFileDAO cartDao;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        dir = DataGenerator.tempDir();
+        ObjectMapper objectMapper = new ObjectMapper();
+        DataGenerator generator = new DataGenerator(objectMapper);
+        Path kits = dir.resolve("kits.json");
+        generator.write(kits, generator.kits(KITS, KITS / 2));
+        kitDao = new KitFileDAO(kits.toString(), objectMapper);
+
+        snapshot = dir.resolve("carts.json.orig");
+        generator.write(snapshot, generator.carts(size, KITS));
+        journal = dir.resolve("carts.journal.orig");
+        try (OutputStream out = Files.newOutputStream(journal)) {
+            for (int user = 1; user <= size; user += 10) {
+                // one more of the first kit, numbered after every change in the snapshot
+                out.write(objectMapper.writeValueAsBytes(new CartRecord(user, size + user, new int[] {1, 1})));
+                out.write('\n');
+            }
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void copyFiles() throws IOException {
+        Files.copy(snapshot, dir.resolve("carts.json"), StandardCopyOption.REPLACE_EXISTING);
+        Files.copy(journal, dir.resolve("carts.journal"), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @TearDown(Level.Invocation)
+    public void close() throws IOException {
+        if (cartDao != null)
+            cartDao.close(); // waits for the snapshot the restore started, so the next copy is not overwritten
+        cartDao = null;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        DataGenerator.delete(dir);
+    }
+
+    @Benchmark
+    public int restore() throws IOException {
+        cartDao = new CartFileDAO(kitDao, new ObjectMapper(), dir.resolve("carts.json").toString(),
+                dir.resolve("carts.journal").toString(), Integer.MAX_VALUE);
+        return cartDao.getLiveCarts();
+    }
+}
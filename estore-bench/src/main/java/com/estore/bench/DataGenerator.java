@@ -0,0 +1,257 @@
+package com.estore.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+import com.estore.api.estoreapi.model.Kit;
+import com.estore.api.estoreapi.model.Order;
+import com.estore.api.estoreapi.model.Product;
+import com.estore.api.estoreapi.model.User;
+import com.estore.api.estoreapi.persistence.CartRecord;
+import com.estore.api.estoreapi.persistence.OrderRecord;
+import com.estore.api.estoreapi.persistence.SnapshotFiles;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Writes synthetic data files in the same form as the API's own data files,
+ * for the benchmarks to load
+ * <br>
+ * Products and kits get names built from mixology words, so name searches
+ * match some but not all of them, as they would in a real catalog. Kits hold
+ * two to six products, orders hold one to four kits, and there is one user for
+ * every ten orders. The same seed always gives the same data, so runs can be
+ * compared. Run as a program to write a data set for the API itself:
+ * <pre>
+ * java -cp benchmarks.jar com.estore.bench.DataGenerator data-dir 100000
+ * </pre>
+ */
+public final class DataGenerator {
+    private static final String[] FLAVORS = {"Citrus", "Mint", "Berry", "Ginger", "Vanilla", "Smoky",
+            "Tropical", "Spiced", "Herbal", "Bitter", "Honey", "Cherry", "Lavender", "Coffee", "Peach"};
+    private static final String[] ITEMS = {"Syrup", "Bitters", "Shaker", "Tonic", "Soda", "Jigger",
+            "Muddler", "Strainer", "Garnish", "Liqueur", "Mixer", "Glassware", "Rimmer", "Cordial"};
+    private static final String[] STYLES = {"Classic", "Deluxe", "Starter", "Party", "Craft",
+            "Holiday", "Summer", "Essentials"};
+
+    private static final long SEED = 20240401L; // fixed so every run generates the same data
+
+    private final ObjectMapper objectMapper;
+    private final SplittableRandom random = new SplittableRandom(SEED);
+
+    /**
+     * Creates a generator
+     *
+     * @param objectMapper Writes the data files
+     */
+    public DataGenerator(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Generates products
+     *
+     * @param count The number of products
+     *
+     * @return Products with ids 1 to count
+     */
+    public Product[] products(int count) {
+        Product[] products = new Product[count];
+        for (int i = 0; i < count; i++)
+            products[i] = new Product(i + 1, pick(FLAVORS) + " " + pick(ITEMS) + " " + (i + 1),
+                    price(), 50 + random.nextInt(1000));
+        return products;
+    }
+
+    /**
+     * Generates kits of existing products
+     *
+     * @param count The number of kits
+     * @param productCount The number of products, with ids 1 to productCount, the kits are made of
+     *
+     * @return Kits with ids 1 to count
+     */
+    public Kit[] kits(int count, int productCount) {
+        Kit[] kits = new Kit[count];
+        for (int i = 0; i < count; i++) {
+            int[] products = new int[2 + random.nextInt(5)];
+            for (int p = 0; p < products.length; p++)
+                products[p] = 1 + random.nextInt(productCount);
+            kits[i] = new Kit(i + 1, pick(STYLES) + " " + pick(FLAVORS) + " Kit " + (i + 1),
+                    price() * 3, 10 + random.nextInt(500), products);
+        }
+        return kits;
+    }
+
+    /**
+     * Generates customers
+     *
+     * @param count The number of users
+     *
+     * @return Users with ids 1 to count and usernames {@link #username(int) user1} to user{count}
+     */
+    public User[] users(int count) {
+        User[] users = new User[count];
+        for (int i = 0; i < count; i++)
+            users[i] = new User(i + 1, username(i + 1), "pw" + random.nextInt(1000000),
+                    pick(FLAVORS) + " " + pick(STYLES), User.UserRole.CUSTOMER);
+        return users;
+    }
+
+    /**
+     * Generates orders of existing kits by existing users
+     *
+     * @param count The number of orders
+     * @param userCount The number of users, named as {@link #users(int)} names them
+     * @param kits The kits the orders are made of
+     *
+     * @return Orders with ids 1 to count
+     */
+    public Order[] orders(int count, int userCount, Kit[] kits) {
+        Order[] orders = new Order[count];
+        for (int i = 0; i < count; i++) {
+            ArrayList<Kit> bought = new ArrayList<>();
+            int lines = 1 + random.nextInt(4);
+            for (int l = 0; l < lines; l++) {
+                Kit kit = kits[random.nextInt(kits.length)];
+                Kit line = kit.withId(kit.getId()); // the order's copy, holding the quantity bought
+                line.setQuantity(1 + random.nextInt(3));
+                bought.add(line);
+            }
+            orders[i] = new Order(i + 1, username(1 + random.nextInt(userCount)), bought);
+        }
+        return orders;
+    }
+
+    /**
+     * Generates the shopping carts of users
+     *
+     * @param count The number of carts, one for each of the users 1 to count
+     * @param kitCount The number of kits, with ids 1 to kitCount, in the carts
+     *
+     * @return Cart snapshot records, each holding one to five kits
+     */
+    public CartRecord[] carts(int count, int kitCount) {
+        CartRecord[] carts = new CartRecord[count];
+        for (int i = 0; i < count; i++) {
+            int[] items = new int[2 * (1 + random.nextInt(5))];
+            for (int k = 0; k < items.length; k += 2) {
+                items[k] = 1 + random.nextInt(kitCount);
+                items[k + 1] = 1 + random.nextInt(3);
+            }
+            carts[i] = new CartRecord(i + 1, i + 1, items);
+        }
+        return carts;
+    }
+
+    /**
+     * Retrieves the username {@link #users(int)} gives a user
+     *
+     * @param id The user's id
+     *
+     * @return The username
+     */
+    public static String username(int id) {
+        return "user" + id;
+    }
+
+    /**
+     * Writes values to a data file the way the DAOs write them, checksum footer included
+     *
+     * @param file The file to write
+     * @param values The values, an array of model objects or records
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path file, Object values) throws IOException {
+        SnapshotFiles.write(objectMapper, file.toFile(), values);
+    }
+
+    /**
+     * Writes orders to an order history file, as order records
+     *
+     * @param file The file to write
+     * @param orders The orders
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public void writeOrders(Path file, Order[] orders) throws IOException {
+        OrderRecord[] records = new OrderRecord[orders.length];
+        for (int i = 0; i < orders.length; i++)
+            records[i] = new OrderRecord(orders[i]);
+        write(file, records);
+    }
+
+    /**
+     * Creates an empty directory for a benchmark's data files
+     *
+     * @return The directory
+     *
+     * @throws IOException if it cannot be created
+     */
+    public static Path tempDir() throws IOException {
+        return Files.createTempDirectory("estore-bench");
+    }
+
+    /**
+     * Deletes a directory created by {@link #tempDir()} and everything in it
+     *
+     * @param dir The directory, may be null
+     *
+     * @throws IOException if it cannot be deleted
+     */
+    public static void delete(Path dir) throws IOException {
+        if (dir == null || !Files.exists(dir))
+            return;
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    private String pick(String[] words) {
+        return words[random.nextInt(words.length)];
+    }
+
+    private double price() {
+        return (100 + random.nextInt(9900)) / 100.0; // 1.00 to 99.99
+    }
+
+    /**
+     * Writes a data set of the given size for the API: products.json, inventory.json,
+     * kits.json, users.json and orders.json
+     *
+     * @param args The directory to write to and the number of orders; there are a
+     * tenth as many users and kits, and half as many products as kits
+     *
+     * @throws IOException if a file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: DataGenerator <dir> <size>");
+            System.exit(2);
+        }
+        Path dir = Paths.get(args[0]);
+        int size = Integer.parseInt(args[1]);
+        Files.createDirectories(dir);
+
+        DataGenerator generator = new DataGenerator(new ObjectMapper());
+        int kitCount = Math.max(1, size / 10);
+        int productCount = Math.max(1, kitCount / 2);
+        int userCount = Math.max(1, size / 10);
+        Product[] products = generator.products(productCount);
+        Kit[] kits = generator.kits(kitCount, productCount);
+        generator.write(dir.resolve("products.json"), products);
+        generator.write(dir.resolve("inventory.json"), products);
+        generator.write(dir.resolve("kits.json"), kits);
+        generator.write(dir.resolve("users.json"), generator.users(userCount));
+        generator.writeOrders(dir.resolve("orders.json"), generator.orders(size, userCount, kits));
+        System.out.println("Wrote " + size + " orders, " + userCount + " users, " + kitCount + " kits and "
+                + productCount + " products to " + dir);
+    }
+}
@@ -0,0 +1,78 @@
+package com.estore.bench;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.estore.api.estoreapi.model.Product;
+import com.estore.api.estoreapi.persistence.InventoryFileDAO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Measures listing the inventory and searching it by name, against the
+ * name scan the search index replaced
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class InventoryBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    private static final String QUERY = "ginger syrup";
+
+    private Path dir;
+    private InventoryFileDAO inventoryDao;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = DataGenerator.tempDir();
+        DataGenerator generator = new DataGenerator(new ObjectMapper());
+        Path products = dir.resolve("inventory.json");
+        generator.write(products, generator.products(size));
+        inventoryDao = new InventoryFileDAO(products.toString(), new ObjectMapper());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        DataGenerator.delete(dir);
+    }
+
+    @Benchmark
+    public Product[] getProducts() {
+        return inventoryDao.getProducts();
+    }
+
+    @Benchmark
+    public Product[] findProducts() {
+        return inventoryDao.findProducts(QUERY);
+    }
+
+    @Benchmark
+    public List<Product> scan() {
+        // the search before the index: test every name
+        List<Product> found = new ArrayList<>();
+        for (Product product : inventoryDao.getProducts())
+            if (product.getName().toLowerCase().contains(QUERY))
+                found.add(product);
+        return found;
+    }
+}
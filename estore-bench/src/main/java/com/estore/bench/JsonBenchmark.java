@@ -0,0 +1,84 @@
+package com.estore.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.estore.api.estoreapi.model.Kit;
+import com.estore.api.estoreapi.model.Order;
+import com.estore.api.estoreapi.persistence.OrderRecord;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Measures converting kits and orders to and from JSON, as a response or a
+ * data file holds them
+ * <br>
+ * Orders are converted in the {@link OrderRecord record} form the order history
+ * file uses, and as the whole-kit form the API returns.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class JsonBenchmark {
+    @Param({"1", "1000", "100000"})
+    int size;
+
+    private ObjectMapper objectMapper;
+    private Kit[] kits;
+    private Order[] orders;
+    private OrderRecord[] records;
+    private byte[] kitsJson;
+    private byte[] recordsJson;
+
+    @Setup
+    public void setup() throws IOException {
+        objectMapper = new ObjectMapper();
+        DataGenerator generator = new DataGenerator(objectMapper);
+        kits = generator.kits(size, Math.max(1, size / 2));
+        orders = generator.orders(size, Math.max(1, size / 10), kits);
+        records = new OrderRecord[orders.length];
+        for (int i = 0; i < orders.length; i++)
+            records[i] = new OrderRecord(orders[i]);
+        kitsJson = objectMapper.writeValueAsBytes(kits);
+        recordsJson = objectMapper.writeValueAsBytes(records);
+    }
+
+    @Benchmark
+    public byte[] writeKits() throws IOException {
+        return objectMapper.writeValueAsBytes(kits);
+    }
+
+    @Benchmark
+    public Kit[] readKits() throws IOException {
+        return objectMapper.readValue(kitsJson, Kit[].class);
+    }
+
+    @Benchmark
+    public byte[] writeOrders() throws IOException {
+        return objectMapper.writeValueAsBytes(orders);
+    }
+
+    @Benchmark
+    public byte[] writeOrderRecords() throws IOException {
+        return objectMapper.writeValueAsBytes(records);
+    }
+
+    @Benchmark
+    public OrderRecord[] readOrderRecords() throws IOException {
+        return objectMapper.readValue(recordsJson, OrderRecord[].class);
+    }
+}
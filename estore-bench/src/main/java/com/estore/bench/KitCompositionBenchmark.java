@@ -0,0 +1,65 @@
+package com.estore.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.estore.api.estoreapi.model.Kit;
+import com.estore.api.estoreapi.model.Product;
+import com.estore.api.estoreapi.persistence.KitComposition;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Measures how many product quantity changes per second the kit composition
+ * can take, each recomputing only the kits that contain the product
+ * <br>
+ * There are half as many products as kits and each kit holds two to six of
+ * them, so a product is in about eight kits whatever the catalog size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class KitCompositionBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    private KitComposition composition;
+    private int productCount;
+    private int next;
+
+    @Setup
+    public void setup() {
+        DataGenerator generator = new DataGenerator(new ObjectMapper());
+        productCount = Math.max(1, size / 2);
+        composition = new KitComposition();
+        for (Product product : generator.products(productCount))
+            composition.setProduct(product.getId(), product.getQuantity());
+        for (Kit kit : generator.kits(size, productCount))
+            composition.setKit(kit.getId(), kit.getProductsInKit());
+    }
+
+    @Benchmark
+    public void setProduct() {
+        next = next % productCount + 1;
+        composition.setProduct(next, next & 1023); // always a change, so the kits are recomputed
+    }
+
+    @Benchmark
+    public int getLimit() {
+        next = next % size + 1;
+        return composition.getLimit(next);
+    }
+}
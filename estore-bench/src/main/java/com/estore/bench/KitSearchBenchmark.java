@@ -0,0 +1,77 @@
+package com.estore.bench;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.estore.api.estoreapi.model.Kit;
+import com.estore.api.estoreapi.persistence.KitFileDAO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Measures {@link KitFileDAO#findKits(String)}, answered from the trigram index,
+ * against the scan of every kit name it replaced
+ * <br>
+ * "mint" matches about one kit in fifteen, "kit 4242" one or a handful.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class KitSearchBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    @Param({"mint", "kit 4242"})
+    String query;
+
+    private Path dir;
+    private KitFileDAO kitDao;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = DataGenerator.tempDir();
+        DataGenerator generator = new DataGenerator(new ObjectMapper());
+        Path kits = dir.resolve("kits.json");
+        generator.write(kits, generator.kits(size, Math.max(1, size / 2)));
+        kitDao = new KitFileDAO(kits.toString(), new ObjectMapper());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        DataGenerator.delete(dir);
+    }
+
+    @Benchmark
+    public Kit[] findKits() {
+        return kitDao.findKits(query);
+    }
+
+    @Benchmark
+    public List<Kit> scan() {
+        // the search before the index: lower-case every name and test it
+        String text = query.toLowerCase();
+        List<Kit> found = new ArrayList<>();
+        for (Kit kit : kitDao.getKits())
+            if (kit.getName().toLowerCase().contains(text))
+                found.add(kit);
+        return found;
+    }
+}
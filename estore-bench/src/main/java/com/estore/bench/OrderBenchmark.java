@@ -0,0 +1,92 @@
+package com.estore.bench;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.estore.api.estoreapi.model.Kit;
+import com.estore.api.estoreapi.model.Order;
+import com.estore.api.estoreapi.persistence.OrderFileDAO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Measures placing an order and listing one user's orders, with one user for
+ * every ten orders in the history
+ * <br>
+ * Orders are journaled, as the API runs by default, but the snapshot is never
+ * compacted during the run so the measurement is the journal append alone.
+ * Listing only touches the user's own orders through the per-user index; the
+ * filtered scan of every order it replaced is measured alongside.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class OrderBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    private Path dir;
+    private OrderFileDAO orderDao;
+    private int userCount;
+    private ArrayList<Kit> basket;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = DataGenerator.tempDir();
+        DataGenerator generator = new DataGenerator(new ObjectMapper());
+        userCount = Math.max(1, size / 10);
+        Kit[] kits = generator.kits(Math.max(1, size / 10), Math.max(1, size / 20));
+        Path orders = dir.resolve("orders.json");
+        generator.writeOrders(orders, generator.orders(size, userCount, kits));
+        orderDao = new OrderFileDAO(orders.toString(), new ObjectMapper(), dir.resolve("orders.journal").toString(),
+                Integer.MAX_VALUE, "fast", 1000, Integer.MAX_VALUE);
+
+        basket = new ArrayList<>();
+        basket.add(kits[0].withId(kits[0].getId()));
+        basket.add(kits[kits.length - 1].withId(kits[kits.length - 1].getId()));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        orderDao.close();
+        DataGenerator.delete(dir);
+    }
+
+    private String nextUser() {
+        next = next % userCount + 1;
+        return DataGenerator.username(next);
+    }
+
+    @Benchmark
+    public Order createOrder() throws IOException {
+        return orderDao.createOrder(nextUser(), basket);
+    }
+
+    @Benchmark
+    public Order[] getOrders() throws IOException {
+        return orderDao.getOrders(nextUser());
+    }
+
+    @Benchmark
+    public Order[] findOrders() throws IOException {
+        return orderDao.findOrders("mint", nextUser());
+    }
+}
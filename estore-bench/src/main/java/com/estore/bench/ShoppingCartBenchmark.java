@@ -0,0 +1,57 @@
+package com.estore.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.estore.api.estoreapi.model.Kit;
+import com.estore.api.estoreapi.model.ShoppingCart;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Measures reading a cart's total, kept up to date by every change, and the
+ * cost of a change, for carts holding the given number of different kits
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShoppingCartBenchmark {
+    @Param({"10", "100", "1000"})
+    int size;
+
+    private ShoppingCart cart;
+    private Kit kit;
+
+    @Setup
+    public void setup() {
+        Kit[] kits = new DataGenerator(new ObjectMapper()).kits(size, 100);
+        cart = new ShoppingCart();
+        for (Kit k : kits)
+            cart.addKit(k, 2);
+        kit = kits[size / 2];
+    }
+
+    @Benchmark
+    public float getTotalCost() {
+        return cart.getTotalCost();
+    }
+
+    @Benchmark
+    public int addAndRemove() {
+        cart.addKit(kit, 1);
+        return cart.removeKit(kit, 1);
+    }
+}
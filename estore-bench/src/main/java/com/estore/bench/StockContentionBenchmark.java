@@ -0,0 +1,158 @@
+package com.estore.bench;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.estore.api.estoreapi.model.Kit;
+import com.estore.api.estoreapi.model.Product;
+import com.estore.api.estoreapi.persistence.InventoryFileDAO;
+import com.estore.api.estoreapi.persistence.KitComposition;
+import com.estore.api.estoreapi.persistence.KitFileDAO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Measures reserving and releasing kit stock from several threads at once,
+ * as shoppers filling and emptying their carts do, and browsing the catalog
+ * while it is being changed
+ * <br>
+ * In the hot benchmarks every thread works on the same kit; in the spread ones
+ * each call picks a kit at random, so threads rarely meet. The hotMixed group
+ * runs reserving and releasing threads side by side, the way carts being
+ * filled and swept overlap. Stock is written back to the kits file on the
+ * application's default schedule, so the numbers include the write-behind
+ * bookkeeping but not a disk write per call.
+ * <p>
+ * The browsing group runs shoppers listing and searching kits and listing
+ * products next to an admin updating kits and products, each update saved to
+ * disk before it returns. The readers' throughput is the figure to watch: it
+ * should hold up however long the saves take.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class StockContentionBenchmark {
+    @Param({"1000", "100000"})
+    int size;
+
+    private static final int HOT_KIT = 1;
+
+    private Path dir;
+    private KitFileDAO kitDao;
+    private InventoryFileDAO inventoryDao;
+    private int productCount;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = DataGenerator.tempDir();
+        DataGenerator generator = new DataGenerator(new ObjectMapper());
+        productCount = Math.max(1, size / 2);
+        KitComposition composition = new KitComposition();
+        for (Product product : generator.products(productCount))
+            composition.setProduct(product.getId(), Integer.MAX_VALUE); // the products never cap the kits
+        Kit[] kits = generator.kits(size, productCount);
+        for (Kit kit : kits)
+            kit.setQuantity(1_000_000_000); // the reserving threads never run a kit out
+        Path file = dir.resolve("kits.json");
+        generator.write(file, kits);
+        kitDao = new KitFileDAO(file.toString(), new ObjectMapper(), composition, "durable", 0, 1, 100, 1000);
+
+        // a catalog of its own, so the product updates leave the kits' stock alone
+        Path products = dir.resolve("products.json");
+        generator.write(products, generator.products(productCount));
+        inventoryDao = new InventoryFileDAO(products.toString(), new ObjectMapper(), new KitComposition(),
+                "durable", 0, 1);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        kitDao.close();
+        inventoryDao.close();
+        DataGenerator.delete(dir);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean hotReserveRelease() {
+        return kitDao.reserveStock(HOT_KIT, 1) && kitDao.releaseStock(HOT_KIT, 1);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean spreadReserveRelease() {
+        int id = ThreadLocalRandom.current().nextInt(size) + 1;
+        return kitDao.reserveStock(id, 1) && kitDao.releaseStock(id, 1);
+    }
+
+    @Benchmark
+    @Group("hotMixed")
+    @GroupThreads(2)
+    public boolean reserve() {
+        return kitDao.reserveStock(HOT_KIT, 1);
+    }
+
+    @Benchmark
+    @Group("hotMixed")
+    @GroupThreads(2)
+    public boolean release() {
+        return kitDao.releaseStock(HOT_KIT, 1);
+    }
+
+    @Benchmark
+    @Group("browseWhileSaving")
+    @GroupThreads(2)
+    public Kit[] listKits() {
+        return kitDao.getKits();
+    }
+
+    @Benchmark
+    @Group("browseWhileSaving")
+    @GroupThreads(2)
+    public Kit[] searchKits() {
+        return kitDao.findKits("kit 1");
+    }
+
+    @Benchmark
+    @Group("browseWhileSaving")
+    @GroupThreads(2)
+    public Product[] listProducts() {
+        return inventoryDao.getProducts();
+    }
+
+    @Benchmark
+    @Group("browseWhileSaving")
+    @GroupThreads(1)
+    public void updateKit(Blackhole blackhole) throws IOException {
+        int id = ThreadLocalRandom.current().nextInt(size) + 1;
+        blackhole.consume(kitDao.updateKit(kitDao.getKit(id).withId(id)));
+    }
+
+    @Benchmark
+    @Group("browseWhileSaving")
+    @GroupThreads(1)
+    public void updateProduct(Blackhole blackhole) throws IOException {
+        int id = ThreadLocalRandom.current().nextInt(productCount) + 1;
+        blackhole.consume(inventoryDao.updateProduct(inventoryDao.getProduct(id).withId(id)));
+    }
+}
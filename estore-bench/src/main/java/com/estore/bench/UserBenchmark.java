@@ -0,0 +1,93 @@
+package com.estore.bench;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.estore.api.estoreapi.model.User;
+import com.estore.api.estoreapi.persistence.UserFileDAO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Measures logging in and looking users up by username through the username
+ * index, against the scan of every user the controller used to do
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class UserBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    int size;
+
+    private Path dir;
+    private UserFileDAO userDao;
+    private String[] usernames;  // looked up in turn so no single entry stays hot in the cache
+    private String[] passwords;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = DataGenerator.tempDir();
+        DataGenerator generator = new DataGenerator(new ObjectMapper());
+        User[] users = generator.users(size);
+        Path file = dir.resolve("users.json");
+        generator.write(file, users);
+        userDao = new UserFileDAO(file.toString(), new ObjectMapper());
+
+        usernames = new String[1024];
+        passwords = new String[usernames.length];
+        for (int i = 0; i < usernames.length; i++) {
+            User user = users[(int)((long)i * size / usernames.length)];
+            usernames[i] = user.getUsername();
+            passwords[i] = user.getPassword();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        DataGenerator.delete(dir);
+    }
+
+    private int next() {
+        next = (next + 1) & (usernames.length - 1);
+        return next;
+    }
+
+    @Benchmark
+    public boolean authorize() {
+        int i = next();
+        return userDao.authorize(usernames[i], passwords[i]);
+    }
+
+    @Benchmark
+    public User findByUsername() {
+        return userDao.findByUsername(usernames[next()]);
+    }
+
+    @Benchmark
+    public User scan() {
+        // the lookup before the index: copy every user and compare each name
+        String username = usernames[next()];
+        User found = null;
+        for (User user : userDao.getUsers())
+            if (user.getUsername().equals(username))
+                found = user;
+        return found;
+    }
+}
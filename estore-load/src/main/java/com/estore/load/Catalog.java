@@ -0,0 +1,99 @@
+package com.estore.load;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The kits the shoppers browse and buy, fetched once before the run
+ * <br>
+ * Search words are the words of the kit names, so searches find some kits but
+ * not all of them, whatever data set the API was started with.
+ */
+final class Catalog {
+    private final List<JsonNode> kits;  // kits in stock when the run started
+    private final List<String> words;   // distinct words of their names
+
+    private Catalog(List<JsonNode> kits, List<String> words) {
+        this.kits = kits;
+        this.words = words;
+    }
+
+    /**
+     * Fetches the kits in stock
+     *
+     * @param client The client to fetch them with
+     * @param target The base URL of the API
+     * @param timeout The longest to wait for the kits
+     * @param mapper Reads the kits
+     *
+     * @return The catalog
+     *
+     * @throws IOException if the kits cannot be fetched or none are in stock
+     * @throws InterruptedException if interrupted while waiting for them
+     */
+    static Catalog fetch(HttpClient client, String target, Duration timeout, ObjectMapper mapper)
+            throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = client.send(
+                HttpRequest.newBuilder(URI.create(target + "/kits")).timeout(timeout).GET().build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200)
+            throw new IOException("GET " + target + "/kits answered " + response.statusCode());
+
+        List<JsonNode> kits = new ArrayList<>();
+        Set<String> words = new LinkedHashSet<>();
+        for (JsonNode kit : mapper.readTree(response.body())) {
+            if (kit.path("quantity").asInt() <= 0)
+                continue;
+            kits.add(kit);
+            for (String word : kit.path("name").asText().split("\\s+"))
+                if (word.length() >= 3 && !word.chars().allMatch(Character::isDigit))
+                    words.add(word);
+        }
+        if (kits.isEmpty())
+            throw new IOException("No kits are in stock at " + target
+                    + "; start the API with a data set, e.g. one written by com.estore.bench.DataGenerator");
+        return new Catalog(kits, new ArrayList<>(words));
+    }
+
+    /**
+     * Picks a kit in stock
+     *
+     * @param session The session choosing
+     *
+     * @return The kit, as the API returned it
+     */
+    JsonNode kit(Session session) {
+        return kits.get(session.random.nextInt(kits.size()));
+    }
+
+    /**
+     * Picks a word to search for
+     *
+     * @param session The session choosing
+     *
+     * @return A word from a kit name, "kit" if no name has one
+     */
+    String word(Session session) {
+        return words.isEmpty() ? "kit" : words.get(session.random.nextInt(words.size()));
+    }
+
+    /**
+     * Retrieves the number of kits in stock
+     *
+     * @return The number of kits
+     */
+    int size() {
+        return kits.size();
+    }
+}
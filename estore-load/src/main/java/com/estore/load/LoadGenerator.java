@@ -0,0 +1,221 @@
+package com.estore.load;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.HdrHistogram.Histogram;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Drives the API with scripted shopper traffic and reports the latency and
+ * throughput of every endpoint
+ * <br>
+ * Each of the virtual shoppers runs one {@link Scenario scenario} after
+ * another, chosen at random from the mix, waiting for every response before
+ * sending its next request. With an arrival rate, sessions are due at fixed
+ * intervals and a shopper waits for the next one that is due; a session's time
+ * is counted from when it was due, so a slow API shows up in the session times
+ * even while the shoppers' requests are waiting behind each other.
+ * <p>
+ * The shoppers' accounts are registered on every target before the run if
+ * they do not exist. Nothing is recorded during the warmup. With several
+ * targets the shoppers are spread over them, and cart requests the target
+ * forwarded to another instance are reported apart from the ones it handled
+ * itself.
+ * <pre>
+ * java -jar loadgen.jar --target http://localhost:8080 --users 32 --duration 120 --report run.json
+ * java -jar loadgen.jar --users 32 --duration 120 --baseline run.json
+ * </pre>
+ */
+public final class LoadGenerator {
+    private final LoadOptions options;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Stats stats = new Stats();
+    private final HttpClient client;
+    private final Duration timeout;
+    private volatile boolean running = true;
+
+    private LoadGenerator(LoadOptions options) {
+        this.options = options;
+        this.timeout = Duration.ofMillis(options.timeoutMillis);
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+    }
+
+    /**
+     * Hands out the times sessions are due, one interval apart
+     */
+    private static final class Pacer {
+        private final long intervalNanos;
+        private final AtomicLong next;
+
+        Pacer(double perSecond) {
+            this.intervalNanos = Math.max(1, Math.round(TimeUnit.SECONDS.toNanos(1) / perSecond));
+            this.next = new AtomicLong(System.nanoTime());
+        }
+
+        /**
+         * Waits until the next session is due
+         *
+         * @return When it was due, which is in the past if the shoppers have fallen behind
+         */
+        long await() throws InterruptedException {
+            long due = next.getAndAdd(intervalNanos);
+            long wait = due - System.nanoTime();
+            if (wait > 0)
+                TimeUnit.NANOSECONDS.sleep(wait);
+            return due;
+        }
+    }
+
+    /**
+     * Registers the shoppers' accounts on every target, leaving any that already
+     * exist; each instance keeps its own users
+     */
+    private void register() throws IOException, InterruptedException {
+        for (String target : options.targets) {
+            for (int i = 1; i <= options.users; i++) {
+                String path = Session.fill("/users/register?username={username}&password={password}&name={name}",
+                        Session.username(i), Session.PASSWORD, "Load Shopper " + i);
+                HttpResponse<Void> response = client.send(
+                        HttpRequest.newBuilder(URI.create(target + path)).timeout(timeout)
+                                .POST(HttpRequest.BodyPublishers.noBody()).build(),
+                        HttpResponse.BodyHandlers.discarding());
+                // a taken username is answered with 400, or 409 if it was taken while being registered
+                if (response.statusCode() != 201 && response.statusCode() != 400 && response.statusCode() != 409)
+                    throw new IOException("Could not register " + Session.username(i) + " at " + target
+                            + ", it answered " + response.statusCode());
+            }
+        }
+    }
+
+    /**
+     * Runs the shoppers through the warmup and the measured period
+     *
+     * @return The report of the measured period
+     */
+    private Report run() throws IOException, InterruptedException {
+        Catalog catalog = Catalog.fetch(client, options.targets.get(0), timeout, mapper);
+        register();
+        List<Scenario> mix = Scenario.mix(options.mix);
+        Pacer pacer = options.rate > 0 ? new Pacer(options.rate) : null;
+        System.out.printf("%d kits in stock; %d shoppers against %s, warming up for %d s%n", catalog.size(),
+                options.users, options.targets, options.warmupSeconds);
+
+        SplittableRandom seeds = new SplittableRandom(options.seed);
+        List<Thread> shoppers = new ArrayList<>();
+        for (int i = 1; i <= options.users; i++) {
+            Session session = new Session(i, options.targets.get((i - 1) % options.targets.size()),
+                    seeds.nextLong(), catalog, client, options, stats, mapper);
+            Thread thread = new Thread(() -> shop(session, mix, pacer), session.username);
+            thread.setDaemon(true);
+            shoppers.add(thread);
+            thread.start();
+        }
+
+        TimeUnit.SECONDS.sleep(options.warmupSeconds);
+        stats.setRecording(true);
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(options.durationSeconds);
+        long interval = options.intervalSeconds > 0 ? TimeUnit.SECONDS.toNanos(options.intervalSeconds) : end - start;
+        long last = start;
+        for (long now = start; now < end; now = System.nanoTime()) {
+            TimeUnit.NANOSECONDS.sleep(Math.min(end, last + interval) - now);
+            now = System.nanoTime();
+            if (now - last >= interval) {
+                progress(now - start, now - last);
+                last = now;
+            }
+        }
+        stats.setRecording(false);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        running = false;
+        for (Thread shopper : shoppers)
+            shopper.join(options.timeoutMillis);
+        drain();
+        return Report.of(options, stats, seconds);
+    }
+
+    private void shop(Session session, List<Scenario> mix, Pacer pacer) {
+        try {
+            while (running) {
+                long due = pacer == null ? System.nanoTime() : pacer.await();
+                Scenario scenario = mix.get(session.random.nextInt(mix.size()));
+                session.cart.clear();
+                scenario.run(session);
+                stats.session(scenario.getName(), System.nanoTime() - due);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Histogram drain() {
+        Histogram all = new Histogram(Stats.HIGHEST_MICROS, 3);
+        for (Stats.Series series : stats.requests().values())
+            all.add(series.drain());
+        for (Stats.Series series : stats.sessions().values())
+            series.drain();
+        return all;
+    }
+
+    private void progress(long elapsedNanos, long intervalNanos) {
+        Histogram interval = drain();
+        if (options.intervalSeconds > 0)
+            System.out.printf("%6.0f s %9.1f req/s  p50 %8.3f ms  p99 %8.3f ms  max %8.3f ms%n",
+                    elapsedNanos / 1e9, interval.getTotalCount() / (intervalNanos / 1e9),
+                    interval.getValueAtPercentile(50) / 1000.0, interval.getValueAtPercentile(99) / 1000.0,
+                    interval.getMaxValue() / 1000.0);
+    }
+
+    /**
+     * Runs a load test
+     *
+     * @param args The {@link LoadOptions options}; {@code --help} lists them
+     *
+     * @throws IOException if the API cannot be set up for the run, or a report cannot be read or written
+     * @throws InterruptedException if interrupted during the run
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        LoadOptions options;
+        try {
+            if (args.length == 1 && args[0].equals("--help")) {
+                System.out.println(LoadOptions.USAGE);
+                return;
+            }
+            options = LoadOptions.parse(args);
+            Scenario.mix(options.mix);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(LoadOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+
+        LoadGenerator generator = new LoadGenerator(options);
+        Report report = generator.run();
+        report.print(System.out);
+        if (options.report != null) {
+            report.write(new File(options.report), generator.mapper);
+            System.out.println("\nWrote the report to " + options.report);
+        }
+        if (options.baseline != null)
+            report.compare(Report.read(new File(options.baseline), generator.mapper), System.out);
+        if (options.rate > 0)
+            System.out.println("\nSession times count from when each session was due, " + options.rate
+                    + " per second");
+    }
+}
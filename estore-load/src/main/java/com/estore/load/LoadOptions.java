@@ -0,0 +1,122 @@
+package com.estore.load;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The settings of a load run, read from the command line
+ * <br>
+ * Every option is written {@code --name value} or {@code --name=value}; any
+ * option left out keeps the default shown by {@link #USAGE}.
+ */
+final class LoadOptions {
+    static final String USAGE = String.join("\n",
+            "usage: java -jar loadgen.jar [options]",
+            "  --target URLS      base URLs of the API, separated by commas (http://localhost:8080)",
+            "  --users N          virtual shoppers, each running one session at a time (16)",
+            "  --rate R           sessions started per second over all shoppers, 0 for as fast as they finish (0)",
+            "  --duration S       seconds to measure for (60)",
+            "  --warmup S         seconds to run before measuring (10)",
+            "  --think-ms MS      average pause between a shopper's requests (0)",
+            "  --mix MIX          scenarios and their weights (browse=4,search=2,shopper=3,checkout=1)",
+            "  --seed N           seed of the shoppers' random choices (20240401)",
+            "  --timeout-ms MS    longest to wait for a response (10000)",
+            "  --interval S       seconds between progress lines, 0 for none (10)",
+            "  --report FILE      write the report as JSON to FILE",
+            "  --baseline FILE    compare with the JSON report of an earlier run");
+
+    List<String> targets = new ArrayList<>(List.of("http://localhost:8080"));
+    int users = 16;
+    double rate = 0;
+    int durationSeconds = 60;
+    int warmupSeconds = 10;
+    long thinkMillis = 0;
+    String mix = "browse=4,search=2,shopper=3,checkout=1";
+    long seed = 20240401L;
+    long timeoutMillis = 10000;
+    int intervalSeconds = 10;
+    String report;
+    String baseline;
+
+    /**
+     * Reads the options of a run
+     *
+     * @param args The command line arguments
+     *
+     * @return The options, defaults filled in
+     *
+     * @throws IllegalArgumentException if an option is unknown, has no value or has a bad value
+     */
+    static LoadOptions parse(String[] args) {
+        LoadOptions options = new LoadOptions();
+        for (int i = 0; i < args.length; i++) {
+            String name = args[i];
+            String value;
+            if (!name.startsWith("--"))
+                throw new IllegalArgumentException("Unexpected argument " + name);
+            int equals = name.indexOf('=');
+            if (equals >= 0) {
+                value = name.substring(equals + 1);
+                name = name.substring(0, equals);
+            } else if (i + 1 < args.length) {
+                value = args[++i];
+            } else {
+                throw new IllegalArgumentException("No value for " + name);
+            }
+            options.set(name.substring(2), value);
+        }
+        if (options.users < 1 || options.durationSeconds < 1 || options.warmupSeconds < 0 || options.rate < 0
+                || options.thinkMillis < 0 || options.timeoutMillis < 1 || options.intervalSeconds < 0)
+            throw new IllegalArgumentException("Counts and times must not be negative, and users and duration at least 1");
+        return options;
+    }
+
+    private void set(String name, String value) {
+        try {
+            switch (name) {
+                case "target":
+                    targets = new ArrayList<>();
+                    for (String target : value.split(","))
+                        if (!target.isBlank())
+                            targets.add(target.trim().replaceAll("/+$", ""));
+                    if (targets.isEmpty())
+                        throw new IllegalArgumentException("No target given");
+                    break;
+                case "users": users = Integer.parseInt(value); break;
+                case "rate": rate = Double.parseDouble(value); break;
+                case "duration": durationSeconds = Integer.parseInt(value); break;
+                case "warmup": warmupSeconds = Integer.parseInt(value); break;
+                case "think-ms": thinkMillis = Long.parseLong(value); break;
+                case "mix": mix = value; break;
+                case "seed": seed = Long.parseLong(value); break;
+                case "timeout-ms": timeoutMillis = Long.parseLong(value); break;
+                case "interval": intervalSeconds = Integer.parseInt(value); break;
+                case "report": report = value; break;
+                case "baseline": baseline = value; break;
+                default: throw new IllegalArgumentException("Unknown option --" + name);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad value for --" + name + ": " + value);
+        }
+    }
+
+    /**
+     * Lists the options that shape the load, so reports of differently shaped runs can be told apart
+     *
+     * @return The option names and values, in a fixed order
+     */
+    Map<String, String> settings() {
+        Map<String, String> settings = new LinkedHashMap<>();
+        settings.put("targets", String.join(",", targets));
+        settings.put("users", Integer.toString(users));
+        settings.put("rate", Double.toString(rate));
+        settings.put("duration", Integer.toString(durationSeconds));
+        settings.put("warmup", Integer.toString(warmupSeconds));
+        settings.put("think-ms", Long.toString(thinkMillis));
+        settings.put("mix", mix);
+        settings.put("seed", Long.toString(seed));
+        return settings;
+    }
+}
@@ -0,0 +1,219 @@
+package com.estore.load;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.HdrHistogram.Histogram;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The results of a load run: throughput and latency percentiles of every
+ * endpoint and scenario
+ * <br>
+ * A report is printed as a table and can be written as JSON, so that a later run
+ * can {@link #compare(Report, PrintStream) compare} itself with it. Latencies
+ * are in milliseconds; a request counts as an error if it got no response or a
+ * status of 400 or above.
+ */
+final class Report {
+    /**
+     * The results of one endpoint or scenario
+     */
+    static final class Row {
+        @JsonProperty("name") final String name;
+        @JsonProperty("count") final long count;          // requests or sessions, errors included
+        @JsonProperty("errors") final long errors;
+        @JsonProperty("perSecond") final double perSecond;
+        @JsonProperty("mean") final double mean;
+        @JsonProperty("p50") final double p50;
+        @JsonProperty("p90") final double p90;
+        @JsonProperty("p99") final double p99;
+        @JsonProperty("p999") final double p999;
+        @JsonProperty("max") final double max;
+        @JsonProperty("outcomes") final Map<String, Long> outcomes; // status code, or "io", to count
+
+        @JsonCreator
+        Row(@JsonProperty("name") String name, @JsonProperty("count") long count,
+            @JsonProperty("errors") long errors, @JsonProperty("perSecond") double perSecond,
+            @JsonProperty("mean") double mean, @JsonProperty("p50") double p50,
+            @JsonProperty("p90") double p90, @JsonProperty("p99") double p99,
+            @JsonProperty("p999") double p999, @JsonProperty("max") double max,
+            @JsonProperty("outcomes") Map<String, Long> outcomes) {
+            this.name = name;
+            this.count = count;
+            this.errors = errors;
+            this.perSecond = perSecond;
+            this.mean = mean;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p99 = p99;
+            this.p999 = p999;
+            this.max = max;
+            this.outcomes = outcomes;
+        }
+
+        static Row of(String name, Stats.Series series, double seconds) {
+            Histogram latencies = series.total();
+            Map<String, Long> outcomes = series.outcomes();
+            long count = 0;
+            long errors = 0;
+            for (Map.Entry<String, Long> outcome : outcomes.entrySet()) {
+                count += outcome.getValue();
+                if (isError(outcome.getKey()))
+                    errors += outcome.getValue();
+            }
+            return new Row(name, count, errors, count / seconds, millis(latencies.getMean()),
+                    millis(latencies.getValueAtPercentile(50)), millis(latencies.getValueAtPercentile(90)),
+                    millis(latencies.getValueAtPercentile(99)), millis(latencies.getValueAtPercentile(99.9)),
+                    millis(latencies.getMaxValue()), outcomes);
+        }
+
+        private static boolean isError(String outcome) {
+            return outcome.equals("io") || (Character.isDigit(outcome.charAt(0)) && Integer.parseInt(outcome) >= 400);
+        }
+
+        private static double millis(double micros) {
+            return Math.round(micros) / 1000.0;
+        }
+    }
+
+    @JsonProperty("settings") final Map<String, String> settings;
+    @JsonProperty("seconds") final double seconds;
+    @JsonProperty("requests") final List<Row> requests;
+    @JsonProperty("sessions") final List<Row> sessions;
+
+    @JsonCreator
+    Report(@JsonProperty("settings") Map<String, String> settings, @JsonProperty("seconds") double seconds,
+           @JsonProperty("requests") List<Row> requests, @JsonProperty("sessions") List<Row> sessions) {
+        this.settings = settings;
+        this.seconds = seconds;
+        this.requests = requests;
+        this.sessions = sessions;
+    }
+
+    /**
+     * Builds the report of a run
+     *
+     * @param options The run's options
+     * @param stats What the run recorded, every recorder drained
+     * @param seconds How long it recorded for
+     *
+     * @return The report
+     */
+    static Report of(LoadOptions options, Stats stats, double seconds) {
+        List<Row> requests = new ArrayList<>();
+        List<Row> sessions = new ArrayList<>();
+        stats.requests().forEach((endpoint, series) -> requests.add(Row.of(endpoint, series, seconds)));
+        stats.sessions().forEach((scenario, series) -> sessions.add(Row.of(scenario, series, seconds)));
+        return new Report(options.settings(), seconds, requests, sessions);
+    }
+
+    /**
+     * Prints the report as tables of requests and sessions
+     *
+     * @param out Where to print it
+     */
+    void print(PrintStream out) {
+        out.printf("%n%d shoppers for %.1f s against %s, mix %s%n", Integer.parseInt(settings.get("users")),
+                seconds, settings.get("targets"), settings.get("mix"));
+        table(out, "request", requests, seconds);
+        table(out, "session", sessions, seconds);
+    }
+
+    private static void table(PrintStream out, String kind, List<Row> rows, double seconds) {
+        int width = kind.length();
+        for (Row row : rows)
+            width = Math.max(width, row.name.length());
+        String format = "%-" + width + "s %9s %7s %9s %9s %9s %9s %9s %9s %9s%n";
+        out.printf("%n" + format, kind, "count", "errors", "per sec", "mean ms", "p50", "p90", "p99", "p99.9", "max");
+        long count = 0;
+        long errors = 0;
+        for (Row row : rows) {
+            out.printf(format, row.name, row.count, row.errors, fixed(row.perSecond, 1), fixed(row.mean, 3),
+                    fixed(row.p50, 3), fixed(row.p90, 3), fixed(row.p99, 3), fixed(row.p999, 3), fixed(row.max, 3));
+            count += row.count;
+            errors += row.errors;
+        }
+        out.printf(format, "total", count, errors, fixed(count / seconds, 1), "", "", "", "", "", "");
+    }
+
+    /**
+     * Prints how this run differs from an earlier one: the change in throughput
+     * and in median and 99th percentile latency of every endpoint and scenario
+     * both runs have
+     *
+     * @param baseline The earlier run's report
+     * @param out Where to print the comparison
+     */
+    void compare(Report baseline, PrintStream out) {
+        if (!settings.equals(baseline.settings))
+            out.printf("%nThe runs were shaped differently; baseline: %s%n", baseline.settings);
+        compare(out, "request", requests, baseline.requests);
+        compare(out, "session", sessions, baseline.sessions);
+    }
+
+    private static void compare(PrintStream out, String kind, List<Row> rows, List<Row> baseline) {
+        Map<String, Row> before = new LinkedHashMap<>();
+        for (Row row : baseline)
+            before.put(row.name, row);
+        int width = kind.length() + 12;
+        for (Row row : rows)
+            width = Math.max(width, row.name.length());
+        String format = "%-" + width + "s %20s %22s %22s%n";
+        out.printf("%n" + format, kind + " vs baseline", "per sec", "p50 ms", "p99 ms");
+        for (Row row : rows) {
+            Row old = before.get(row.name);
+            if (old == null) {
+                out.printf(format, row.name, "new", "", "");
+                continue;
+            }
+            out.printf(format, row.name, change(old.perSecond, row.perSecond, 1), change(old.p50, row.p50, 3),
+                    change(old.p99, row.p99, 3));
+        }
+    }
+
+    private static String change(double before, double after, int places) {
+        String values = fixed(before, places) + " > " + fixed(after, places);
+        if (before == 0)
+            return values;
+        return values + String.format(" %+5.1f%%", (after - before) * 100 / before);
+    }
+
+    private static String fixed(double value, int places) {
+        return String.format("%." + places + "f", value);
+    }
+
+    /**
+     * Writes the report as JSON
+     *
+     * @param file The file to write
+     * @param mapper Writes the JSON
+     *
+     * @throws IOException if the file cannot be written
+     */
+    void write(File file, ObjectMapper mapper) throws IOException {
+        mapper.writerWithDefaultPrettyPrinter().writeValue(file, this);
+    }
+
+    /**
+     * Reads a report written by {@link #write(File, ObjectMapper)}
+     *
+     * @param file The file to read
+     * @param mapper Reads the JSON
+     *
+     * @return The report
+     *
+     * @throws IOException if the file cannot be read or is not a report
+     */
+    static Report read(File file, ObjectMapper mapper) throws IOException {
+        return mapper.readValue(file, Report.class);
+    }
+}
@@ -0,0 +1,152 @@
+package com.estore.load;
+
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * A scripted shopper visit, one of the traffic patterns a load run mixes
+ * <br>
+ * The built-in scenarios are:
+ * <ul>
+ * <li>{@code browse}: lists the kits and views a few of them, and lists the products</li>
+ * <li>{@code search}: asks for name suggestions, then searches the kits and products</li>
+ * <li>{@code shopper}: logs in, searches, fills a cart, looks at it and its total,
+ * then takes the kits back out, returning their stock</li>
+ * <li>{@code checkout}: logs in, fills a cart, orders it, empties the cart and
+ * looks at the order history</li>
+ * </ul>
+ * Only {@code checkout} uses up stock, so a long run needs a data set with plenty
+ * of it; a kit that runs out answers its cart additions with an error status,
+ * which the report counts.
+ */
+final class Scenario {
+    /**
+     * The steps of a scenario
+     */
+    @FunctionalInterface
+    interface Script {
+        void run(Session session) throws InterruptedException;
+    }
+
+    private static final Map<String, Scenario> BUILT_IN = new LinkedHashMap<>();
+
+    static {
+        add("browse", session -> {
+            session.send("GET", "/kits");
+            for (int i = 0; i < 3; i++)
+                session.send("GET", "/kits/{id}", session.catalog.kit(session).path("id").asInt());
+            session.send("GET", "/inventory");
+        });
+        add("search", session -> {
+            String word = session.catalog.word(session);
+            session.send("GET", "/kits/suggest?prefix={prefix}", word.substring(0, Math.min(3, word.length())));
+            session.send("GET", "/kits/?name={name}", word);
+            session.send("GET", "/inventory/?name={name}", word);
+        });
+        add("shopper", session -> {
+            if (!session.login())
+                return;
+            session.send("GET", "/kits");
+            session.send("GET", "/kits/?name={name}", session.catalog.word(session));
+            fillCart(session, 1 + session.random.nextInt(3));
+            session.send("GET", "/cart/{user}", session.userId);
+            session.send("GET", "/cart/total/{user}", session.userId);
+            for (Session.Item item : session.cart)
+                session.send("DELETE", "/cart/remove/{user}/{kit}/{quantity}", session.userId, item.id(), item.quantity);
+        });
+        add("checkout", session -> {
+            if (!session.login())
+                return;
+            fillCart(session, 1 + session.random.nextInt(2));
+            session.send("GET", "/cart/total/{user}", session.userId);
+            if (!session.cart.isEmpty()) {
+                HttpResponse<byte[]> ordered = session.send("POST", "/orders/create?username={username}&kitsJson={kits}",
+                        session.username, session.cartJson());
+                if (ordered != null && ordered.statusCode() == 201)
+                    session.cart.clear(); // bought, so clearing the cart must not return the stock
+            }
+            session.send("DELETE", "/cart/clear/{user}", session.userId);
+            session.send("GET", "/orders/?user={user}", session.username);
+        });
+    }
+
+    private static void add(String name, Script script) {
+        BUILT_IN.put(name, new Scenario(name, script));
+    }
+
+    private static void fillCart(Session session, int kits) throws InterruptedException {
+        for (int i = 0; i < kits; i++) {
+            JsonNode kit = session.catalog.kit(session);
+            session.addToCart(kit, 1 + session.random.nextInt(2));
+        }
+    }
+
+    private final String name;
+    private final Script script;
+
+    private Scenario(String name, Script script) {
+        this.name = name;
+        this.script = script;
+    }
+
+    /**
+     * Retrieves the scenario's name
+     *
+     * @return The name
+     */
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Runs the scenario once
+     *
+     * @param session The shopper to run it as
+     *
+     * @throws InterruptedException if interrupted while waiting for the API
+     */
+    void run(Session session) throws InterruptedException {
+        script.run(session);
+    }
+
+    /**
+     * Reads a scenario mix
+     *
+     * @param mix Scenario names and weights, such as {@code browse=4,checkout=1};
+     * a name without a weight has weight 1
+     *
+     * @return Each scenario repeated as often as its weight, to pick from at random
+     *
+     * @throws IllegalArgumentException if a scenario is unknown or a weight is not a positive number
+     */
+    static List<Scenario> mix(String mix) {
+        List<Scenario> picks = new ArrayList<>();
+        for (String part : mix.split(",")) {
+            if (part.isBlank())
+                continue;
+            String[] nameAndWeight = part.trim().split("=", 2);
+            Scenario scenario = BUILT_IN.get(nameAndWeight[0]);
+            if (scenario == null)
+                throw new IllegalArgumentException("Unknown scenario " + nameAndWeight[0]
+                        + ", expected one of " + BUILT_IN.keySet());
+            int weight;
+            try {
+                weight = nameAndWeight.length == 1 ? 1 : Integer.parseInt(nameAndWeight[1]);
+            } catch (NumberFormatException e) {
+                weight = 0;
+            }
+            if (weight < 1 || weight > 100)
+                throw new IllegalArgumentException("Weight of " + scenario.name + " must be 1 to 100");
+            for (int i = 0; i < weight; i++)
+                picks.add(scenario);
+        }
+        if (picks.isEmpty())
+            throw new IllegalArgumentException("No scenarios in the mix");
+        return picks;
+    }
+}
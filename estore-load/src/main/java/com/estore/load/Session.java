@@ -0,0 +1,221 @@
+package com.estore.load;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * One virtual shopper, running {@link Scenario scenarios} against the API one
+ * after another
+ * <br>
+ * Each shopper has its own account, {@code load1} to {@code loadN}, and its own
+ * seeded random choices, so a run with the same options sends the same requests.
+ * Requests are recorded by endpoint, the path template rather than the path,
+ * so {@code /kits/7} and {@code /kits/9} are both {@code GET /kits/{id}}. A cart
+ * request another instance answered is recorded apart from the local ones, with
+ * {@code [forwarded]} after its endpoint.
+ */
+final class Session {
+    static final String PASSWORD = "load-test-pw";
+
+    /** Response header naming the instance that owns a forwarded cart request */
+    private static final String FORWARDED_HEADER = "X-Cart-Forwarded";
+
+    /**
+     * A kit the shopper put in its cart this session
+     */
+    static final class Item {
+        final JsonNode kit;
+        final int quantity;
+
+        Item(JsonNode kit, int quantity) {
+            this.kit = kit;
+            this.quantity = quantity;
+        }
+
+        int id() {
+            return kit.path("id").asInt();
+        }
+    }
+
+    final String username;
+    final SplittableRandom random;
+    final Catalog catalog;
+    final List<Item> cart = new ArrayList<>();
+    int userId; // set by logging in, 0 until then
+
+    private final String target;       // base URL of the instance this shopper talks to
+    private final HttpClient client;
+    private final Duration timeout;
+    private final long thinkMillis;
+    private final Stats stats;
+    private final ObjectMapper mapper;
+
+    /**
+     * Creates a shopper
+     *
+     * @param index The shopper's number, from 1
+     * @param target The base URL of the API instance it talks to
+     * @param seed The seed of its random choices
+     * @param catalog The kits it browses and buys
+     * @param client The client it sends requests with
+     * @param options The run's options
+     * @param stats Where its requests are recorded
+     * @param mapper Reads and writes JSON bodies
+     */
+    Session(int index, String target, long seed, Catalog catalog, HttpClient client,
+            LoadOptions options, Stats stats, ObjectMapper mapper) {
+        this.username = username(index);
+        this.random = new SplittableRandom(seed);
+        this.catalog = catalog;
+        this.target = target;
+        this.client = client;
+        this.timeout = Duration.ofMillis(options.timeoutMillis);
+        this.thinkMillis = options.thinkMillis;
+        this.stats = stats;
+        this.mapper = mapper;
+    }
+
+    /**
+     * Retrieves the username of a shopper
+     *
+     * @param index The shopper's number
+     *
+     * @return The username
+     */
+    static String username(int index) {
+        return "load" + index;
+    }
+
+    /**
+     * Sends a request, records it, then pauses for the think time
+     *
+     * @param method The HTTP method
+     * @param template The path, with a {@code {name}} placeholder for each argument
+     * @param args The values of the placeholders, in order; URL-encoded into the path
+     *
+     * @return The response, null if none came
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    HttpResponse<byte[]> send(String method, String template, Object... args) throws InterruptedException {
+        String endpoint = method + " " + template;
+        HttpRequest request = HttpRequest.newBuilder(URI.create(target + fill(template, args)))
+                .timeout(timeout)
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .build();
+        HttpResponse<byte[]> response = null;
+        long start = System.nanoTime();
+        try {
+            response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            long nanos = System.nanoTime() - start;
+            if (response.headers().firstValue(FORWARDED_HEADER).isPresent())
+                endpoint += " [forwarded]";
+            stats.request(endpoint, response.statusCode(), nanos);
+        } catch (IOException e) {
+            stats.failure(endpoint);
+        }
+        think();
+        return response;
+    }
+
+    /**
+     * Logs the shopper in, learning its user id
+     *
+     * @return true if it logged in
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean login() throws InterruptedException {
+        HttpResponse<byte[]> response = send("POST", "/users/login?username={username}&password={password}",
+                username, PASSWORD);
+        if (response == null || response.statusCode() != 200)
+            return false;
+        try {
+            userId = mapper.readTree(response.body()).path("userId").asInt();
+        } catch (IOException e) {
+            return false;
+        }
+        return userId > 0;
+    }
+
+    /**
+     * Puts a kit in the shopper's cart
+     *
+     * @param kit The kit
+     * @param quantity How many to add
+     *
+     * @return true if the cart took them; false if, for one, the kit ran out of stock
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean addToCart(JsonNode kit, int quantity) throws InterruptedException {
+        int id = kit.path("id").asInt();
+        HttpResponse<byte[]> response = send("POST", "/cart/add/{user}/{kit}/{quantity}", userId, id, quantity);
+        if (response == null || response.statusCode() != 200)
+            return false;
+        cart.add(new Item(kit, quantity));
+        return true;
+    }
+
+    /**
+     * Writes the shopper's cart as the {@code kitsJson} of an order: the kits as
+     * the API returned them, each with the quantity bought
+     *
+     * @return The JSON array
+     */
+    String cartJson() {
+        ArrayNode kits = mapper.createArrayNode();
+        for (Item item : cart) {
+            ObjectNode kit = item.kit.deepCopy();
+            kit.put("quantity", item.quantity);
+            kits.add(kit);
+        }
+        return kits.toString();
+    }
+
+    private void think() throws InterruptedException {
+        if (thinkMillis > 0) // uniform around the average, so shoppers drift out of step
+            TimeUnit.MILLISECONDS.sleep(thinkMillis / 2 + random.nextLong(thinkMillis + 1));
+    }
+
+    /**
+     * Fills the placeholders of a path template
+     *
+     * @param template The path, such as {@code /cart/add/{user}/{kit}/{quantity}}
+     * @param args The values of the placeholders, in order
+     *
+     * @return The path, such as {@code /cart/add/7/2/1}
+     */
+    static String fill(String template, Object... args) {
+        StringBuilder path = new StringBuilder(template.length() + 16);
+        int arg = 0;
+        int i = 0;
+        while (i < template.length()) {
+            int open = template.indexOf('{', i);
+            int close = open < 0 ? -1 : template.indexOf('}', open);
+            if (close < 0 || arg >= args.length) {
+                path.append(template, i, template.length());
+                break;
+            }
+            path.append(template, i, open)
+                    .append(URLEncoder.encode(String.valueOf(args[arg++]), StandardCharsets.UTF_8));
+            i = close + 1;
+        }
+        return path.toString();
+    }
+}
@@ -0,0 +1,136 @@
+package com.estore.load;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Records the latency of every request and session of a run, by endpoint
+ * <br>
+ * Each endpoint has its own HdrHistogram {@link Recorder recorder}, so the
+ * shoppers record without locking. The progress reporter drains the recorders
+ * every interval into running totals, which make up the {@link Report report}.
+ * Latencies are kept in microseconds; nothing is recorded while
+ * {@link #setRecording(boolean) recording} is off, as during the warmup.
+ */
+final class Stats {
+    /** Longest latency that can be recorded, longer ones are recorded as this */
+    static final long HIGHEST_MICROS = TimeUnit.MINUTES.toMicros(10);
+    private static final int DIGITS = 3; // significant digits the histograms keep
+
+    /**
+     * The latencies and outcomes of one endpoint or scenario
+     */
+    static final class Series {
+        private final Recorder recorder = new Recorder(HIGHEST_MICROS, DIGITS);
+        private final Histogram total = new Histogram(HIGHEST_MICROS, DIGITS);
+        private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>(); // status code or "io" to count
+
+        private void record(long nanos, String outcome) {
+            if (nanos >= 0)
+                recorder.recordValue(Math.min(HIGHEST_MICROS, Math.max(1, TimeUnit.NANOSECONDS.toMicros(nanos))));
+            outcomes.computeIfAbsent(outcome, o -> new LongAdder()).increment();
+        }
+
+        /**
+         * Moves what was recorded since the last drain into the total
+         *
+         * @return What was recorded since the last drain
+         */
+        synchronized Histogram drain() {
+            Histogram interval = recorder.getIntervalHistogram();
+            total.add(interval);
+            return interval;
+        }
+
+        /**
+         * Retrieves everything drained so far
+         *
+         * @return A copy of the total
+         */
+        synchronized Histogram total() {
+            return total.copy();
+        }
+
+        /**
+         * Counts the outcomes recorded, by status code
+         *
+         * @return Status code, or "io" for requests that got no response, to count
+         */
+        Map<String, Long> outcomes() {
+            Map<String, Long> counts = new TreeMap<>();
+            outcomes.forEach((outcome, count) -> counts.put(outcome, count.sum()));
+            return counts;
+        }
+    }
+
+    private final Map<String, Series> requests = new ConcurrentHashMap<>();
+    private final Map<String, Series> sessions = new ConcurrentHashMap<>();
+    private volatile boolean recording;
+
+    /**
+     * Records a request that got a response
+     *
+     * @param endpoint The endpoint, such as {@code GET /kits/{id}}
+     * @param status The response status
+     * @param nanos How long the response took
+     */
+    void request(String endpoint, int status, long nanos) {
+        if (recording)
+            requests.computeIfAbsent(endpoint, e -> new Series()).record(nanos, Integer.toString(status));
+    }
+
+    /**
+     * Records a request that got no response, because the API could not be
+     * reached or did not answer in time
+     *
+     * @param endpoint The endpoint
+     */
+    void failure(String endpoint) {
+        if (recording)
+            requests.computeIfAbsent(endpoint, e -> new Series()).record(-1, "io");
+    }
+
+    /**
+     * Records a finished session
+     *
+     * @param scenario The session's scenario
+     * @param nanos How long the session took, from when it was due to start
+     */
+    void session(String scenario, long nanos) {
+        if (recording)
+            sessions.computeIfAbsent(scenario, s -> new Series()).record(nanos, "done");
+    }
+
+    /**
+     * Turns recording on or off
+     *
+     * @param recording true to record from now on
+     */
+    void setRecording(boolean recording) {
+        this.recording = recording;
+    }
+
+    /**
+     * Retrieves the requests recorded so far, by endpoint
+     *
+     * @return The endpoints, in name order
+     */
+    Map<String, Series> requests() {
+        return new TreeMap<>(requests);
+    }
+
+    /**
+     * Retrieves the sessions recorded so far, by scenario
+     *
+     * @return The scenarios, in name order
+     */
+    Map<String, Series> sessions() {
+        return new TreeMap<>(sessions);
+    }
+}